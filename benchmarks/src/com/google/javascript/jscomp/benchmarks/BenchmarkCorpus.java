@@ -0,0 +1,157 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.javascript.jscomp.CommandLineRunner;
+import com.google.javascript.jscomp.SourceFile;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The inputs the benchmarks run over. A corpus is selected by name with the {@code corpus} JMH
+ * parameter:
+ *
+ * <ul>
+ *   <li>{@code synthetic}: a generated Closure Library-style tree of {@code fileCount} files using
+ *       goog.provide/goog.require, JSDoc annotated constructors and prototype methods.
+ *   <li>{@code externs}: the externs bundled with the compiler (the contents of externs.zip).
+ *   <li>any other value is taken to be a directory, and every .js file below it is loaded in
+ *       path order.
+ * </ul>
+ */
+final class BenchmarkCorpus {
+  static final String SYNTHETIC = "synthetic";
+  static final String EXTERNS = "externs";
+
+  /** Number of synthetic files per generated package directory. */
+  private static final int FILES_PER_PACKAGE = 100;
+
+  private BenchmarkCorpus() {}
+
+  static List<SourceFile> load(String corpus, int fileCount) throws IOException {
+    switch (corpus) {
+      case SYNTHETIC:
+        return synthetic(fileCount);
+      case EXTERNS:
+        return CommandLineRunner.getDefaultExterns();
+      default:
+        return fromDirectory(Paths.get(corpus));
+    }
+  }
+
+  /**
+   * Generates a tree of {@code fileCount} Closure-style files. Each file requires its predecessor,
+   * so the inputs are already in dependency order, and exports one value so that the code survives
+   * ADVANCED optimizations.
+   */
+  static List<SourceFile> synthetic(int fileCount) {
+    List<SourceFile> files = new ArrayList<>(fileCount + 1);
+    files.add(
+        SourceFile.fromCode(
+            "closure/goog/base.js",
+            "/** @const */ var goog = goog || {};\n"
+                + "/** @param {string} name */ goog.provide = function(name) {};\n"
+                + "/** @param {string} name */ goog.require = function(name) {};\n"));
+    for (int i = 0; i < fileCount; i++) {
+      files.add(SourceFile.fromCode(syntheticPath(i), syntheticSource(i)));
+    }
+    return ImmutableList.copyOf(files);
+  }
+
+  private static String syntheticPath(int index) {
+    return "bench/pkg" + (index / FILES_PER_PACKAGE) + "/module" + index + ".js";
+  }
+
+  private static String syntheticNamespace(int index) {
+    return "bench.pkg" + (index / FILES_PER_PACKAGE) + ".Module" + index;
+  }
+
+  private static String syntheticSource(int index) {
+    String ns = syntheticNamespace(index);
+    StringBuilder sb = new StringBuilder(2048);
+    sb.append("goog.provide('").append(ns).append("');\n\n");
+    if (index > 0) {
+      sb.append("goog.require('").append(syntheticNamespace(index - 1)).append("');\n\n");
+    }
+    sb.append("/**\n")
+        .append(" * A generated class number ").append(index).append(".\n")
+        .append(" * @param {number} size The number of values to hold.\n")
+        .append(" * @constructor\n")
+        .append(" */\n")
+        .append(ns).append(" = function(size) {\n")
+        .append("  /** @private {!Array<number>} */\n")
+        .append("  this.values_ = [];\n")
+        .append("  for (var i = 0; i < size; i++) {\n")
+        .append("    this.values_.push(i * ").append(index).append(");\n")
+        .append("  }\n")
+        .append("};\n\n")
+        .append("/** @return {number} The sum of all values. */\n")
+        .append(ns).append(".prototype.sum = function() {\n")
+        .append("  var total = 0;\n")
+        .append("  for (var i = 0; i < this.values_.length; i++) {\n")
+        .append("    total += this.values_[i];\n")
+        .append("  }\n")
+        .append("  return total;\n")
+        .append("};\n\n")
+        .append("/**\n")
+        .append(" * @param {string} prefix\n")
+        .append(" * @return {string}\n")
+        .append(" */\n")
+        .append(ns).append(".prototype.describe = function(prefix) {\n")
+        .append("  return prefix + ': ' + this.sum();\n")
+        .append("};\n\n");
+    if (index > 0) {
+      sb.append("/** @return {number} */\n")
+          .append(ns).append(".prototype.combined = function() {\n")
+          .append("  return this.sum() + new ").append(syntheticNamespace(index - 1))
+          .append("(3).sum();\n")
+          .append("};\n\n");
+    }
+    sb.append("window['bench").append(index).append("'] = new ").append(ns)
+        .append("(").append(index % 10).append(").describe('module").append(index)
+        .append("');\n");
+    return sb.toString();
+  }
+
+  private static List<SourceFile> fromDirectory(Path root) throws IOException {
+    List<Path> paths;
+    try (Stream<Path> stream = Files.walk(root)) {
+      paths =
+          stream
+              .filter(p -> Files.isRegularFile(p) && p.toString().endsWith(".js"))
+              .sorted()
+              .collect(Collectors.toList());
+    }
+    if (paths.isEmpty()) {
+      throw new IllegalArgumentException("No .js files found under " + root);
+    }
+    List<SourceFile> files = new ArrayList<>(paths.size());
+    for (Path path : paths) {
+      files.add(SourceFile.fromPath(path, StandardCharsets.UTF_8));
+    }
+    return Collections.unmodifiableList(files);
+  }
+}
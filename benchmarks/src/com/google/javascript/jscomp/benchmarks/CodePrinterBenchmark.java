@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.benchmarks;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.google.javascript.jscomp.CodePrinter;
+import com.google.javascript.jscomp.Compiler;
+import com.google.javascript.jscomp.CompilerOptions;
+import com.google.javascript.jscomp.SourceFile;
+import com.google.javascript.rhino.Node;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures {@link CodePrinter.Builder#build} over the parsed AST of a corpus. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CodePrinterBenchmark {
+  @Param({BenchmarkCorpus.SYNTHETIC, BenchmarkCorpus.EXTERNS})
+  public String corpus;
+
+  @Param({"1000"})
+  public int fileCount;
+
+  @Param({"false", "true"})
+  public boolean prettyPrint;
+
+  private CompilerOptions options;
+  private Node jsRoot;
+
+  @Setup
+  public void setUp() throws IOException {
+    options = new CompilerOptions();
+    Compiler compiler = new Compiler(new PrintStream(ByteStreams.nullOutputStream()));
+    compiler.init(
+        ImmutableList.<SourceFile>of(), BenchmarkCorpus.load(corpus, fileCount), options);
+    compiler.parse();
+    checkState(!compiler.hasErrors(), "Corpus does not parse cleanly");
+    jsRoot = compiler.getRoot().getLastChild();
+  }
+
+  @Benchmark
+  public String print() {
+    return new CodePrinter.Builder(jsRoot)
+        .setCompilerOptions(options)
+        .setPrettyPrint(prettyPrint)
+        .build();
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.benchmarks;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.io.ByteStreams;
+import com.google.javascript.jscomp.CommandLineRunner;
+import com.google.javascript.jscomp.CompilationLevel;
+import com.google.javascript.jscomp.Compiler;
+import com.google.javascript.jscomp.CompilerOptions;
+import com.google.javascript.jscomp.SourceFile;
+import com.google.javascript.jscomp.WarningLevel;
+import com.google.javascript.rhino.Node;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the three main phases of an ADVANCED compilation separately: parsing the inputs,
+ * running the checks, and running the optimizations. Each phase starts from a fresh compiler that
+ * has been brought to the state just before that phase, so the numbers are independent of each
+ * other.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xss8m"})
+public class CompilerPhasesBenchmark {
+
+  /** The externs and inputs shared by all compilations of a trial. */
+  @State(Scope.Benchmark)
+  public static class Inputs {
+    @Param({BenchmarkCorpus.SYNTHETIC})
+    public String corpus;
+
+    @Param({"1000"})
+    public int fileCount;
+
+    List<SourceFile> externs;
+    List<SourceFile> inputs;
+
+    @Setup
+    public void setUp() throws IOException {
+      externs = CommandLineRunner.getDefaultExterns();
+      inputs = BenchmarkCorpus.load(corpus, fileCount);
+    }
+
+    Compiler newCompiler() {
+      CompilerOptions options = new CompilerOptions();
+      CompilationLevel.ADVANCED_OPTIMIZATIONS.setOptionsForCompilationLevel(options);
+      WarningLevel.DEFAULT.setOptionsForWarningLevel(options);
+      options.setEnvironment(CompilerOptions.Environment.BROWSER);
+      Compiler compiler = new Compiler(new PrintStream(ByteStreams.nullOutputStream()));
+      compiler.init(externs, inputs, options);
+      return compiler;
+    }
+  }
+
+  /** A compiler that has been initialized but has not parsed anything yet. */
+  @State(Scope.Thread)
+  public static class Initialized {
+    Compiler compiler;
+
+    @Setup(Level.Invocation)
+    public void setUp(Inputs inputs) {
+      compiler = inputs.newCompiler();
+    }
+  }
+
+  /** A compiler that is ready to run the checks. */
+  @State(Scope.Thread)
+  public static class Parsed {
+    Compiler compiler;
+
+    @Setup(Level.Invocation)
+    public void setUp(Inputs inputs) {
+      compiler = inputs.newCompiler();
+      compiler.parseForCompilation();
+      checkState(!compiler.hasErrors(), "Corpus does not parse cleanly");
+    }
+  }
+
+  /** A compiler that is ready to run the optimizations. */
+  @State(Scope.Thread)
+  public static class Checked {
+    Compiler compiler;
+
+    @Setup(Level.Invocation)
+    public void setUp(Inputs inputs) {
+      compiler = inputs.newCompiler();
+      compiler.parseForCompilation();
+      checkState(!compiler.hasErrors(), "Corpus does not parse cleanly");
+      compiler.stage1Passes();
+      checkState(!compiler.hasErrors(), "Corpus does not pass the checks cleanly");
+    }
+  }
+
+  @Benchmark
+  public Node parse(Initialized state) {
+    state.compiler.parse();
+    return state.compiler.getRoot();
+  }
+
+  @Benchmark
+  public Node check(Parsed state) {
+    state.compiler.stage1Passes();
+    return state.compiler.getRoot();
+  }
+
+  @Benchmark
+  public Node optimize(Checked state) {
+    state.compiler.stage2Passes();
+    return state.compiler.getRoot();
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.benchmarks;
+
+import com.google.javascript.jscomp.SourceFile;
+import com.google.javascript.jscomp.parsing.Config;
+import com.google.javascript.jscomp.parsing.Config.LanguageMode;
+import com.google.javascript.jscomp.parsing.ParserRunner;
+import com.google.javascript.rhino.ErrorReporter;
+import com.google.javascript.rhino.Node;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures reading, writing and copying {@link Node} properties over parsed ASTs. Run with
+ * {@code -prof gc} to see how many bytes each operation allocates per node.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class NodePropertyBenchmark {
+  private static final ErrorReporter NULL_REPORTER =
+      new ErrorReporter() {
+        @Override
+        public void warning(String message, String sourceName, int line, int lineOffset) {}
+
+        @Override
+        public void error(String message, String sourceName, int line, int lineOffset) {}
+      };
+
+  @Param({BenchmarkCorpus.SYNTHETIC, BenchmarkCorpus.EXTERNS})
+  public String corpus;
+
+  @Param({"200"})
+  public int fileCount;
+
+  private List<Node> nodes;
+
+  @Setup
+  public void setUp() throws IOException {
+    Config config =
+        ParserRunner.createConfig(
+            LanguageMode.ECMASCRIPT8,
+            Config.JsDocParsing.TYPES_ONLY,
+            Config.RunMode.KEEP_GOING,
+            null,
+            true,
+            Config.StrictMode.SLOPPY);
+    nodes = new ArrayList<>();
+    for (SourceFile file : BenchmarkCorpus.load(corpus, fileCount)) {
+      Node root = ParserRunner.parse(file, file.getCode(), config, NULL_REPORTER).ast;
+      collect(root, nodes);
+    }
+  }
+
+  private static void collect(Node n, List<Node> into) {
+    into.add(n);
+    for (Node c = n.getFirstChild(); c != null; c = c.getNext()) {
+      collect(c, into);
+    }
+  }
+
+  /** Reads a boolean, an int and an object property from every node. */
+  @Benchmark
+  public void read(Blackhole bh) {
+    for (Node n : nodes) {
+      bh.consume(n.getBooleanProp(Node.IS_CONSTANT_NAME));
+      bh.consume(n.getIntProp(Node.CHANGE_TIME));
+      bh.consume(n.getJSDocInfo());
+    }
+  }
+
+  /** Sets and then clears a boolean property on every node. */
+  @Benchmark
+  public void toggleBoolean(Blackhole bh) {
+    for (Node n : nodes) {
+      n.putBooleanProp(Node.IS_CONSTANT_NAME, true);
+      bh.consume(n.getBooleanProp(Node.IS_CONSTANT_NAME));
+      n.removeProp(Node.IS_CONSTANT_NAME);
+    }
+  }
+
+  /** Sets and then clears an int property that is not a boolean on every node. */
+  @Benchmark
+  public void toggleInt(Blackhole bh) {
+    for (Node n : nodes) {
+      n.putIntProp(Node.CHANGE_TIME, 7);
+      bh.consume(n.getIntProp(Node.CHANGE_TIME));
+      n.removeProp(Node.CHANGE_TIME);
+    }
+  }
+
+  /** Copies the properties of every node onto a fresh node, as cloning does. */
+  @Benchmark
+  public void cloneNode(Blackhole bh) {
+    for (Node n : nodes) {
+      bh.consume(n.cloneNode());
+    }
+  }
+}
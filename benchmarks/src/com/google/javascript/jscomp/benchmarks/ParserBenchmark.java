@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.benchmarks;
+
+import com.google.javascript.jscomp.SourceFile;
+import com.google.javascript.jscomp.parsing.Config;
+import com.google.javascript.jscomp.parsing.Config.LanguageMode;
+import com.google.javascript.jscomp.parsing.ParserRunner;
+import com.google.javascript.rhino.ErrorReporter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link ParserRunner#parse}, i.e. scanning, parsing, JSDoc parsing and IR conversion,
+ * without any of the bookkeeping done by {@code Compiler}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ParserBenchmark {
+  private static final ErrorReporter NULL_REPORTER =
+      new ErrorReporter() {
+        @Override
+        public void warning(String message, String sourceName, int line, int lineOffset) {}
+
+        @Override
+        public void error(String message, String sourceName, int line, int lineOffset) {}
+      };
+
+  @Param({BenchmarkCorpus.SYNTHETIC, BenchmarkCorpus.EXTERNS})
+  public String corpus;
+
+  @Param({"1000"})
+  public int fileCount;
+
+  private List<SourceFile> files;
+  private List<String> contents;
+  private Config config;
+
+  @Setup
+  public void setUp() throws IOException {
+    files = BenchmarkCorpus.load(corpus, fileCount);
+    contents = new ArrayList<>(files.size());
+    for (SourceFile file : files) {
+      contents.add(file.getCode());
+    }
+    config =
+        ParserRunner.createConfig(
+            LanguageMode.ECMASCRIPT8,
+            Config.JsDocParsing.TYPES_ONLY,
+            Config.RunMode.KEEP_GOING,
+            null,
+            true,
+            Config.StrictMode.SLOPPY);
+  }
+
+  @Benchmark
+  public void parse(Blackhole bh) {
+    for (int i = 0; i < files.size(); i++) {
+      bh.consume(ParserRunner.parse(files.get(i), contents.get(i), config, NULL_REPORTER));
+    }
+  }
+}
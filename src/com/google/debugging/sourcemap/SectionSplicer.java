@@ -0,0 +1,250 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.debugging.sourcemap;
+
+import com.google.debugging.sourcemap.SourceMapConsumerV3.StringCharIterator;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+
+/**
+ * Concatenates the mappings of the sections of an index map into the mappings
+ * of one source map, without turning them into mapping objects.
+ *
+ * <p>The encoded entries of each section are copied as they are, except for
+ * the values that have to change: the column of entries on the first line of
+ * a section, the first values relative to the entries of the previous section,
+ * and the ids of sources and names that are numbered differently in the
+ * result. Only those are decoded and encoded again, so the time taken is
+ * linear in the size of the sections.
+ */
+final class SectionSplicer {
+  private static final int MAX_ENTRY_VALUES = 5;
+
+  private final StringBuilder mappings = new StringBuilder();
+  private final LinkedHashMap<String, Integer> sourceIds = new LinkedHashMap<>();
+  private final LinkedHashMap<String, Integer> nameIds = new LinkedHashMap<>();
+
+  // The line of the last entry written, and whether there is one on it.
+  private int line = 0;
+  private boolean lineHasEntries = false;
+  private boolean lastEntryMapped = false;
+
+  // Previous values written, the entries of the next section are rewritten
+  // to be relative to.
+  private int previousColumn = 0;
+  private int previousSourceId = 0;
+  private int previousSourceLine = 0;
+  private int previousSourceColumn = 0;
+  private int previousNameId = 0;
+
+  private final int[] values = new int[MAX_ENTRY_VALUES];
+  private final int[] rewritten = new int[MAX_ENTRY_VALUES];
+
+  /**
+   * Appends the mappings of a section that starts at the given position of the
+   * generated file. Sections must be added in the order of the generated file.
+   */
+  void addSection(int offsetLine, int offsetColumn, SourceMapObject section)
+      throws SourceMapParseException {
+    if (section.getVersion() != 3) {
+      throw new SourceMapParseException("Unknown version: " + section.getVersion());
+    }
+    if (section.getSections() != null) {
+      throw new SourceMapParseException("Invalid map format: nested sections");
+    }
+
+    String[] sources = section.getSources();
+    String[] names = section.getNames();
+    int[] sourceIdMap = sources != null ? idsOf(sources, sourceIds) : new int[0];
+    int[] nameIdMap = names != null ? idsOf(names, nameIds) : new int[0];
+    String sectionMappings = section.getMappings() != null ? section.getMappings() : "";
+
+    // The values decoded so far, relative to the start of the section.
+    int sectionLine = 0;
+    int sectionColumn = 0;
+    int sectionSourceId = 0;
+    int sectionSourceLine = 0;
+    int sectionSourceColumn = 0;
+    int sectionNameId = 0;
+    boolean sectionStarted = false;
+
+    StringCharIterator content =
+        new StringCharIterator(sectionMappings, 0, sectionMappings.length());
+    try {
+      while (content.hasNext()) {
+        char c = content.peek();
+        if (c == ';') {
+          content.next();
+          sectionLine++;
+          sectionColumn = 0;
+          continue;
+        } else if (c == ',') {
+          content.next();
+          continue;
+        }
+
+        int entryStart = content.current;
+        int entryValues = 0;
+        while (content.hasNext() && content.peek() != ';' && content.peek() != ',') {
+          if (entryValues == MAX_ENTRY_VALUES) {
+            throw new SourceMapParseException("Too many values for entry");
+          }
+          values[entryValues++] = Base64VLQ.decode(content);
+        }
+        if (entryValues != 1 && entryValues != 4 && entryValues != 5) {
+          throw new SourceMapParseException(
+              "Unexpected number of values for entry:" + entryValues);
+        }
+
+        sectionColumn += values[0];
+        int outputLine = offsetLine + sectionLine;
+        int outputColumn = sectionLine == 0 ? sectionColumn + offsetColumn : sectionColumn;
+        if (!sectionStarted) {
+          startSection(offsetLine, offsetColumn, outputLine, outputColumn);
+          sectionStarted = true;
+        }
+        moveToLine(outputLine);
+        if (lineHasEntries) {
+          mappings.append(',');
+        }
+
+        rewritten[0] = outputColumn - previousColumn;
+        previousColumn = outputColumn;
+        if (entryValues > 1) {
+          sectionSourceId += values[1];
+          sectionSourceLine += values[2];
+          sectionSourceColumn += values[3];
+          int sourceId = lookUp(sourceIdMap, sectionSourceId, "source");
+          rewritten[1] = sourceId - previousSourceId;
+          rewritten[2] = sectionSourceLine - previousSourceLine;
+          rewritten[3] = sectionSourceColumn - previousSourceColumn;
+          previousSourceId = sourceId;
+          previousSourceLine = sectionSourceLine;
+          previousSourceColumn = sectionSourceColumn;
+        }
+        if (entryValues > 4) {
+          sectionNameId += values[4];
+          int nameId = lookUp(nameIdMap, sectionNameId, "name");
+          rewritten[4] = nameId - previousNameId;
+          previousNameId = nameId;
+        }
+
+        if (sameValues(entryValues)) {
+          // Most entries are relative to entries of the same section, which
+          // are still right after it in the result.
+          mappings.append(sectionMappings, entryStart, content.current);
+        } else {
+          for (int i = 0; i < entryValues; i++) {
+            Base64VLQ.encode(mappings, rewritten[i]);
+          }
+        }
+        lineHasEntries = true;
+        lastEntryMapped = entryValues > 1;
+      }
+
+      if (!sectionStarted) {
+        startSection(offsetLine, offsetColumn, -1, -1);
+      }
+    } catch (IOException e) {
+      // Can't happen.
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Ends the last mapped entry of the previous section where this section
+   * starts, as the section may not have an entry there.
+   */
+  private void startSection(
+      int offsetLine, int offsetColumn, int firstEntryLine, int firstEntryColumn)
+      throws SourceMapParseException, IOException {
+    if (offsetLine < line
+        || (offsetLine == line && lineHasEntries && offsetColumn < previousColumn)) {
+      throw new SourceMapParseException(
+          "Section at (" + offsetLine + "," + offsetColumn
+          + ") overlaps the previous section, which ends at ("
+          + line + "," + previousColumn + ")");
+    }
+    if (lastEntryMapped
+        && (firstEntryLine != offsetLine || firstEntryColumn != offsetColumn)) {
+      moveToLine(offsetLine);
+      if (lineHasEntries) {
+        mappings.append(',');
+      }
+      Base64VLQ.encode(mappings, offsetColumn - previousColumn);
+      previousColumn = offsetColumn;
+      lineHasEntries = true;
+      lastEntryMapped = false;
+    }
+  }
+
+  private void moveToLine(int outputLine) {
+    for (; line < outputLine; line++) {
+      mappings.append(';');
+      lineHasEntries = false;
+      previousColumn = 0;
+    }
+  }
+
+  private boolean sameValues(int entryValues) {
+    for (int i = 0; i < entryValues; i++) {
+      if (rewritten[i] != values[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int lookUp(int[] ids, int id, String kind) throws SourceMapParseException {
+    if (id < 0 || id >= ids.length) {
+      throw new SourceMapParseException("Invalid " + kind + " id: " + id);
+    }
+    return ids[id];
+  }
+
+  /** Returns the ids in the result of the given sources or names. */
+  private static int[] idsOf(String[] values, LinkedHashMap<String, Integer> ids) {
+    int[] result = new int[values.length];
+    for (int i = 0; i < values.length; i++) {
+      Integer id = ids.get(values[i]);
+      if (id == null) {
+        id = ids.size();
+        ids.put(values[i], id);
+      }
+      result[i] = id;
+    }
+    return result;
+  }
+
+  /** The number of lines that the mappings cover. */
+  int getLineCount() {
+    return line + 1;
+  }
+
+  /** The encoded mappings of all the sections added so far. */
+  CharSequence getMappings() {
+    return mappings;
+  }
+
+  LinkedHashMap<String, Integer> getSourceIds() {
+    return sourceIds;
+  }
+
+  LinkedHashMap<String, Integer> getNameIds() {
+    return nameIds;
+  }
+}
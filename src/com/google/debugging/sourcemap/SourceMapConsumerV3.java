@@ -19,7 +19,6 @@ package com.google.debugging.sourcemap;
 import static com.google.common.base.Preconditions.checkState;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Iterables;
 import com.google.debugging.sourcemap.Base64VLQ.CharIterator;
 import com.google.debugging.sourcemap.proto.Mapping.OriginalMapping;
 import com.google.debugging.sourcemap.proto.Mapping.OriginalMapping.Builder;
@@ -30,26 +29,50 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Class for parsing version 3 of the SourceMap format, as produced by the
  * Closure Compiler, etc.
  * http://code.google.com/p/closure-compiler/wiki/SourceMaps
+ *
+ * <p>The mappings are kept in their encoded form. Parsing only records where
+ * each line starts, and a line is decoded into an array of ints the first time
+ * it is looked up, so large maps take little memory and parse quickly.
+ *
  * @author johnlenz@google.com (John Lenz)
  */
 public final class SourceMapConsumerV3 implements SourceMapConsumer,
     SourceMappingReversable {
   static final int UNMAPPED = -1;
 
+  // A decoded line holds ENTRY_SIZE ints per entry, in this order.
+  private static final int GENERATED_COLUMN = 0;
+  private static final int SOURCE_FILE_ID = 1;
+  private static final int SOURCE_LINE = 2;
+  private static final int SOURCE_COLUMN = 3;
+  private static final int NAME_ID = 4;
+  private static final int ENTRY_SIZE = 5;
+
+  // The values the entries of a line are relative to: the source file id,
+  // source line, source column and name id of the entries before the line.
+  private static final int STATE_SIZE = 4;
+
   private String[] sources;
   private String[] names;
   private int lineCount;
-  // Slots in the lines list will be null if the line does not have any entries.
-  private ArrayList<ArrayList<Entry>> lines = null;
-  /** originalFile path ==> original line ==> target mappings */
-  private Map<String, Map<Integer, Collection<OriginalMapping>>>
-      reverseSourceMapping;
+  private String mappings;
+  // The number of lines the mappings cover, including the empty ones.
+  private int mappedLineCount;
+  // The offset in the mappings of the first entry of each line.
+  private int[] lineStarts;
+  // STATE_SIZE ints per line, to decode the line on its own.
+  private int[] lineStates;
+  // Slots will be null if the line has not been looked up yet.
+  private int[][] decodedLines;
+  /** originalFile path ==> target mappings, sorted by original line */
+  private Map<String, ReverseMappings> reverseSourceMapping;
   private String sourceRoot;
   private final Map<String, Object> extensions = new LinkedHashMap<>();
 
@@ -93,17 +116,13 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
     sourceRoot = sourceMapObject.getSourceRoot();
     sources = sourceMapObject.getSources();
     names = sourceMapObject.getNames();
-
-    if (lineCount >= 0) {
-      lines = new ArrayList<>(lineCount);
-    } else {
-      lines = new ArrayList<>();
-    }
+    mappings = sourceMapObject.getMappings();
+    reverseSourceMapping = null;
 
     // The value type of each extension is the native JSON type (e.g. JsonObject, or JSONObject
     // when compiled with GWT).
     extensions.putAll(sourceMapObject.getExtensions());
-    new MappingBuilder(sourceMapObject.getMappings()).build();
+    indexLines();
   }
 
   /**
@@ -125,25 +144,11 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
         throw new SourceMapParseException("Invalid map format");
       }
 
+      // Splice the sections together without decoding them.
       SourceMapGeneratorV3 generator = new SourceMapGeneratorV3();
-      for (SourceMapSection section : sourceMapObject.getSections()) {
-        String mapSectionContents = section.getSectionValue();
-        if (section.getSectionType() == SourceMapSection.SectionType.URL) {
-          mapSectionContents = sectionSupplier.getSourceMap(section.getSectionValue());
-        }
-        if (mapSectionContents == null) {
-          throw new SourceMapParseException("Unable to retrieve: " + section.getSectionValue());
-        }
-        generator.mergeMapSection(section.getLine(), section.getColumn(), mapSectionContents);
-      }
-
       StringBuilder sb = new StringBuilder();
-      try {
-        generator.appendTo(sb, sourceMapObject.getFile());
-      } catch (IOException e) {
-        // Can't happen.
-        throw new RuntimeException(e);
-      }
+      generator.appendMergedSectionsTo(
+          sb, sourceMapObject.getFile(), sourceMapObject.getSections(), sectionSupplier);
 
       parse(sb.toString());
     } catch (IOException ex) {
@@ -157,7 +162,7 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
     lineNumber--;
     column--;
 
-    if (lineNumber < 0 || lineNumber >= lines.size()) {
+    if (lineNumber < 0 || lineNumber >= mappedLineCount) {
       return null;
     }
 
@@ -165,20 +170,18 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
     checkState(column >= 0);
 
     // If the line is empty return the previous mapping.
-    if (lines.get(lineNumber) == null) {
+    if (isEmptyLine(lineNumber)) {
       return getPreviousMapping(lineNumber);
     }
 
-    ArrayList<Entry> entries = lines.get(lineNumber);
-    // No empty lists.
-    checkState(!entries.isEmpty());
-    if (entries.get(0).getGeneratedColumn() > column) {
+    int[] entries = getLine(lineNumber);
+    if (entries[GENERATED_COLUMN] > column) {
       return getPreviousMapping(lineNumber);
     }
 
-    int index = search(entries, column, 0, entries.size() - 1);
+    int index = search(entries, column, 0, entries.length / ENTRY_SIZE - 1);
     Preconditions.checkState(index >= 0, "unexpected:%s", index);
-    return getOriginalMappingForEntry(entries.get(index));
+    return getOriginalMappingForEntry(entries, index * ENTRY_SIZE);
   }
 
   @Override
@@ -191,27 +194,11 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
       int line, int column) {
     // TODO(user): This implementation currently does not make use of the column
     // parameter.
-
-    // Synchronization needs to be handled by callers.
-    if (reverseSourceMapping == null) {
-      createReverseMapping();
-    }
-
-    Map<Integer, Collection<OriginalMapping>> sourceLineToCollectionMap =
-        reverseSourceMapping.get(originalFile);
-
-    if (sourceLineToCollectionMap == null) {
+    ReverseMappings reverseMappings = getReverseSourceMapping().get(originalFile);
+    if (reverseMappings == null) {
       return Collections.emptyList();
-    } else {
-      Collection<OriginalMapping> mappings =
-          sourceLineToCollectionMap.get(line);
-
-      if (mappings == null) {
-        return Collections.emptyList();
-      } else {
-        return mappings;
-      }
     }
+    return reverseMappings.getMappings(line);
   }
 
   public String getSourceRoot(){
@@ -228,89 +215,168 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
     return this.extensions;
   }
 
+  /**
+   * Finds where each line of the mappings starts and the values its entries
+   * are relative to. Every entry is decoded and checked, but none is kept.
+   */
+  private void indexLines() {
+    int capacity = Math.max(lineCount, 16);
+    int[] starts = new int[capacity];
+    int[] states = new int[capacity * STATE_SIZE];
+    MappingDecoder decoder = new MappingDecoder(mappings, 0, mappings.length());
+    int[] entry = new int[ENTRY_SIZE];
+    int line = 0;
+    boolean lineHasEntries = false;
+    while (decoder.hasNext()) {
+      // ';' denotes a new line.
+      if (decoder.tryConsumeLineEnd()) {
+        line++;
+        if (line == starts.length) {
+          starts = Arrays.copyOf(starts, line * 2);
+          states = Arrays.copyOf(states, line * 2 * STATE_SIZE);
+        }
+        starts[line] = decoder.position();
+        decoder.saveState(states, line * STATE_SIZE);
+        lineHasEntries = false;
+      } else {
+        decoder.decodeEntry(entry, 0);
+        validateEntry(line, entry);
+        lineHasEntries = true;
+      }
+    }
+
+    // Some source map generator (e.g.UglifyJS) generates lines without
+    // a trailing line separator. So count the rest of the content.
+    mappedLineCount = lineHasEntries ? line + 1 : line;
+    lineStarts = starts;
+    lineStates = states;
+    decodedLines = new int[mappedLineCount][];
+  }
+
+  /**
+   * Sanity check the entry.
+   */
+  private void validateEntry(int line, int[] entry) {
+    Preconditions.checkState((lineCount < 0) || (line < lineCount),
+        "line=%s, lineCount=%s", line, lineCount);
+    checkState(entry[SOURCE_FILE_ID] == UNMAPPED || entry[SOURCE_FILE_ID] < sources.length);
+    checkState(entry[NAME_ID] == UNMAPPED || entry[NAME_ID] < names.length);
+  }
+
+  private boolean isEmptyLine(int line) {
+    int start = lineStarts[line];
+    return start == mappings.length() || mappings.charAt(start) == ';';
+  }
 
-  private class MappingBuilder {
+  /**
+   * Returns the entries of the given non-empty line, decoding them the first
+   * time the line is looked up.
+   */
+  private synchronized int[] getLine(int line) {
+    int[] entries = decodedLines[line];
+    if (entries == null) {
+      entries = decodeLine(line);
+      decodedLines[line] = entries;
+    }
+    return entries;
+  }
+
+  /**
+   * Decodes the entries of the given non-empty line, ENTRY_SIZE ints per
+   * entry.
+   */
+  private int[] decodeLine(int line) {
+    int start = lineStarts[line];
+    int end = mappings.indexOf(';', start);
+    if (end == -1) {
+      end = mappings.length();
+    }
+
+    // Entries are separated by ',', though a line may end with one too.
+    int entryCount = 1;
+    for (int i = start; i < end; i++) {
+      if (mappings.charAt(i) == ',') {
+        entryCount++;
+      }
+    }
+
+    int[] entries = new int[entryCount * ENTRY_SIZE];
+    MappingDecoder decoder = new MappingDecoder(mappings, start, end);
+    decoder.restoreState(lineStates, line * STATE_SIZE);
+    int size = 0;
+    while (decoder.hasNext()) {
+      decoder.decodeEntry(entries, size);
+      size += ENTRY_SIZE;
+    }
+    return size == entries.length ? entries : Arrays.copyOf(entries, size);
+  }
+
+  /**
+   * Decodes the entries of a range of the mappings, keeping track of the
+   * previous values that each entry is relative to.
+   */
+  private static final class MappingDecoder {
     private static final int MAX_ENTRY_VALUES = 5;
     private final StringCharIterator content;
-    private int line = 0;
+    private final int[] values = new int[MAX_ENTRY_VALUES];
     private int previousCol = 0;
     private int previousSrcId = 0;
     private int previousSrcLine = 0;
     private int previousSrcColumn = 0;
     private int previousNameId = 0;
 
-    MappingBuilder(String lineMap) {
-      this.content = new StringCharIterator(lineMap);
-    }
-
-    void build() {
-      int [] temp = new int[MAX_ENTRY_VALUES];
-      ArrayList<Entry> entries = new ArrayList<>();
-      while (content.hasNext()) {
-        // ';' denotes a new line.
-        if (tryConsumeToken(';')) {
-          // The line is complete, store the result
-          completeLine(entries);
-          if (!entries.isEmpty()) {
-            // A new array list for the next line.
-            entries = new ArrayList<>();
-          }
-        } else {
-          // grab the next entry for the current line.
-          int entryValues = 0;
-          while (!entryComplete()) {
-            temp[entryValues] = nextValue();
-            entryValues++;
-          }
-          Entry entry = decodeEntry(temp, entryValues);
+    MappingDecoder(String mappings, int start, int end) {
+      this.content = new StringCharIterator(mappings, start, end);
+    }
 
-          validateEntry(entry);
-          entries.add(entry);
+    boolean hasNext() {
+      return content.hasNext();
+    }
 
-          // Consume the separating token, if there is one.
-          tryConsumeToken(',');
-        }
-      }
+    int position() {
+      return content.current;
+    }
 
-      // Some source map generator (e.g.UglifyJS) generates lines without
-      // a trailing line separator. So add the rest of the content.
-      if (!entries.isEmpty()) {
-        completeLine(entries);
-      }
+    void saveState(int[] states, int offset) {
+      states[offset] = previousSrcId;
+      states[offset + 1] = previousSrcLine;
+      states[offset + 2] = previousSrcColumn;
+      states[offset + 3] = previousNameId;
     }
 
-    private void completeLine(ArrayList<Entry> entries) {
-      // The line is complete, store the result for the line,
-      // null if the line is empty.
-      if (!entries.isEmpty()) {
-        lines.add(entries);
-      } else {
-        lines.add(null);
-      }
-      line++;
-      previousCol = 0;
+    void restoreState(int[] states, int offset) {
+      previousSrcId = states[offset];
+      previousSrcLine = states[offset + 1];
+      previousSrcColumn = states[offset + 2];
+      previousNameId = states[offset + 3];
     }
 
     /**
-     * Sanity check the entry.
+     * Consumes a line separator, if there is one. The column of the generated
+     * file is relative to the start of each line.
      */
-    private void validateEntry(Entry entry) {
-      Preconditions.checkState((lineCount < 0) || (line < lineCount),
-          "line=%s, lineCount=%s", line, lineCount);
-      checkState(entry.getSourceFileId() == UNMAPPED || entry.getSourceFileId() < sources.length);
-      checkState(entry.getNameId() == UNMAPPED || entry.getNameId() < names.length);
+    boolean tryConsumeLineEnd() {
+      if (tryConsumeToken(';')) {
+        previousCol = 0;
+        return true;
+      }
+      return false;
     }
 
     /**
      * Decodes the next entry, using the previous encountered values to
      * decode the relative values.
      *
-     * @param vals An array of integers that represent values in the entry.
-     * @param entryValues The number of entries in the array.
-     * @return The entry object.
+     * @param entries The array to store the ENTRY_SIZE values of the entry in.
+     * @param offset The position in the array of the first value.
      */
-    private Entry decodeEntry(int[] vals, int entryValues) {
-      Entry entry;
+    void decodeEntry(int[] entries, int offset) {
+      int entryValues = 0;
+      while (!entryComplete()) {
+        values[entryValues] = Base64VLQ.decode(content);
+        entryValues++;
+      }
+
       switch (entryValues) {
         // The first values, if present are in the following order:
         //   0: the starting column in the current line of the generated file
@@ -320,52 +386,54 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
         //   4: the id of the original symbol name
         // The values are relative to the last encountered value for that field.
         // Note: the previously column value for the generated file is reset
-        // to '0' when a new line is encountered.  This is done in the 'build'
-        // method.
+        // to '0' when a new line is encountered.  This is done in the
+        // 'tryConsumeLineEnd' method.
 
         case 1:
           // An unmapped section of the generated file.
-          entry = new UnmappedEntry(
-              vals[0] + previousCol);
-          // Set the values see for the next entry.
-          previousCol = entry.getGeneratedColumn();
-          return entry;
+          previousCol += values[0];
+          entries[offset + GENERATED_COLUMN] = previousCol;
+          entries[offset + SOURCE_FILE_ID] = UNMAPPED;
+          entries[offset + SOURCE_LINE] = UNMAPPED;
+          entries[offset + SOURCE_COLUMN] = UNMAPPED;
+          entries[offset + NAME_ID] = UNMAPPED;
+          break;
 
         case 4:
           // A mapped section of the generated file.
-          entry = new UnnamedEntry(
-              vals[0] + previousCol,
-              vals[1] + previousSrcId,
-              vals[2] + previousSrcLine,
-              vals[3] + previousSrcColumn);
-          // Set the values see for the next entry.
-          previousCol = entry.getGeneratedColumn();
-          previousSrcId = entry.getSourceFileId();
-          previousSrcLine = entry.getSourceLine();
-          previousSrcColumn = entry.getSourceColumn();
-          return entry;
+          previousCol += values[0];
+          previousSrcId += values[1];
+          previousSrcLine += values[2];
+          previousSrcColumn += values[3];
+          entries[offset + GENERATED_COLUMN] = previousCol;
+          entries[offset + SOURCE_FILE_ID] = previousSrcId;
+          entries[offset + SOURCE_LINE] = previousSrcLine;
+          entries[offset + SOURCE_COLUMN] = previousSrcColumn;
+          entries[offset + NAME_ID] = UNMAPPED;
+          break;
 
         case 5:
           // A mapped section of the generated file, that has an associated
           // name.
-          entry = new NamedEntry(
-              vals[0] + previousCol,
-              vals[1] + previousSrcId,
-              vals[2] + previousSrcLine,
-              vals[3] + previousSrcColumn,
-              vals[4] + previousNameId);
-          // Set the values see for the next entry.
-          previousCol = entry.getGeneratedColumn();
-          previousSrcId = entry.getSourceFileId();
-          previousSrcLine = entry.getSourceLine();
-          previousSrcColumn = entry.getSourceColumn();
-          previousNameId = entry.getNameId();
-          return entry;
+          previousCol += values[0];
+          previousSrcId += values[1];
+          previousSrcLine += values[2];
+          previousSrcColumn += values[3];
+          previousNameId += values[4];
+          entries[offset + GENERATED_COLUMN] = previousCol;
+          entries[offset + SOURCE_FILE_ID] = previousSrcId;
+          entries[offset + SOURCE_LINE] = previousSrcLine;
+          entries[offset + SOURCE_COLUMN] = previousSrcColumn;
+          entries[offset + NAME_ID] = previousNameId;
+          break;
 
         default:
           throw new IllegalStateException(
               "Unexpected number of values for entry:" + entryValues);
       }
+
+      // Consume the separating token, if there is one.
+      tryConsumeToken(',');
     }
 
     private boolean tryConsumeToken(char token) {
@@ -385,17 +453,13 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
       char c = content.peek();
       return (c == ';' || c == ',');
     }
-
-    private int nextValue() {
-      return Base64VLQ.decode(content);
-    }
   }
 
   /**
    * Perform a binary search on the array to find a section that covers
    * the target column.
    */
-  private static int search(ArrayList<Entry> entries, int target, int start, int end) {
+  private static int search(int[] entries, int target, int start, int end) {
     while (true) {
       int mid = ((end - start) / 2) + start;
       int compare = compareEntry(entries, mid, target);
@@ -420,8 +484,8 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
   /**
    * Compare an array entry's column value to the target column value.
    */
-  private static int compareEntry(ArrayList<Entry> entries, int entry, int target) {
-    return entries.get(entry).getGeneratedColumn() - target;
+  private static int compareEntry(int[] entries, int entry, int target) {
+    return entries[entry * ENTRY_SIZE + GENERATED_COLUMN] - target;
   }
 
   /**
@@ -434,72 +498,169 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
         return null;
       }
       lineNumber--;
-    } while (lines.get(lineNumber) == null);
-    ArrayList<Entry> entries = lines.get(lineNumber);
-    return getOriginalMappingForEntry(Iterables.getLast(entries));
+    } while (isEmptyLine(lineNumber));
+    int[] entries = getLine(lineNumber);
+    return getOriginalMappingForEntry(entries, entries.length - ENTRY_SIZE);
   }
 
   /**
-   * Creates an "OriginalMapping" object for the given entry object.
+   * Creates an "OriginalMapping" object for the entry at the given offset.
    */
-  private OriginalMapping getOriginalMappingForEntry(Entry entry) {
-    if (entry.getSourceFileId() == UNMAPPED) {
+  private OriginalMapping getOriginalMappingForEntry(int[] entries, int offset) {
+    int sourceFileId = entries[offset + SOURCE_FILE_ID];
+    if (sourceFileId == UNMAPPED) {
       return null;
     } else {
       // Adjust the line/column here to be start at 1.
       Builder x = OriginalMapping.newBuilder()
-        .setOriginalFile(sources[entry.getSourceFileId()])
-        .setLineNumber(entry.getSourceLine() + 1)
-        .setColumnPosition(entry.getSourceColumn() + 1);
-      if (entry.getNameId() != UNMAPPED) {
-        x.setIdentifier(names[entry.getNameId()]);
+        .setOriginalFile(sources[sourceFileId])
+        .setLineNumber(entries[offset + SOURCE_LINE] + 1)
+        .setColumnPosition(entries[offset + SOURCE_COLUMN] + 1);
+      if (entries[offset + NAME_ID] != UNMAPPED) {
+        x.setIdentifier(names[entries[offset + NAME_ID]]);
       }
       return x.build();
     }
   }
 
+  private synchronized Map<String, ReverseMappings> getReverseSourceMapping() {
+    if (reverseSourceMapping == null) {
+      createReverseMapping();
+    }
+    return reverseSourceMapping;
+  }
+
   /**
    * Reverse the source map; the created mapping will allow us to quickly go
    * from a source file and line number to a collection of target
    * OriginalMappings.
    */
   private void createReverseMapping() {
-    reverseSourceMapping = new HashMap<>();
-
-    for (int targetLine = 0; targetLine < lines.size(); targetLine++) {
-      ArrayList<Entry> entries = lines.get(targetLine);
-
-      if (entries != null) {
-        for (Entry entry : entries) {
-          if (entry.getSourceFileId() != UNMAPPED
-              && entry.getSourceLine() != UNMAPPED) {
-            String originalFile = sources[entry.getSourceFileId()];
-
-            if (!reverseSourceMapping.containsKey(originalFile)) {
-              reverseSourceMapping.put(originalFile,
-                  new HashMap<Integer, Collection<OriginalMapping>>());
-            }
-
-            Map<Integer, Collection<OriginalMapping>> lineToCollectionMap =
-                reverseSourceMapping.get(originalFile);
-
-            int sourceLine = entry.getSourceLine();
+    // Sources that are listed more than once share their mappings.
+    Map<String, Integer> fileIds = new HashMap<>();
+    int[] fileIdOfSource = new int[sources.length];
+    for (int i = 0; i < sources.length; i++) {
+      Integer fileId = fileIds.get(sources[i]);
+      if (fileId == null) {
+        fileId = fileIds.size();
+        fileIds.put(sources[i], fileId);
+      }
+      fileIdOfSource[i] = fileId;
+    }
 
-            if (!lineToCollectionMap.containsKey(sourceLine)) {
-              lineToCollectionMap.put(sourceLine,
-                  new ArrayList<OriginalMapping>(1));
-            }
+    // Collect the file id, source line, target line and target column of
+    // every mapped entry, in the order of the generated file.
+    int[] fileSizes = new int[fileIds.size()];
+    int[] collected = new int[64];
+    int size = 0;
+    for (int targetLine = 0; targetLine < mappedLineCount; targetLine++) {
+      if (isEmptyLine(targetLine)) {
+        continue;
+      }
+      // The line is decoded without keeping it.
+      int[] entries = decodeLine(targetLine);
+      for (int offset = 0; offset < entries.length; offset += ENTRY_SIZE) {
+        if (entries[offset + SOURCE_FILE_ID] != UNMAPPED
+            && entries[offset + SOURCE_LINE] != UNMAPPED) {
+          if (size + 4 > collected.length) {
+            collected = Arrays.copyOf(collected, collected.length * 2);
+          }
+          int fileId = fileIdOfSource[entries[offset + SOURCE_FILE_ID]];
+          collected[size++] = fileId;
+          collected[size++] = entries[offset + SOURCE_LINE];
+          collected[size++] = targetLine;
+          collected[size++] = entries[offset + GENERATED_COLUMN];
+          fileSizes[fileId]++;
+        }
+      }
+    }
 
-            Collection<OriginalMapping> mappings =
-                lineToCollectionMap.get(sourceLine);
+    ReverseMappings[] files = new ReverseMappings[fileSizes.length];
+    for (int i = 0; i < files.length; i++) {
+      files[i] = new ReverseMappings(fileSizes[i]);
+    }
+    for (int i = 0; i < size; i += 4) {
+      files[collected[i]].add(collected[i + 1], collected[i + 2], collected[i + 3]);
+    }
 
-            Builder builder = OriginalMapping.newBuilder().setLineNumber(
-                targetLine).setColumnPosition(entry.getGeneratedColumn());
+    reverseSourceMapping = new HashMap<>();
+    for (Map.Entry<String, Integer> entry : fileIds.entrySet()) {
+      ReverseMappings file = files[entry.getValue()];
+      if (file.size > 0) {
+        file.sortBySourceLine();
+        reverseSourceMapping.put(entry.getKey(), file);
+      }
+    }
+  }
 
-            mappings.add(builder.build());
-          }
+  /**
+   * The mappings of one original file, as parallel arrays sorted by the line
+   * in the original file. Mappings of the same line keep the order of the
+   * generated file.
+   */
+  private static final class ReverseMappings {
+    private int[] sourceLines;
+    private int[] targetLines;
+    private int[] targetColumns;
+    private int size = 0;
+
+    ReverseMappings(int capacity) {
+      this.sourceLines = new int[capacity];
+      this.targetLines = new int[capacity];
+      this.targetColumns = new int[capacity];
+    }
+
+    void add(int sourceLine, int targetLine, int targetColumn) {
+      sourceLines[size] = sourceLine;
+      targetLines[size] = targetLine;
+      targetColumns[size] = targetColumn;
+      size++;
+    }
+
+    void sortBySourceLine() {
+      // The index in the low bits keeps the sort stable.
+      long[] keys = new long[size];
+      for (int i = 0; i < size; i++) {
+        keys[i] = ((long) sourceLines[i] << 32) | i;
+      }
+      Arrays.sort(keys);
+
+      int[] sortedSourceLines = new int[size];
+      int[] sortedTargetLines = new int[size];
+      int[] sortedTargetColumns = new int[size];
+      for (int i = 0; i < size; i++) {
+        int from = (int) keys[i];
+        sortedSourceLines[i] = sourceLines[from];
+        sortedTargetLines[i] = targetLines[from];
+        sortedTargetColumns[i] = targetColumns[from];
+      }
+      sourceLines = sortedSourceLines;
+      targetLines = sortedTargetLines;
+      targetColumns = sortedTargetColumns;
+    }
+
+    Collection<OriginalMapping> getMappings(int sourceLine) {
+      // Find the first mapping of the line.
+      int start = 0;
+      int end = size;
+      while (start < end) {
+        int mid = (start + end) >>> 1;
+        if (sourceLines[mid] < sourceLine) {
+          start = mid + 1;
+        } else {
+          end = mid;
         }
       }
+
+      List<OriginalMapping> mappings = new ArrayList<>(1);
+      for (int i = start; i < size && sourceLines[i] == sourceLine; i++) {
+        mappings.add(
+            OriginalMapping.newBuilder()
+                .setLineNumber(targetLines[i])
+                .setColumnPosition(targetColumns[i])
+                .build());
+      }
+      return mappings;
     }
   }
 
@@ -507,14 +668,15 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
    * A implementation of the Base64VLQ CharIterator used for decoding the
    * mappings encoded in the JSON string.
    */
-  private static class StringCharIterator implements CharIterator {
+  static class StringCharIterator implements CharIterator {
     final String content;
     final int length;
-    int current = 0;
+    int current;
 
-    StringCharIterator(String content) {
+    StringCharIterator(String content, int start, int end) {
       this.content = content;
-      this.length = content.length();
+      this.current = start;
+      this.length = end;
     }
 
     @Override
@@ -532,109 +694,6 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
     }
   }
 
-  /**
-   * Represents a mapping entry in the source map.
-   */
-  private interface Entry {
-    int getGeneratedColumn();
-    int getSourceFileId();
-    int getSourceLine();
-    int getSourceColumn();
-    int getNameId();
-  }
-
-  /**
-   * This class represents a portion of the generated file, that is not mapped
-   * to a section in the original source.
-   */
-  private static class UnmappedEntry implements Entry {
-    private final int column;
-
-    UnmappedEntry(int column) {
-      this.column = column;
-    }
-
-    @Override
-    public int getGeneratedColumn() {
-      return column;
-    }
-
-    @Override
-    public int getSourceFileId() {
-      return UNMAPPED;
-    }
-
-    @Override
-    public int getSourceLine() {
-      return UNMAPPED;
-    }
-
-    @Override
-    public int getSourceColumn() {
-      return UNMAPPED;
-    }
-
-    @Override
-    public int getNameId() {
-      return UNMAPPED;
-    }
-  }
-
-  /**
-   * This class represents a portion of the generated file, that is mapped
-   * to a section in the original source.
-   */
-  private static class UnnamedEntry extends UnmappedEntry {
-    private final int srcFile;
-    private final int srcLine;
-    private final int srcColumn;
-
-    UnnamedEntry(int column, int srcFile, int srcLine, int srcColumn) {
-      super(column);
-      this.srcFile = srcFile;
-      this.srcLine = srcLine;
-      this.srcColumn = srcColumn;
-    }
-
-    @Override
-    public int getSourceFileId() {
-      return srcFile;
-    }
-
-    @Override
-    public int getSourceLine() {
-      return srcLine;
-    }
-
-    @Override
-    public int getSourceColumn() {
-      return srcColumn;
-    }
-
-    @Override
-    public int getNameId() {
-      return UNMAPPED;
-    }
-  }
-
-  /**
-   * This class represents a portion of the generated file, that is mapped
-   * to a section in the original source, and is associated with a name.
-   */
-  private static class NamedEntry extends UnnamedEntry {
-    private final int name;
-
-    NamedEntry(int column, int srcFile, int srcLine, int srcColumn, int name) {
-      super(column, srcFile, srcLine, srcColumn);
-      this.name = name;
-    }
-
-    @Override
-    public int getNameId() {
-      return name;
-    }
-  }
-
   public static interface EntryVisitor {
     void visit(String sourceName,
                String symbolName,
@@ -650,35 +709,35 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
     FilePosition sourceStartPosition = null;
     FilePosition startPosition = null;
 
-    final int lineCount = lines.size();
+    final int lineCount = mappedLineCount;
     for (int i = 0; i < lineCount; i++) {
-      ArrayList<Entry> line = lines.get(i);
-      if (line != null) {
-        final int entryCount = line.size();
-        for (int j = 0; j < entryCount; j++) {
-          Entry entry = line.get(j);
-          if (pending) {
-            FilePosition endPosition = new FilePosition(
-                i, entry.getGeneratedColumn());
-            visitor.visit(
-                sourceName,
-                symbolName,
-                sourceStartPosition,
-                startPosition,
-                endPosition);
-            pending = false;
-          }
+      if (isEmptyLine(i)) {
+        continue;
+      }
+      // The lines are decoded without keeping them.
+      int[] line = decodeLine(i);
+      for (int j = 0; j < line.length; j += ENTRY_SIZE) {
+        if (pending) {
+          FilePosition endPosition = new FilePosition(
+              i, line[j + GENERATED_COLUMN]);
+          visitor.visit(
+              sourceName,
+              symbolName,
+              sourceStartPosition,
+              startPosition,
+              endPosition);
+          pending = false;
+        }
 
-          if (entry.getSourceFileId() != UNMAPPED) {
-            pending = true;
-            sourceName = sources[entry.getSourceFileId()];
-            symbolName = (entry.getNameId() != UNMAPPED)
-                ? names[entry.getNameId()] : null;
-            sourceStartPosition = new FilePosition(
-                entry.getSourceLine(), entry.getSourceColumn());
-            startPosition = new FilePosition(
-                i, entry.getGeneratedColumn());
-          }
+        if (line[j + SOURCE_FILE_ID] != UNMAPPED) {
+          pending = true;
+          sourceName = sources[line[j + SOURCE_FILE_ID]];
+          symbolName = (line[j + NAME_ID] != UNMAPPED)
+              ? names[line[j + NAME_ID]] : null;
+          sourceStartPosition = new FilePosition(
+              line[j + SOURCE_LINE], line[j + SOURCE_COLUMN]);
+          startPosition = new FilePosition(
+              i, line[j + GENERATED_COLUMN]);
         }
       }
     }
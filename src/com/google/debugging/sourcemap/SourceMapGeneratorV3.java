@@ -401,17 +401,77 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
     appendFieldEnd(out);
 
     // Extensions, only if there is any
-    for (String key : this.extensions.keySet()) {
-      Object objValue = this.extensions.get(key);
-      String value;
-      if (objValue instanceof String) {
-        value = escapeString((String) objValue);  // escapes native String
-      } else {
-        value = objValue.toString();
+    addExtensions(out);
+
+    out.append("\n}\n");
+  }
+
+  /**
+   * Appends a source map with the mappings of all the given sections, as if
+   * each of them had been merged with {@link #mergeMapSection} into a new
+   * generator. Rather than being decoded into mappings and encoded again,
+   * the encoded mappings of the sections are copied, rewriting only the
+   * values that differ in the result, so this takes time linear in the size
+   * of the sections. The source root and extensions of this generator are
+   * written too, but not its mappings.
+   *
+   * @param out The stream to which the map will be appended.
+   * @param name The name of the generated source file that this source map
+   *   represents.
+   * @param sections An ordered list of map sections to include in the map.
+   * @param sectionSupplier Provides the contents of sections given by URL.
+   * @throws SourceMapParseException if a section can't be retrieved or is
+   *   invalid, or if the sections overlap.
+   */
+  public void appendMergedSectionsTo(
+      Appendable out, String name, List<SourceMapSection> sections,
+      SourceMapSupplier sectionSupplier)
+      throws IOException, SourceMapParseException {
+    SectionSplicer splicer = new SectionSplicer();
+    for (SourceMapSection section : sections) {
+      String mapSectionContents = section.getSectionValue();
+      if (section.getSectionType() == SourceMapSection.SectionType.URL) {
+        mapSectionContents = sectionSupplier.getSourceMap(section.getSectionValue());
       }
-      appendField(out, key, value);
+      if (mapSectionContents == null) {
+        throw new SourceMapParseException("Unable to retrieve: " + section.getSectionValue());
+      }
+      splicer.addSection(
+          section.getLine(), section.getColumn(),
+          SourceMapObjectParser.parse(mapSectionContents));
+    }
+
+    // Add the header fields.
+    out.append("{\n");
+    appendFirstField(out, "version", "3");
+    appendField(out, "file", escapeString(name));
+    appendField(out, "lineCount", String.valueOf(splicer.getLineCount()));
+
+    //optional source root
+    if (this.sourceRootPath != null && !this.sourceRootPath.isEmpty()) {
+      appendField(out, "sourceRoot", escapeString(this.sourceRootPath));
     }
 
+    appendFieldStart(out, "mappings");
+    out.append("\"");
+    out.append(splicer.getMappings());
+    out.append("\"");
+    appendFieldEnd(out);
+
+    appendFieldStart(out, "sources");
+    out.append("[");
+    addNameMap(out, splicer.getSourceIds());
+    out.append("]");
+    appendFieldEnd(out);
+
+    appendFieldStart(out, "names");
+    out.append("[");
+    addNameMap(out, splicer.getNameIds());
+    out.append("]");
+    appendFieldEnd(out);
+
+    addExtensions(out);
+
     out.append("\n}\n");
   }
 
@@ -478,6 +538,22 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
     return this.extensions.get(name);
   }
 
+  /**
+   * Writes the extensions to 'out'.
+   */
+  private void addExtensions(Appendable out) throws IOException {
+    for (String key : this.extensions.keySet()) {
+      Object objValue = this.extensions.get(key);
+      String value;
+      if (objValue instanceof String) {
+        value = escapeString((String) objValue);  // escapes native String
+      } else {
+        value = objValue.toString();
+      }
+      appendField(out, key, value);
+    }
+  }
+
   /**
    * Writes the source name map to 'out'.
    */
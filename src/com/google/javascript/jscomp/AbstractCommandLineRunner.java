@@ -62,6 +62,7 @@ import java.io.PrintStream;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.charset.Charset;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -921,6 +922,10 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
 
   @VisibleForTesting
   void writeModuleOutput(Appendable out, JSModule m) throws IOException {
+    writeOutput(out, compiler, m, getModuleWrapper(m), "%s", null);
+  }
+
+  private String getModuleWrapper(JSModule m) {
     if (parsedModuleWrappers == null) {
       parsedModuleWrappers = parseModuleWrappers(
           config.moduleWrapper,
@@ -930,9 +935,7 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
 
     String fileName = getModuleOutputFileName(m);
     String baseName = new File(fileName).getName();
-    writeOutput(out, compiler, m,
-        parsedModuleWrappers.get(m.getName()).replace("%basename%", baseName),
-        "%s", null);
+    return parsedModuleWrappers.get(m.getName()).replace("%basename%", baseName);
   }
 
   /**
@@ -950,8 +953,40 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
     }
     checkState(compiler.getOptions().outputJs == OutputJs.NORMAL);
 
-    String code = module == null ? compiler.toSource() : compiler.toSource(module);
-    writeOutput(out, compiler, code, wrapper, codePlaceholder, escaper);
+    if (escaper != null) {
+      String code = module == null ? compiler.toSource() : compiler.toSource(module);
+      writeOutput(out, compiler, code, wrapper, codePlaceholder, escaper);
+      return;
+    }
+
+    // Print the code straight to the output, so that it is never held in memory as a whole.
+    int pos = wrapper.indexOf(codePlaceholder);
+    if (pos != -1) {
+      String prefix = wrapper.substring(0, pos);
+      out.append(prefix);
+      writeCode(out, compiler, module);
+      out.append(wrapper.substring(pos + codePlaceholder.length()));
+      // Make sure we always end output with a line feed.
+      out.append('\n');
+
+      // If we have a source map, adjust its offsets to match
+      // the code WITHIN the wrapper.
+      if (compiler.getSourceMap() != null) {
+        compiler.getSourceMap().setWrapperPrefix(prefix);
+      }
+    } else {
+      writeCode(out, compiler, module);
+      out.append('\n');
+    }
+  }
+
+  private static void writeCode(Appendable out, Compiler compiler, @Nullable JSModule module)
+      throws IOException {
+    if (module == null) {
+      compiler.toSource(out);
+    } else {
+      compiler.toSource(module, out);
+    }
   }
 
   /**
@@ -962,6 +997,19 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
       String wrapper, String codePlaceholder,
       @Nullable Function<String, String> escaper)
       throws IOException {
+    writeOutput(out, compiler == null ? null : compiler.getSourceMap(), code, wrapper,
+        codePlaceholder, escaper);
+  }
+
+  /**
+   * Writes code to an output stream, optionally wrapping it in an arbitrary
+   * wrapper that contains a placeholder where the code should be inserted.
+   * @param sourceMap The source map of the code, adjusted for the wrapper.
+   */
+  private static void writeOutput(Appendable out, @Nullable SourceMap sourceMap, String code,
+      String wrapper, String codePlaceholder,
+      @Nullable Function<String, String> escaper)
+      throws IOException {
     int pos = wrapper.indexOf(codePlaceholder);
     if (pos != -1) {
       String prefix = "";
@@ -983,8 +1031,8 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
 
       // If we have a source map, adjust its offsets to match
       // the code WITHIN the wrapper.
-      if (compiler != null && compiler.getSourceMap() != null) {
-        compiler.getSourceMap().setWrapperPrefix(prefix);
+      if (sourceMap != null) {
+        sourceMap.setWrapperPrefix(prefix);
       }
 
     } else {
@@ -1036,6 +1084,11 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
     Compiler.setLoggingLevel(Level.parse(config.loggingLevel));
 
     compiler = createCompiler();
+    if (!config.astCacheDir.isEmpty()) {
+      long maxSizeBytes = config.astCacheMaxSizeMb * (1L << 20);
+      compiler.setPersistentAstCache(
+          new PersistentAstCache(Paths.get(config.astCacheDir), maxSizeBytes));
+    }
     B options = createOptions();
 
     List<SourceFile> externs = createExterns(options);
@@ -1093,6 +1146,12 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
     compiler.initWarningsGuard(options.getWarningsGuard());
     List<SourceFile> inputs =
         createSourceInputs(jsModuleSpecs, config.mixedJsSources, jsonFiles);
+    if (config.watch) {
+      if (!jsModuleSpecs.isEmpty()) {
+        throw new FlagUsageException("--watch cannot be used with --module.");
+      }
+      return runCompileServer(externs, inputs, options);
+    }
     if (!jsModuleSpecs.isEmpty()) {
       modules = createJsModules(jsModuleSpecs, inputs);
       for (JSModule m : modules) {
@@ -1151,6 +1210,37 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
     return processResults(result, modules, options);
   }
 
+  /**
+   * Checks the inputs, then keeps checking them again as they change until told to stop. See
+   * {@link CompileServer#serve}.
+   */
+  private int runCompileServer(List<SourceFile> externs, List<SourceFile> inputs, B options)
+      throws IOException {
+    final PersistentAstCache astCache = compiler.getPersistentAstCache();
+    CompileServer server =
+        new CompileServer(
+            new Supplier<Compiler>() {
+              @Override
+              public Compiler get() {
+                compiler = createCompiler();
+                if (astCache != null) {
+                  compiler.setPersistentAstCache(astCache);
+                }
+                return compiler;
+              }
+            },
+            externs,
+            inputs,
+            options);
+    Writer out = new BufferedWriter(new OutputStreamWriter(defaultJsOutput, UTF_8));
+    try (SourceFileWatcher watcher = new SourceFileWatcher(server.getWatchableFiles())) {
+      server.serve(new InputStreamReader(in, UTF_8), out, watcher);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return 0;
+  }
+
   private Result performStage1andSave(String filename) {
     Result result;
     try (BufferedOutputStream serializedOutputStream =
@@ -1410,6 +1500,13 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
       return INVALID_MODULE_SOURCEMAP_PATTERN;
     }
 
+    if (options.numParallelThreads > 1
+        && modules.size() > 1
+        && options.outputJs == OutputJs.NORMAL) {
+      outputModulesInParallel(modules, options);
+      return null;
+    }
+
     for (JSModule m : modules) {
       if (isOutputInJson()) {
         this.filesToStreamOut.add(createJsonFileFromModule(m));
@@ -1442,6 +1539,38 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
     return null;
   }
 
+  /**
+   * Prints the modules concurrently, each with a source map of its own, and writes them in order
+   * like {@link #outputModuleBinaryAndSourceMaps}. The code of a module is held in memory until
+   * it is written.
+   */
+  private void outputModulesInParallel(List<JSModule> modules, final B options)
+      throws IOException {
+    ParallelModulePrinter.ModuleConsumer consumer = new ParallelModulePrinter.ModuleConsumer() {
+      @Override
+      public void accept(JSModule m, String code, @Nullable SourceMap sourceMap)
+          throws IOException {
+        String moduleFilename = getModuleOutputFileName(m);
+        if (isOutputInJson()) {
+          StringBuilder output = new StringBuilder();
+          writeOutput(output, sourceMap, code, getModuleWrapper(m), "%s", null);
+          filesToStreamOut.add(createJsonFile(output.toString(), moduleFilename, sourceMap));
+          return;
+        }
+
+        try (Writer writer = fileNameToLegacyOutputWriter(moduleFilename)) {
+          writeOutput(writer, sourceMap, code, getModuleWrapper(m), "%s", null);
+        }
+        if (options.sourceMapOutputPath != null) {
+          try (Writer mapFileOut = fileNameToOutputWriter2(expandSourceMapPath(options, m))) {
+            sourceMap.appendTo(mapFileOut, moduleFilename);
+          }
+        }
+      }
+    };
+    new ParallelModulePrinter(compiler, options.numParallelThreads).print(modules, consumer);
+  }
+
   /** Given an output module, convert it to a JSONFileSpec with associated sourcemap */
   private JsonFileSpec createJsonFileFromModule(JSModule module) throws IOException {
     compiler.getSourceMap().reset();
@@ -1449,13 +1578,17 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
     StringBuilder output = new StringBuilder();
     writeModuleOutput(output, module);
 
-    JsonFileSpec jsonFile = new JsonFileSpec(output.toString(),
-        getModuleOutputFileName(module));
+    return createJsonFile(
+        output.toString(), getModuleOutputFileName(module), compiler.getSourceMap());
+  }
+
+  private static JsonFileSpec createJsonFile(String code, String fileName, SourceMap sourceMap)
+      throws IOException {
+    JsonFileSpec jsonFile = new JsonFileSpec(code, fileName);
 
     StringBuilder moduleSourceMap = new StringBuilder();
 
-    compiler.getSourceMap().appendTo(moduleSourceMap,
-        getModuleOutputFileName(module));
+    sourceMap.appendTo(moduleSourceMap, fileName);
 
     jsonFile.setSourceMap(moduleSourceMap.toString());
 
@@ -2200,6 +2333,32 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
       return saveAfterChecksFileName;
     }
 
+    private String astCacheDir = "";
+
+    /** Sets the directory of the {@link PersistentAstCache}; empty disables the cache. */
+    public CommandLineConfig setAstCacheDir(String astCacheDir) {
+      this.astCacheDir = astCacheDir;
+      return this;
+    }
+
+    private int astCacheMaxSizeMb = 1024;
+
+    public CommandLineConfig setAstCacheMaxSizeMb(int astCacheMaxSizeMb) {
+      this.astCacheMaxSizeMb = astCacheMaxSizeMb;
+      return this;
+    }
+
+    private boolean watch = false;
+
+    /**
+     * Keep the compiler running as a {@link CompileServer} that checks the inputs again whenever
+     * they change.
+     */
+    public CommandLineConfig setWatch(boolean watch) {
+      this.watch = watch;
+      return this;
+    }
+
     private final List<String> module = new ArrayList<>();
 
     /**
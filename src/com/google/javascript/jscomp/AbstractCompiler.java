@@ -368,6 +368,12 @@ public abstract class AbstractCompiler implements SourceExcerptProvider {
   /** Let the PhaseOptimizer know which scope a pass is currently analyzing */
   abstract void setChangeScope(Node n);
 
+  /**
+   * Returns the pool of threads for the independent tasks of this compilation, which has {@code
+   * getOptions().numParallelThreads} threads.
+   */
+  abstract ParallelTasks getParallelTasks();
+
   /** A monotonically increasing value to identify a change */
   abstract int getChangeStamp();
 
@@ -649,4 +655,30 @@ public abstract class AbstractCompiler implements SourceExcerptProvider {
   PersistentInputStore getPersistentInputStore() {
     return persistentInputStore;
   }
+
+  private @Nullable PersistentAstCache persistentAstCache;
+
+  void setPersistentAstCache(PersistentAstCache persistentAstCache) {
+    this.persistentAstCache = persistentAstCache;
+  }
+
+  @Nullable
+  PersistentAstCache getPersistentAstCache() {
+    return persistentAstCache;
+  }
+
+  private @Nullable SharedAstCache sharedAstCache;
+
+  /**
+   * Sets a cache of parse results to share with other compilers in this JVM. Must be set before
+   * the inputs are parsed.
+   */
+  public void setSharedAstCache(SharedAstCache sharedAstCache) {
+    this.sharedAstCache = sharedAstCache;
+  }
+
+  @Nullable
+  SharedAstCache getSharedAstCache() {
+    return sharedAstCache;
+  }
 }
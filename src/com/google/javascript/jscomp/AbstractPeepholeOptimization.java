@@ -31,6 +31,12 @@ abstract class AbstractPeepholeOptimization {
 
   protected AbstractCompiler compiler;
 
+  /**
+   * The change scope being optimized, when several are optimized at once and the compiler can't
+   * track which one a change belongs to. Null otherwise.
+   */
+  private Node changeScopeRoot = null;
+
   /**
    * Given a node to optimize and a traversal, optimize the node. Subclasses
    * should override to provide their own peephole optimization.
@@ -59,7 +65,11 @@ abstract class AbstractPeepholeOptimization {
    * Subclasses must call these if they have changed the AST.
    */
   protected void reportCodeChange() {
-    compiler.reportCodeChange();
+    if (changeScopeRoot != null) {
+      compiler.reportChangeToChangeScope(changeScopeRoot);
+    } else {
+      compiler.reportCodeChange();
+    }
   }
 
   /**
@@ -89,6 +99,14 @@ abstract class AbstractPeepholeOptimization {
     this.compiler = compiler;
   }
 
+  /**
+   * Sets the change scope that {@link #reportCodeChange} reports to, or null to report to the
+   * current change scope of the compiler.
+   */
+  void setChangeScopeRoot(Node changeScopeRoot) {
+    this.changeScopeRoot = changeScopeRoot;
+  }
+
   /**
    * @return Whether the node may create new mutable state, or change existing
    * state.
@@ -105,9 +105,11 @@ class AggressiveInlineAliases implements CompilerPass {
 
   @Override
   public void process(Node externs, Node root) {
+    // The namespace is kept up to date as aliases are inlined, so it is built only once and then
+    // reused by each round.
+    GlobalNamespace namespace = new GlobalNamespace(compiler, root);
     while (this.codeChanged) {
       this.codeChanged = false;
-      GlobalNamespace namespace = new GlobalNamespace(compiler, root);
       inlineAliases(namespace);
     }
   }
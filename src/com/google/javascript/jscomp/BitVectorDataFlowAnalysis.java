@@ -0,0 +1,388 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.javascript.jscomp.ControlFlowGraph.Branch;
+import com.google.javascript.jscomp.DataFlowAnalysis.MaxIterationsExceededException;
+import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * A data flow analysis whose states are sets of bits and whose flow equations
+ * have the form {@code OUT = GEN + (IN - KILL)}, such as liveness or reaching
+ * definitions.
+ *
+ * <p>Subclasses number the facts they track and give the GEN and KILL sets of
+ * each node, which are computed once per analysis. The nodes are visited in
+ * reverse postorder of the flow direction, so each node is usually visited
+ * after all the nodes that flow into it, and the states live in arrays indexed
+ * by that order rather than in annotations on the graph nodes. A join or a
+ * step updates the bit sets in place; the only bit set allocated while looking
+ * for the fixed point is swapped with the output of the node when it changes.
+ *
+ * <p>Paths join by union for "may" analyses, which start from the empty set,
+ * and by intersection for "must" analyses, which start from the set of all
+ * facts.
+ *
+ * @param <N> The control flow graph's node value type.
+ */
+abstract class BitVectorDataFlowAnalysis<N> {
+
+  private final ControlFlowGraph<N> cfg;
+  @Nullable private final Comparator<DiGraphNode<N, Branch>> nodeComparator;
+
+  // The nodes of the graph in reverse postorder of the flow direction: the
+  // trees found by a depth first search, starting with the one of the entry
+  // of a forward analysis or of the implicit return of a backward one.
+  private final List<DiGraphNode<N, Branch>> nodesByRank = new ArrayList<>();
+  private final Map<DiGraphNode<N, Branch>, Integer> ranks = new HashMap<>();
+  // The number of nodes reached from the start of the analysis. They have the
+  // lowest ranks.
+  private int numReached;
+
+  // By rank, the nodes whose states flow into and out of a node.
+  private int[][] flowPreds;
+  private int[][] flowSuccs;
+
+  // By rank, the transfer function and the states before and after a node.
+  private BitSet[] gen;
+  private BitSet[] kill;
+  private BitSet[] in;
+  private BitSet[] out;
+
+  private int numSteps;
+
+  BitVectorDataFlowAnalysis(ControlFlowGraph<N> targetCfg) {
+    this.cfg = targetCfg;
+    this.nodeComparator = cfg.getOptionalNodeComparator(isForward());
+  }
+
+  /**
+   * Returns the control flow graph that this analysis was performed on. The
+   * states are only correct after {@link #analyze()} is called and before the
+   * graph has been modified.
+   */
+  final ControlFlowGraph<N> getCfg() {
+    return cfg;
+  }
+
+  /**
+   * Checks whether the analysis is a forward flow analysis or backward flow
+   * analysis.
+   *
+   * @return {@code true} if it is a forward analysis.
+   */
+  abstract boolean isForward();
+
+  /**
+   * Checks whether paths join by intersection, when a fact must hold on all
+   * paths, or by union, when it may hold on any of them.
+   */
+  abstract boolean joinsByIntersection();
+
+  /** Returns the number of facts tracked by the analysis. */
+  abstract int getNumBits();
+
+  /**
+   * Sets the facts that hold at the start of the analysis: before the entry of
+   * a forward analysis or after the last node of a backward one.
+   */
+  abstract void setEntryBits(BitSet entry);
+
+  /**
+   * Computes the transfer function of a node.
+   *
+   * @param node The node, which is never the implicit return.
+   * @param gen The facts the node makes hold, to be set.
+   * @param kill The facts the node makes stop holding, to be set.
+   */
+  abstract void computeGenKill(N node, BitSet gen, BitSet kill);
+
+  /**
+   * Finds a fixed-point solution using at most
+   * {@link DataFlowAnalysis#MAX_STEPS} iterations.
+   *
+   * @see #analyze(int)
+   */
+  final void analyze() {
+    analyze(DataFlowAnalysis.MAX_STEPS);
+  }
+
+  /**
+   * Finds a fixed-point solution. Each step computes the state after a node,
+   * in the flow direction, from the states of the nodes that flow into it.
+   *
+   * @param maxSteps Max number of steps before the method stops and throws a
+   *     {@link MaxIterationsExceededException}.
+   */
+  final void analyze(int maxSteps) {
+    initialize();
+    BitSet[] inputs = isForward() ? in : out;
+    BitSet[] outputs = isForward() ? out : in;
+    int entryRank = isForward() ? getRank(cfg.getEntry()) : -1;
+    int implicitReturnRank = getRank(cfg.getImplicitReturn());
+    boolean intersect = joinsByIntersection();
+
+    BitSet pending = new BitSet(nodesByRank.size());
+    pending.set(0, nodesByRank.size());
+    pending.clear(implicitReturnRank);
+    BitSet result = new BitSet(getNumBits());
+    numSteps = 0;
+    for (int rank = pending.nextSetBit(0); rank >= 0; rank = pending.nextSetBit(0)) {
+      if (numSteps > maxSteps) {
+        throw new MaxIterationsExceededException(
+            "Analysis did not terminate after " + maxSteps + " iterations");
+      }
+      pending.clear(rank);
+      if (rank != entryRank) {
+        join(inputs[rank], flowPreds[rank], outputs, intersect);
+      }
+      result.clear();
+      result.or(inputs[rank]);
+      result.andNot(kill[rank]);
+      result.or(gen[rank]);
+      if (!result.equals(outputs[rank])) {
+        BitSet previous = outputs[rank];
+        outputs[rank] = result;
+        result = previous;
+        for (int next : flowSuccs[rank]) {
+          if (next != implicitReturnRank) {
+            pending.set(next);
+          }
+        }
+      }
+      numSteps++;
+    }
+    if (isForward()) {
+      join(in[implicitReturnRank], flowPreds[implicitReturnRank], out, intersect);
+    }
+  }
+
+  /** Returns the number of steps taken by the last call to {@link #analyze()}. */
+  final int getNumSteps() {
+    return numSteps;
+  }
+
+  /** Replaces the target with the join of the states of the given nodes. */
+  private static void join(BitSet target, int[] from, BitSet[] states, boolean intersect) {
+    if (from.length == 0) {
+      // Nothing flows into the node, which keeps its initial estimate.
+      return;
+    }
+    target.clear();
+    target.or(states[from[0]]);
+    for (int i = 1; i < from.length; i++) {
+      if (intersect) {
+        target.and(states[from[i]]);
+      } else {
+        target.or(states[from[i]]);
+      }
+    }
+  }
+
+  /**
+   * Ranks the nodes of the graph, which may have changed since the last
+   * analysis, computes their transfer functions and sets their states to the
+   * initial estimate. Subclasses that need to see every node before computing
+   * any transfer function do so before calling this.
+   */
+  void initialize() {
+    rankNodes();
+    int numNodes = nodesByRank.size();
+    flowPreds = new int[numNodes][];
+    flowSuccs = new int[numNodes][];
+    for (int rank = 0; rank < numNodes; rank++) {
+      DiGraphNode<N, Branch> node = nodesByRank.get(rank);
+      flowPreds[rank] = getRanks(isForward()
+          ? cfg.getDirectedPredNodes(node) : cfg.getDirectedSuccNodes(node));
+      flowSuccs[rank] = getRanks(isForward()
+          ? cfg.getDirectedSuccNodes(node) : cfg.getDirectedPredNodes(node));
+      if (joinsByIntersection() && rank < numReached) {
+        // A node that is not reached never runs before one that is, so it is
+        // left out of the join, as if it held every fact. Its own state is
+        // not precise: the bits cannot tell a fact that holds on every path
+        // from one that holds because no path is known.
+        flowPreds[rank] = withoutUnreached(flowPreds[rank]);
+      }
+    }
+
+    int numBits = getNumBits();
+    gen = new BitSet[numNodes];
+    kill = new BitSet[numNodes];
+    in = new BitSet[numNodes];
+    out = new BitSet[numNodes];
+    for (int rank = 0; rank < numNodes; rank++) {
+      gen[rank] = new BitSet(numBits);
+      kill[rank] = new BitSet(numBits);
+      in[rank] = createInitialEstimate(numBits);
+      out[rank] = createInitialEstimate(numBits);
+    }
+    computeGenKillSets();
+
+    DiGraphNode<N, Branch> start = isForward() ? cfg.getEntry() : cfg.getImplicitReturn();
+    BitSet entry = in[getRank(start)];
+    entry.clear();
+    setEntryBits(entry);
+  }
+
+  private BitSet createInitialEstimate(int numBits) {
+    BitSet bits = new BitSet(numBits);
+    if (joinsByIntersection()) {
+      bits.set(0, numBits);
+    }
+    return bits;
+  }
+
+  /**
+   * Computes the GEN and KILL sets of every node but the implicit return,
+   * whose sets stay empty.
+   */
+  void computeGenKillSets() {
+    for (int rank = 0; rank < nodesByRank.size(); rank++) {
+      gen[rank].clear();
+      kill[rank].clear();
+      DiGraphNode<N, Branch> node = nodesByRank.get(rank);
+      if (node != cfg.getImplicitReturn()) {
+        computeGenKill(node.getValue(), gen[rank], kill[rank]);
+      }
+    }
+  }
+
+  private void rankNodes() {
+    nodesByRank.clear();
+    ranks.clear();
+    Set<DiGraphNode<N, Branch>> visited = new HashSet<>();
+    addInReversePostOrder(
+        isForward() ? cfg.getEntry() : cfg.getImplicitReturn(), visited);
+    numReached = nodesByRank.size();
+    for (DiGraphNode<N, Branch> node : cfg.getDirectedGraphNodes()) {
+      if (!visited.contains(node)) {
+        addInReversePostOrder(node, visited);
+      }
+    }
+    for (int rank = 0; rank < nodesByRank.size(); rank++) {
+      ranks.put(nodesByRank.get(rank), rank);
+    }
+  }
+
+  /**
+   * Adds the nodes found by a depth first search from the given root, in the
+   * flow direction, in reverse postorder. The search uses its own stack, since
+   * generated code can make very deep graphs.
+   *
+   * <p>When the graph orders its nodes, the search follows the edges to the
+   * nodes that come last first. They end up after the others, so the body of
+   * a loop is ranked before the code that follows the loop, and settles
+   * before that code is visited.
+   */
+  private void addInReversePostOrder(
+      DiGraphNode<N, Branch> root, Set<DiGraphNode<N, Branch>> visited) {
+    List<DiGraphNode<N, Branch>> postOrder = new ArrayList<>();
+    Deque<DiGraphNode<N, Branch>> path = new ArrayDeque<>();
+    Deque<Iterator<DiGraphNode<N, Branch>>> nextNodes = new ArrayDeque<>();
+    visited.add(root);
+    path.push(root);
+    nextNodes.push(getFlowSuccNodes(root).iterator());
+    while (!path.isEmpty()) {
+      Iterator<DiGraphNode<N, Branch>> it = nextNodes.peek();
+      if (it.hasNext()) {
+        DiGraphNode<N, Branch> next = it.next();
+        if (visited.add(next)) {
+          path.push(next);
+          nextNodes.push(getFlowSuccNodes(next).iterator());
+        }
+      } else {
+        postOrder.add(path.pop());
+        nextNodes.pop();
+      }
+    }
+    Collections.reverse(postOrder);
+    nodesByRank.addAll(postOrder);
+  }
+
+  private List<DiGraphNode<N, Branch>> getFlowSuccNodes(DiGraphNode<N, Branch> node) {
+    List<DiGraphNode<N, Branch>> nodes =
+        isForward() ? cfg.getDirectedSuccNodes(node) : cfg.getDirectedPredNodes(node);
+    if (nodeComparator == null || nodes.size() < 2) {
+      return nodes;
+    }
+    List<DiGraphNode<N, Branch>> lastFirst = new ArrayList<>(nodes);
+    Collections.sort(lastFirst, Collections.reverseOrder(nodeComparator));
+    return lastFirst;
+  }
+
+  private int[] getRanks(List<DiGraphNode<N, Branch>> nodes) {
+    int[] result = new int[nodes.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = getRank(nodes.get(i));
+    }
+    return result;
+  }
+
+  private int[] withoutUnreached(int[] ranks) {
+    int numReachedRanks = 0;
+    for (int rank : ranks) {
+      if (rank < numReached) {
+        numReachedRanks++;
+      }
+    }
+    int[] result = new int[numReachedRanks];
+    int i = 0;
+    for (int rank : ranks) {
+      if (rank < numReached) {
+        result[i++] = rank;
+      }
+    }
+    return result;
+  }
+
+  private int getRank(DiGraphNode<N, Branch> node) {
+    return checkNotNull(ranks.get(node), node);
+  }
+
+  /**
+   * Whether the node is reached from the start of the analysis: the entry of a
+   * forward analysis or, going backward, the implicit return of a backward one.
+   */
+  final boolean isReached(DiGraphNode<N, Branch> node) {
+    return getRank(node) < numReached;
+  }
+
+  /** Returns the facts that hold before the node. The bit set must not be modified. */
+  final BitSet getIn(DiGraphNode<N, Branch> node) {
+    return in[getRank(node)];
+  }
+
+  /** Returns the facts that hold after the node. The bit set must not be modified. */
+  final BitSet getOut(DiGraphNode<N, Branch> node) {
+    return out[getRank(node)];
+  }
+}
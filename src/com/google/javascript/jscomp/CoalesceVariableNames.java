@@ -23,15 +23,13 @@ import com.google.common.base.Joiner;
 import com.google.javascript.jscomp.AbstractCompiler.LifeCycleStage;
 import com.google.javascript.jscomp.ControlFlowGraph.AbstractCfgNodeTraversalCallback;
 import com.google.javascript.jscomp.ControlFlowGraph.Branch;
-import com.google.javascript.jscomp.DataFlowAnalysis.FlowState;
-import com.google.javascript.jscomp.LiveVariablesAnalysisEs6.LiveVariableLattice;
 import com.google.javascript.jscomp.NodeTraversal.AbstractPostOrderCallback;
 import com.google.javascript.jscomp.NodeTraversal.ScopedCallback;
+import com.google.javascript.jscomp.graph.BitMatrixUndirectedGraph;
 import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
 import com.google.javascript.jscomp.graph.GraphColoring;
 import com.google.javascript.jscomp.graph.GraphColoring.GreedyGraphColoring;
 import com.google.javascript.jscomp.graph.GraphNode;
-import com.google.javascript.jscomp.graph.LinkedUndirectedGraph;
 import com.google.javascript.jscomp.graph.UndiGraph;
 import com.google.javascript.rhino.IR;
 import com.google.javascript.rhino.Node;
@@ -255,7 +253,7 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
    */
   private UndiGraph<Var, Void> computeVariableNamesInterferenceGraph(
       ControlFlowGraph<Node> cfg, Set<? extends Var> escaped) {
-    UndiGraph<Var, Void> interferenceGraph = LinkedUndirectedGraph.create();
+    UndiGraph<Var, Void> interferenceGraph = BitMatrixUndirectedGraph.create();
 
     // First create a node for each non-escaped variable. We add these nodes in the order in which
     // they appear in the code because we want the names that appear earlier in the code to be used
@@ -314,14 +312,12 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
             continue NEXT_CROSS_CFG_NODE;
           }
 
-          FlowState<LiveVariableLattice> state = cfgNode.getAnnotation();
-
           // Check the live states and add edge when possible.
 
           int v1Index = liveness.getVarIndex(v1.getName());
           int v2Index = liveness.getVarIndex(v2.getName());
-          if ((state.getIn().isLive(v1Index) && state.getIn().isLive(v2Index))
-              || (state.getOut().isLive(v1Index) && state.getOut().isLive(v2Index))) {
+          if ((liveness.isLiveIn(cfgNode, v1Index) && liveness.isLiveIn(cfgNode, v2Index))
+              || (liveness.isLiveOut(cfgNode, v1Index) && liveness.isLiveOut(cfgNode, v2Index))) {
             interferenceGraph.connectIfNotFound(v1, null, v2);
             continue NEXT_VAR_PAIR;
           }
@@ -336,12 +332,11 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
             continue NEXT_INTRA_CFG_NODE;
           }
 
-          FlowState<LiveVariableLattice> state = cfgNode.getAnnotation();
           int v1Index = liveness.getVarIndex(v1.getName());
           int v2Index = liveness.getVarIndex(v2.getName());
 
-          boolean v1OutLive = state.getOut().isLive(v1Index);
-          boolean v2OutLive = state.getOut().isLive(v2Index);
+          boolean v1OutLive = liveness.isLiveOut(cfgNode, v1Index);
+          boolean v2OutLive = liveness.isLiveOut(cfgNode, v2Index);
           CombinedLiveRangeChecker checker = new CombinedLiveRangeChecker(
               new LiveRangeChecker(v1, v2OutLive ? null : v2),
               new LiveRangeChecker(v2, v1OutLive ? null : v1));
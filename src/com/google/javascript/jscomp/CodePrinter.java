@@ -20,7 +20,6 @@ import static com.google.common.base.Preconditions.checkState;
 
 import com.google.common.base.CharMatcher;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.ImmutableList;
 import com.google.debugging.sourcemap.FilePosition;
 import com.google.javascript.jscomp.CodePrinter.Builder.CodeGeneratorFactory;
 import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
@@ -33,6 +32,7 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
 import java.util.List;
+import javax.annotation.Nullable;
 
 /**
  * CodePrinter prints out JS code in either pretty format or compact format.
@@ -48,20 +48,37 @@ public final class CodePrinter {
   // version.
 
   private abstract static class MappedCodePrinter extends CodeConsumer {
+    // When writing to an Appendable, the code that can no longer change is written out once
+    // this many characters are buffered.
+    private static final int FLUSH_THRESHOLD = 16 * 1024;
+
     private final Deque<Mapping> mappings;
     private final List<Mapping> allMappings;
     private final boolean createSrcMap;
     private final SourceMap.DetailLevel sourceMapDetailLevel;
+    @Nullable private final Appendable out;
+    private IOException writeFailure = null;
+    // The lengths of the lines written out, and of the part of the current line written out.
+    private final List<Integer> lineLengths = new ArrayList<>();
+    private int flushedLineLength = 0;
+    // The number of characters already written out, which are no longer in code.
+    private int flushedLength = 0;
     protected final StringBuilder code = new StringBuilder(1024);
     protected final int lineLengthThreshold;
     protected int lineLength = 0;
     protected int lineIndex = 0;
 
+    /**
+     * @param out Where to write the code while it is printed, or null to keep it all in memory
+     *     until {@link #getCode} is called.
+     */
     MappedCodePrinter(
         int lineLengthThreshold,
         boolean createSrcMap,
-        SourceMap.DetailLevel sourceMapDetailLevel) {
+        SourceMap.DetailLevel sourceMapDetailLevel,
+        @Nullable Appendable out) {
       checkState(sourceMapDetailLevel != null);
+      this.out = out;
       this.lineLengthThreshold = lineLengthThreshold <= 0 ? Integer.MAX_VALUE :
         lineLengthThreshold;
       this.createSrcMap = createSrcMap;
@@ -134,9 +151,11 @@ public final class CodePrinter {
      * appending the information it saved to the SourceMap
      * object given.
      */
-    void generateSourceMap(String code, SourceMap map) {
+    void generateSourceMap(SourceMap map) {
       if (createSrcMap) {
-        List<Integer> lineLengths = computeLineLengths(code);
+        if (out == null) {
+          recordLineLengths(code.length());
+        }
         for (Mapping mapping : allMappings) {
           map.addMapping(
               mapping.node, mapping.start, adjustEndPosition(lineLengths, mapping.end));
@@ -210,9 +229,81 @@ public final class CodePrinter {
     }
 
     public String getCode() {
+      checkState(out == null, "The code was written out");
       return code.toString();
     }
 
+    /**
+     * Returns the position in the code before which nothing changes any more, and so can be
+     * written out. The last character is always kept, for {@link #getLastChar}.
+     */
+    int getStablePosition() {
+      return getLength() - 1;
+    }
+
+    /** Returns the length of the code printed so far, including what was written out. */
+    protected final int getLength() {
+      return flushedLength + code.length();
+    }
+
+    /** Returns the index in {@link #code} of the given position in the whole code. */
+    protected final int toBufferIndex(int position) {
+      checkState(position >= flushedLength, "Position %s was already written out", position);
+      return position - flushedLength;
+    }
+
+    /** Writes out the stable part of the code, if enough of it is buffered. */
+    protected final void maybeFlush() {
+      if (out != null && code.length() >= FLUSH_THRESHOLD) {
+        flush(getStablePosition());
+      }
+    }
+
+    /**
+     * Writes out the rest of the code once printing is done.
+     *
+     * @throws IOException if writing any of the code failed
+     */
+    void flushAll() throws IOException {
+      checkState(out != null);
+      flush(getLength());
+      if (writeFailure != null) {
+        throw writeFailure;
+      }
+    }
+
+    private void flush(int position) {
+      int count = position - flushedLength;
+      if (count <= 0) {
+        return;
+      }
+      if (createSrcMap) {
+        recordLineLengths(count);
+      }
+      // The CodeConsumer methods cannot throw, so a failure is only reported by flushAll.
+      if (writeFailure == null) {
+        try {
+          out.append(code, 0, count);
+        } catch (IOException e) {
+          writeFailure = e;
+        }
+      }
+      code.delete(0, count);
+      flushedLength = position;
+    }
+
+    /** Records the lengths of the lines that end in the first {@code count} chars of code. */
+    private void recordLineLengths(int count) {
+      for (int i = 0; i < count; i++) {
+        if (code.charAt(i) == '\n') {
+          lineLengths.add(flushedLineLength);
+          flushedLineLength = 0;
+        } else {
+          flushedLineLength++;
+        }
+      }
+    }
+
     @Override
     char getLastChar() {
       return (code.length() > 0) ? code.charAt(code.length() - 1) : '\0';
@@ -226,20 +317,6 @@ public final class CodePrinter {
       return lineIndex;
     }
 
-    /** Calculates length of each line in compiled code. */
-    private static List<Integer> computeLineLengths(String code) {
-      ImmutableList.Builder<Integer> builder = ImmutableList.<Integer>builder();
-      int lineStartPos = 0;
-      int lineEndPos = code.indexOf('\n');
-      while (lineEndPos > -1) {
-        builder.add(lineEndPos - lineStartPos);
-        // Next line starts where current line ends + 1 to skip "\n" character.
-        lineStartPos = lineEndPos + 1;
-        lineEndPos = code.indexOf('\n', lineStartPos);
-      }
-      return builder.build();
-    }
-
     /**
      * Adjusts end position of a mapping. End position points to a column *after* the last character
      * that is covered by a mapping. And if it's end of the line there are 2 possibilites: either
@@ -292,8 +369,9 @@ public final class CodePrinter {
     private PrettyCodePrinter(
         int lineLengthThreshold,
         boolean createSourceMap,
-        SourceMap.DetailLevel sourceMapDetailLevel) {
-      super(lineLengthThreshold, createSourceMap, sourceMapDetailLevel);
+        SourceMap.DetailLevel sourceMapDetailLevel,
+        @Nullable Appendable out) {
+      super(lineLengthThreshold, createSourceMap, sourceMapDetailLevel, out);
     }
 
     /**
@@ -368,6 +446,7 @@ public final class CodePrinter {
         code.append('\n');
         lineIndex++;
         lineLength = 0;
+        maybeFlush();
       }
     }
 
@@ -580,8 +659,9 @@ public final class CodePrinter {
    */
     private CompactCodePrinter(boolean lineBreak,
         boolean preferLineBreakAtEndOfFile, int lineLengthThreshold,
-        boolean createSrcMap, SourceMap.DetailLevel sourceMapDetailLevel) {
-      super(lineLengthThreshold, createSrcMap, sourceMapDetailLevel);
+        boolean createSrcMap, SourceMap.DetailLevel sourceMapDetailLevel,
+        @Nullable Appendable out) {
+      super(lineLengthThreshold, createSrcMap, sourceMapDetailLevel, out);
       this.lineBreak = lineBreak;
       this.preferLineBreakAtEndOfFile = preferLineBreakAtEndOfFile;
     }
@@ -607,15 +687,22 @@ public final class CodePrinter {
     @Override
     void startNewLine() {
       if (lineLength > 0) {
-        prevCutPosition = code.length();
+        prevCutPosition = getLength();
         prevLineStartPosition = lineStartPosition;
         code.append('\n');
         lineLength = 0;
         lineIndex++;
-        lineStartPosition = code.length();
+        lineStartPosition = getLength();
+        maybeFlush();
       }
     }
 
+    /** The previous line is kept, since a cut at its end may still be undone by endFile. */
+    @Override
+    int getStablePosition() {
+      return Math.min(prevLineStartPosition, super.getStablePosition());
+    }
+
     @Override
     void maybeLineBreak() {
       if (lineBreak) {
@@ -628,9 +715,9 @@ public final class CodePrinter {
       // Since we are at a legal line break, can we upgrade the
       // preferred break position?  We prefer to break after a
       // semicolon rather than before it.
-      int len = code.length();
+      int len = getLength();
       if (preferredBreakPosition == len - 1) {
-        char ch = code.charAt(len - 1);
+        char ch = getLastChar();
         if (ch == ';') {
           preferredBreakPosition = len;
         }
@@ -649,13 +736,14 @@ public final class CodePrinter {
         if (preferredBreakPosition > lineStartPosition &&
             preferredBreakPosition < lineStartPosition + lineLength) {
           int position = preferredBreakPosition;
-          code.insert(position, '\n');
+          code.insert(toBufferIndex(position), '\n');
           prevCutPosition = position;
           reportLineCut(lineIndex, position - lineStartPosition, true);
           lineIndex++;
           lineLength -= (position - lineStartPosition);
           prevLineStartPosition = lineStartPosition;
           lineStartPosition = position + 1;
+          maybeFlush();
         } else {
           startNewLine();
         }
@@ -664,7 +752,7 @@ public final class CodePrinter {
 
     @Override
     void notePreferredLineBreak() {
-      preferredBreakPosition = code.length();
+      preferredBreakPosition = getLength();
     }
 
     @Override
@@ -681,9 +769,9 @@ public final class CodePrinter {
         // Shift the previous break to end of file by replacing it with a
         // <space> and adding a new break at end of file. Adding the space
         // handles cases like instanceof\nfoo. (it would be nice to avoid this)
-        code.setCharAt(prevCutPosition, ' ');
+        code.setCharAt(toBufferIndex(prevCutPosition), ' ');
         lineStartPosition = prevLineStartPosition;
-        lineLength = code.length() - lineStartPosition;
+        lineLength = getLength() - lineStartPosition;
         // We need +1 to account for the space added few lines above.
         int prevLineEndPosition = prevCutPosition - prevLineStartPosition + 1;
         reportLineCut(lineIndex, prevLineEndPosition, false);
@@ -813,13 +901,36 @@ public final class CodePrinter {
      * Generates the source code and returns it.
      */
     public String build() {
+      MappedCodePrinter mcp = print(null);
+      String code = mcp.getCode();
+      if (sourceMap != null) {
+        mcp.generateSourceMap(sourceMap);
+      }
+      return code;
+    }
+
+    /**
+     * Generates the source code and writes it to {@code out} while it is generated, so that only
+     * a small part of it is held in memory at any time.
+     */
+    public void writeTo(Appendable out) throws IOException {
+      checkState(out != null);
+      MappedCodePrinter mcp = print(out);
+      mcp.flushAll();
+      if (sourceMap != null) {
+        mcp.generateSourceMap(sourceMap);
+      }
+    }
+
+    private MappedCodePrinter print(@Nullable Appendable out) {
       if (root == null) {
         throw new IllegalStateException(
             "Cannot build without root node being specified");
       }
 
-      return toSource(root, Format.fromOptions(options, outputTypes, prettyPrint), options,
-          sourceMap, tagAsExterns, tagAsStrict, lineBreak, codeGeneratorFactory);
+      return CodePrinter.print(root, Format.fromOptions(options, outputTypes, prettyPrint),
+          options, sourceMap != null, tagAsExterns, tagAsStrict, lineBreak, codeGeneratorFactory,
+          out);
     }
   }
 
@@ -843,14 +954,13 @@ public final class CodePrinter {
   }
 
   /**
-   * Converts a tree to JS code
+   * Converts a tree to JS code, kept by the returned printer or written to {@code out}.
    */
-  private static String toSource(Node root, Format outputFormat, CompilerOptions options,
-      SourceMap sourceMap, boolean tagAsExterns, boolean tagAsStrict, boolean lineBreak,
-      CodeGeneratorFactory codeGeneratorFactory) {
+  private static MappedCodePrinter print(Node root, Format outputFormat, CompilerOptions options,
+      boolean createSourceMap, boolean tagAsExterns, boolean tagAsStrict, boolean lineBreak,
+      CodeGeneratorFactory codeGeneratorFactory, @Nullable Appendable out) {
     checkState(options.sourceMapDetailLevel != null);
 
-    boolean createSourceMap = (sourceMap != null);
     MappedCodePrinter mcp =
         outputFormat == Format.COMPACT
         ? new CompactCodePrinter(
@@ -858,11 +968,13 @@ public final class CodePrinter {
             options.preferLineBreakAtEndOfFile,
             options.lineLengthThreshold,
             createSourceMap,
-            options.sourceMapDetailLevel)
+            options.sourceMapDetailLevel,
+            out)
         : new PrettyCodePrinter(
             options.lineLengthThreshold,
             createSourceMap,
-            options.sourceMapDetailLevel);
+            options.sourceMapDetailLevel,
+            out);
     CodeGenerator cg = codeGeneratorFactory.getCodeGenerator(outputFormat, mcp);
 
     if (tagAsExterns) {
@@ -874,13 +986,6 @@ public final class CodePrinter {
 
     cg.add(root);
     mcp.endFile();
-
-    String code = mcp.getCode();
-
-    if (createSourceMap) {
-      mcp.generateSourceMap(code, sourceMap);
-    }
-
-    return code;
+    return mcp;
   }
 }
@@ -243,6 +243,25 @@ public class CommandLineRunner extends
         hidden = true)
     private String saveAfterChecksFile = null;
 
+    @Option(name = "--ast_cache_dir",
+        usage = "Directory of a cache of parsed files that is shared between compilations. "
+            + "Files whose contents and parser settings did not change since they were last "
+            + "compiled are read from the cache instead of being parsed again.")
+    private String astCacheDir = "";
+
+    @Option(name = "--ast_cache_max_size_mb",
+        usage = "The size in megabytes above which the least recently used entries of the "
+            + "--ast_cache_dir are deleted. Defaults to 1024.")
+    private int astCacheMaxSizeMb = 1024;
+
+    @Option(name = "--watch",
+        handler = BooleanOptionHandler.class,
+        usage = "Keep running after the first build, checking the inputs again whenever they "
+            + "change on disk. Only the changed files and the files that require them are "
+            + "checked again. Implies --checks_only. Each build is reported on stdout as one "
+            + "line of JSON; stdin accepts the commands {\"command\": \"build\"}, "
+            + "{\"command\": \"update\", \"files\": [...]} and {\"command\": \"stop\"}.")
+    private boolean watch = false;
 
     @Option(name = "--variable_renaming_report",
         usage = "File where the serialized version of the variable "
@@ -661,6 +680,20 @@ public class CommandLineRunner extends
     private CompilerOptions.TracerMode tracerMode =
         CompilerOptions.TracerMode.OFF;
 
+    @Option(name = "--tracer_output_format",
+        hidden = true,
+        usage = "The format of the report of --tracer_mode. JSON and CHROME_TRACE also include "
+        + "the CPU time, allocations, peak heap and added and removed AST nodes of each pass. "
+        + "Options: TEXT, JSON, CHROME_TRACE")
+    private CompilerOptions.TracerOutputFormat tracerOutputFormat =
+        CompilerOptions.TracerOutputFormat.TEXT;
+
+    @Option(name = "--num_parallel_threads",
+        hidden = true,
+        usage = "The maximum number of threads used by the passes that can run in parallel, such "
+        + "as parsing and printing the output modules.")
+    private int numParallelThreads = 1;
+
     @Option(name = "--new_type_inf",
         handler = BooleanOptionHandler.class,
         usage = "Checks for type errors using the new type inference algorithm.")
@@ -882,6 +915,8 @@ public class CommandLineRunner extends
             .putAll(
                 "Miscellaneous",
                 ImmutableList.of(
+                    "ast_cache_dir",
+                    "ast_cache_max_size_mb",
                     "charset",
                     "checks_only",
                     "define",
@@ -889,7 +924,8 @@ public class CommandLineRunner extends
                     "help",
                     "third_party",
                     "use_types_for_optimization",
-                    "version"))
+                    "version",
+                    "watch"))
             .build();
 
     private void printUsage(PrintStream ps) {
@@ -1559,6 +1595,9 @@ public class CommandLineRunner extends
           .setJsOutputFile(flags.jsOutputFile)
           .setSaveAfterChecksFileName(flags.saveAfterChecksFile)
           .setContinueSavedCompilationFileName(flags.continueSavedCompilationFile)
+          .setAstCacheDir(flags.astCacheDir)
+          .setAstCacheMaxSizeMb(flags.astCacheMaxSizeMb)
+          .setWatch(flags.watch)
           .setModule(flags.module)
           .setVariableMapOutputFile(flags.variableMapOutputFile)
           .setCreateNameMapFiles(flags.createNameMapFiles)
@@ -1767,6 +1806,8 @@ public class CommandLineRunner extends
 
     options.setPrintSourceAfterEachPass(flags.printSourceAfterEachPass);
     options.setTracerMode(flags.tracerMode);
+    options.setTracerOutputFormat(flags.tracerOutputFormat);
+    options.setNumParallelThreads(flags.numParallelThreads);
     options.setStrictModeInput(flags.strictModeInput);
     if (!flags.emitUseStrict) {
       options.setEmitUseStrict(false);
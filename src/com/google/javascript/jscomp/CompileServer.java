@@ -0,0 +1,576 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.SetMultimap;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+
+/**
+ * Keeps a checked {@link Compiler} in memory and rechecks only the scripts affected by a change,
+ * using the {@link Compiler#replaceScript hot-swap} support.
+ *
+ * <p>After the first full build, a change to a set of files re-parses those files and re-runs the
+ * checks on them and on the files that directly {@code goog.require} something they provide. The
+ * server falls back to a full build when a change cannot be hot-swapped: when a file's provides
+ * or requires change, when an input is deleted or reappears, or when so many files change at once
+ * that a cold build is cheaper.
+ *
+ * <p>Only checks are run; the compiler is put into checks-only mode, since optimizations mutate
+ * the AST in ways that hot-swapping cannot undo.
+ */
+@GwtIncompatible("java.nio.file, gson")
+public final class CompileServer {
+  private static final Logger logger = Logger.getLogger(CompileServer.class.getName());
+
+  /**
+   * Hot-swapping one script runs every check over it and clears the type registry, so once more
+   * than this many scripts and this fraction of the inputs are affected, a full build is at least
+   * as fast.
+   */
+  private static final int MAX_INCREMENTAL_FILES = 100;
+  private static final double MAX_INCREMENTAL_FRACTION = 0.25;
+
+  /** How long the file watcher waits for editors to finish writing before reporting changes. */
+  private static final long WATCH_QUIET_PERIOD_MILLIS = 50;
+
+  private final Supplier<? extends Compiler> compilerFactory;
+  private final ImmutableList<SourceFile> externs;
+  private final Map<String, SourceFile> inputsByName = new LinkedHashMap<>();
+  private final CompilerOptions options;
+
+  /** Inputs that were on disk when the server started but have since been deleted. */
+  private final Set<String> deletedInputs = new HashSet<>();
+
+  private final SetMultimap<String, JSError> errorsByFile = LinkedHashMultimap.create();
+  private final SetMultimap<String, JSError> warningsByFile = LinkedHashMultimap.create();
+
+  private Compiler compiler;
+
+  /** The live inputs, in the order the compiler sorted them in the last full build. */
+  private List<String> inputOrder = ImmutableList.of();
+
+  /** The inputs that require a namespace provided by the key, as of the last full build. */
+  private SetMultimap<String, String> dependentsByFile = LinkedHashMultimap.create();
+
+  private Map<String, DependencyKey> dependencyKeys = new HashMap<>();
+
+  private int buildCount = 0;
+
+  /**
+   * @param compilerFactory creates the compiler for each full build
+   * @param externs the externs, which never change while the server runs
+   * @param inputs the inputs; those on disk may change or be deleted while the server runs
+   * @param options the options, which are switched to checks-only, hot-swappable mode
+   */
+  public CompileServer(
+      Supplier<? extends Compiler> compilerFactory,
+      List<SourceFile> externs,
+      List<SourceFile> inputs,
+      CompilerOptions options) {
+    this.compilerFactory = checkNotNull(compilerFactory);
+    this.externs = ImmutableList.copyOf(externs);
+    for (SourceFile input : inputs) {
+      checkArgument(
+          inputsByName.put(input.getName(), input) == null, "Duplicate input: %s", input);
+    }
+    this.options = options;
+    options.setChecksOnly(true);
+    options.setAllowHotswapReplaceScript(true);
+    options.setContinueAfterErrors(true);
+  }
+
+  /** The result of one build. */
+  public static final class Build {
+    private final int number;
+    private final boolean full;
+    private final ImmutableList<String> checkedFiles;
+    private final ImmutableList<JSError> errors;
+    private final ImmutableList<JSError> warnings;
+    private final long elapsedMillis;
+
+    Build(
+        int number,
+        boolean full,
+        List<String> checkedFiles,
+        Collection<JSError> errors,
+        Collection<JSError> warnings,
+        long elapsedMillis) {
+      this.number = number;
+      this.full = full;
+      this.checkedFiles = ImmutableList.copyOf(checkedFiles);
+      this.errors = ImmutableList.copyOf(errors);
+      this.warnings = ImmutableList.copyOf(warnings);
+      this.elapsedMillis = elapsedMillis;
+    }
+
+    /** The sequence number of this build, starting at 1. */
+    public int getNumber() {
+      return number;
+    }
+
+    /** Whether all inputs were parsed and checked from scratch. */
+    public boolean isFull() {
+      return full;
+    }
+
+    /** The inputs that were parsed and checked by this build. */
+    public ImmutableList<String> getCheckedFiles() {
+      return checkedFiles;
+    }
+
+    /** All errors in the inputs as of this build, including those found by earlier builds. */
+    public ImmutableList<JSError> getErrors() {
+      return errors;
+    }
+
+    /** All warnings in the inputs as of this build, including those found by earlier builds. */
+    public ImmutableList<JSError> getWarnings() {
+      return warnings;
+    }
+
+    public long getElapsedMillis() {
+      return elapsedMillis;
+    }
+  }
+
+  /** Parses and checks all inputs with a new compiler. */
+  public Build fullBuild() {
+    long start = System.currentTimeMillis();
+    List<SourceFile> inputs = new ArrayList<>();
+    for (SourceFile input : inputsByName.values()) {
+      if (!deletedInputs.contains(input.getName())) {
+        input.clearCachedSource();
+        inputs.add(input);
+      }
+    }
+
+    compiler = compilerFactory.get();
+    DiagnosticCollector diagnostics = new DiagnosticCollector();
+    compiler.setErrorManager(diagnostics);
+    compiler.compile(externs, inputs, options);
+
+    errorsByFile.clear();
+    warningsByFile.clear();
+    diagnostics.addTo(errorsByFile, warningsByFile);
+    indexDependencies();
+    return newBuild(true, inputOrder, start);
+  }
+
+  /**
+   * Rechecks the given inputs, whose contents may have changed, and the inputs that depend on
+   * them. Names that are not inputs are ignored. Does a full build if there has not been one yet
+   * or the change cannot be hot-swapped.
+   */
+  public Build update(Collection<String> changedFiles) {
+    if (compiler == null) {
+      return fullBuild();
+    }
+    long start = System.currentTimeMillis();
+
+    Map<String, JsAst> changedAsts = new LinkedHashMap<>();
+    for (String name : changedFiles) {
+      SourceFile file = inputsByName.get(name);
+      if (!(file instanceof SourceFile.OnDisk)) {
+        // Not an input, or one that cannot change.
+        continue;
+      }
+      boolean exists = Files.isRegularFile(Paths.get(name));
+      if (exists == deletedInputs.contains(name)) {
+        // The input was deleted, or came back.
+        logger.fine("Input added or removed: " + name);
+        if (exists) {
+          deletedInputs.remove(name);
+        } else {
+          deletedInputs.add(name);
+        }
+        return fullBuild();
+      } else if (!exists) {
+        continue;
+      }
+      file.clearCachedSource();
+      JsAst ast = new JsAst(file);
+      if (!dependencyKey(ast).equals(dependencyKeys.get(name))) {
+        logger.fine("Provides or requires changed: " + name);
+        return fullBuild();
+      }
+      changedAsts.put(name, ast);
+    }
+
+    Set<String> affected = new HashSet<>(changedAsts.keySet());
+    for (String name : changedAsts.keySet()) {
+      affected.addAll(dependentsByFile.get(name));
+    }
+    if (affected.size() > MAX_INCREMENTAL_FILES
+        && affected.size() > MAX_INCREMENTAL_FRACTION * inputOrder.size()) {
+      return fullBuild();
+    }
+
+    List<String> checked = new ArrayList<>();
+    DiagnosticCollector diagnostics = new DiagnosticCollector();
+    compiler.setErrorManager(diagnostics);
+    for (String name : inputOrder) {
+      if (!affected.contains(name)) {
+        continue;
+      }
+      JsAst ast = changedAsts.get(name);
+      if (ast == null) {
+        // A dependent whose contents did not change gets a fresh AST too; replaceScript needs one.
+        ast = new JsAst(inputsByName.get(name));
+      }
+      compiler.replaceScript(ast);
+      errorsByFile.removeAll(name);
+      warningsByFile.removeAll(name);
+      checked.add(name);
+    }
+    diagnostics.addTo(errorsByFile, warningsByFile);
+    return newBuild(false, checked, start);
+  }
+
+  private Build newBuild(boolean full, List<String> checkedFiles, long start) {
+    buildCount++;
+    return new Build(
+        buildCount,
+        full,
+        checkedFiles,
+        errorsByFile.values(),
+        warningsByFile.values(),
+        System.currentTimeMillis() - start);
+  }
+
+  /** Returns the names of the inputs that can change on disk. */
+  public ImmutableSet<String> getWatchableFiles() {
+    ImmutableSet.Builder<String> files = ImmutableSet.builder();
+    for (SourceFile file : inputsByName.values()) {
+      if (file instanceof SourceFile.OnDisk) {
+        files.add(file.getName());
+      }
+    }
+    return files.build();
+  }
+
+  /** Records the sorted input order and which inputs require which after a full build. */
+  private void indexDependencies() {
+    List<String> order = new ArrayList<>();
+    Map<String, String> providers = new HashMap<>();
+    dependencyKeys = new HashMap<>();
+    for (CompilerInput input : compiler.getInputsInOrder()) {
+      String name = input.getName();
+      if (!inputsByName.containsKey(name)) {
+        // An injected library or synthetic input.
+        continue;
+      }
+      order.add(name);
+      // Scan the file again rather than asking the input, whose provides and requires may have
+      // been rewritten by module processing, so keys compare equal to those made in update.
+      DependencyKey key = dependencyKey(new JsAst(inputsByName.get(name)));
+      dependencyKeys.put(name, key);
+      for (String provide : key.provides) {
+        providers.put(provide, name);
+      }
+    }
+    dependentsByFile = LinkedHashMultimap.create();
+    for (String name : order) {
+      for (String require : dependencyKeys.get(name).requires) {
+        String provider = providers.get(require);
+        if (provider != null && !provider.equals(name)) {
+          dependentsByFile.put(provider, name);
+        }
+      }
+    }
+    inputOrder = order;
+  }
+
+  private DependencyKey dependencyKey(JsAst ast) {
+    CompilerInput input = new CompilerInput(ast);
+    input.setCompiler(compiler);
+    return new DependencyKey(input.getProvides(), input.getRequires());
+  }
+
+  /** The provides and requires of one input, which must not change for it to be hot-swapped. */
+  private static final class DependencyKey {
+    final ImmutableSet<String> provides;
+    final ImmutableSet<String> requires;
+
+    DependencyKey(Collection<String> provides, Collection<String> requires) {
+      this.provides = ImmutableSet.copyOf(provides);
+      this.requires = ImmutableSet.copyOf(requires);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof DependencyKey)) {
+        return false;
+      }
+      DependencyKey that = (DependencyKey) o;
+      return provides.equals(that.provides) && requires.equals(that.requires);
+    }
+
+    @Override
+    public int hashCode() {
+      return provides.hashCode() * 31 + requires.hashCode();
+    }
+  }
+
+  /** Collects the diagnostics of one build by file, without printing them. */
+  private static final class DiagnosticCollector extends BasicErrorManager {
+    @Override
+    public void println(CheckLevel level, JSError error) {}
+
+    @Override
+    protected void printSummary() {}
+
+    void addTo(SetMultimap<String, JSError> errors, SetMultimap<String, JSError> warnings) {
+      for (JSError error : getErrors()) {
+        errors.put(nullToEmpty(error.sourceName), error);
+      }
+      for (JSError warning : getWarnings()) {
+        warnings.put(nullToEmpty(warning.sourceName), warning);
+      }
+    }
+
+    private static String nullToEmpty(@Nullable String sourceName) {
+      return sourceName == null ? "" : sourceName;
+    }
+  }
+
+  /**
+   * Runs the server until told to stop or {@code commands} ends.
+   *
+   * <p>Each line of {@code commands} is a JSON object with a {@code "command"}, one of
+   * {@code "build"} for a full build, {@code "update"} with a {@code "files"} array of changed
+   * inputs, or {@code "stop"}, which stops the server once the commands before it are done. If
+   * {@code watcher} is given, changes it sees are handled like an update. After every build, one
+   * line with a JSON object describing it is written to {@code out}.
+   */
+  public void serve(Reader commands, Writer out, @Nullable SourceFileWatcher watcher)
+      throws IOException, InterruptedException {
+    BlockingQueue<Request> requests = new LinkedBlockingQueue<>();
+    Thread commandReader = startCommandReader(commands, requests, out);
+    Thread watcherThread = watcher == null ? null : startWatcher(watcher, requests);
+    try {
+      writeBuild(fullBuild(), out);
+      while (true) {
+        List<Request> batch = new ArrayList<>();
+        batch.add(requests.take());
+        requests.drainTo(batch);
+
+        boolean full = false;
+        boolean stop = false;
+        Set<String> changed = new LinkedHashSet<>();
+        for (Request request : batch) {
+          if (request == Request.STOP) {
+            stop = true;
+            break;
+          } else if (request == Request.FULL_BUILD) {
+            full = true;
+          } else {
+            changed.addAll(request.files);
+          }
+        }
+        if (full) {
+          writeBuild(fullBuild(), out);
+        } else if (!changed.isEmpty()) {
+          writeBuild(update(changed), out);
+        }
+        if (stop) {
+          return;
+        }
+      }
+    } finally {
+      commandReader.interrupt();
+      if (watcherThread != null) {
+        watcherThread.interrupt();
+      }
+    }
+  }
+
+  /** A unit of work for {@link #serve}. */
+  private static final class Request {
+    static final Request FULL_BUILD = new Request(ImmutableSet.<String>of());
+    static final Request STOP = new Request(ImmutableSet.<String>of());
+
+    final ImmutableSet<String> files;
+
+    Request(Collection<String> files) {
+      this.files = ImmutableSet.copyOf(files);
+    }
+  }
+
+  private static Thread startCommandReader(
+      final Reader commands, final BlockingQueue<Request> requests, final Writer out) {
+    Thread thread =
+        new Thread("CompileServer commands") {
+          @Override
+          public void run() {
+            try {
+              BufferedReader reader = new BufferedReader(commands);
+              for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.trim().isEmpty()) {
+                  continue;
+                }
+                try {
+                  requests.put(parseCommand(line));
+                } catch (JsonParseException | IllegalArgumentException e) {
+                  writeError(e.getMessage(), out);
+                }
+              }
+            } catch (IOException e) {
+              logger.log(Level.WARNING, "Could not read commands", e);
+            } catch (InterruptedException e) {
+              return;
+            }
+            requests.add(Request.STOP);
+          }
+        };
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+
+  private static Thread startWatcher(
+      final SourceFileWatcher watcher, final BlockingQueue<Request> requests) {
+    Thread thread =
+        new Thread("CompileServer watcher") {
+          @Override
+          public void run() {
+            try {
+              while (true) {
+                requests.put(
+                    new Request(
+                        watcher.awaitChanges(WATCH_QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS)));
+              }
+            } catch (InterruptedException e) {
+              // Stopped by the server.
+            }
+          }
+        };
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+
+  static Request parseCommand(String line) {
+    JsonElement parsed = new JsonParser().parse(line);
+    checkArgument(parsed.isJsonObject(), "Expected a JSON object: %s", line);
+    JsonObject object = parsed.getAsJsonObject();
+    JsonElement command = object.get("command");
+    checkArgument(command != null, "Missing \"command\": %s", line);
+    checkArgument(command.isJsonPrimitive(), "Expected a string \"command\": %s", line);
+    switch (command.getAsString()) {
+      case "build":
+        return Request.FULL_BUILD;
+      case "stop":
+        return Request.STOP;
+      case "update":
+        JsonElement files = object.get("files");
+        checkArgument(files != null && files.isJsonArray(), "Missing \"files\": %s", line);
+        List<String> names = new ArrayList<>();
+        for (JsonElement file : files.getAsJsonArray()) {
+          checkArgument(file.isJsonPrimitive(), "Expected a string in \"files\": %s", line);
+          names.add(file.getAsString());
+        }
+        return new Request(names);
+      default:
+        throw new IllegalArgumentException("Unknown command: " + command.getAsString());
+    }
+  }
+
+  static void writeBuild(Build build, Writer out) throws IOException {
+    synchronized (out) {
+      JsonWriter jsonWriter = new JsonWriter(out);
+      jsonWriter.beginObject();
+      jsonWriter.name("build").value(build.getNumber());
+      jsonWriter.name("full").value(build.isFull());
+      jsonWriter.name("checked_files").beginArray();
+      for (String file : build.getCheckedFiles()) {
+        jsonWriter.value(file);
+      }
+      jsonWriter.endArray();
+      jsonWriter.name("elapsed_ms").value(build.getElapsedMillis());
+      writeDiagnostics(jsonWriter, "errors", build.getErrors());
+      writeDiagnostics(jsonWriter, "warnings", build.getWarnings());
+      jsonWriter.endObject();
+      jsonWriter.flush();
+      out.write('\n');
+      out.flush();
+    }
+  }
+
+  private static void writeDiagnostics(JsonWriter jsonWriter, String name, List<JSError> errors)
+      throws IOException {
+    jsonWriter.name(name).beginArray();
+    for (JSError error : errors) {
+      jsonWriter.beginObject();
+      jsonWriter.name("file").value(error.sourceName);
+      jsonWriter.name("line").value(error.lineNumber);
+      jsonWriter.name("column").value(error.getCharno());
+      jsonWriter.name("type").value(error.getType().key);
+      jsonWriter.name("description").value(error.description);
+      jsonWriter.endObject();
+    }
+    jsonWriter.endArray();
+  }
+
+  private static void writeError(String message, Writer out) {
+    synchronized (out) {
+      try {
+        JsonWriter jsonWriter = new JsonWriter(out);
+        jsonWriter.beginObject();
+        jsonWriter.name("error").value(message);
+        jsonWriter.endObject();
+        jsonWriter.flush();
+        out.write('\n');
+        out.flush();
+      } catch (IOException e) {
+        logger.log(Level.WARNING, "Could not write to the client", e);
+      }
+    }
+  }
+}
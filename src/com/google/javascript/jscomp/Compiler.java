@@ -16,6 +16,7 @@
 
 package com.google.javascript.jscomp;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
@@ -51,6 +52,8 @@ import com.google.javascript.rhino.InputId;
 import com.google.javascript.rhino.JSDocInfo;
 import com.google.javascript.rhino.JSDocInfoBuilder;
 import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.NodeTreeReader;
+import com.google.javascript.rhino.NodeTreeWriter;
 import com.google.javascript.rhino.Token;
 import com.google.javascript.rhino.TypeIRegistry;
 import com.google.javascript.rhino.jstype.JSTypeRegistry;
@@ -183,6 +186,9 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
   private final ConcurrentHashMap<String, SourceFile> sourceMapOriginalSources =
       new ConcurrentHashMap<>();
 
+  // The code of sources released after parsing, read again for error excerpts.
+  private ReleasedSourceCache releasedSources;
+
   /** Configured {@link SourceMapInput}s, plus any source maps discovered in source files. */
   ConcurrentHashMap<String, SourceMapInput> inputSourceMaps = new ConcurrentHashMap<>();
 
@@ -253,6 +259,10 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
 
   private final CompilerExecutor compilerExecutor = createCompilerExecutor();
 
+  // Runs independent tasks, such as parsing inputs, in parallel. Created the first time it is
+  // needed, and shut down at the end of the compilation.
+  private ParallelTasks parallelTasks = null;
+
   /**
    * Logger for the whole com.google.javascript.jscomp domain -
    * setting configuration for this logger affects all loggers
@@ -277,6 +287,7 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
   // visited by the "current" NodeTraversal.  This can't be thread safe so
   // we should move it into the NodeTraversal and require explicit changed
   // nodes elsewhere so we aren't blocked from doing this elsewhere.
+  // The threads of parallelTasks keep their own, see ParallelTasks#setChangeScope.
   private Node currentChangeScope = null;
 
   // Starts at 0, increases as "interesting" things happen.
@@ -336,6 +347,7 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
    */
   public void initOptions(CompilerOptions options) {
     this.options = options;
+    this.releasedSources = new ReleasedSourceCache(options.getSourceExcerptCacheSize());
     this.setFeatureSet(options.getLanguageIn().toFeatureSet());
     if (errorManager == null) {
       if (this.outStream == null) {
@@ -550,12 +562,18 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     inputSourceMaps.putAll(options.inputSourceMaps);
     // Create the source map if necessary.
     if (options.sourceMapOutputPath != null) {
-      sourceMap = options.sourceMapFormat.getInstance();
-      sourceMap.setPrefixMappings(options.sourceMapLocationMappings);
-      if (options.applyInputSourceMaps) {
-        sourceMap.setSourceFileMapping(this);
-      }
+      sourceMap = newSourceMap();
+    }
+  }
+
+  /** Creates an empty source map, configured by the options like the compiler's own. */
+  SourceMap newSourceMap() {
+    SourceMap map = options.sourceMapFormat.getInstance();
+    map.setPrefixMappings(options.sourceMapLocationMappings);
+    if (options.applyInputSourceMaps) {
+      map.setSourceFileMapping(this);
     }
+    return map;
   }
 
   private <T extends SourceFile> List<CompilerInput> makeExternInputs(List<T> externSources) {
@@ -726,6 +744,7 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
         performPostCompilationTasks();
       }
     } finally {
+      shutDownParallelTasks();
       generateReport();
     }
     return getResult();
@@ -781,6 +800,7 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
         performPostCompilationTasks();
       }
     } finally {
+      shutDownParallelTasks();
       generateReport();
     }
     return getResult();
@@ -1681,7 +1701,13 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     if (options.getTracerMode().isOn()) {
       PrintStream tracerOutput =
           options.getTracerOutput() == null ? this.outStream : options.getTracerOutput();
-      tracker = new PerformanceTracker(externsRoot, jsRoot, options.getTracerMode(), tracerOutput);
+      tracker =
+          new PerformanceTracker(
+              externsRoot,
+              jsRoot,
+              options.getTracerMode(),
+              tracerOutput,
+              options.getTracerOutputFormat());
       addChangeHandler(tracker.getCodeChangeHandler());
     }
   }
@@ -1710,7 +1736,7 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     try {
       // Parse externs sources.
       if (options.numParallelThreads > 1) {
-        new PrebuildAst(this, options.numParallelThreads).prebuild(externs);
+        getPrebuildAst().prebuild(externs);
       }
       for (CompilerInput input : externs) {
         Node n = input.getAstRoot(this);
@@ -1793,9 +1819,28 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
         return null;
       }
 
-      // Build the AST.
-      if (options.numParallelThreads > 1) {
-        new PrebuildAst(this, options.numParallelThreads).prebuild(inputs);
+      // TODO(johnlenz): we shouldn't need to check both isExternExportsEnabled and
+      // externExportsPath.
+      boolean annotateSourceInformation =
+          options.sourceMapOutputPath != null
+              || options.isExternExportsEnabled()
+              || options.externExportsPath != null
+              || !options.replaceStringsFunctionDescriptions.isEmpty();
+
+      // Build the AST. When the inputs are parsed in parallel, they are annotated on the thread
+      // that parsed them, so only adding them to the tree is left for this thread.
+      boolean prebuilt = options.numParallelThreads > 1;
+      if (prebuilt) {
+        getPrebuildAst().prebuild(
+            inputs,
+            annotateSourceInformation
+                ? new PrebuildAst.AstCallback() {
+                    @Override
+                    public void visit(CompilerInput input, Node root) {
+                      annotateSourceInformation(input, root);
+                    }
+                  }
+                : null);
       }
 
       for (CompilerInput input : inputs) {
@@ -1811,19 +1856,8 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
           }
         }
 
-        // TODO(johnlenz): we shouldn't need to check both isExternExportsEnabled and
-        // externExportsPath.
-        if (options.sourceMapOutputPath != null
-            || options.isExternExportsEnabled()
-            || options.externExportsPath != null
-            || !options.replaceStringsFunctionDescriptions.isEmpty()) {
-
-          // Annotate the nodes in the tree with information from the
-          // input file. This information is used to construct the SourceMap.
-          SourceInformationAnnotator sia =
-              new SourceInformationAnnotator(
-                  input.getName(), options.devMode != DevMode.OFF);
-          NodeTraversal.traverseEs6(this, n, sia);
+        if (annotateSourceInformation && !prebuilt) {
+          annotateSourceInformation(input, n);
         }
 
         jsRoot.addChildToBack(n);
@@ -1839,6 +1873,36 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     }
   }
 
+  /**
+   * Annotates the nodes in the tree with information from the input file. This information is used
+   * to construct the SourceMap.
+   */
+  private void annotateSourceInformation(CompilerInput input, Node root) {
+    SourceInformationAnnotator sia =
+        new SourceInformationAnnotator(input.getName(), options.devMode != DevMode.OFF);
+    NodeTraversal.traverseEs6(this, root, sia);
+  }
+
+  private PrebuildAst getPrebuildAst() {
+    return new PrebuildAst(this, getParallelTasks());
+  }
+
+  @Override
+  ParallelTasks getParallelTasks() {
+    if (parallelTasks == null || parallelTasks.getNumThreads() != options.numParallelThreads) {
+      shutDownParallelTasks();
+      parallelTasks = new ParallelTasks(options.numParallelThreads);
+    }
+    return parallelTasks;
+  }
+
+  private void shutDownParallelTasks() {
+    if (parallelTasks != null) {
+      parallelTasks.shutdown();
+      parallelTasks = null;
+    }
+  }
+
   void orderInputsWithLargeStack() {
     runInCompilerThread(new Callable<Void>() {
       @Override
@@ -2038,7 +2102,7 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
       }
     }
     if (options.numParallelThreads > 1) {
-      new PrebuildAst(this, options.numParallelThreads).prebuild(filteredInputs);
+      getPrebuildAst().prebuild(filteredInputs);
     }
     for (CompilerInput input : filteredInputs) {
       input.setCompiler(this);
@@ -2136,12 +2200,27 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
    */
   @Override
   public String toSource() {
-    return runInCompilerThread(new Callable<String>() {
+    CodeBuilder cb = new CodeBuilder();
+    printScripts(cb);
+    return cb.toString();
+  }
+
+  /**
+   * Converts the main parse tree back to JS code, writing it to {@code out} while it is printed
+   * rather than building it in memory.
+   */
+  public void toSource(Appendable out) throws IOException {
+    CodeBuilder cb = new CodeBuilder(out);
+    printScripts(cb);
+    cb.checkWriteFailure();
+  }
+
+  private void printScripts(final CodeBuilder cb) {
+    runInCompilerThread(new Callable<Void>() {
       @Override
-      public String call() throws Exception {
+      public Void call() throws Exception {
         Tracer tracer = newTracer("toSource");
         try {
-          CodeBuilder cb = new CodeBuilder();
           if (jsRoot != null) {
             int i = 0;
             for (Node scriptNode = jsRoot.getFirstChild();
@@ -2150,7 +2229,7 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
               toSource(cb, i++, scriptNode);
             }
           }
-          return cb.toString();
+          return null;
         } finally {
           stopTracer(tracer, "toSource");
         }
@@ -2188,28 +2267,59 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
    * Converts the parse tree for a module back to JS code.
    */
   public String toSource(final JSModule module) {
-    return runInCompilerThread(new Callable<String>() {
+    CodeBuilder cb = new CodeBuilder();
+    printModule(cb, module);
+    return cb.toString();
+  }
+
+  /**
+   * Converts the parse tree for a module back to JS code, writing it to {@code out} while it is
+   * printed rather than building it in memory.
+   */
+  public void toSource(JSModule module, Appendable out) throws IOException {
+    CodeBuilder cb = new CodeBuilder(out);
+    printModule(cb, module);
+    cb.checkWriteFailure();
+  }
+
+  private void printModule(final CodeBuilder cb, final JSModule module) {
+    runInCompilerThread(new Callable<Void>() {
       @Override
-      public String call() throws Exception {
-        List<CompilerInput> inputs = module.getInputs();
-        int numInputs = inputs.size();
-        if (numInputs == 0) {
-          return "";
-        }
-        CodeBuilder cb = new CodeBuilder();
-        for (int i = 0; i < numInputs; i++) {
-          Node scriptNode = inputs.get(i).getAstRoot(Compiler.this);
-          if (scriptNode == null) {
-            throw new IllegalArgumentException(
-                "Bad module: " + module.getName());
-          }
-          toSource(cb, i, scriptNode);
-        }
-        return cb.toString();
+      public Void call() throws Exception {
+        printModule(cb, module, sourceMap);
+        return null;
       }
     });
   }
 
+  /**
+   * Converts the parse tree for a module back to JS code, writing it to {@code out} and its
+   * mappings to {@code moduleSourceMap} instead of the compiler's source map.
+   *
+   * <p>Unlike the other toSource methods, this runs in the calling thread, so that the modules can
+   * be printed concurrently once compilation is done and the AST no longer changes. The caller is
+   * responsible for giving the thread a large enough stack.
+   */
+  void toSource(JSModule module, Appendable out, @Nullable SourceMap moduleSourceMap)
+      throws IOException {
+    CodeBuilder cb = new CodeBuilder(out);
+    printModule(cb, module, moduleSourceMap);
+    cb.checkWriteFailure();
+  }
+
+  private void printModule(CodeBuilder cb, JSModule module, @Nullable SourceMap sourceMap)
+      throws IOException {
+    List<CompilerInput> inputs = module.getInputs();
+    int numInputs = inputs.size();
+    for (int i = 0; i < numInputs; i++) {
+      Node scriptNode = inputs.get(i).getAstRoot(this);
+      if (scriptNode == null) {
+        throw new IllegalArgumentException("Bad module: " + module.getName());
+      }
+      printScript(cb, i, scriptNode, sourceMap);
+    }
+  }
+
 
   /**
    * Converts the parse tree for each input in a module back to JS code.
@@ -2256,60 +2366,62 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
         new Callable<Void>() {
           @Override
           public Void call() throws Exception {
-            if (options.printInputDelimiter) {
-              if ((cb.getLength() > 0) && !cb.endsWith("\n")) {
-                cb.append("\n"); // Make sure that the label starts on a new line
-              }
-              checkState(root.isScript());
+            printScript(cb, inputSeqNum, root, sourceMap);
+            return null;
+          }
+        });
+  }
 
-              String delimiter = options.inputDelimiter;
+  private void printScript(
+      CodeBuilder cb, int inputSeqNum, Node root, @Nullable SourceMap sourceMap)
+      throws IOException {
+    if (options.printInputDelimiter) {
+      if ((cb.getLength() > 0) && !cb.endsWith("\n")) {
+        cb.append("\n"); // Make sure that the label starts on a new line
+      }
+      checkState(root.isScript());
 
-              String inputName = root.getInputId().getIdName();
-              String sourceName = root.getSourceFileName();
-              checkState(sourceName != null);
-              checkState(!sourceName.isEmpty());
+      String delimiter = options.inputDelimiter;
 
-              delimiter =
-                  delimiter
-                      .replace("%name%", Matcher.quoteReplacement(inputName))
-                      .replace("%num%", String.valueOf(inputSeqNum))
-                      .replace("%n%", "\n");
+      String inputName = root.getInputId().getIdName();
+      String sourceName = root.getSourceFileName();
+      checkState(sourceName != null);
+      checkState(!sourceName.isEmpty());
 
-              cb.append(delimiter).append("\n");
-            }
-            if (root.getJSDocInfo() != null) {
-              String license = root.getJSDocInfo().getLicense();
-              if (license != null && cb.addLicense(license)) {
-                cb.append("/*\n").append(license).append("*/\n");
-              }
-            }
+      delimiter =
+          delimiter
+              .replace("%name%", Matcher.quoteReplacement(inputName))
+              .replace("%num%", String.valueOf(inputSeqNum))
+              .replace("%n%", "\n");
 
-            // If there is a valid source map, then indicate to it that the current
-            // root node's mappings are offset by the given string builder buffer.
-            if (options.sourceMapOutputPath != null) {
-              sourceMap.setStartingPosition(cb.getLineIndex(), cb.getColumnIndex());
-            }
+      cb.append(delimiter).append("\n");
+    }
+    if (root.getJSDocInfo() != null) {
+      String license = root.getJSDocInfo().getLicense();
+      if (license != null && cb.addLicense(license)) {
+        cb.append("/*\n").append(license).append("*/\n");
+      }
+    }
 
-            // if LanguageMode is strict, only print 'use strict'
-            // for the first input file
-            String code = toSource(root, sourceMap, inputSeqNum == 0);
-            if (!code.isEmpty()) {
-              cb.append(code);
-
-              // In order to avoid parse ambiguity when files are concatenated
-              // together, all files should end in a semi-colon. Do a quick
-              // heuristic check if there's an obvious semi-colon already there.
-              int length = code.length();
-              char lastChar = code.charAt(length - 1);
-              char secondLastChar = length >= 2 ? code.charAt(length - 2) : '\0';
-              boolean hasSemiColon = lastChar == ';' || (lastChar == '\n' && secondLastChar == ';');
-              if (!hasSemiColon) {
-                cb.append(";");
-              }
-            }
-            return null;
-          }
-        });
+    // If there is a valid source map, then indicate to it that the current
+    // root node's mappings are offset by the given string builder buffer.
+    if (sourceMap != null) {
+      sourceMap.setStartingPosition(cb.getLineIndex(), cb.getColumnIndex());
+    }
+
+    // if LanguageMode is strict, only print 'use strict'
+    // for the first input file
+    int start = cb.getLength();
+    newCodePrinter(root, sourceMap, inputSeqNum == 0).writeTo(cb);
+    if (cb.getLength() > start) {
+      // In order to avoid parse ambiguity when files are concatenated
+      // together, all files should end in a semi-colon. Do a quick
+      // heuristic check if there's an obvious semi-colon already there.
+      boolean hasSemiColon = cb.endsWith(";") || cb.endsWith(";\n");
+      if (!hasSemiColon) {
+        cb.append(";");
+      }
+    }
   }
 
   /**
@@ -2326,33 +2438,73 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
    * Generates JavaScript source code for an AST.
    */
   private String toSource(Node n, SourceMap sourceMap, boolean firstOutput) {
+    return newCodePrinter(n, sourceMap, firstOutput).build();
+  }
+
+  private CodePrinter.Builder newCodePrinter(Node n, SourceMap sourceMap, boolean firstOutput) {
     CodePrinter.Builder builder = new CodePrinter.Builder(n);
     builder.setTypeRegistry(getTypeIRegistry());
     builder.setCompilerOptions(options);
     builder.setSourceMap(sourceMap);
     builder.setTagAsExterns(firstOutput && options.shouldGenerateTypedExterns());
     builder.setTagAsStrict(firstOutput && options.shouldEmitUseStrict());
-    return builder.build();
+    return builder;
   }
 
   /**
    * Stores a buffer of text to which more can be appended.  This is just like a
    * StringBuilder except that we also track the number of lines.
+   *
+   * <p>A code builder can also pass the text on to an {@link Appendable} instead of keeping it, in
+   * which case only the line and column counts and the last characters are kept.
    */
-  public static class CodeBuilder {
+  public static class CodeBuilder implements Appendable {
     private final StringBuilder sb = new StringBuilder();
+    @Nullable private final Appendable out;
+    private IOException writeFailure = null;
+    private int length = 0;
+    private char lastChar = '\0';
+    private char secondLastChar = '\0';
     private int lineCount = 0;
     private int colCount = 0;
     private final Set<String> uniqueLicenses = new HashSet<>();
 
+    public CodeBuilder() {
+      this(null);
+    }
+
+    /** Creates a code builder that writes all text to {@code out}, if not null. */
+    CodeBuilder(@Nullable Appendable out) {
+      this.out = out;
+    }
+
     /** Removes all text, but leaves the line count unchanged. */
     void reset() {
+      checkState(out == null);
       sb.setLength(0);
+      length = 0;
     }
 
     /** Appends the given string to the text buffer. */
     CodeBuilder append(String str) {
-      sb.append(str);
+      if (out == null) {
+        sb.append(str);
+      } else if (writeFailure == null) {
+        // The failure is reported by checkWriteFailure, since callers of append cannot handle it.
+        try {
+          out.append(str);
+        } catch (IOException e) {
+          writeFailure = e;
+        }
+      }
+      length += str.length();
+      if (str.length() >= 2) {
+        secondLastChar = str.charAt(str.length() - 2);
+        lastChar = str.charAt(str.length() - 1);
+      } else if (str.length() == 1) {
+        secondLastChar = lastChar;
+        lastChar = str.charAt(0);
+      }
 
       // Adjust the line and column information for the new text.
       int index = -1;
@@ -2372,15 +2524,38 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
       return this;
     }
 
+    @Override
+    public CodeBuilder append(CharSequence csq) {
+      return append(String.valueOf(csq));
+    }
+
+    @Override
+    public CodeBuilder append(CharSequence csq, int start, int end) {
+      return append(csq.subSequence(start, end).toString());
+    }
+
+    @Override
+    public CodeBuilder append(char c) {
+      return append(String.valueOf(c));
+    }
+
+    /** Throws the first exception thrown by the {@link Appendable} the text is written to. */
+    void checkWriteFailure() throws IOException {
+      if (writeFailure != null) {
+        throw writeFailure;
+      }
+    }
+
     /** Returns all text in the text buffer. */
     @Override
     public String toString() {
+      checkState(out == null, "The text was written out");
       return sb.toString();
     }
 
     /** Returns the length of the text buffer. */
     public int getLength() {
-      return sb.length();
+      return length;
     }
 
     /** Returns the (zero-based) index of the last line in the text buffer. */
@@ -2393,10 +2568,17 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
       return colCount;
     }
 
-    /** Determines whether the text ends with the given suffix. */
+    /** Determines whether the text ends with the given suffix, of at most two characters. */
     boolean endsWith(String suffix) {
-      return (sb.length() > suffix.length())
-          && suffix.equals(sb.substring(sb.length() - suffix.length()));
+      checkArgument(suffix.length() <= 2, suffix);
+      switch (suffix.length()) {
+        case 0:
+          return true;
+        case 1:
+          return length >= 1 && lastChar == suffix.charAt(0);
+        default:
+          return length >= 2 && secondLastChar == suffix.charAt(0) && lastChar == suffix.charAt(1);
+      }
     }
 
     /** Adds a license and returns whether it is unique (has yet to be encountered). */
@@ -2551,7 +2733,9 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
 
   @Override
   void setChangeScope(Node newChangeScopeRoot) {
-    currentChangeScope = newChangeScopeRoot;
+    if (!ParallelTasks.setChangeScope(newChangeScopeRoot)) {
+      currentChangeScope = newChangeScopeRoot;
+    }
   }
 
   private Node getChangeScopeForNode(Node n) {
@@ -2574,6 +2758,7 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     return enclosingScopeNode;
   }
 
+  // Only called with the compiler lock held, see ParallelCompilerPass.
   private void recordChange(Node n) {
     if (n.isDeleted()) {
       // Some complicated passes (like SmartNameRemoval) might both change and delete a scope in
@@ -2604,26 +2789,28 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
    */
   @Deprecated
   @Override
-  public void reportCodeChange() {
+  public synchronized void reportCodeChange() {
     // TODO(johnlenz): if this is called with a null scope we need to invalidate everything
     // but this isn't done, so we need to make this illegal or record this as having
     // invalidated everything.
-    if (currentChangeScope != null) {
-      checkState(currentChangeScope.isScript() || currentChangeScope.isFunction());
-      recordChange(currentChangeScope);
+    Node changeScope =
+        ParallelTasks.isPoolThread() ? ParallelTasks.getChangeScope() : currentChangeScope;
+    if (changeScope != null) {
+      checkState(changeScope.isScript() || changeScope.isFunction());
+      recordChange(changeScope);
     }
     notifyChangeHandlers();
   }
 
   @Override
-  public void reportChangeToChangeScope(Node changeScopeRoot) {
+  public synchronized void reportChangeToChangeScope(Node changeScopeRoot) {
     checkState(changeScopeRoot.isScript() || changeScopeRoot.isFunction());
     recordChange(changeScopeRoot);
     notifyChangeHandlers();
   }
 
   @Override
-  public void reportFunctionDeleted(Node n) {
+  public synchronized void reportFunctionDeleted(Node n) {
     checkState(n.isFunction());
     n.setDeleted(true);
     changeTimeline.remove(n);
@@ -2631,7 +2818,7 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
   }
 
   @Override
-  public void reportChangeToEnclosingScope(Node n) {
+  public synchronized void reportChangeToEnclosingScope(Node n) {
     recordChange(getChangeScopeForNode(n));
     notifyChangeHandlers();
   }
@@ -2724,8 +2911,9 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     return new DiagnosticGroups();
   }
 
+  // Synchronized because passes run by ParallelCompilerPass report from several threads.
   @Override
-  public void report(JSError error) {
+  public synchronized void report(JSError error) {
     CheckLevel level = error.getDefaultLevel();
     if (warningsGuard != null) {
       CheckLevel newLevel = warningsGuard.level(error);
@@ -2889,6 +3077,10 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     }
     SourceFile input = getSourceFileByName(sourceName);
     if (input != null) {
+      if (input.hasReleasedCode() && releasedSources != null) {
+        String code = releasedSources.getCode(input);
+        return code != null ? input.getLine(lineNumber, code) : null;
+      }
       return input.getLine(lineNumber);
     }
     return null;
@@ -2901,6 +3093,10 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     }
     SourceFile input = getSourceFileByName(sourceName);
     if (input != null) {
+      if (input.hasReleasedCode() && releasedSources != null) {
+        String code = releasedSources.getCode(input);
+        return code != null ? input.getRegion(lineNumber, code) : null;
+      }
       return input.getRegion(lineNumber);
     }
     return null;
@@ -3504,12 +3700,30 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
 
   @GwtIncompatible("ObjectOutputStream")
   public void saveState(OutputStream outputStream) throws IOException {
+    class CompilerObjectOutputStream extends ObjectOutputStream {
+      final NodeTreeWriter treeWriter = new NodeTreeWriter(this);
+
+      CompilerObjectOutputStream(OutputStream out) throws IOException {
+        super(out);
+        enableReplaceObject(true);
+      }
+
+      @Override
+      protected Object replaceObject(Object obj) {
+        return treeWriter.replaceNode(obj);
+      }
+    }
+
     // Do not close the outputstream, caller is responsible for closing it.
-    final ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream);
+    final CompilerObjectOutputStream objectOutputStream =
+        new CompilerObjectOutputStream(outputStream);
     runInCompilerThread(new Callable<Void>() {
       @Override
       public Void call() throws Exception {
         Tracer tracer = newTracer("serializeCompilerState");
+        // The AST goes first, in its own compact format. Everything written after it refers to
+        // its nodes by position.
+        objectOutputStream.treeWriter.writeTree(checkNotNull(externAndJsRoot));
         objectOutputStream.writeObject(new CompilerState(Compiler.this));
         if (typeRegistry != null) {
           typeRegistry.saveContents(objectOutputStream);
@@ -3528,24 +3742,33 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     List<JSModule> newModules = modules;
 
     class CompilerObjectInputStream extends ObjectInputStream implements HasCompiler {
+      final NodeTreeReader treeReader = new NodeTreeReader(this);
+
       public CompilerObjectInputStream(InputStream in) throws IOException {
         super(in);
+        enableResolveObject(true);
       }
 
       @Override
       public AbstractCompiler getCompiler() {
         return Compiler.this;
       }
+
+      @Override
+      protected Object resolveObject(Object obj) throws IOException {
+        return treeReader.resolveNode(obj);
+      }
     }
 
     // Do not close the input stream, caller is responsible for closing it.
-    final ObjectInputStream objectInputStream = new CompilerObjectInputStream(inputStream);
+    final CompilerObjectInputStream objectInputStream = new CompilerObjectInputStream(inputStream);
     CompilerState compilerState =
         runInCompilerThread(
             new Callable<CompilerState>() {
               @Override
               public CompilerState call() throws Exception {
                 Tracer tracer = newTracer(PassNames.DESERIALIZE_COMPILER_STATE);
+                objectInputStream.treeReader.readTree();
                 CompilerState compilerState = (CompilerState) objectInputStream.readObject();
                 if (compilerState.typeRegistry != null) {
                   compilerState.typeRegistry.restoreContents(objectInputStream);
@@ -147,6 +147,8 @@ public class CompilerOptions implements Serializable {
 
   private boolean allowHotswapReplaceScript = false;
   private boolean preserveDetailedSourceInfo = false;
+  private boolean releaseSourcesAfterParse = false;
+  private long sourceExcerptCacheSize = 8L * 1024 * 1024;
   private boolean continueAfterErrors = false;
 
   public enum IncrementalCheckMode {
@@ -1021,6 +1023,17 @@ public class CompilerOptions implements Serializable {
     tracerOutput = out;
   }
 
+  private TracerOutputFormat tracerOutputFormat;
+
+  public TracerOutputFormat getTracerOutputFormat() {
+    return tracerOutputFormat;
+  }
+
+  /** Sets the format of the report written to the tracer output when the tracer is on. */
+  public void setTracerOutputFormat(TracerOutputFormat format) {
+    this.tracerOutputFormat = format;
+  }
+
   private boolean colorizeErrorOutput;
 
   public ErrorFormat errorFormat;
@@ -1331,6 +1344,7 @@ public class CompilerOptions implements Serializable {
     preferLineBreakAtEndOfFile = false;
     reportPath = null;
     tracer = TracerMode.OFF;
+    tracerOutputFormat = TracerOutputFormat.TEXT;
     colorizeErrorOutput = false;
     errorFormat = ErrorFormat.SINGLELINE;
     debugFunctionSideEffectsPath = null;
@@ -2105,6 +2119,32 @@ public class CompilerOptions implements Serializable {
     return preserveDetailedSourceInfo;
   }
 
+  /**
+   * Whether to drop the code of each source file from memory once it is parsed. Code that can be
+   * read again from its file, zip entry or generator is read again when it is needed; other code is
+   * kept compressed. Error excerpts are then read from a cache of at most {@link
+   * #setSourceExcerptCacheSize} characters.
+   */
+  public void setReleaseSourcesAfterParse(boolean releaseSourcesAfterParse) {
+    this.releaseSourcesAfterParse = releaseSourcesAfterParse;
+  }
+
+  boolean releasesSourcesAfterParse() {
+    return releaseSourcesAfterParse;
+  }
+
+  /**
+   * The maximum total length, in characters, of the released sources kept in memory for error
+   * excerpts.
+   */
+  public void setSourceExcerptCacheSize(long sourceExcerptCacheSize) {
+    this.sourceExcerptCacheSize = sourceExcerptCacheSize;
+  }
+
+  long getSourceExcerptCacheSize() {
+    return sourceExcerptCacheSize;
+  }
+
   public void setContinueAfterErrors(boolean continueAfterErrors) {
     this.continueAfterErrors = continueAfterErrors;
   }
@@ -2949,6 +2989,7 @@ public class CompilerOptions implements Serializable {
             .add("protectHiddenSideEffects", protectHiddenSideEffects)
             .add("quoteKeywordProperties", quoteKeywordProperties)
             .add("recordFunctionInformation", recordFunctionInformation)
+            .add("releaseSourcesAfterParse", releaseSourcesAfterParse)
             .add("removeAbstractMethods", removeAbstractMethods)
             .add("removeSuperMethods", removeSuperMethods)
             .add("removeClosureAsserts", removeClosureAsserts)
@@ -2983,6 +3024,7 @@ public class CompilerOptions implements Serializable {
             .add("shadowVariables", shadowVariables)
             .add("skipNonTranspilationPasses", skipNonTranspilationPasses)
             .add("smartNameRemoval", smartNameRemoval)
+            .add("sourceExcerptCacheSize", sourceExcerptCacheSize)
             .add("sourceMapDetailLevel", sourceMapDetailLevel)
             .add("sourceMapFormat", sourceMapFormat)
             .add("sourceMapLocationMappings", sourceMapLocationMappings)
@@ -2996,6 +3038,7 @@ public class CompilerOptions implements Serializable {
             .add("syntheticBlockStartMarker", syntheticBlockStartMarker)
             .add("tcProjectId", tcProjectId)
             .add("tracer", tracer)
+            .add("tracerOutputFormat", tracerOutputFormat)
             .add("transformAMDToCJSModules", transformAMDToCJSModules)
             .add("trustedStrings", trustedStrings)
             .add("tweakProcessing", getTweakProcessing())
@@ -3158,6 +3201,13 @@ public class CompilerOptions implements Serializable {
     }
   }
 
+  /** The format of the tracer report */
+  public static enum TracerOutputFormat {
+    TEXT, // A summary and a log of the passes, as comma-separated values.
+    JSON, // The same summary and log, with CPU and memory use, as a JSON object.
+    CHROME_TRACE; // Trace events, for chrome://tracing and other timeline viewers.
+  }
+
   /** Option for the ProcessTweaks pass */
   public static enum TweakProcessing {
     OFF,  // Do not run the ProcessTweaks pass.
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.GwtIncompatible;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import javax.annotation.Nullable;
+
+/**
+ * The code of a source file, kept compressed in memory while it is not needed. Used for the code
+ * of source files that can't be read again once it is released.
+ */
+@GwtIncompatible("java.util.zip.Deflater")
+final class CompressedSource {
+  private final byte[] compressed;
+  private final int length;
+
+  private CompressedSource(byte[] compressed, int length) {
+    this.compressed = compressed;
+    this.length = length;
+  }
+
+  /**
+   * Compresses the given code, or returns null if it can't be encoded as UTF-8 without loss, such
+   * as code with unpaired surrogates.
+   */
+  @Nullable
+  static CompressedSource compress(String code) {
+    ByteBuffer bytes;
+    try {
+      bytes = UTF_8.newEncoder().encode(CharBuffer.wrap(code));
+    } catch (CharacterCodingException e) {
+      return null;
+    }
+    int length = bytes.remaining();
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(bytes.array(), bytes.arrayOffset() + bytes.position(), length);
+      deflater.finish();
+      ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, length / 4));
+      byte[] buffer = new byte[8192];
+      while (!deflater.finished()) {
+        out.write(buffer, 0, deflater.deflate(buffer));
+      }
+      return new CompressedSource(out.toByteArray(), length);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  String decompress() throws IOException {
+    byte[] bytes = new byte[length];
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(compressed);
+      int inflated = 0;
+      while (inflated < length && !inflater.finished()) {
+        int n = inflater.inflate(bytes, inflated, length - inflated);
+        if (n == 0 && inflater.needsInput()) {
+          break;
+        }
+        inflated += n;
+      }
+      if (inflated != length) {
+        throw new IOException("Corrupt compressed source");
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt compressed source", e);
+    } finally {
+      inflater.end();
+    }
+    return new String(bytes, UTF_8);
+  }
+}
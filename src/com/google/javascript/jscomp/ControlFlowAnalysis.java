@@ -17,6 +17,7 @@
 package com.google.javascript.jscomp;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
@@ -25,9 +26,11 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import com.google.javascript.jscomp.ControlFlowGraph.Branch;
 import com.google.javascript.jscomp.NodeTraversal.Callback;
+import com.google.javascript.jscomp.graph.DiGraph.DiGraphEdge;
 import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
+import java.util.AbstractList;
 import java.util.ArrayDeque;
 import java.util.Comparator;
 import java.util.Deque;
@@ -35,6 +38,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
+import java.util.RandomAccess;
 
 /**
  * This is a compiler pass that computes a control flow graph.
@@ -59,7 +63,7 @@ public final class ControlFlowAnalysis implements Callback, CompilerPass {
 
   private final AbstractCompiler compiler;
 
-  private ControlFlowGraph<Node> cfg;
+  private AstControlFlowGraph cfg;
 
   private Map<Node, Integer> astPosition;
 
@@ -193,6 +197,8 @@ public final class ControlFlowAnalysis implements Callback, CompilerPass {
 
     // Again, the implicit return node is always last.
     nodePriorities.put(cfg.getImplicitReturn(), ++priorityCounter);
+
+    cfg.setMaxPriority(priorityCounter);
   }
 
   /**
@@ -1046,10 +1052,29 @@ public final class ControlFlowAnalysis implements Callback, CompilerPass {
   /**
    * A {@link ControlFlowGraph} which provides a node comparator based on the
    * pre-order traversal of the AST.
+   *
+   * <p>The first time the successors (or predecessors) of a node are asked
+   * for after the graph is built, those of all nodes are laid out in a shared
+   * array, indexed by the priority of the nodes. The data flow analyses ask
+   * for them at every step, and get views of these arrays instead of new
+   * lists. Graphs that are never queried don't pay for the arrays. Changing
+   * the edges of the graph afterwards drops the arrays for good.
    */
   private static class AstControlFlowGraph extends ControlFlowGraph<Node> {
     private final Map<DiGraphNode<Node, Branch>, Integer> priorities;
 
+    // The highest priority, or 0 if the graph isn't built yet or its edges
+    // changed since.
+    private int maxPriority;
+
+    // The successors of the node with priority p are
+    // successors[successorStart[p - 1]] to successors[successorStart[p] - 1],
+    // and likewise for the predecessors. Null until first needed.
+    private int[] successorStart;
+    private DiGraphNode<Node, Branch>[] successors;
+    private int[] predecessorStart;
+    private DiGraphNode<Node, Branch>[] predecessors;
+
     /**
      * Constructor.
      * @param entry The entry node.
@@ -1064,6 +1089,117 @@ public final class ControlFlowAnalysis implements Callback, CompilerPass {
       this.priorities = priorities;
     }
 
+    /**
+     * Allows the adjacency arrays to be built, once every node has a priority.
+     *
+     * @param maxPriority The highest priority. Some priorities below it may
+     *     not be used, since the implicit return is moved to the end.
+     */
+    void setMaxPriority(int maxPriority) {
+      this.maxPriority = maxPriority;
+    }
+
+    /**
+     * Lays out the successors (if {@code outEdges}) or the predecessors of all
+     * nodes in priority order, and returns the start of each node's range.
+     */
+    @SuppressWarnings("unchecked")
+    private int[] buildAdjacencyArray(boolean outEdges) {
+      int numEdges = 0;
+      DiGraphNode<Node, Branch>[] nodesByPriority = new DiGraphNode[maxPriority + 1];
+      for (DiGraphNode<Node, Branch> node : getDirectedGraphNodes()) {
+        // Nodes created after the graph was built have no priority, and keep their linked edges.
+        Integer priority = priorities.get(node);
+        if (priority != null) {
+          nodesByPriority[priority] = node;
+          numEdges += outEdges ? node.getOutEdges().size() : node.getInEdges().size();
+        }
+      }
+      int[] start = new int[maxPriority + 1];
+      DiGraphNode<Node, Branch>[] neighbors = new DiGraphNode[numEdges];
+      int end = 0;
+      for (int p = 1; p <= maxPriority; p++) {
+        DiGraphNode<Node, Branch> node = nodesByPriority[p];
+        if (node != null) {
+          if (outEdges) {
+            for (DiGraphEdge<Node, Branch> edge : node.getOutEdges()) {
+              neighbors[end++] = edge.getDestination();
+            }
+          } else {
+            for (DiGraphEdge<Node, Branch> edge : node.getInEdges()) {
+              neighbors[end++] = edge.getSource();
+            }
+          }
+        }
+        start[p] = end;
+      }
+      if (outEdges) {
+        successors = neighbors;
+      } else {
+        predecessors = neighbors;
+      }
+      return start;
+    }
+
+    @Override
+    public List<DiGraphNode<Node, Branch>> getDirectedSuccNodes(
+        DiGraphNode<Node, Branch> dNode) {
+      Integer p = maxPriority == 0 ? null : priorities.get(dNode);
+      if (p == null) {
+        return super.getDirectedSuccNodes(dNode);
+      }
+      if (successorStart == null) {
+        successorStart = buildAdjacencyArray(true);
+      }
+      return new NodeRange(successors, successorStart[p - 1], successorStart[p]);
+    }
+
+    @Override
+    public List<DiGraphNode<Node, Branch>> getDirectedPredNodes(
+        DiGraphNode<Node, Branch> dNode) {
+      Integer p = maxPriority == 0 ? null : priorities.get(dNode);
+      if (p == null) {
+        return super.getDirectedPredNodes(dNode);
+      }
+      if (predecessorStart == null) {
+        predecessorStart = buildAdjacencyArray(false);
+      }
+      return new NodeRange(predecessors, predecessorStart[p - 1], predecessorStart[p]);
+    }
+
+    @Override
+    public void connect(Node srcValue, Branch edgeValue, Node destValue) {
+      dropAdjacencyArrays();
+      super.connect(srcValue, edgeValue, destValue);
+    }
+
+    @Override
+    public void connect(
+        DiGraphNode<Node, Branch> src, Branch edgeValue, DiGraphNode<Node, Branch> dest) {
+      dropAdjacencyArrays();
+      super.connect(src, edgeValue, dest);
+    }
+
+    @Override
+    public void disconnect(Node n1, Node n2) {
+      dropAdjacencyArrays();
+      super.disconnect(n1, n2);
+    }
+
+    @Override
+    public void disconnectInDirection(Node srcValue, Node destValue) {
+      dropAdjacencyArrays();
+      super.disconnectInDirection(srcValue, destValue);
+    }
+
+    private void dropAdjacencyArrays() {
+      maxPriority = 0;
+      successorStart = null;
+      successors = null;
+      predecessorStart = null;
+      predecessors = null;
+    }
+
     @Override
     /**
      * Returns a node comparator based on the pre-order traversal of the AST.
@@ -1101,4 +1237,29 @@ public final class ControlFlowAnalysis implements Callback, CompilerPass {
       return priority;
     }
   }
+
+  /** An unmodifiable view of a range of one of the adjacency arrays. */
+  private static final class NodeRange extends AbstractList<DiGraphNode<Node, Branch>>
+      implements RandomAccess {
+    private final DiGraphNode<Node, Branch>[] nodes;
+    private final int start;
+    private final int end;
+
+    NodeRange(DiGraphNode<Node, Branch>[] nodes, int start, int end) {
+      this.nodes = nodes;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public DiGraphNode<Node, Branch> get(int index) {
+      checkElementIndex(index, end - start);
+      return nodes[start + index];
+    }
+
+    @Override
+    public int size() {
+      return end - start;
+    }
+  }
 }
@@ -28,16 +28,18 @@ import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
 import com.google.javascript.jscomp.graph.LatticeElement;
 import com.google.javascript.jscomp.parsing.parser.util.format.SimpleFormat;
 import com.google.javascript.rhino.Node;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.TreeSet;
+import javax.annotation.Nullable;
 
 /**
  * A framework to help writing static program analysis. A subclass of
@@ -91,7 +93,20 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
 
   private final ControlFlowGraph<N> cfg;
   final JoinOp<L> joinOp;
-  protected final Set<DiGraphNode<N, Branch>> orderedWorkSet;
+  @Nullable private final Comparator<DiGraphNode<N, Branch>> nodeComparator;
+
+  // The work set. Every node of the graph gets a rank when the analysis is
+  // initialized: its position in the order given by the node comparator, or
+  // in the graph when there is none. Pending nodes are kept in a bit set of
+  // ranks, so the next node to visit is found without comparing nodes.
+  private final List<DiGraphNode<N, Branch>> nodesByRank = new ArrayList<>();
+  private final Map<DiGraphNode<N, Branch>, Integer> ranks = new HashMap<>();
+  private final BitSet pendingRanks = new BitSet();
+  // Without a comparator, pending nodes are visited in the order they were
+  // added.
+  private final ArrayDeque<Integer> pendingQueue = new ArrayDeque<>();
+
+  private int numSteps;
 
   /*
    * Feel free to increase this to a reasonable number if you are finding that
@@ -125,12 +140,7 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
   DataFlowAnalysis(ControlFlowGraph<N> targetCfg, JoinOp<L> joinOp) {
     this.cfg = targetCfg;
     this.joinOp = joinOp;
-    Comparator<DiGraphNode<N, Branch>> nodeComparator = cfg.getOptionalNodeComparator(isForward());
-    if (nodeComparator != null) {
-      this.orderedWorkSet = new TreeSet<>(nodeComparator);
-    } else {
-      this.orderedWorkSet = new LinkedHashSet<>();
-    }
+    this.nodeComparator = cfg.getOptionalNodeComparator(isForward());
   }
 
   /**
@@ -205,13 +215,12 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
   final void analyze(int maxSteps) {
     initialize();
     int step = 0;
-    while (!orderedWorkSet.isEmpty()) {
+    while (!pendingRanks.isEmpty()) {
       if (step > maxSteps) {
         throw new MaxIterationsExceededException(
             "Analysis did not terminate after " + maxSteps + " iterations");
       }
-      DiGraphNode<N, Branch> curNode = orderedWorkSet.iterator().next();
-      orderedWorkSet.remove(curNode);
+      DiGraphNode<N, Branch> curNode = removeFromWorkSet();
       joinInputs(curNode);
       if (flow(curNode)) {
         // If there is a change in the current node, we want to grab the list
@@ -221,17 +230,23 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
             cfg.getDirectedPredNodes(curNode);
         for (DiGraphNode<N, Branch> nextNode : nextNodes) {
           if (nextNode != cfg.getImplicitReturn()) {
-            orderedWorkSet.add(nextNode);
+            addToWorkSet(nextNode);
           }
         }
       }
       step++;
     }
+    numSteps = step;
     if (isForward()) {
       joinInputs(getCfg().getImplicitReturn());
     }
   }
 
+  /** Returns the number of steps taken by the last call to {@link #analyze()}. */
+  final int getNumSteps() {
+    return numSteps;
+  }
+
   /**
    * Gets the state of the initial estimation at each node.
    *
@@ -250,19 +265,56 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
    * Initializes the work list and the control flow graph.
    */
   protected void initialize() {
-    // TODO(user): Calling clear doesn't deallocate the memory in a
-    // LinkedHashSet. Consider creating a new work set if we plan to repeatedly
-    // call analyze.
-    orderedWorkSet.clear();
+    resetWorkSet();
     for (DiGraphNode<N, Branch> node : cfg.getDirectedGraphNodes()) {
       node.setAnnotation(new FlowState<>(createInitialEstimateLattice(),
           createInitialEstimateLattice()));
       if (node != cfg.getImplicitReturn()) {
-        orderedWorkSet.add(node);
+        addToWorkSet(node);
+      }
+    }
+  }
+
+  /**
+   * Empties the work set and ranks the nodes of the graph, which may have
+   * changed since the last analysis.
+   */
+  protected final void resetWorkSet() {
+    nodesByRank.clear();
+    ranks.clear();
+    pendingRanks.clear();
+    pendingQueue.clear();
+    for (DiGraphNode<N, Branch> node : cfg.getDirectedGraphNodes()) {
+      // The implicit return is never visited.
+      if (node != cfg.getImplicitReturn()) {
+        nodesByRank.add(node);
+      }
+    }
+    if (nodeComparator != null) {
+      Collections.sort(nodesByRank, nodeComparator);
+    }
+    for (int i = 0; i < nodesByRank.size(); i++) {
+      ranks.put(nodesByRank.get(i), i);
+    }
+  }
+
+  /** Adds a node to the work set, unless it is already pending. */
+  protected final void addToWorkSet(DiGraphNode<N, Branch> node) {
+    int rank = ranks.get(node);
+    if (!pendingRanks.get(rank)) {
+      pendingRanks.set(rank);
+      if (nodeComparator == null) {
+        pendingQueue.add(rank);
       }
     }
   }
 
+  private DiGraphNode<N, Branch> removeFromWorkSet() {
+    int rank = nodeComparator == null ? pendingQueue.remove() : pendingRanks.nextSetBit(0);
+    pendingRanks.clear(rank);
+    return nodesByRank.get(rank);
+  }
+
   /**
    * Performs a single flow through a node.
    *
@@ -405,7 +457,7 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
 
     @Override
     protected void initialize() {
-      orderedWorkSet.clear();
+      resetWorkSet();
       for (DiGraphNode<N, Branch> node : getCfg().getDirectedGraphNodes()) {
         int outEdgeCount = getCfg().getOutEdges(node.getValue()).size();
         List<L> outLattices = new ArrayList<>();
@@ -415,7 +467,7 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
         node.setAnnotation(new BranchedFlowState<>(
             createInitialEstimateLattice(), outLattices));
         if (node != getCfg().getImplicitReturn()) {
-          orderedWorkSet.add(node);
+          addToWorkSet(node);
         }
       }
     }
@@ -21,8 +21,6 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 import com.google.javascript.jscomp.ControlFlowGraph.Branch;
-import com.google.javascript.jscomp.DataFlowAnalysis.FlowState;
-import com.google.javascript.jscomp.LiveVariablesAnalysisEs6.LiveVariableLattice;
 import com.google.javascript.jscomp.NodeTraversal.AbstractScopedCallback;
 import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
 import com.google.javascript.rhino.IR;
@@ -152,8 +150,6 @@ class DeadAssignmentsElimination extends AbstractScopedCallback implements Compi
     Iterable<DiGraphNode<Node, Branch>> nodes = cfg.getDirectedGraphNodes();
 
     for (DiGraphNode<Node, Branch> cfgNode : nodes) {
-      FlowState<LiveVariableLattice> state =
-          cfgNode.getAnnotation();
       Node n = cfgNode.getValue();
       if (n == null) {
         continue;
@@ -162,20 +158,20 @@ class DeadAssignmentsElimination extends AbstractScopedCallback implements Compi
         case IF:
         case WHILE:
         case DO:
-          tryRemoveAssignment(t, NodeUtil.getConditionExpression(n), state, allVarsInFn);
+          tryRemoveAssignment(t, NodeUtil.getConditionExpression(n), cfgNode, allVarsInFn);
           continue;
         case FOR:
         case FOR_IN:
         case FOR_OF:
           if (n.isVanillaFor()) {
-            tryRemoveAssignment(t, NodeUtil.getConditionExpression(n), state, allVarsInFn);
+            tryRemoveAssignment(t, NodeUtil.getConditionExpression(n), cfgNode, allVarsInFn);
           }
           continue;
         case SWITCH:
         case CASE:
         case RETURN:
           if (n.hasChildren()) {
-            tryRemoveAssignment(t, n.getFirstChild(), state, allVarsInFn);
+            tryRemoveAssignment(t, n.getFirstChild(), cfgNode, allVarsInFn);
           }
           continue;
           // TODO(user): case VAR: Remove var a=1;a=2;.....
@@ -183,13 +179,13 @@ class DeadAssignmentsElimination extends AbstractScopedCallback implements Compi
           break;
       }
 
-      tryRemoveAssignment(t, n, state, allVarsInFn);
+      tryRemoveAssignment(t, n, cfgNode, allVarsInFn);
     }
   }
 
   private void tryRemoveAssignment(NodeTraversal t, Node n,
-      FlowState<LiveVariableLattice> state, Map<String, Var> allVarsInFn) {
-    tryRemoveAssignment(t, n, n, state, allVarsInFn);
+      DiGraphNode<Node, Branch> cfgNode, Map<String, Var> allVarsInFn) {
+    tryRemoveAssignment(t, n, n, cfgNode, allVarsInFn);
   }
 
   /**
@@ -198,12 +194,13 @@ class DeadAssignmentsElimination extends AbstractScopedCallback implements Compi
    * if there are any.
    *
    * @param n Target instruction.
-   * @param exprRoot The CFG node where the liveness information in state is
-   *     still correct.
-   * @param state The liveness information at {@code n}.
+   * @param exprRoot The CFG node where the liveness information is still
+   *     correct.
+   * @param cfgNode The CFG node of {@code exprRoot}, whose liveness
+   *     information is used.
    */
   private void tryRemoveAssignment(NodeTraversal t, Node n, Node exprRoot,
-      FlowState<LiveVariableLattice> state, Map<String, Var> allVarsInFn) {
+      DiGraphNode<Node, Branch> cfgNode, Map<String, Var> allVarsInFn) {
 
     Node parent = n.getParent();
     boolean isDeclarationNode = NodeUtil.isNameDeclaration(parent);
@@ -216,14 +213,14 @@ class DeadAssignmentsElimination extends AbstractScopedCallback implements Compi
       // Recurse first. Example: dead_x = dead_y = 1; We try to clean up dead_y
       // first.
       if (rhs != null) {
-        tryRemoveAssignment(t, rhs, exprRoot, state, allVarsInFn);
+        tryRemoveAssignment(t, rhs, exprRoot, cfgNode, allVarsInFn);
         rhs = NodeUtil.getRValueOfLValue(lhs);
       }
 
       // Multiple declarations should be processed from right-to-left to ensure side-effects
       // are run in the correct order.
       if (isDeclarationNode && lhs.getNext() != null) {
-        tryRemoveAssignment(t, lhs.getNext(), exprRoot, state, allVarsInFn);
+        tryRemoveAssignment(t, lhs.getNext(), exprRoot, cfgNode, allVarsInFn);
       }
 
       // Ignore declarations that don't initialize a value. Dead code removal will kill those nodes.
@@ -261,11 +258,11 @@ class DeadAssignmentsElimination extends AbstractScopedCallback implements Compi
         return;
       }
 
-      if (state.getOut().isLive(liveness.getVarIndex(var.name))) {
+      if (liveness.isLiveOut(cfgNode, liveness.getVarIndex(var.name))) {
         return; // Variable not dead.
       }
 
-      if (state.getIn().isLive(liveness.getVarIndex(var.name))
+      if (liveness.isLiveIn(cfgNode, liveness.getVarIndex(var.name))
           && isVariableStillLiveWithinExpression(n, exprRoot, var.name)) {
         // The variable is killed here but it is also live before it.
         // This is possible if we have say:
@@ -316,7 +313,7 @@ class DeadAssignmentsElimination extends AbstractScopedCallback implements Compi
       for (Node c = n.getFirstChild(); c != null;) {
         Node next = c.getNext();
         if (!ControlFlowGraph.isEnteringNewCfgNode(c)) {
-          tryRemoveAssignment(t, c, exprRoot, state, allVarsInFn);
+          tryRemoveAssignment(t, c, exprRoot, cfgNode, allVarsInFn);
         }
         c = next;
       }
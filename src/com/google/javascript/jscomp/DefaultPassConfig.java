@@ -28,6 +28,7 @@ import static com.google.javascript.jscomp.parsing.parser.FeatureSet.ES8_MODULES
 import static com.google.javascript.jscomp.parsing.parser.FeatureSet.TYPESCRIPT;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.javascript.jscomp.AbstractCompiler.LifeCycleStage;
@@ -1094,6 +1095,11 @@ public final class DefaultPassConfig extends PassConfig {
         protected FeatureSet featureSet() {
           return ES8;
         }
+
+        @Override
+        protected boolean isParallelizableByScript() {
+          return true;
+        }
       };
 
   /** Verify that all the passes are one-time passes. */
@@ -1257,6 +1263,11 @@ public final class DefaultPassConfig extends PassConfig {
         protected FeatureSet featureSet() {
           return FeatureSet.latest();
         }
+
+        @Override
+        protected boolean isParallelizableByScript() {
+          return true;
+        }
       };
 
   /** Generates exports for @export annotations. */
@@ -1705,19 +1716,27 @@ public final class DefaultPassConfig extends PassConfig {
 
   /** Various peephole optimizations. */
   private static CompilerPass createPeepholeOptimizationsPass(
-      AbstractCompiler compiler, String passName) {
+      final AbstractCompiler compiler, String passName) {
     final boolean late = false;
     final boolean useTypesForOptimization = compiler.getOptions().useTypesForLocalOptimization;
     return new PeepholeOptimizationsPass(
         compiler,
         passName,
-        new MinimizeExitPoints(compiler),
-        new PeepholeMinimizeConditions(late, useTypesForOptimization),
-        new PeepholeSubstituteAlternateSyntax(late),
-        new PeepholeReplaceKnownMethods(late, useTypesForOptimization),
-        new PeepholeRemoveDeadCode(),
-        new PeepholeFoldConstants(late, useTypesForOptimization),
-        new PeepholeCollectPropertyAssignments());
+        compiler.getOptions().numParallelThreads,
+        new Supplier<AbstractPeepholeOptimization[]>() {
+          @Override
+          public AbstractPeepholeOptimization[] get() {
+            return new AbstractPeepholeOptimization[] {
+              new MinimizeExitPoints(compiler),
+              new PeepholeMinimizeConditions(late, useTypesForOptimization),
+              new PeepholeSubstituteAlternateSyntax(late),
+              new PeepholeReplaceKnownMethods(late, useTypesForOptimization),
+              new PeepholeRemoveDeadCode(),
+              new PeepholeFoldConstants(late, useTypesForOptimization),
+              new PeepholeCollectPropertyAssignments()
+            };
+          }
+        });
   }
 
   /** Various peephole optimizations. */
@@ -2046,6 +2065,11 @@ public final class DefaultPassConfig extends PassConfig {
         protected FeatureSet featureSet() {
           return ES8_MODULES;
         }
+
+        @Override
+        protected boolean isParallelizableByScript() {
+          return true;
+        }
       };
 
   private final HotSwapPassFactory analyzerChecks =
@@ -2078,6 +2102,11 @@ public final class DefaultPassConfig extends PassConfig {
         protected FeatureSet featureSet() {
           return ES8_MODULES;
         }
+
+        @Override
+        protected boolean isParallelizableByScript() {
+          return true;
+        }
       };
 
   /** Executes the given callbacks with a {@link CombinedCompilerPass}. */
@@ -34,7 +34,9 @@ import com.google.javascript.rhino.jstype.StaticTypedScope;
 import com.google.javascript.rhino.jstype.StaticTypedSlot;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -207,10 +209,17 @@ class GlobalNamespace
   /**
    * If the client adds new nodes to the AST, scan these new nodes
    * to see if they've added any references to the global namespace.
+   *
+   * <p>The ancestors of the new nodes are scanned as well, but references
+   * that are already known are not recorded twice, so the namespace holds
+   * the same references as one built from scratch and can be kept up to date
+   * across several rounds of changes instead of being rebuilt.
+   *
    * @param newNodes New nodes to check.
    */
   void scanNewNodes(Set<AstChange> newNodes) {
-    BuildGlobalNamespace builder = new BuildGlobalNamespace();
+    ensureGenerated();
+    BuildGlobalNamespace builder = new BuildGlobalNamespace(true);
 
     for (AstChange info : newNodes) {
       if (!info.node.isQualifiedName() && !NodeUtil.isObjectLitKey(info.node)) {
@@ -235,11 +244,11 @@ class GlobalNamespace
   private void process() {
     if (hasExternsRoot()) {
       inExterns = true;
-      NodeTraversal.traverseEs6(compiler, externsRoot, new BuildGlobalNamespace());
+      NodeTraversal.traverseEs6(compiler, externsRoot, new BuildGlobalNamespace(false));
     }
     inExterns = false;
 
-    NodeTraversal.traverseEs6(compiler, root, new BuildGlobalNamespace());
+    NodeTraversal.traverseEs6(compiler, root, new BuildGlobalNamespace(false));
     generated = true;
     externsScope = null;
   }
@@ -288,6 +297,16 @@ class GlobalNamespace
 
   /** Builds a tree representation of the global namespace. Omits prototypes. */
   private class BuildGlobalNamespace extends NodeTraversal.AbstractPreOrderCallback {
+    /**
+     * Whether nodes that were already scanned may be visited again, in which
+     * case their references must not be added a second time.
+     */
+    private final boolean rescan;
+
+    BuildGlobalNamespace(boolean rescan) {
+      this.rescan = rescan;
+    }
+
     /** Collect the references in pre-order. */
     @Override
     public boolean shouldTraverse(NodeTraversal t, Node n, Node parent) {
@@ -599,6 +618,9 @@ class GlobalNamespace
       }
 
       Name nameObj = getOrCreateName(name, shouldCreateProp);
+      if (rescan && nameObj.hasRef(n, Ref.Type.SET_FROM_GLOBAL)) {
+        return;
+      }
       nameObj.type = type;
 
       Ref set = new Ref(module, scope, n, nameObj, Ref.Type.SET_FROM_GLOBAL,
@@ -654,6 +676,9 @@ class GlobalNamespace
       }
 
       Name nameObj = getOrCreateName(name, shouldCreateProp);
+      if (rescan && nameObj.hasRef(n, Ref.Type.SET_FROM_LOCAL)) {
+        return;
+      }
       Ref set = new Ref(module, scope, n, nameObj,
           Ref.Type.SET_FROM_LOCAL, currentPreOrderIndex++);
       nameObj.addRef(set);
@@ -830,6 +855,9 @@ class GlobalNamespace
     void handleGet(JSModule module, Scope scope, Node n, Node parent,
         String name, Ref.Type type, boolean shouldCreateProp) {
       Name nameObj = getOrCreateName(name, shouldCreateProp);
+      if (rescan && nameObj.hasRef(n, type)) {
+        return;
+      }
 
       // No need to look up additional ancestors, since they won't be used.
       nameObj.addRef(
@@ -944,6 +972,7 @@ class GlobalNamespace
     }
 
     private final String baseName;
+    private final String fullName;
     final Name parent;
 
     // The children of this name. Must be null if there are no children.
@@ -956,6 +985,13 @@ class GlobalNamespace
     /** All references to a name. This must contain {@code declaration}. */
     private List<Ref> refs;
 
+    /**
+     * The types of the references in {@code refs}, by node. Only built once the name is rescanned,
+     * see {@link #hasRef}.
+     */
+    @Nullable
+    private Map<Node, EnumSet<Ref.Type>> refTypesByNode;
+
     Type type;
     private boolean declaredType = false;
     private boolean isDeclared = false;
@@ -972,6 +1008,7 @@ class GlobalNamespace
 
     Name(String name, Name parent, boolean inExterns) {
       this.baseName = name;
+      this.fullName = parent == null ? name : parent.getFullName() + '.' + name;
       this.parent = parent;
       this.type = Type.OTHER;
       this.inExterns = inExterns;
@@ -998,7 +1035,7 @@ class GlobalNamespace
     }
 
     String getFullName() {
-      return parent == null ? baseName : parent.getFullName() + '.' + baseName;
+      return fullName;
     }
 
     @Override
@@ -1064,6 +1101,9 @@ class GlobalNamespace
 
     void removeRef(Ref ref) {
       if (refs != null && refs.remove(ref)) {
+        if (refTypesByNode != null) {
+          unindexRef(ref);
+        }
         if (ref == declaration) {
           declaration = null;
           if (refs != null) {
@@ -1109,6 +1149,21 @@ class GlobalNamespace
       }
     }
 
+    /** Whether a reference of the given type has been recorded for the given node. */
+    boolean hasRef(Node node, Ref.Type type) {
+      if (refs == null) {
+        return false;
+      }
+      if (refTypesByNode == null) {
+        refTypesByNode = new IdentityHashMap<>();
+        for (Ref ref : refs) {
+          indexRef(ref);
+        }
+      }
+      EnumSet<Ref.Type> types = refTypesByNode.get(node);
+      return types != null && types.contains(type);
+    }
+
     List<Ref> getRefs() {
       return refs == null ? ImmutableList.<Ref>of() : refs;
     }
@@ -1118,6 +1173,34 @@ class GlobalNamespace
         refs = new ArrayList<>();
       }
       refs.add(ref);
+      if (refTypesByNode != null) {
+        indexRef(ref);
+      }
+    }
+
+    private void indexRef(Ref ref) {
+      EnumSet<Ref.Type> types = refTypesByNode.get(ref.node);
+      if (types == null) {
+        types = EnumSet.noneOf(Ref.Type.class);
+        refTypesByNode.put(ref.node, types);
+      }
+      types.add(ref.type);
+    }
+
+    private void unindexRef(Ref ref) {
+      // Another reference of the same node and type may remain.
+      for (Ref other : refs) {
+        if (other.node == ref.node && other.type == ref.type) {
+          return;
+        }
+      }
+      EnumSet<Ref.Type> types = refTypesByNode.get(ref.node);
+      if (types != null) {
+        types.remove(ref.type);
+        if (types.isEmpty()) {
+          refTypesByNode.remove(ref.node);
+        }
+      }
     }
 
     boolean canEliminate() {
@@ -20,6 +20,7 @@ import static com.google.common.base.Preconditions.checkState;
 
 import com.google.common.annotations.GwtIncompatible;
 import com.google.common.collect.ImmutableList;
+import com.google.javascript.jscomp.parsing.Config;
 import com.google.javascript.jscomp.parsing.ParserRunner;
 import com.google.javascript.jscomp.parsing.parser.FeatureSet;
 import com.google.javascript.rhino.ErrorReporter;
@@ -118,7 +119,8 @@ public class JsAst implements SourceAst {
     }
   }
 
-  private static class RecordingReporterProxy implements ErrorReporter {
+  /** Records the diagnostics it forwards. Lazy JSDoc may report from any thread. */
+  static class RecordingReporterProxy implements ErrorReporter {
     final ArrayList<RhinoError> errors = new ArrayList<>();
     final ArrayList<RhinoError> warnings = new ArrayList<>();
     private final ErrorReporter delegateReporter;
@@ -128,13 +130,13 @@ public class JsAst implements SourceAst {
     }
 
     @Override
-    public void warning(String message, String sourceName, int line, int lineOffset) {
+    public synchronized void warning(String message, String sourceName, int line, int lineOffset) {
       warnings.add(new RhinoError(message, sourceName, line, lineOffset));
       delegateReporter.warning(message, sourceName, line, lineOffset);
     }
 
     @Override
-    public void error(String message, String sourceName, int line, int lineOffset) {
+    public synchronized void error(String message, String sourceName, int line, int lineOffset) {
       errors.add(new RhinoError(message, sourceName, line, lineOffset));
       delegateReporter.error(message, sourceName, line, lineOffset);
     }
@@ -149,13 +151,22 @@ public class JsAst implements SourceAst {
         compiler.getDefaultErrorReporter());
 
     try {
-      ParserRunner.ParseResult result = ParserRunner.parse(
-          sourceFile,
-          sourceFile.getCode(),
-          compiler.getParserConfig(sourceFile.isExtern()
-              ? AbstractCompiler.ConfigContext.EXTERNS
-              : AbstractCompiler.ConfigContext.DEFAULT),
-          reporter);
+      Config config = compiler.getParserConfig(sourceFile.isExtern()
+          ? AbstractCompiler.ConfigContext.EXTERNS
+          : AbstractCompiler.ConfigContext.DEFAULT);
+      String code = sourceFile.getCode();
+      PersistentAstCache astCache = compiler.getPersistentAstCache();
+      SharedAstCache sharedAstCache = compiler.getSharedAstCache();
+      // The caches don't keep comments, which are needed to preserve detailed source info.
+      boolean useCache = !compiler.getOptions().preservesDetailedSourceInfo();
+      ParserRunner.ParseResult result;
+      if (useCache && sharedAstCache != null) {
+        result = sharedAstCache.parse(sourceFile, code, config, reporter, astCache);
+      } else if (useCache && astCache != null) {
+        result = astCache.parse(sourceFile, code, config, reporter);
+      } else {
+        result = ParserRunner.parse(sourceFile, code, config, reporter);
+      }
       root = result.ast;
       features = result.features;
 
@@ -170,6 +181,10 @@ public class JsAst implements SourceAst {
           compiler.addInputSourceMap(sourceFile.getName(), new SourceMapInput(sourceMapSourceFile));
         }
       }
+      if (compiler.getOptions().releasesSourcesAfterParse()) {
+        // After parsing the code is only needed for error excerpts, which read it again.
+        sourceFile.releaseCode();
+      }
     } catch (IOException e) {
       compiler.report(
           JSError.make(AbstractCompiler.READ_ERROR, sourceFile.getName()));
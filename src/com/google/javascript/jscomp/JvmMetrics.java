@@ -24,8 +24,12 @@ import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
 import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
 
 /**
@@ -41,6 +45,69 @@ class JvmMetrics {
   private static final long ONE_MEGA_BYTE = 1L << 20L;
   private static final long ONE_GIGA_BYTE = 1L << 30L;
 
+  // The peak usage of each memory pool before its peak was last reset, so that the reports still
+  // show the peak of the whole run.
+  private static final Map<String, Long> peakUsageBeforeReset = new HashMap<>();
+
+  /**
+   * Returns the CPU time used by the current thread, in nanoseconds, or -1 if the JVM does not
+   * measure it.
+   */
+  static long getCurrentThreadCpuTime() {
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    return threadBean.isCurrentThreadCpuTimeSupported()
+        ? threadBean.getCurrentThreadCpuTime()
+        : -1;
+  }
+
+  /**
+   * Returns the number of bytes allocated so far by the current thread, or -1 if the JVM does not
+   * measure it.
+   */
+  static long getCurrentThreadAllocatedBytes() {
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    if (threadBean instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean sunThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+      if (sunThreadBean.isThreadAllocatedMemorySupported()
+          && sunThreadBean.isThreadAllocatedMemoryEnabled()) {
+        return sunThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the sum of the peak usages of the heap memory pools since {@link #resetPeakHeapUsage}
+   * was last called. The pools may peak at different times, so this overestimates the peak of the
+   * whole heap.
+   */
+  static long getPeakHeapUsage() {
+    long peak = 0;
+    for (MemoryPoolMXBean mpBean : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (mpBean.getType() == MemoryType.HEAP) {
+        peak += mpBean.getPeakUsage().getUsed();
+      }
+    }
+    return peak;
+  }
+
+  /** Starts measuring a new peak usage of the heap memory pools. */
+  static synchronized void resetPeakHeapUsage() {
+    for (MemoryPoolMXBean mpBean : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (mpBean.getType() == MemoryType.HEAP) {
+        peakUsageBeforeReset.put(mpBean.getName(), getPeakUsage(mpBean));
+        mpBean.resetPeakUsage();
+      }
+    }
+  }
+
+  /** Returns the peak usage of the memory pool during the whole run. */
+  private static synchronized long getPeakUsage(MemoryPoolMXBean mpBean) {
+    long peak = mpBean.getPeakUsage().getUsed();
+    Long peakBeforeReset = peakUsageBeforeReset.get(mpBean.getName());
+    return peakBeforeReset == null ? peak : Math.max(peak, peakBeforeReset);
+  }
+
   public static void maybeWriteJvmMetrics(PrintStream out, String options) {
     if (options == null) {
       return;
@@ -168,7 +235,8 @@ class JvmMetrics {
       List<MemoryPoolMXBean> mpBeans = ManagementFactory.getMemoryPoolMXBeans();
       for (MemoryPoolMXBean mpBean : mpBeans) {
         MemoryUsage currentUsage = mpBean.getUsage();
-        MemoryUsage peakUsage = mpBean.getPeakUsage();
+        long peak = getPeakUsage(mpBean);
+        MemoryUsage peakUsage = new MemoryUsage(0, peak, peak, peak);
         if (pretty) {
           out.println("\tPool " + mpBean.getName());
           writePoolMemoryUsage(out, currentUsage, peakUsage, null, true);
@@ -186,8 +254,7 @@ class JvmMetrics {
         MemoryUsage currentUsage = mpBean.getUsage();
         available += currentUsage.getMax();
         current += currentUsage.getUsed();
-        MemoryUsage peakUsage = mpBean.getPeakUsage();
-        peak += peakUsage.getUsed();
+        peak += getPeakUsage(mpBean);
       }
       MemoryUsage summaryUsage = new MemoryUsage(
           0, current, current, available);
@@ -15,11 +15,10 @@
  */
 package com.google.javascript.jscomp;
 
-import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import com.google.javascript.jscomp.ControlFlowGraph.Branch;
 import com.google.javascript.jscomp.graph.DiGraph.DiGraphEdge;
-import com.google.javascript.jscomp.graph.LatticeElement;
+import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
 import com.google.javascript.rhino.Node;
 import java.util.BitSet;
 import java.util.HashMap;
@@ -45,67 +44,12 @@ import javax.annotation.Nullable;
  *
  * @author simranarora@google.com (Simran Arora)
  */
-class LiveVariablesAnalysisEs6
-    extends DataFlowAnalysis<Node, LiveVariablesAnalysisEs6.LiveVariableLattice> {
+class LiveVariablesAnalysisEs6 extends BitVectorDataFlowAnalysis<Node> {
 
   static final int MAX_VARIABLES_TO_ANALYZE = 100;
 
   public static final String ARGUMENT_ARRAY_ALIAS = "arguments";
 
-  private static class LiveVariableJoinOp implements JoinOp<LiveVariableLattice> {
-    @Override
-    public LiveVariableLattice apply(List<LiveVariableLattice> in) {
-      LiveVariableLattice result = new LiveVariableLattice(in.get(0));
-      for (int i = 1; i < in.size(); i++) {
-        result.liveSet.or(in.get(i).liveSet);
-      }
-      return result;
-    }
-  }
-
-  /**
-   * The lattice that stores the liveness of all local variables at a given point in the program.
-   * The whole lattice is the power set of all local variables and a variable is live if it is in
-   * the set.
-   */
-  static class LiveVariableLattice implements LatticeElement {
-    private final BitSet liveSet;
-
-    /** @param numVars Number of all local variables. */
-    private LiveVariableLattice(int numVars) {
-      this.liveSet = new BitSet(numVars);
-    }
-
-    private LiveVariableLattice(LiveVariableLattice other) {
-      checkNotNull(other);
-      this.liveSet = (BitSet) other.liveSet.clone();
-    }
-
-    @Override
-    public boolean equals(Object other) {
-      checkNotNull(other);
-      return (other instanceof LiveVariableLattice)
-          && this.liveSet.equals(((LiveVariableLattice) other).liveSet);
-    }
-
-    // There is only a version of this function with index since var.index will
-    // return the wrong one. Use an instantiation of
-    // LiveVariablesAnalysisEs6 and getVarIndex(var) to get the right index.
-    public boolean isLive(int index) {
-      return liveSet.get(index);
-    }
-
-    @Override
-    public String toString() {
-      return liveSet.toString();
-    }
-
-    @Override
-    public int hashCode() {
-      return liveSet.hashCode();
-    }
-  }
-
   // The scope of the function that we are analyzing.
   private final Scope jsScope;
 
@@ -122,6 +66,7 @@ class LiveVariablesAnalysisEs6
   private final List<Var> orderedVars;
 
   private final Map<String, Var> allVarsInFn;
+
   /**
    * Live Variables Analysis using the ES6 scope creator. This analysis should only be done on
    * function where jsScope is the function scope. If we call LiveVariablesAnalysis from the
@@ -144,7 +89,7 @@ class LiveVariablesAnalysisEs6
       @Nullable Scope jsScopeChild,
       AbstractCompiler compiler,
       Es6SyntacticScopeCreator scopeCreator) {
-    super(cfg, new LiveVariableJoinOp());
+    super(cfg);
     checkState(jsScope.isFunctionScope(), jsScope);
 
     this.jsScope = jsScope;
@@ -154,7 +99,7 @@ class LiveVariablesAnalysisEs6
     this.allVarsInFn = new HashMap<>();
     this.orderedVars = new LinkedList<>();
 
-    computeEscapedEs6(jsScope, escaped, compiler, scopeCreator);
+    DataFlowAnalysis.computeEscapedEs6(jsScope, escaped, compiler, scopeCreator);
 
     NodeUtil.getAllVarsDeclaredInFunction(
         allVarsInFn, orderedVars, compiler, scopeCreator, jsScope);
@@ -190,40 +135,65 @@ class LiveVariablesAnalysisEs6
     return scopeVariables.get(var);
   }
 
+  /** Whether the variable with the given index is live before the node. */
+  boolean isLiveIn(DiGraphNode<Node, Branch> cfgNode, int index) {
+    return getIn(cfgNode).get(index);
+  }
+
+  /** Whether the variable with the given index is live after the node. */
+  boolean isLiveOut(DiGraphNode<Node, Branch> cfgNode, int index) {
+    return getOut(cfgNode).get(index);
+  }
+
   @Override
   boolean isForward() {
     return false;
   }
 
   @Override
-  LiveVariableLattice createEntryLattice() {
-    return new LiveVariableLattice(orderedVars.size());
+  boolean joinsByIntersection() {
+    return false;
+  }
+
+  @Override
+  int getNumBits() {
+    return orderedVars.size();
   }
 
   @Override
-  LiveVariableLattice createInitialEstimateLattice() {
-    return new LiveVariableLattice(orderedVars.size());
+  void setEntryBits(BitSet entry) {
+    // No variable is live after the function returns.
   }
 
+  /**
+   * Computes the GEN and KILL sets of every node of the control flow graph.
+   * A use of {@code arguments} found along the way marks the parameters as
+   * escaped, which takes them out of the sets of the nodes seen before, so
+   * the sets are computed again in that case.
+   */
   @Override
-  LiveVariableLattice flowThrough(Node node, LiveVariableLattice input) {
-    final BitSet gen = new BitSet(input.liveSet.size());
-    final BitSet kill = new BitSet(input.liveSet.size());
+  void computeGenKillSets() {
+    int numEscaped;
+    do {
+      numEscaped = escaped.size();
+      super.computeGenKillSets();
+    } while (numEscaped != escaped.size());
+  }
 
-    // Make kills conditional if the node can end abruptly by an exception.
-    boolean conditional = false;
+  @Override
+  void computeGenKill(Node node, BitSet gen, BitSet kill) {
+    computeGenKill(node, gen, kill, hasExceptionHandler(node));
+  }
+
+  /** Whether kills are conditional because the node can end abruptly by an exception. */
+  private boolean hasExceptionHandler(Node node) {
     List<DiGraphEdge<Node, Branch>> edgeList = getCfg().getOutEdges(node);
     for (DiGraphEdge<Node, Branch> edge : edgeList) {
       if (Branch.ON_EX.equals(edge.getValue())) {
-        conditional = true;
+        return true;
       }
     }
-    computeGenKill(node, gen, kill, conditional);
-    LiveVariableLattice result = new LiveVariableLattice(input);
-    // L_in = L_out - Kill + Gen
-    result.liveSet.andNot(kill);
-    result.liveSet.or(gen);
-    return result;
+    return false;
   }
 
   /**
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+import javax.annotation.Nullable;
+
+/**
+ * A zip archive that is mapped into memory once and read by all the {@link SourceFile}s of its
+ * entries. The central directory is indexed when the archive is opened; the contents of an entry
+ * are only read, and decoded straight from the mapped bytes, when its code is needed.
+ *
+ * <p>Only the common subset of the format is read: archives below 2GB without zip64 records, with
+ * entries that are stored or deflated and not encrypted. {@link #open} returns null for anything
+ * else, so callers can fall back to {@link java.util.zip.ZipFile}.
+ */
+@GwtIncompatible("java.nio.MappedByteBuffer")
+final class MappedZipFile {
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+  private static final int END_SIGNATURE = 0x06054b50;
+
+  private static final int LOCAL_HEADER_SIZE = 30;
+  private static final int CENTRAL_HEADER_SIZE = 46;
+  private static final int END_SIZE = 22;
+  private static final int MAX_COMMENT_SIZE = 0xffff;
+
+  private static final int STORED = 0;
+  private static final int DEFLATED = 8;
+  private static final int ENCRYPTED_FLAG = 1;
+
+  private final Path path;
+  private final ByteBuffer buffer;
+  private final ImmutableList<Entry> entries;
+  // To tell whether the archive changed since it was mapped.
+  private final long size;
+  private final long lastModifiedMillis;
+
+  /** An entry of the central directory. */
+  static final class Entry {
+    final String name;
+    private final int method;
+    private final int compressedSize;
+    private final int uncompressedSize;
+    private final int localHeaderOffset;
+
+    Entry(
+        String name, int method, int compressedSize, int uncompressedSize, int localHeaderOffset) {
+      this.name = name;
+      this.method = method;
+      this.compressedSize = compressedSize;
+      this.uncompressedSize = uncompressedSize;
+      this.localHeaderOffset = localHeaderOffset;
+    }
+  }
+
+  private MappedZipFile(
+      Path path, ByteBuffer buffer, ImmutableList<Entry> entries, BasicFileAttributes attributes) {
+    this.path = path;
+    this.buffer = buffer;
+    this.entries = entries;
+    this.size = attributes.size();
+    this.lastModifiedMillis = attributes.lastModifiedTime().toMillis();
+  }
+
+  /**
+   * Maps the given archive and indexes its entries, or returns null if it uses parts of the format
+   * that are not supported.
+   */
+  @Nullable
+  static MappedZipFile open(Path path) throws IOException {
+    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    if (attributes.size() >= Integer.MAX_VALUE) {
+      return null;
+    }
+    ByteBuffer buffer;
+    // The mapping stays valid after the channel is closed.
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    ImmutableList<Entry> entries = readCentralDirectory(buffer);
+    return entries == null ? null : new MappedZipFile(path, buffer, entries, attributes);
+  }
+
+  @Nullable
+  private static ImmutableList<Entry> readCentralDirectory(ByteBuffer buffer)
+      throws ZipException {
+    int end = findEndOfCentralDirectory(buffer);
+    int entryCount = buffer.getShort(end + 10) & 0xffff;
+    int directoryOffset = buffer.getInt(end + 16);
+    if (entryCount == 0xffff || directoryOffset == -1) {
+      // Zip64 archive.
+      return null;
+    }
+
+    ImmutableList.Builder<Entry> entries = ImmutableList.builder();
+    int offset = directoryOffset;
+    for (int i = 0; i < entryCount; i++) {
+      if (offset < 0
+          || offset + CENTRAL_HEADER_SIZE > buffer.limit()
+          || buffer.getInt(offset) != CENTRAL_HEADER_SIGNATURE) {
+        throw new ZipException("Invalid central directory entry at " + offset);
+      }
+      int flags = buffer.getShort(offset + 8) & 0xffff;
+      int method = buffer.getShort(offset + 10) & 0xffff;
+      int compressedSize = buffer.getInt(offset + 20);
+      int uncompressedSize = buffer.getInt(offset + 24);
+      int nameLength = buffer.getShort(offset + 28) & 0xffff;
+      int extraLength = buffer.getShort(offset + 30) & 0xffff;
+      int commentLength = buffer.getShort(offset + 32) & 0xffff;
+      int localHeaderOffset = buffer.getInt(offset + 42);
+      if ((flags & ENCRYPTED_FLAG) != 0
+          || (method != STORED && method != DEFLATED)
+          || compressedSize < 0
+          || uncompressedSize < 0
+          || localHeaderOffset < 0) {
+        return null;
+      }
+      String name = decode(buffer, offset + CENTRAL_HEADER_SIZE, nameLength, UTF_8);
+      entries.add(new Entry(name, method, compressedSize, uncompressedSize, localHeaderOffset));
+      offset += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+    }
+    return entries.build();
+  }
+
+  /** Finds the end of central directory record, which is followed by the archive comment. */
+  private static int findEndOfCentralDirectory(ByteBuffer buffer) throws ZipException {
+    int last = buffer.limit() - END_SIZE;
+    int first = Math.max(0, last - MAX_COMMENT_SIZE);
+    for (int offset = last; offset >= first; offset--) {
+      if (buffer.getInt(offset) == END_SIGNATURE) {
+        return offset;
+      }
+    }
+    throw new ZipException("Not a zip archive");
+  }
+
+  Path getPath() {
+    return path;
+  }
+
+  ImmutableList<Entry> getEntries() {
+    return entries;
+  }
+
+  /** Whether the archive was changed on disk since it was mapped. */
+  boolean isStale() {
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+      return attributes.size() != size
+          || attributes.lastModifiedTime().toMillis() != lastModifiedMillis;
+    } catch (IOException e) {
+      return true;
+    }
+  }
+
+  /** Reads the contents of the given entry, decoded with the given charset. */
+  String read(Entry entry, Charset charset) throws IOException {
+    int header = entry.localHeaderOffset;
+    if (header + LOCAL_HEADER_SIZE > buffer.limit()
+        || buffer.getInt(header) != LOCAL_HEADER_SIGNATURE) {
+      throw new ZipException("Invalid local header for " + entry.name);
+    }
+    int nameLength = buffer.getShort(header + 26) & 0xffff;
+    int extraLength = buffer.getShort(header + 28) & 0xffff;
+    int dataOffset = header + LOCAL_HEADER_SIZE + nameLength + extraLength;
+    if (dataOffset + entry.compressedSize > buffer.limit()) {
+      throw new ZipException("Truncated entry " + entry.name);
+    }
+
+    if (entry.method == STORED) {
+      return decode(buffer, dataOffset, entry.compressedSize, charset);
+    }
+
+    byte[] compressed = new byte[entry.compressedSize];
+    ByteBuffer data = buffer.duplicate();
+    data.position(dataOffset);
+    data.get(compressed);
+    byte[] uncompressed = new byte[entry.uncompressedSize];
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(compressed);
+      int length = 0;
+      while (length < uncompressed.length && !inflater.finished()) {
+        int inflated = inflater.inflate(uncompressed, length, uncompressed.length - length);
+        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        length += inflated;
+      }
+      if (length != uncompressed.length) {
+        throw new ZipException("Invalid compressed data for " + entry.name);
+      }
+    } catch (DataFormatException e) {
+      throw new ZipException("Invalid compressed data for " + entry.name + ": " + e.getMessage());
+    } finally {
+      inflater.end();
+    }
+    return new String(uncompressed, charset);
+  }
+
+  /** Decodes a range of the mapped bytes without copying them first. */
+  private static String decode(ByteBuffer buffer, int offset, int length, Charset charset) {
+    ByteBuffer range = buffer.duplicate();
+    range.limit(offset + length);
+    range.position(offset);
+    return charset.decode(range).toString();
+  }
+}
@@ -19,14 +19,12 @@ package com.google.javascript.jscomp;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.MultimapBuilder;
 import com.google.javascript.jscomp.ControlFlowGraph.Branch;
 import com.google.javascript.jscomp.graph.DiGraph.DiGraphEdge;
-import com.google.javascript.jscomp.graph.GraphNode;
-import com.google.javascript.jscomp.graph.LatticeElement;
+import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
 import com.google.javascript.rhino.Node;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -43,127 +41,106 @@ import java.util.Set;
  * the use node reaches that definition and it is the last definition before
  * the use on that path.
  *
+ * <p>Each use of a local (non-escaped) variable by a node of the program is a
+ * bit. A set bit means that the read of the variable at that node is "upward
+ * exposed" at that point of the program. Example:
+ *
+ * A = 1;
+ * ...
+ * N_3:
+ * N_4: print(A);
+ * N_5: y = A;
+ * N_6: A = 1;
+ * N_7: print(A);
+ *
+ * At N_3, reads of A in {N_4, N_5} are said to be upward exposed.
+ *
+ * <p>The join is a simple union because of the "may be" nature of the
+ * analysis.
+ *
+ * Consider: A = 1; if (x) { A = 2 }; alert(A);
+ *
+ * The read of A "may be" exposed to A = 1 in the beginning.
+ *
  */
-class MaybeReachingVariableUse extends
-    DataFlowAnalysis<Node, MaybeReachingVariableUse.ReachingUses> {
+class MaybeReachingVariableUse extends BitVectorDataFlowAnalysis<Node> {
 
   // The scope of the function that we are analyzing.
   private final Set<Var> escaped;
   private final Map<String, Var> allVarsInFn;
   private final List<Var> orderedVars;
 
+  // The uses, by bit. A use is a CFG node that reads a variable, so the reads
+  // of a variable within a node share a bit.
+  private final List<Node> useNodes = new ArrayList<>();
+  private final Map<Var, Map<Node, Integer>> useBits = new HashMap<>();
+  // By variable, the bits of its uses, which are no longer exposed above a
+  // definition of the variable.
+  private final Map<Var, BitSet> usesOfVar = new HashMap<>();
+
   MaybeReachingVariableUse(
       ControlFlowGraph<Node> cfg,
       Scope jsScope,
       AbstractCompiler compiler,
       Es6SyntacticScopeCreator scopeCreator) {
-    super(cfg, new ReachingUsesJoinOp());
+    super(cfg);
     this.escaped = new HashSet<>();
     this.allVarsInFn = new HashMap<>();
     this.orderedVars = new LinkedList<>();
 
     // TODO(user): Maybe compute it somewhere else and re-use the escape
     // local set here.
-    computeEscapedEs6(jsScope.getParent(), escaped, compiler, scopeCreator);
+    DataFlowAnalysis.computeEscapedEs6(jsScope.getParent(), escaped, compiler, scopeCreator);
     NodeUtil.getAllVarsDeclaredInFunction(
         allVarsInFn, orderedVars, compiler, scopeCreator, jsScope.getParent());
   }
 
-  /**
-   * May use definition lattice representation. It captures a product
-   * lattice for each local (non-escaped) variable. The sub-lattice is
-   * a n + 2 power set element lattice with all the Nodes in the program,
-   * TOP and BOTTOM. This is better explained with an example:
-   *
-   * Consider: A sub-lattice element representing the variable A represented
-   * by { N_4, N_5} where N_x is a Node in the program. This implies at
-   * that particular point in the program the content of A is "upward exposed"
-   * at point N_4 and N_5.
-   *
-   * Example:
-   *
-   * A = 1;
-   * ...
-   * N_3:
-   * N_4: print(A);
-   * N_5: y = A;
-   * N_6: A = 1;
-   * N_7: print(A);
-   *
-   * At N_3, reads of A in {N_4, N_5} are said to be upward exposed.
-   */
-  static final class ReachingUses implements LatticeElement {
-    final Multimap<Var, Node> mayUseMap;
-
-    public ReachingUses() {
-      mayUseMap = HashMultimap.create();
-    }
-
-    /**
-     * Copy constructor.
-     *
-     * @param other The constructed object is a replicated copy of this element.
-     */
-    public ReachingUses(ReachingUses other) {
-      mayUseMap = MultimapBuilder.hashKeys().hashSetValues().build(other.mayUseMap);
-    }
-
-    @Override
-    public boolean equals(Object other) {
-      return (other instanceof ReachingUses) &&
-          ((ReachingUses) other).mayUseMap.equals(this.mayUseMap);
-    }
-
-    @Override
-    public int hashCode() {
-      return mayUseMap.hashCode();
-    }
-  }
-
-  /**
-   * The join is a simple union because of the "may be" nature of the analysis.
-   *
-   * Consider: A = 1; if (x) { A = 2 }; alert(A);
-   *
-   * The read of A "may be" exposed to A = 1 in the beginning.
-   */
-  private static class ReachingUsesJoinOp implements JoinOp<ReachingUses> {
-    @Override
-    public ReachingUses apply(List<ReachingUses> from) {
-      ReachingUses result = new ReachingUses();
-      for (ReachingUses uses : from) {
-        result.mayUseMap.putAll(uses.mayUseMap);
-      }
-      return result;
-    }
+  @Override
+  boolean isForward() {
+    return false;
   }
 
   @Override
-  boolean isForward() {
+  boolean joinsByIntersection() {
     return false;
   }
 
   @Override
-  ReachingUses createEntryLattice() {
-    return new ReachingUses();
+  int getNumBits() {
+    return useNodes.size();
   }
 
   @Override
-  ReachingUses createInitialEstimateLattice() {
-    return new ReachingUses();
+  void setEntryBits(BitSet entry) {
+    // No use is exposed after the function returns.
   }
 
+  /**
+   * Numbers the uses of the function before computing any transfer function,
+   * since a definition kills the uses made by other nodes.
+   */
   @Override
-  ReachingUses flowThrough(Node n, ReachingUses input) {
-    ReachingUses output = new ReachingUses(input);
+  void initialize() {
+    useNodes.clear();
+    useBits.clear();
+    usesOfVar.clear();
+    BitSet gen = new BitSet();
+    BitSet kill = new BitSet();
+    for (DiGraphNode<Node, Branch> cfgNode : getCfg().getDirectedGraphNodes()) {
+      if (cfgNode != getCfg().getImplicitReturn()) {
+        computeGenKill(cfgNode.getValue(), gen, kill);
+      }
+    }
+    super.initialize();
+  }
 
+  @Override
+  void computeGenKill(Node n, BitSet gen, BitSet kill) {
     // If there's an ON_EX edge, this cfgNode may or may not get executed.
     // We can express this concisely by just pretending this happens in
     // a conditional.
     boolean conditional = hasExceptionHandler(n);
-    computeMayUse(n, n, output, conditional);
-
-    return output;
+    computeMayUse(n, n, gen, kill, conditional);
   }
 
   private boolean hasExceptionHandler(Node cfgNode) {
@@ -177,7 +154,7 @@ class MaybeReachingVariableUse extends
   }
 
   private void computeMayUse(
-      Node n, Node cfgNode, ReachingUses output, boolean conditional) {
+      Node n, Node cfgNode, BitSet gen, BitSet kill, boolean conditional) {
     switch (n.getToken()) {
 
       case BLOCK:
@@ -186,18 +163,18 @@ class MaybeReachingVariableUse extends
         return;
 
       case NAME:
-        addToUseIfLocal(n.getString(), cfgNode, output);
+        addToUseIfLocal(n.getString(), cfgNode, gen);
         return;
 
       case WHILE:
       case DO:
       case IF:
         computeMayUse(
-            NodeUtil.getConditionExpression(n), cfgNode, output, conditional);
+            NodeUtil.getConditionExpression(n), cfgNode, gen, kill, conditional);
         return;
 
       case FOR:
-        computeMayUse(NodeUtil.getConditionExpression(n), cfgNode, output, conditional);
+        computeMayUse(NodeUtil.getConditionExpression(n), cfgNode, gen, kill, conditional);
         return;
 
       case FOR_IN:
@@ -208,21 +185,21 @@ class MaybeReachingVariableUse extends
           lhs = lhs.getLastChild(); // for(var x in y) {...}
         }
         if (lhs.isName() && !conditional) {
-          removeFromUseIfLocal(lhs.getString(), output);
+          removeFromUseIfLocal(lhs.getString(), gen, kill);
         }
-        computeMayUse(rhs, cfgNode, output, conditional);
+        computeMayUse(rhs, cfgNode, gen, kill, conditional);
         return;
 
       case AND:
       case OR:
-        computeMayUse(n.getLastChild(), cfgNode, output, true);
-        computeMayUse(n.getFirstChild(), cfgNode, output, conditional);
+        computeMayUse(n.getLastChild(), cfgNode, gen, kill, true);
+        computeMayUse(n.getFirstChild(), cfgNode, gen, kill, conditional);
         return;
 
       case HOOK:
-        computeMayUse(n.getLastChild(), cfgNode, output, true);
-        computeMayUse(n.getSecondChild(), cfgNode, output, true);
-        computeMayUse(n.getFirstChild(), cfgNode, output, conditional);
+        computeMayUse(n.getLastChild(), cfgNode, gen, kill, true);
+        computeMayUse(n.getSecondChild(), cfgNode, gen, kill, true);
+        computeMayUse(n.getFirstChild(), cfgNode, gen, kill, conditional);
         return;
 
       case VAR:
@@ -230,9 +207,9 @@ class MaybeReachingVariableUse extends
         Preconditions.checkState(n.hasChildren(), "AST should be normalized", n);
 
         if (varName.hasChildren()) {
-          computeMayUse(varName.getFirstChild(), cfgNode, output, conditional);
+          computeMayUse(varName.getFirstChild(), cfgNode, gen, kill, conditional);
           if (!conditional) {
-            removeFromUseIfLocal(varName.getString(), output);
+            removeFromUseIfLocal(varName.getString(), gen, kill);
           }
         }
         return;
@@ -241,22 +218,22 @@ class MaybeReachingVariableUse extends
         if (NodeUtil.isAssignmentOp(n) && n.getFirstChild().isName()) {
           Node name = n.getFirstChild();
           if (!conditional) {
-            removeFromUseIfLocal(name.getString(), output);
+            removeFromUseIfLocal(name.getString(), gen, kill);
           }
 
           // In case of a += "Hello". There is a read of a.
           if (!n.isAssign()) {
-            addToUseIfLocal(name.getString(), cfgNode, output);
+            addToUseIfLocal(name.getString(), cfgNode, gen);
           }
 
-          computeMayUse(name.getNext(), cfgNode, output, conditional);
+          computeMayUse(name.getNext(), cfgNode, gen, kill, conditional);
         } else {
           /*
            * We want to traverse in reverse order because we want the LAST
            * definition in the sub-tree.
            */
           for (Node c = n.getLastChild(); c != null; c = c.getPrevious()) {
-            computeMayUse(c, cfgNode, output, conditional);
+            computeMayUse(c, cfgNode, gen, kill, conditional);
           }
         }
     }
@@ -267,13 +244,13 @@ class MaybeReachingVariableUse extends
    * exposed lattice. Do nothing if the variable name is one of the escaped
    * variable.
    */
-  private void addToUseIfLocal(String name, Node node, ReachingUses use) {
+  private void addToUseIfLocal(String name, Node node, BitSet gen) {
     Var var = allVarsInFn.get(name);
     if (var == null) {
       return;
     }
     if (!escaped.contains(var)) {
-      use.mayUseMap.put(var, node);
+      gen.set(getUseBit(var, node));
     }
   }
 
@@ -282,14 +259,36 @@ class MaybeReachingVariableUse extends
    * exposed lattice. Do nothing if the variable name is one of the escaped
    * variable.
    */
-  private void removeFromUseIfLocal(String name, ReachingUses use) {
+  private void removeFromUseIfLocal(String name, BitSet gen, BitSet kill) {
     Var var = allVarsInFn.get(name);
     if (var == null) {
       return;
     }
     if (!escaped.contains(var)) {
-      use.mayUseMap.removeAll(var);
+      BitSet uses = usesOfVar.get(var);
+      if (uses != null) {
+        gen.andNot(uses);
+        kill.or(uses);
+      }
+    }
+  }
+
+  /** Returns the bit of a use, which is numbered the first time it is seen. */
+  private int getUseBit(Var var, Node node) {
+    Map<Node, Integer> bitsByNode = useBits.get(var);
+    if (bitsByNode == null) {
+      bitsByNode = new HashMap<>();
+      useBits.put(var, bitsByNode);
+      usesOfVar.put(var, new BitSet());
+    }
+    Integer bit = bitsByNode.get(node);
+    if (bit == null) {
+      bit = useNodes.size();
+      useNodes.add(node);
+      bitsByNode.put(node, bit);
+      usesOfVar.get(var).set(bit);
     }
+    return bit;
   }
 
   /**
@@ -303,9 +302,18 @@ class MaybeReachingVariableUse extends
    * @param defNode The list of upward exposed use for the variable.
    */
   Collection<Node> getUses(String name, Node defNode) {
-    GraphNode<Node, Branch> n = getCfg().getNode(defNode);
+    DiGraphNode<Node, Branch> n = getCfg().getDirectedGraphNode(defNode);
     checkNotNull(n);
-    FlowState<ReachingUses> state = n.getAnnotation();
-    return state.getOut().mayUseMap.get(allVarsInFn.get(name));
+    List<Node> result = new ArrayList<>();
+    BitSet uses = usesOfVar.get(allVarsInFn.get(name));
+    if (uses != null) {
+      BitSet out = getOut(n);
+      for (int bit = uses.nextSetBit(0); bit >= 0; bit = uses.nextSetBit(bit + 1)) {
+        if (out.get(bit)) {
+          result.add(useNodes.get(bit));
+        }
+      }
+    }
+    return result;
   }
 }
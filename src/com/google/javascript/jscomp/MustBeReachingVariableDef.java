@@ -21,16 +21,15 @@ import static com.google.common.base.Preconditions.checkState;
 
 import com.google.javascript.jscomp.ControlFlowGraph.AbstractCfgNodeTraversalCallback;
 import com.google.javascript.jscomp.ControlFlowGraph.Branch;
-import com.google.javascript.jscomp.graph.GraphNode;
-import com.google.javascript.jscomp.graph.LatticeElement;
+import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
 import com.google.javascript.rhino.Node;
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import javax.annotation.Nullable;
 
@@ -41,9 +40,14 @@ import javax.annotation.Nullable;
  * the use of {@code A} in {@code alert(A)} if all paths from entry node must
  * reaches that definition and it is the last definition before the use.
  *
+ * <p>Each {@link Definition} is a bit and the definitions that must reach a
+ * point are the bits set by every path to it. A variable has a must reaching
+ * definition where exactly one of its definitions is set. When paths bring
+ * different definitions of a variable, their intersection has none of them,
+ * which is the BOTTOM of the lattice of the variable.
+ *
  */
-final class MustBeReachingVariableDef extends
-    DataFlowAnalysis<Node, MustBeReachingVariableDef.MustDef> {
+final class MustBeReachingVariableDef extends BitVectorDataFlowAnalysis<Node> {
 
   // The scope of the function that we are analyzing.
   private final AbstractCompiler compiler;
@@ -51,17 +55,28 @@ final class MustBeReachingVariableDef extends
   private final Map<String, Var> allVarsInFn;
   private final List<Var> orderedVars;
 
+  // The definitions, by bit: the definition of each variable on entry to the
+  // function, then the definitions made by the nodes of the graph.
+  private final List<Definition> definitions = new ArrayList<>();
+  // The bits of the definitions made by the nodes of the graph, by the value
+  // that is assigned or, when there is none, the name that is defined.
+  private final Map<Node, Integer> definitionBits = new HashMap<>();
+  // By variable, the bits of its definitions and of the definitions that read
+  // it, which no longer hold once the variable changes.
+  private final Map<Var, BitSet> definitionsOfVar = new HashMap<>();
+  private final Map<Var, BitSet> dependentDefinitions = new HashMap<>();
+
   MustBeReachingVariableDef(
       ControlFlowGraph<Node> cfg,
       Scope jsScope,
       AbstractCompiler compiler,
       Es6SyntacticScopeCreator scopeCreator) {
-    super(cfg, new MustDefJoin());
+    super(cfg);
     this.compiler = compiler;
     this.escaped = new HashSet<>();
     this.allVarsInFn = new HashMap<>();
     this.orderedVars = new LinkedList<>();
-    computeEscapedEs6(jsScope.getParent(), escaped, compiler, scopeCreator);
+    DataFlowAnalysis.computeEscapedEs6(jsScope.getParent(), escaped, compiler, scopeCreator);
     NodeUtil.getAllVarsDeclaredInFunction(
         allVarsInFn, orderedVars, compiler, scopeCreator, jsScope.getParent());
   }
@@ -103,134 +118,58 @@ final class MustBeReachingVariableDef extends
     }
   }
 
-  /**
-   * Must reaching definition lattice representation. It captures a product
-   * lattice for each local (non-escaped) variable. The sub-lattice is
-   * a n + 2 element lattice with all the {@link Definition} in the program,
-   * TOP and BOTTOM.
-   *
-   * <p>Since this is a Must-Define analysis, BOTTOM represents the case where
-   * there might be more than one reaching definition for the variable.
-   *
-   *
-   *           (TOP)
-   *       /   |   |      \
-   *     N1    N2  N3 ....Nn
-   *      \    |   |      /
-   *          (BOTTOM)
-   *
-   */
-  static final class MustDef implements LatticeElement {
-
-    // TODO(user): Use bit vector instead of maps might get better
-    // performance. Change it after this is tested to be fully functional.
-
-    // When a Var "A" = "TOP", "A" does not exist in reachingDef's keySet.
-    // When a Var "A" = Node N, "A" maps to that node.
-    // When a Var "A" = "BOTTOM", "A" maps to null.
-    final Map<Var, Definition> reachingDef;
-
-    public MustDef() {
-      reachingDef = new HashMap<>();
-    }
-
-    public MustDef(Collection<Var> vars) {
-      this();
-      for (Var var : vars) {
-        reachingDef.put(var, new Definition(var.scope.getRootNode()));
-      }
-    }
-
-    /**
-     * Copy constructor.
-     *
-     * @param other The constructed object is a replicated copy of this element.
-     */
-    public MustDef(MustDef other) {
-      reachingDef = new HashMap<>(other.reachingDef);
-    }
-
-    @Override
-    public boolean equals(Object other) {
-      return (other instanceof MustDef) &&
-          ((MustDef) other).reachingDef.equals(this.reachingDef);
-    }
-
-    @Override
-    public int hashCode() {
-      return reachingDef.hashCode();
-    }
+  @Override
+  boolean isForward() {
+    return true;
   }
 
-  private static class MustDefJoin extends JoinOp.BinaryJoinOp<MustDef> {
-    @Override
-    public MustDef apply(MustDef a, MustDef b) {
-      MustDef result = new MustDef();
-      Map<Var, Definition> resultMap = result.reachingDef;
-
-      // Take the join of all variables that are not TOP in this.
-      for (Map.Entry<Var, Definition> varEntry : a.reachingDef.entrySet()) {
-        Var var = varEntry.getKey();
-        Definition aDef = varEntry.getValue();
-
-        if (aDef == null) {
-          // "a" is BOTTOM implies that the variable has more than one possible
-          // definition. We set the join of this to be BOTTOM regardless of what
-          // "b" might be.
-          resultMap.put(var, null);
-          continue;
-        }
-
-        if (b.reachingDef.containsKey(var)) {
-          Definition bDef = b.reachingDef.get(var);
-
-          if (aDef.equals(bDef)) {
-            resultMap.put(var, aDef);
-          } else {
-            resultMap.put(var, null);
-          }
-        } else {
-          resultMap.put(var, aDef);
-        }
-      }
-
-      // Take the join of all variables that are not TOP in other but it is TOP
-      // in this.
-      for (Map.Entry<Var, Definition> entry : b.reachingDef.entrySet()) {
-        Var var = entry.getKey();
-        if (!a.reachingDef.containsKey(var)) {
-          resultMap.put(var, entry.getValue());
-        }
-      }
-      return result;
-    }
+  @Override
+  boolean joinsByIntersection() {
+    return true;
   }
 
   @Override
-  boolean isForward() {
-    return true;
+  int getNumBits() {
+    return definitions.size();
   }
 
   @Override
-  MustDef createEntryLattice() {
-    return new MustDef(allVarsInFn.values());
+  void setEntryBits(BitSet entry) {
+    // Every variable starts with its entry definition, which has the first
+    // bits.
+    entry.set(0, orderedVars.size());
   }
 
+  /**
+   * Numbers the definitions of the function before computing any transfer
+   * function, since a node kills the definitions made by other nodes.
+   */
   @Override
-  MustDef createInitialEstimateLattice() {
-    return new MustDef();
+  void initialize() {
+    definitions.clear();
+    definitionBits.clear();
+    definitionsOfVar.clear();
+    dependentDefinitions.clear();
+    for (Var var : orderedVars) {
+      definitionsOfVar.put(var, new BitSet());
+      addDefinition(var, new Definition(var.scope.getRootNode()));
+    }
+    BitSet gen = new BitSet();
+    BitSet kill = new BitSet();
+    for (DiGraphNode<Node, Branch> cfgNode : getCfg().getDirectedGraphNodes()) {
+      if (cfgNode != getCfg().getImplicitReturn()) {
+        computeGenKill(cfgNode.getValue(), gen, kill);
+      }
+    }
+    super.initialize();
   }
 
   @Override
-  MustDef flowThrough(Node n, MustDef input) {
-    // TODO(user): We are doing a straight copy from input to output. There
-    // might be some opportunities to cut down overhead.
-    MustDef output = new MustDef(input);
+  void computeGenKill(Node n, BitSet gen, BitSet kill) {
     // TODO(user): This must know about ON_EX edges but it should handle
     // it better than what we did in liveness. Because we are in a forward mode,
     // we can used the branched forward analysis.
-    computeMustDef(n, n, output, false);
-    return output;
+    computeMustDef(n, n, gen, kill, false);
   }
 
   /**
@@ -239,7 +178,7 @@ final class MustBeReachingVariableDef extends
    * @param conditional true if the definition is not always executed.
    */
   private void computeMustDef(
-      Node n, Node cfgNode, MustDef output, boolean conditional) {
+      Node n, Node cfgNode, BitSet gen, BitSet kill, boolean conditional) {
     switch (n.getToken()) {
 
       case BLOCK:
@@ -251,11 +190,11 @@ final class MustBeReachingVariableDef extends
       case DO:
       case IF:
         computeMustDef(
-            NodeUtil.getConditionExpression(n), cfgNode, output, conditional);
+            NodeUtil.getConditionExpression(n), cfgNode, gen, kill, conditional);
         return;
 
       case FOR:
-        computeMustDef(NodeUtil.getConditionExpression(n), cfgNode, output, conditional);
+        computeMustDef(NodeUtil.getConditionExpression(n), cfgNode, gen, kill, conditional);
         return;
 
       case FOR_IN:
@@ -266,20 +205,20 @@ final class MustBeReachingVariableDef extends
           lhs = lhs.getLastChild(); // for(var x in y) {...}
         }
         if (lhs.isName()) {
-          addToDefIfLocal(lhs.getString(), cfgNode, rhs, output);
+          addToDefIfLocal(lhs, cfgNode, rhs, gen, kill);
         }
         return;
 
       case AND:
       case OR:
-        computeMustDef(n.getFirstChild(), cfgNode, output, conditional);
-        computeMustDef(n.getLastChild(), cfgNode, output, true);
+        computeMustDef(n.getFirstChild(), cfgNode, gen, kill, conditional);
+        computeMustDef(n.getLastChild(), cfgNode, gen, kill, true);
         return;
 
       case HOOK:
-        computeMustDef(n.getFirstChild(), cfgNode, output, conditional);
-        computeMustDef(n.getSecondChild(), cfgNode, output, true);
-        computeMustDef(n.getLastChild(), cfgNode, output, true);
+        computeMustDef(n.getFirstChild(), cfgNode, gen, kill, conditional);
+        computeMustDef(n.getSecondChild(), cfgNode, gen, kill, true);
+        computeMustDef(n.getLastChild(), cfgNode, gen, kill, true);
         return;
 
       case LET:
@@ -287,10 +226,9 @@ final class MustBeReachingVariableDef extends
       case VAR:
         for (Node c = n.getFirstChild(); c != null; c = c.getNext()) {
           if (c.hasChildren()) {
-            computeMustDef(c.getFirstChild(), cfgNode, output, conditional);
+            computeMustDef(c.getFirstChild(), cfgNode, gen, kill, conditional);
             if (c.isName()) {
-              addToDefIfLocal(c.getString(), conditional ? null : cfgNode,
-                  c.getFirstChild(), output);
+              addToDefIfLocal(c, conditional ? null : cfgNode, c.getFirstChild(), gen, kill);
             } else {
               checkState(c.isDestructuringLhs(), c);
               return;
@@ -303,9 +241,8 @@ final class MustBeReachingVariableDef extends
         if (NodeUtil.isAssignmentOp(n)) {
           if (n.getFirstChild().isName()) {
             Node name = n.getFirstChild();
-            computeMustDef(name.getNext(), cfgNode, output, conditional);
-            addToDefIfLocal(
-                name.getString(), conditional ? null : cfgNode, n.getLastChild(), output);
+            computeMustDef(name.getNext(), cfgNode, gen, kill, conditional);
+            addToDefIfLocal(name, conditional ? null : cfgNode, n.getLastChild(), gen, kill);
             return;
           } else if (NodeUtil.isGet(n.getFirstChild())) {
             // Treat all assignments to arguments as redefining the
@@ -315,26 +252,26 @@ final class MustBeReachingVariableDef extends
               // TODO(user): More accuracy can be introduced
               // i.e. We know exactly what arguments[x] is if x is a constant
               // number.
-              escapeParameters(output);
+              escapeParameters(gen, kill);
             }
           }
         }
 
         if (n.isName() && "arguments".equals(n.getString())) {
-          escapeParameters(output);
+          escapeParameters(gen, kill);
         }
 
         // DEC and INC actually defines the variable.
         if (n.isDec() || n.isInc()) {
           Node target = n.getFirstChild();
           if (target.isName()) {
-            addToDefIfLocal(target.getString(), conditional ? null : cfgNode, null, output);
+            addToDefIfLocal(target, conditional ? null : cfgNode, null, gen, kill);
             return;
           }
         }
 
         for (Node c = n.getFirstChild(); c != null; c = c.getNext()) {
-          computeMustDef(c, cfgNode, output, conditional);
+          computeMustDef(c, cfgNode, gen, kill, conditional);
         }
     }
   }
@@ -343,12 +280,13 @@ final class MustBeReachingVariableDef extends
    * Set the variable lattice for the given name to the node value in the def
    * lattice. Do nothing if the variable name is one of the escaped variable.
    *
+   * @param name The name that is defined.
    * @param node The CFG node where the definition should be record to.
    *     {@code null} if this is a conditional define.
    */
-  private void addToDefIfLocal(String name, @Nullable Node node,
-      @Nullable Node rValue, MustDef def) {
-    Var var = allVarsInFn.get(name);
+  private void addToDefIfLocal(Node name, @Nullable Node node,
+      @Nullable Node rValue, BitSet gen, BitSet kill) {
+    Var var = allVarsInFn.get(name.getString());
 
     // var might be null because the variable might be defined in the extern
     // that we might not traverse.
@@ -356,50 +294,67 @@ final class MustBeReachingVariableDef extends
       return;
     }
 
-    for (Var other : def.reachingDef.keySet()) {
-      Definition otherDef = def.reachingDef.get(other);
-      if (otherDef == null) {
-        continue;
-      }
-      if (otherDef.depends.contains(var)) {
-        def.reachingDef.put(other, null);
-      }
-    }
+    killDefinitions(dependentDefinitions.get(var), gen, kill);
 
     if (!escaped.contains(var)) {
-      if (node == null) {
-        def.reachingDef.put(var, null);
-      } else {
-        Definition definition = new Definition(node);
-        if (rValue != null) {
-          computeDependence(definition, rValue);
-        }
-        def.reachingDef.put(var, definition);
+      killDefinitions(definitionsOfVar.get(var), gen, kill);
+      if (node != null) {
+        gen.set(getDefinitionBit(var, node, rValue == null ? name : rValue, rValue));
       }
     }
   }
 
-  private void escapeParameters(MustDef output) {
+  private void escapeParameters(BitSet gen, BitSet kill) {
     for (Var v : allVarsInFn.values()) {
       if (isParameter(v)) {
         // Assume we no longer know where the parameter comes from
-        // anymore.
-        output.reachingDef.put(v, null);
+        // anymore, nor anything that depends on it.
+        killDefinitions(definitionsOfVar.get(v), gen, kill);
+        killDefinitions(dependentDefinitions.get(v), gen, kill);
       }
     }
+  }
+
+  private static void killDefinitions(@Nullable BitSet definitions, BitSet gen, BitSet kill) {
+    if (definitions != null) {
+      gen.andNot(definitions);
+      kill.or(definitions);
+    }
+  }
 
-    // Also, assume we no longer know anything that depends on a parameter.
-    for (Entry<Var, Definition> pair : output.reachingDef.entrySet()) {
-      Definition value = pair.getValue();
-      if (value == null) {
-        continue;
+  /**
+   * Returns the bit of a definition made by a node of the graph, which is
+   * numbered the first time it is seen.
+   *
+   * @param key The value that is assigned or, when there is none, the name
+   *     that is defined.
+   */
+  private int getDefinitionBit(Var var, Node node, Node key, @Nullable Node rValue) {
+    Integer bit = definitionBits.get(key);
+    if (bit == null) {
+      Definition definition = new Definition(node);
+      if (rValue != null) {
+        computeDependence(definition, rValue);
       }
-      for (Var dep : value.depends) {
-        if (isParameter(dep)) {
-          output.reachingDef.put(pair.getKey(), null);
-        }
+      bit = addDefinition(var, definition);
+      definitionBits.put(key, bit);
+    }
+    return bit;
+  }
+
+  private int addDefinition(Var var, Definition definition) {
+    int bit = definitions.size();
+    definitions.add(definition);
+    definitionsOfVar.get(var).set(bit);
+    for (Var dep : definition.depends) {
+      BitSet dependents = dependentDefinitions.get(dep);
+      if (dependents == null) {
+        dependents = new BitSet();
+        dependentDefinitions.put(dep, dependents);
       }
+      dependents.set(bit);
     }
+    return bit;
   }
 
   private static boolean isParameter(Var v) {
@@ -439,9 +394,24 @@ final class MustBeReachingVariableDef extends
    */
   Definition getDef(String name, Node useNode) {
     checkArgument(getCfg().hasNode(useNode));
-    GraphNode<Node, Branch> n = getCfg().getNode(useNode);
-    FlowState<MustDef> state = n.getAnnotation();
-    return state.getIn().reachingDef.get(allVarsInFn.get(name));
+    DiGraphNode<Node, Branch> n = getCfg().getDirectedGraphNode(useNode);
+    Var var = allVarsInFn.get(name);
+    // No definition reaches a node that cannot be reached from the entry.
+    if (var == null || !isReached(n)) {
+      return null;
+    }
+    BitSet in = getIn(n);
+    BitSet defs = definitionsOfVar.get(var);
+    Definition result = null;
+    for (int bit = defs.nextSetBit(0); bit >= 0; bit = defs.nextSetBit(bit + 1)) {
+      if (in.get(bit)) {
+        if (result != null) {
+          return null;
+        }
+        result = definitions.get(bit);
+      }
+    }
+    return result;
   }
 
   Node getDefNode(String name, Node useNode) {
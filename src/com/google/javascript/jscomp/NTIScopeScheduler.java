@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.base.Throwables.throwIfUnchecked;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a task for every scope of the new type inference on a pool of threads, so that the task of
+ * a scope starts only after the tasks of all the scopes nested directly in it have finished.
+ * Scopes whose subtrees are disjoint are processed concurrently.
+ */
+final class NTIScopeScheduler {
+  private NTIScopeScheduler() {}
+
+  /**
+   * Runs the given tasks, bottom-up in the scope tree. A scope whose parent has no task does not
+   * delay anything. Throws the exception of the first failing task, after which no further tasks
+   * are started.
+   */
+  static void runBottomUp(Map<NTIScope, ? extends Runnable> tasks, int numParallelThreads) {
+    Map<NTIScope, Integer> pendingChildren = new HashMap<>();
+    for (NTIScope scope : tasks.keySet()) {
+      NTIScope parent = scope.getParent();
+      if (parent != null && tasks.containsKey(parent)) {
+        Integer pending = pendingChildren.get(parent);
+        pendingChildren.put(parent, pending == null ? 1 : pending + 1);
+      }
+    }
+
+    ThreadFactory threadFactory = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(null, r, "jscompiler-nti", CompilerExecutor.COMPILER_STACK_SIZE);
+          t.setDaemon(true);  // Do not prevent the JVM from exiting.
+          return t;
+        }
+    };
+    ThreadPoolExecutor poolExecutor = new ThreadPoolExecutor(
+        numParallelThreads,
+        numParallelThreads,
+        Integer.MAX_VALUE,
+        TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(),
+        threadFactory);
+    // Only this thread updates the pending counts; workers just report which scope is done.
+    CompletionService<NTIScope> completed = new ExecutorCompletionService<>(poolExecutor);
+    int running = 0;
+    try {
+      for (Map.Entry<NTIScope, ? extends Runnable> entry : tasks.entrySet()) {
+        if (!pendingChildren.containsKey(entry.getKey())) {
+          completed.submit(entry.getValue(), entry.getKey());
+          running++;
+        }
+      }
+      while (running > 0) {
+        NTIScope done = completed.take().get();
+        running--;
+        NTIScope parent = done.getParent();
+        if (parent != null && tasks.containsKey(parent)) {
+          int pending = pendingChildren.get(parent) - 1;
+          if (pending == 0) {
+            pendingChildren.remove(parent);
+            completed.submit(tasks.get(parent), parent);
+            running++;
+          } else {
+            pendingChildren.put(parent, pending);
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throwIfUnchecked(e.getCause());
+      throw new RuntimeException(e.getCause());
+    } finally {
+      poolExecutor.shutdownNow();
+    }
+  }
+}
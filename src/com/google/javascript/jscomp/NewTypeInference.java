@@ -56,6 +56,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * New type inference algorithm.
@@ -422,11 +423,26 @@ final class NewTypeInference implements CompilerPass {
     }
   }
 
-  private final WarningReporter warnings;
+  /** Holds the warnings of the analysis of one scope, until they are reported in scope order. */
+  private static class BufferedWarningReporter extends WarningReporter {
+    final List<JSError> buffered = new ArrayList<>();
+
+    BufferedWarningReporter(AbstractCompiler compiler) {
+      super(compiler);
+    }
+
+    @Override
+    void add(JSError warning) {
+      buffered.add(warning);
+    }
+  }
+
+  private WarningReporter warnings;
   private List<TypeMismatch> mismatches;
   private List<TypeMismatch> implicitInterfaceUses;
   private final AbstractCompiler compiler;
   private final CodingConvention convention;
+  private final int numParallelThreads;
   private TypeTransformation ttlObj;
   private final Map<DiGraphEdge<Node, ControlFlowGraph.Branch>, TypeEnv> envs;
   private final Map<NTIScope, JSType> summaries;
@@ -496,11 +512,20 @@ final class NewTypeInference implements CompilerPass {
   private JSType UNKNOWN;
 
   NewTypeInference(AbstractCompiler compiler) {
+    this(
+        compiler,
+        compiler.getOptions().numParallelThreads > 1
+            ? new ConcurrentHashMap<NTIScope, JSType>()
+            : new LinkedHashMap<NTIScope, JSType>());
+  }
+
+  private NewTypeInference(AbstractCompiler compiler, Map<NTIScope, JSType> summaries) {
     this.warnings = new WarningReporter(compiler);
     this.compiler = compiler;
     this.convention = compiler.getCodingConvention();
+    this.numParallelThreads = compiler.getOptions().numParallelThreads;
     this.envs = new LinkedHashMap<>();
-    this.summaries = new LinkedHashMap<>();
+    this.summaries = summaries;
     this.deferredChecks = new LinkedHashMap<>();
     this.ABSTRACT_METHOD_NAME = convention.getAbstractMethodName();
     this.reportUnknownTypes =
@@ -529,13 +554,39 @@ final class NewTypeInference implements CompilerPass {
   @Override
   public void process(Node externs, Node root) {
     try {
-      this.symbolTable = (GlobalTypeInfo) compiler.getGlobalTypeInfo();
-      this.commonTypes = this.symbolTable.getCommonTypes();
-      this.ttlObj = new TypeTransformation(compiler, this.symbolTable.getGlobalScope());
+      setSymbolTable((GlobalTypeInfo) compiler.getGlobalTypeInfo());
       this.mismatches = symbolTable.getMismatches();
       this.implicitInterfaceUses = symbolTable.getImplicitInterfaceUses();
 
-      this.BOOLEAN = this.commonTypes.BOOLEAN;
+      if (this.numParallelThreads > 1) {
+        analyzeScopesInParallel();
+      } else {
+        for (NTIScope scope : symbolTable.getScopes()) {
+          analyzeFunction(scope);
+          envs.clear();
+        }
+      }
+      for (DeferredCheck check : deferredChecks.values()) {
+        check.runCheck(summaries, warnings);
+      }
+      if (measureMem) {
+        System.out.println("Peak mem: " + peakMem + "MB");
+      }
+    } catch (Exception unexpectedException) {
+      String message = unexpectedException.getMessage();
+      if (currentScope != null) {
+        message += "\nIn scope: " + currentScope;
+      }
+      this.compiler.throwInternalError(message, unexpectedException);
+    }
+  }
+
+  private void setSymbolTable(GlobalTypeInfo symbolTable) {
+    this.symbolTable = symbolTable;
+    this.commonTypes = this.symbolTable.getCommonTypes();
+    this.ttlObj = new TypeTransformation(compiler, this.symbolTable.getGlobalScope());
+
+    this.BOOLEAN = this.commonTypes.BOOLEAN;
       this.BOTTOM = this.commonTypes.BOTTOM;
       this.FALSE_TYPE = this.commonTypes.FALSE_TYPE;
       this.FALSY = this.commonTypes.FALSY;
@@ -549,27 +600,64 @@ final class NewTypeInference implements CompilerPass {
       this.TRUE_TYPE = this.commonTypes.TRUE_TYPE;
       this.TRUTHY = this.commonTypes.TRUTHY;
       this.UNDEFINED = this.commonTypes.UNDEFINED;
-      this.UNKNOWN = this.commonTypes.UNKNOWN;
+    this.UNKNOWN = this.commonTypes.UNKNOWN;
+  }
 
-      for (NTIScope scope : symbolTable.getScopes()) {
-        analyzeFunction(scope);
-        envs.clear();
-      }
-      for (DeferredCheck check : deferredChecks.values()) {
-        check.runCheck(summaries, warnings);
-      }
-      if (measureMem) {
-        System.out.println("Peak mem: " + peakMem + "MB");
-      }
-    } catch (Exception unexpectedException) {
-      String message = unexpectedException.getMessage();
-      if (currentScope != null) {
-        message += "\nIn scope: " + currentScope;
-      }
-      this.compiler.throwInternalError(message, unexpectedException);
+  /**
+   * Analyzes the scopes on several threads. A scope only needs the summaries of the functions
+   * defined directly in it, so it is analyzed as soon as those are done, by its own instance that
+   * shares the summaries and buffers everything else. The buffered warnings, mismatches and
+   * deferred checks are then published in scope order, so that they come out exactly as in the
+   * sequential analysis.
+   */
+  private void analyzeScopesInParallel() {
+    Map<NTIScope, Runnable> tasks = new LinkedHashMap<>();
+    final List<NewTypeInference> analyses = new ArrayList<>();
+    for (final NTIScope scope : symbolTable.getScopes()) {
+      final NewTypeInference analysis = new NewTypeInference(this.compiler, this.summaries);
+      analysis.setSymbolTable(this.symbolTable);
+      analysis.warnings = new BufferedWarningReporter(this.compiler);
+      analysis.mismatches = new ArrayList<>();
+      analysis.implicitInterfaceUses = new ArrayList<>();
+      analyses.add(analysis);
+      tasks.put(scope, new Runnable() {
+        @Override
+        public void run() {
+          try {
+            analysis.analyzeFunction(scope);
+          } catch (RuntimeException e) {
+            // The sequential analysis adds the scope to the crash report the same way.
+            throw new RuntimeException(e.getMessage() + "\nIn scope: " + scope, e);
+          } finally {
+            // Only the buffered results are kept until they are published.
+            analysis.envs.clear();
+            analysis.cfg = null;
+          }
+        }
+      });
+    }
+    NTIScopeScheduler.runBottomUp(tasks, this.numParallelThreads);
+    for (NewTypeInference analysis : analyses) {
+      analysis.publishTo(this);
     }
   }
 
+  /**
+   * Hands the results that this instance buffered while analyzing its scope to {@code nti}, and
+   * makes the deferred checks created here report directly to it.
+   */
+  private void publishTo(NewTypeInference nti) {
+    for (JSError warning : ((BufferedWarningReporter) this.warnings).buffered) {
+      nti.warnings.add(warning);
+    }
+    nti.mismatches.addAll(this.mismatches);
+    nti.implicitInterfaceUses.addAll(this.implicitInterfaceUses);
+    nti.deferredChecks.putAll(this.deferredChecks);
+    this.warnings = nti.warnings;
+    this.mismatches = nti.mismatches;
+    this.implicitInterfaceUses = nti.implicitInterfaceUses;
+  }
+
   static void updatePeakMem() {
     Runtime rt = Runtime.getRuntime();
     long currentUsedMem = (rt.totalMemory() - rt.freeMemory()) / (1024 * 1024);
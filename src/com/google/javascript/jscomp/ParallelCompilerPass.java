@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.javascript.rhino.Node;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a pass whose factory is {@link PassFactory#isParallelizableByScript parallelizable by
+ * script} on several SCRIPT nodes at once, on the compiler's {@link ParallelTasks}. A fresh
+ * instance of the hot-swap version of the pass is created for every script, so the instances never
+ * share traversal state; diagnostics and change reports go through the compiler, which serializes
+ * them.
+ */
+class ParallelCompilerPass implements CompilerPass {
+  private final AbstractCompiler compiler;
+  private final PassFactory factory;
+
+  ParallelCompilerPass(AbstractCompiler compiler, PassFactory factory) {
+    checkState(factory.isParallelizableByScript(), "%s is not parallelizable", factory);
+    this.compiler = compiler;
+    this.factory = factory;
+  }
+
+  @Override
+  public void process(Node externs, Node root) {
+    List<Runnable> tasks = new ArrayList<>();
+    for (Node script = root.getFirstChild(); script != null; script = script.getNext()) {
+      checkState(script.isScript(), script);
+      final Node scriptRoot = script;
+      tasks.add(new Runnable() {
+        @Override
+        public void run() {
+          if (!compiler.hasHaltingErrors()) {
+            HotSwapCompilerPass pass = factory.getHotSwapPass(compiler);
+            checkState(pass != null, "%s has no hot-swap version", factory);
+            pass.hotSwapScript(scriptRoot, null);
+          }
+        }
+      });
+    }
+    if (compiler.getOptions().numParallelThreads <= 1 || tasks.size() <= 1) {
+      factory.create(compiler).process(externs, root);
+      return;
+    }
+    compiler.getParallelTasks().runAll(tasks);
+  }
+}
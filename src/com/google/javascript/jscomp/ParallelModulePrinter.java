@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.base.Throwables.throwIfInstanceOf;
+import static com.google.common.base.Throwables.throwIfUnchecked;
+
+import com.google.common.annotations.GwtIncompatible;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Prints the code of output modules on a pool of threads, each module with a source map of its
+ * own. Only used once compilation is done, when the AST is no longer modified.
+ *
+ * <p>The printed modules are handed to a {@link ModuleConsumer} on the calling thread, in the
+ * order of the given list, so the output is written in the same order as when the modules are
+ * printed one after another. Only a few modules per thread are printed ahead of the one being
+ * written, which bounds the memory held by printed code.
+ */
+@GwtIncompatible("java.util.concurrent")
+final class ParallelModulePrinter {
+
+  /** Receives the printed modules. */
+  interface ModuleConsumer {
+    /**
+     * @param sourceMap the mappings of the module's code, or null if the compiler doesn't generate
+     *     source maps
+     */
+    void accept(JSModule module, String code, @Nullable SourceMap sourceMap) throws IOException;
+  }
+
+  private static final int MAX_PENDING_PER_THREAD = 2;
+
+  private final Compiler compiler;
+  private final int numParallelThreads;
+
+  ParallelModulePrinter(Compiler compiler, int numParallelThreads) {
+    this.compiler = compiler;
+    this.numParallelThreads = numParallelThreads;
+  }
+
+  void print(List<JSModule> modules, ModuleConsumer consumer) throws IOException {
+    // The code printer asks for the type registry, which is created lazily. Make sure that the
+    // threads don't race to create it.
+    compiler.getTypeIRegistry();
+
+    ThreadFactory threadFactory = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread t =
+              new Thread(null, r, "jscompiler-print", CompilerExecutor.COMPILER_STACK_SIZE);
+          t.setDaemon(true);  // Do not prevent the JVM from exiting.
+          return t;
+        }
+    };
+    ThreadPoolExecutor poolExecutor = new ThreadPoolExecutor(
+        numParallelThreads,
+        numParallelThreads,
+        Integer.MAX_VALUE,
+        TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(),
+        threadFactory);
+    Deque<Future<PrintedModule>> pending = new ArrayDeque<>();
+    Iterator<JSModule> toPrint = modules.iterator();
+    try {
+      while (true) {
+        while (toPrint.hasNext() && pending.size() < MAX_PENDING_PER_THREAD * numParallelThreads) {
+          pending.add(poolExecutor.submit(newPrintTask(toPrint.next())));
+        }
+        if (pending.isEmpty()) {
+          return;
+        }
+        PrintedModule printed = pending.remove().get();
+        consumer.accept(printed.module, printed.code, printed.sourceMap);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throwIfInstanceOf(e.getCause(), IOException.class);
+      throwIfUnchecked(e.getCause());
+      throw new RuntimeException(e.getCause());
+    } finally {
+      poolExecutor.shutdownNow();
+    }
+  }
+
+  private Callable<PrintedModule> newPrintTask(final JSModule module) {
+    return new Callable<PrintedModule>() {
+      @Override
+      public PrintedModule call() throws IOException {
+        SourceMap sourceMap = compiler.getSourceMap() == null ? null : compiler.newSourceMap();
+        StringBuilder code = new StringBuilder();
+        compiler.toSource(module, code, sourceMap);
+        return new PrintedModule(module, code.toString(), sourceMap);
+      }
+    };
+  }
+
+  private static final class PrintedModule {
+    final JSModule module;
+    final String code;
+    @Nullable final SourceMap sourceMap;
+
+    PrintedModule(JSModule module, String code, @Nullable SourceMap sourceMap) {
+      this.module = module;
+      this.code = code;
+      this.sourceMap = sourceMap;
+    }
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.base.Throwables.throwIfUnchecked;
+
+import com.google.javascript.rhino.Node;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * The pool of threads on which a compiler runs independent tasks, such as parsing its inputs or
+ * running a pass on several scripts. The compiler keeps one pool, and shuts it down at the end of
+ * a compilation. The threads also stop when they have been idle for a while.
+ *
+ * <p>Every thread of a pool keeps the change scope of the traversal running on it, see {@link
+ * #setChangeScope}, so that traversals on different threads do not overwrite each other's.
+ */
+final class ParallelTasks {
+  private static final long KEEP_ALIVE_SECONDS = 10;
+
+  /** A thread of a pool. */
+  private static final class PoolThread extends Thread {
+    @Nullable Node changeScope;
+
+    PoolThread(Runnable r) {
+      super(null, r, "jscompiler-ParallelTasks", CompilerExecutor.COMPILER_STACK_SIZE);
+      setDaemon(true);  // Do not prevent the JVM from exiting.
+    }
+  }
+
+  private final int numThreads;
+  private final ThreadPoolExecutor poolExecutor;
+
+  ParallelTasks(int numThreads) {
+    this.numThreads = numThreads;
+    ThreadFactory threadFactory = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          return new PoolThread(r);
+        }
+    };
+    this.poolExecutor = new ThreadPoolExecutor(
+        numThreads,
+        numThreads,
+        KEEP_ALIVE_SECONDS,
+        TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(),
+        threadFactory);
+    poolExecutor.allowCoreThreadTimeOut(true);
+  }
+
+  int getNumThreads() {
+    return numThreads;
+  }
+
+  /**
+   * Runs the tasks on the pool and waits until they are all done. Throws the exception of the
+   * first failing task, in list order, and cancels the tasks that have not run yet.
+   *
+   * <p>Tasks started from a thread of the pool run on that thread, one after another, since they
+   * could otherwise wait for threads that are busy waiting for them.
+   */
+  void runAll(List<? extends Runnable> tasks) {
+    if (Thread.currentThread() instanceof PoolThread) {
+      for (Runnable task : tasks) {
+        task.run();
+      }
+      return;
+    }
+
+    List<Future<?>> futures = new ArrayList<>(tasks.size());
+    for (Runnable task : tasks) {
+      futures.add(poolExecutor.submit(task));
+    }
+    try {
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throwIfUnchecked(e.getCause());
+      throw new RuntimeException(e.getCause());
+    } finally {
+      // Don't leave the rest of a failed list running on the shared threads.
+      for (Future<?> future : futures) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  /** Stops the threads, once the tasks they are running are done. */
+  void shutdown() {
+    poolExecutor.shutdown();
+  }
+
+  /**
+   * Sets the change scope of the current thread, if it is a thread of a pool.
+   *
+   * @return whether the current thread is a thread of a pool. The compiler keeps the change scope
+   *     of other threads.
+   */
+  static boolean setChangeScope(@Nullable Node changeScope) {
+    Thread thread = Thread.currentThread();
+    if (thread instanceof PoolThread) {
+      ((PoolThread) thread).changeScope = changeScope;
+      return true;
+    }
+    return false;
+  }
+
+  /** Whether the current thread is a thread of a pool. */
+  static boolean isPoolThread() {
+    return Thread.currentThread() instanceof PoolThread;
+  }
+
+  /** Returns the change scope of the current thread, which must be a thread of a pool. */
+  @Nullable
+  static Node getChangeScope() {
+    return ((PoolThread) Thread.currentThread()).changeScope;
+  }
+}
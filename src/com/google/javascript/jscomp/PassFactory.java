@@ -89,6 +89,19 @@ public abstract class PassFactory {
     return null;
   }
 
+  /**
+   * Whether running the pass is equivalent to running its hot-swap version on each SCRIPT on its
+   * own, in any order, with no state shared between scripts. When the compiler is allowed to use
+   * several threads (see {@link CompilerOptions#setNumParallelThreads}), such passes are run on
+   * several scripts concurrently.
+   *
+   * <p>Passes that opt in must only report diagnostics and changes through the compiler or
+   * {@link NodeTraversal}, and must not use the deprecated {@code reportCodeChange()}.
+   */
+  protected boolean isParallelizableByScript() {
+    return false;
+  }
+
 
   /**
    * Create a no-op pass that can only run once. Used to break up loops.
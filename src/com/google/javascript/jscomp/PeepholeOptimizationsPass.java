@@ -17,14 +17,29 @@
 package com.google.javascript.jscomp;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
 import com.google.javascript.jscomp.NodeTraversal.AbstractPostOrderCallback;
+import com.google.javascript.jscomp.NodeTraversal.Callback;
 import com.google.javascript.rhino.Node;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A compiler pass to run various peephole optimizations (e.g. constant folding,
  * some useless code removal, some minimizations).
  *
+ * <p>Given more than one thread, the pass optimizes the changed scopes that aren't nested in one
+ * another concurrently, each thread with its own instances of the optimizations. Peephole
+ * optimizations only look at and change the subtree they are given, so these scopes don't
+ * interfere, as long as the function nodes of the scope roots themselves, which belong to the
+ * enclosing scope, are optimized afterwards.
+ *
  * @author dcc@google.com (Devin Coughlin)
  */
 class PeepholeOptimizationsPass implements CompilerPass {
@@ -34,6 +49,11 @@ class PeepholeOptimizationsPass implements CompilerPass {
   private final AbstractPeepholeOptimization[] peepholeOptimizations;
   private boolean retraverseOnChange;
 
+  private final int numParallelThreads;
+  // Creates the optimizations of each thread; null if the pass runs on one thread.
+  private final Supplier<AbstractPeepholeOptimization[]> optimizationsFactory;
+  private final List<AbstractPeepholeOptimization[]> workerOptimizations = new ArrayList<>();
+
   /** Creates a peephole optimization pass that runs the given optimizations. */
   PeepholeOptimizationsPass(
       AbstractCompiler compiler, String passName, AbstractPeepholeOptimization... optimizations) {
@@ -41,6 +61,26 @@ class PeepholeOptimizationsPass implements CompilerPass {
     this.passName = passName;
     this.peepholeOptimizations = optimizations;
     this.retraverseOnChange = true;
+    this.numParallelThreads = 1;
+    this.optimizationsFactory = null;
+  }
+
+  /**
+   * Creates a peephole optimization pass that runs on up to {@code numParallelThreads} threads the
+   * optimizations created by {@code optimizationsFactory}, which must return new instances on
+   * every call.
+   */
+  PeepholeOptimizationsPass(
+      AbstractCompiler compiler,
+      String passName,
+      int numParallelThreads,
+      Supplier<AbstractPeepholeOptimization[]> optimizationsFactory) {
+    this.compiler = compiler;
+    this.passName = passName;
+    this.peepholeOptimizations = optimizationsFactory.get();
+    this.retraverseOnChange = true;
+    this.numParallelThreads = numParallelThreads;
+    this.optimizationsFactory = numParallelThreads > 1 ? optimizationsFactory : null;
   }
 
   @VisibleForTesting
@@ -50,14 +90,16 @@ class PeepholeOptimizationsPass implements CompilerPass {
 
   @Override
   public void process(Node externs, Node root) {
-    beginTraversal();
+    beginTraversal(peepholeOptimizations);
 
     // Repeat to an internal fixed point.
     for (List<Node> changedScopeNodes = compiler.getChangedScopeNodesForPass(passName);
         changedScopeNodes == null || !changedScopeNodes.isEmpty();
         changedScopeNodes = compiler.getChangedScopeNodesForPass(passName)) {
-      NodeTraversal.traverseEs6ScopeRoots(
-          compiler, root, changedScopeNodes, new PeepCallback(), false);
+      if (optimizationsFactory == null || !optimizeInParallel(root, changedScopeNodes)) {
+        NodeTraversal.traverseEs6ScopeRoots(
+            compiler, root, changedScopeNodes, new PeepCallback(peepholeOptimizations), false);
+      }
 
       // Cancel the fixed point if requested.
       if (!retraverseOnChange) {
@@ -66,22 +108,160 @@ class PeepholeOptimizationsPass implements CompilerPass {
     }
   }
 
-  private class PeepCallback extends AbstractPostOrderCallback {
+  /**
+   * Optimizes the given change scopes, or all scripts if null, partly in parallel.
+   *
+   * @return false if there isn't enough independent work to be worth using threads, in which case
+   *     nothing was optimized
+   */
+  private boolean optimizeInParallel(Node root, List<Node> changedScopeNodes) {
+    // Scopes nested in another changed scope are optimized on this thread after the others,
+    // since optimizing the outer scope might remove them.
+    final List<Node> independentScopes = new ArrayList<>();
+    List<Node> nestedScopes = new ArrayList<>();
+    if (changedScopeNodes == null) {
+      for (Node script = root.getFirstChild(); script != null; script = script.getNext()) {
+        independentScopes.add(script);
+      }
+    } else {
+      Set<Node> changed = Sets.newIdentityHashSet();
+      changed.addAll(changedScopeNodes);
+      for (Node scopeRoot : changedScopeNodes) {
+        (hasAncestorIn(scopeRoot, changed) ? nestedScopes : independentScopes).add(scopeRoot);
+      }
+    }
+    int numThreads = Math.min(numParallelThreads, independentScopes.size());
+    if (numThreads <= 1) {
+      return false;
+    }
+
+    final boolean traverseNested = changedScopeNodes == null;
+    final AtomicInteger nextScope = new AtomicInteger();
+    List<Runnable> workers = new ArrayList<>();
+    for (int i = 0; i < numThreads; i++) {
+      if (i == workerOptimizations.size()) {
+        workerOptimizations.add(optimizationsFactory.get());
+      }
+      final AbstractPeepholeOptimization[] optimizations = workerOptimizations.get(i);
+      workers.add(new Runnable() {
+        @Override
+        public void run() {
+          beginTraversal(optimizations);
+          for (int next = nextScope.getAndIncrement();
+              next < independentScopes.size();
+              next = nextScope.getAndIncrement()) {
+            Node scopeRoot = independentScopes.get(next);
+            NodeTraversal.traverseEs6ScopeRoots(
+                compiler,
+                scopeRoot,
+                ImmutableList.of(scopeRoot),
+                new ConcurrentPeepCallback(optimizations, scopeRoot),
+                traverseNested);
+          }
+        }
+      });
+    }
+    compiler.getParallelTasks().runAll(workers);
+
+    // Now optimize the function nodes of the roots, which the threads skipped.
+    for (Node scopeRoot : independentScopes) {
+      if (scopeRoot.isFunction() && !scopeRoot.isDeleted()) {
+        setChangeScopeRoot(peepholeOptimizations, scopeRoot);
+        optimize(peepholeOptimizations, scopeRoot);
+      }
+    }
+    setChangeScopeRoot(peepholeOptimizations, null);
+
+    List<Node> remainingScopes = new ArrayList<>(nestedScopes.size());
+    for (Node scopeRoot : nestedScopes) {
+      if (!scopeRoot.isDeleted()) {
+        remainingScopes.add(scopeRoot);
+      }
+    }
+    NodeTraversal.traverseEs6ScopeRoots(
+        compiler, root, remainingScopes, new PeepCallback(peepholeOptimizations), false);
+    return true;
+  }
+
+  private static boolean hasAncestorIn(Node n, Set<Node> nodes) {
+    for (Node ancestor = n.getParent(); ancestor != null; ancestor = ancestor.getParent()) {
+      if (nodes.contains(ancestor)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void optimize(AbstractPeepholeOptimization[] optimizations, Node n) {
+    Node currentNode = n;
+    for (AbstractPeepholeOptimization optim : optimizations) {
+      currentNode = optim.optimizeSubtree(currentNode);
+      if (currentNode == null) {
+        return;
+      }
+    }
+  }
+
+  private static class PeepCallback extends AbstractPostOrderCallback {
+    private final AbstractPeepholeOptimization[] optimizations;
+
+    PeepCallback(AbstractPeepholeOptimization[] optimizations) {
+      this.optimizations = optimizations;
+    }
+
     @Override
     public void visit(NodeTraversal t, Node n, Node parent) {
-      Node currentNode = n;
-      for (AbstractPeepholeOptimization optim : peepholeOptimizations) {
-        currentNode = optim.optimizeSubtree(currentNode);
-        if (currentNode == null) {
-          return;
-        }
+      optimize(optimizations, n);
+    }
+  }
+
+  /**
+   * Optimizes a scope concurrently with others. The change scope that the compiler tracks is
+   * shared by all threads, so the callback tracks its own and reports changes to it. It skips the
+   * function node of the root, whose optimization may change the enclosing scope.
+   */
+  private static class ConcurrentPeepCallback implements Callback {
+    private final AbstractPeepholeOptimization[] optimizations;
+    private final Node scopeRoot;
+    private final Deque<Node> changeScopes = new ArrayDeque<>();
+
+    ConcurrentPeepCallback(AbstractPeepholeOptimization[] optimizations, Node scopeRoot) {
+      this.optimizations = optimizations;
+      this.scopeRoot = scopeRoot;
+    }
+
+    @Override
+    public boolean shouldTraverse(NodeTraversal t, Node n, Node parent) {
+      if (NodeUtil.isChangeScopeRoot(n)) {
+        changeScopes.push(n);
+        setChangeScopeRoot(optimizations, n);
       }
+      return true;
+    }
+
+    @Override
+    public void visit(NodeTraversal t, Node n, Node parent) {
+      boolean isChangeScopeRoot = !changeScopes.isEmpty() && changeScopes.peek() == n;
+      if (n != scopeRoot || !n.isFunction()) {
+        optimize(optimizations, n);
+      }
+      if (isChangeScopeRoot) {
+        changeScopes.pop();
+        setChangeScopeRoot(optimizations, changeScopes.peek());
+      }
+    }
+  }
+
+  private static void setChangeScopeRoot(
+      AbstractPeepholeOptimization[] optimizations, Node changeScopeRoot) {
+    for (AbstractPeepholeOptimization optimization : optimizations) {
+      optimization.setChangeScopeRoot(changeScopeRoot);
     }
   }
 
   /** Make sure that all the optimizations have the current compiler so they can report errors. */
-  private void beginTraversal() {
-    for (AbstractPeepholeOptimization optimization : peepholeOptimizations) {
+  private void beginTraversal(AbstractPeepholeOptimization[] optimizations) {
+    for (AbstractPeepholeOptimization optimization : optimizations) {
       optimization.beginTraversal(compiler);
     }
   }
@@ -23,6 +23,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
 import com.google.javascript.jscomp.CompilerOptions.TracerMode;
+import com.google.javascript.jscomp.CompilerOptions.TracerOutputFormat;
 import com.google.javascript.jscomp.parsing.parser.util.format.SimpleFormat;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.StaticSourceFile;
@@ -42,6 +43,10 @@ import java.util.Map.Entry;
  * A PerformanceTracker collects statistics about the runtime of each pass, and
  * how much a pass impacts the size of the compiled output, before and after
  * gzip.
+ *
+ * <p>On the JVM it also measures the CPU time and allocations of the thread that runs each pass,
+ * and the peak heap usage during the pass. Work that a pass hands to other threads is not included
+ * in the CPU time and allocations.
  */
 public final class PerformanceTracker {
   private static final int DEFAULT_WHEN_SIZE_UNTRACKED = -1;
@@ -52,6 +57,8 @@ public final class PerformanceTracker {
 
   private final TracerMode mode;
 
+  private final TracerOutputFormat outputFormat;
+
   // Keeps track of AST changes and computes code size estimation
   // if there is any.
   private final RecentChange codeChange = new RecentChange();
@@ -63,6 +70,8 @@ public final class PerformanceTracker {
   private int initGzCodeSize = DEFAULT_WHEN_SIZE_UNTRACKED;
 
   private final long startTime;
+  // The origin of the timestamps of the trace events.
+  private final long startNanos;
   private long endTime;
   private int passesRuntime = 0;
   private int maxMem = 0;
@@ -96,12 +105,19 @@ public final class PerformanceTracker {
   private final List<Stats> log = new ArrayList<>();
 
   PerformanceTracker(Node externsRoot, Node jsRoot, TracerMode mode, PrintStream printStream) {
+    this(externsRoot, jsRoot, mode, printStream, TracerOutputFormat.TEXT);
+  }
+
+  PerformanceTracker(Node externsRoot, Node jsRoot, TracerMode mode, PrintStream printStream,
+      TracerOutputFormat outputFormat) {
     checkArgument(mode != TracerMode.OFF, "PerformanceTracker can't work without tracer data.");
     this.startTime = System.currentTimeMillis();
+    this.startNanos = System.nanoTime();
     this.externsRoot = externsRoot;
     this.jsRoot = jsRoot;
     this.output = printStream == null ? System.out : printStream;
     this.mode = mode;
+    this.outputFormat = outputFormat;
   }
 
   CodeChangeHandler getCodeChangeHandler() {
@@ -109,13 +125,25 @@ public final class PerformanceTracker {
   }
 
   void recordPassStart(String passName, boolean isOneTime) {
-    this.currentPass.push(new Stats(passName, isOneTime));
+    Stats enclosingPass = this.currentPass.peek();
+    if (enclosingPass != null) {
+      // The peak is reset for this pass, so save the peak of the enclosing pass so far.
+      enclosingPass.peakHeapBytes =
+          Math.max(enclosingPass.peakHeapBytes, JvmMetrics.getPeakHeapUsage());
+    }
+    Stats stats = new Stats(passName, isOneTime);
+    this.currentPass.push(stats);
     // In Compiler, toSource may be called after every pass X. We don't want it
     // to reset the handler, because recordPassStop for pass X has not been
     // called, so we are falsely logging that pass X didn't make changes.
     if (!passName.equals("toSource")) {
       this.codeChange.reset();
     }
+    // Take the measurements last, so that they don't include the work of the tracker.
+    JvmMetrics.resetPeakHeapUsage();
+    stats.cpuNanos = JvmMetrics.getCurrentThreadCpuTime();
+    stats.allocatedBytes = JvmMetrics.getCurrentThreadAllocatedBytes();
+    stats.startNanos = System.nanoTime() - this.startNanos;
   }
 
   /**
@@ -128,7 +156,7 @@ public final class PerformanceTracker {
     if (!tracksAstSize()) {
       return;
     }
-    this.initAstSize = this.astSize = NodeUtil.countAstSize(this.jsRoot);
+    this.initAstSize = this.astSize = new AstCount(this.jsRoot).size;
     if (!tracksSize()) {
       return;
     }
@@ -148,11 +176,24 @@ public final class PerformanceTracker {
    * @param runtime execution time in milliseconds
    */
   void recordPassStop(String passName, long runtime) {
+    long endNanos = System.nanoTime() - this.startNanos;
+    long cpuNanos = JvmMetrics.getCurrentThreadCpuTime();
+    long allocatedBytes = JvmMetrics.getCurrentThreadAllocatedBytes();
+    long peakHeapBytes = JvmMetrics.getPeakHeapUsage();
     int allocMem = getAllocatedMegabytes();
     Stats logStats = this.currentPass.pop();
     checkState(passName.equals(logStats.pass));
     this.log.add(logStats);
 
+    logStats.wallNanos = endNanos - logStats.startNanos;
+    logStats.cpuNanos = measuredDifference(cpuNanos, logStats.cpuNanos);
+    logStats.allocatedBytes = measuredDifference(allocatedBytes, logStats.allocatedBytes);
+    logStats.peakHeapBytes = Math.max(logStats.peakHeapBytes, peakHeapBytes);
+    Stats enclosingPass = this.currentPass.peek();
+    if (enclosingPass != null) {
+      enclosingPass.peakHeapBytes = Math.max(enclosingPass.peakHeapBytes, logStats.peakHeapBytes);
+    }
+
     // Update fields that aren't related to code size
     logStats.runtime = runtime;
     logStats.allocMem = allocMem;
@@ -172,7 +213,9 @@ public final class PerformanceTracker {
     if (!tracksAstSize()) {
       return;
     }
-    logStats.astSize = this.initAstSize = this.astSize = NodeUtil.countAstSize(jsRoot);
+    AstCount count = new AstCount(this.jsRoot);
+    logStats.astSize = this.initAstSize = this.astSize = count.size;
+    logStats.nodesAdded = count.added;
     if (!tracksSize()) {
       return;
     }
@@ -185,8 +228,12 @@ public final class PerformanceTracker {
   }
 
   private void recordOtherPassStop(Stats logStats) {
-    int newSize = NodeUtil.countAstSize(this.jsRoot);
+    AstCount count = new AstCount(this.jsRoot);
+    int newSize = count.size;
     logStats.astDiff = this.astSize - newSize;
+    logStats.nodesAdded = count.added;
+    // Nodes that were removed by an earlier pass and put back are not added again.
+    logStats.nodesRemoved = Math.max(0, this.astSize + count.added - newSize);
     this.astSize = logStats.astSize = newSize;
     if (!tracksSize()) {
       return;
@@ -203,6 +250,19 @@ public final class PerformanceTracker {
     }
   }
 
+  /** Returns {@code end - start}, or -1 if either was not measured. */
+  private static long measuredDifference(long end, long start) {
+    return end < 0 || start < 0 ? -1 : end - start;
+  }
+
+  /** Returns the sum of the measurements, ignoring those that were not made. */
+  private static long addMeasurements(long m1, long m2) {
+    if (m1 < 0) {
+      return m2;
+    }
+    return m2 < 0 ? m1 : m1 + m2;
+  }
+
   private void recordInputCount() {
     for (Node n : this.externsRoot.children()) {
       this.externSources += 1;
@@ -339,6 +399,12 @@ public final class PerformanceTracker {
       entry.astDiff += logStat.astDiff;
       entry.diff += logStat.diff;
       entry.gzDiff += logStat.gzDiff;
+      entry.wallNanos += logStat.wallNanos;
+      entry.cpuNanos = addMeasurements(entry.cpuNanos, logStat.cpuNanos);
+      entry.allocatedBytes = addMeasurements(entry.allocatedBytes, logStat.allocatedBytes);
+      entry.peakHeapBytes = Math.max(entry.peakHeapBytes, logStat.peakHeapBytes);
+      entry.nodesAdded += logStat.nodesAdded;
+      entry.nodesRemoved += logStat.nodesRemoved;
       // We don't populate the size fields in the summary stats.
       // We used to put the size after the last time a pass was run, but that is
       // a pretty meaningless thing to measure.
@@ -352,9 +418,31 @@ public final class PerformanceTracker {
    * and a log, which contains stats for each individual run.
    */
   public void outputTracerReport() {
-    JvmMetrics.maybeWriteJvmMetrics(this.output, "verbose:pretty:all");
     calcTotalStats();
+    switch (this.outputFormat) {
+      case TEXT:
+        JvmMetrics.maybeWriteJvmMetrics(this.output, "verbose:pretty:all");
+        writeTextReport();
+        break;
+      case JSON:
+        writeJsonReport();
+        break;
+      case CHROME_TRACE:
+        writeChromeTrace();
+        break;
+    }
+    // this.output can be System.out, so don't close it to not lose subsequent
+    // error messages. Flush to ensure that you will see the tracer report.
+    try {
+      // TODO(johnlenz): Remove this cast and try/catch.
+      // This is here to workaround GWT http://b/30943295
+      ((FilterOutputStream) this.output).flush();
+    } catch (IOException e) {
+      throw new RuntimeException("Unreachable.");
+    }
+  }
 
+  private void writeTextReport() {
     ArrayList<Entry<String, Stats>> statEntries = new ArrayList<>();
     statEntries.addAll(this.summary.entrySet());
     Collections.sort(
@@ -410,14 +498,233 @@ public final class PerformanceTracker {
           stats.astDiff, stats.diff, stats.gzDiff, stats.astSize, stats.size, stats.gzSize));
     }
     this.output.print("\n");
-    // this.output can be System.out, so don't close it to not lose subsequent
-    // error messages. Flush to ensure that you will see the tracer report.
-    try {
-      // TODO(johnlenz): Remove this cast and try/catch.
-      // This is here to workaround GWT http://b/30943295
-      ((FilterOutputStream) this.output).flush();
-    } catch (IOException e) {
-      throw new RuntimeException("Unreachable.");
+  }
+
+  /**
+   * Writes the report as a single JSON object, with the same totals, summary and log as the text
+   * report, and the CPU time, allocations, peak heap usage and AST churn of each pass.
+   */
+  private void writeJsonReport() {
+    JsonWriter json = new JsonWriter();
+    json.beginObject()
+        .name("startTimeMs").value(this.startTime)
+        .name("endTimeMs").value(this.endTime)
+        .name("wallTimeMs").value(this.endTime - this.startTime)
+        .name("passesRuntimeMs").value(this.passesRuntime)
+        .name("maxMemMb").value(this.maxMem)
+        .name("runs").value(this.runs)
+        .name("changingRuns").value(this.changes)
+        .name("loopableRuns").value(this.loopRuns)
+        .name("changingLoopableRuns").value(this.loopChanges)
+        .name("astReduction").value(this.astDiff)
+        .name("reduction").value(this.diff)
+        .name("gzReduction").value(this.gzDiff)
+        .name("astSize").value(this.astSize)
+        .name("size").value(this.codeSize)
+        .name("gzSize").value(this.gzCodeSize);
+    json.name("inputs").beginObject()
+        .name("jsLines").value(this.jsLines)
+        .name("jsSources").value(this.jsSources)
+        .name("externLines").value(this.externLines)
+        .name("externSources").value(this.externSources)
+        .endObject();
+    json.name("summary").beginArray();
+    for (Stats stats : this.summary.values()) {
+      json.beginObject();
+      writeStats(json, stats);
+      json.name("runs").value(stats.runs)
+          .name("changingRuns").value(stats.changes)
+          .endObject();
+    }
+    json.endArray();
+    json.name("log").beginArray();
+    for (Stats stats : this.log) {
+      json.beginObject();
+      writeStats(json, stats);
+      json.name("startNanos").value(stats.startNanos)
+          .name("codeChanged").value(stats.changes == 1)
+          .name("astSize").value(stats.astSize)
+          .name("size").value(stats.size)
+          .name("gzSize").value(stats.gzSize)
+          .endObject();
+    }
+    json.endArray();
+    json.endObject();
+    this.output.print(json.toString());
+    this.output.print("\n");
+  }
+
+  private static void writeStats(JsonWriter json, Stats stats) {
+    json.name("pass").value(stats.pass)
+        .name("runtimeMs").value(stats.runtime)
+        .name("wallNanos").value(stats.wallNanos)
+        .name("cpuNanos").value(stats.cpuNanos)
+        .name("allocatedBytes").value(stats.allocatedBytes)
+        .name("peakHeapBytes").value(stats.peakHeapBytes)
+        .name("allocMemMb").value(stats.allocMem)
+        .name("nodesAdded").value(stats.nodesAdded)
+        .name("nodesRemoved").value(stats.nodesRemoved)
+        .name("astReduction").value(stats.astDiff)
+        .name("reduction").value(stats.diff)
+        .name("gzReduction").value(stats.gzDiff);
+  }
+
+  /**
+   * Writes the log in the Trace Event Format, which chrome://tracing and other trace viewers
+   * load. Each pass is a complete event on a single thread, so nested passes show as a stack, and
+   * the peak heap usage of the passes is a counter.
+   */
+  private void writeChromeTrace() {
+    JsonWriter json = new JsonWriter();
+    json.beginObject().name("traceEvents").beginArray();
+    for (Stats stats : this.log) {
+      long ts = stats.startNanos / 1000;
+      json.beginObject()
+          .name("name").value(stats.pass)
+          .name("cat").value(stats.isOneTime ? "pass" : "loopable pass")
+          .name("ph").value("X")
+          .name("ts").value(ts)
+          .name("dur").value(stats.wallNanos / 1000)
+          .name("pid").value(1)
+          .name("tid").value(1)
+          .name("args").beginObject()
+          .name("cpuNanos").value(stats.cpuNanos)
+          .name("allocatedBytes").value(stats.allocatedBytes)
+          .name("peakHeapBytes").value(stats.peakHeapBytes)
+          .name("nodesAdded").value(stats.nodesAdded)
+          .name("nodesRemoved").value(stats.nodesRemoved)
+          .name("codeChanged").value(stats.changes == 1)
+          .endObject()
+          .endObject();
+      if (stats.peakHeapBytes >= 0) {
+        json.beginObject()
+            .name("name").value("peak heap")
+            .name("ph").value("C")
+            .name("ts").value(ts)
+            .name("pid").value(1)
+            .name("args").beginObject().name("bytes").value(stats.peakHeapBytes).endObject()
+            .endObject();
+      }
+    }
+    json.endArray().name("displayTimeUnit").value("ms").endObject();
+    this.output.print(json.toString());
+    this.output.print("\n");
+  }
+
+  /**
+   * A minimal streaming JSON writer. The report is small, and the JSON libraries available to the
+   * compiler don't work with GWT.
+   */
+  private static final class JsonWriter {
+    private final StringBuilder sb = new StringBuilder();
+    // Whether a comma is needed before the next name or array element.
+    private boolean needsComma = false;
+
+    JsonWriter beginObject() {
+      separate();
+      sb.append('{');
+      needsComma = false;
+      return this;
+    }
+
+    JsonWriter endObject() {
+      sb.append('}');
+      needsComma = true;
+      return this;
+    }
+
+    JsonWriter beginArray() {
+      separate();
+      sb.append('[');
+      needsComma = false;
+      return this;
+    }
+
+    JsonWriter endArray() {
+      sb.append(']');
+      needsComma = true;
+      return this;
+    }
+
+    JsonWriter name(String name) {
+      separate();
+      appendString(name);
+      sb.append(':');
+      needsComma = false;
+      return this;
+    }
+
+    JsonWriter value(String value) {
+      separate();
+      appendString(value);
+      needsComma = true;
+      return this;
+    }
+
+    JsonWriter value(long value) {
+      separate();
+      sb.append(value);
+      needsComma = true;
+      return this;
+    }
+
+    JsonWriter value(boolean value) {
+      separate();
+      sb.append(value);
+      needsComma = true;
+      return this;
+    }
+
+    private void separate() {
+      if (needsComma) {
+        sb.append(',');
+      }
+    }
+
+    private void appendString(String s) {
+      sb.append('"');
+      for (int i = 0; i < s.length(); i++) {
+        char c = s.charAt(i);
+        if (c == '"' || c == '\\') {
+          sb.append('\\').append(c);
+        } else if (c < 0x20) {
+          String hex = Integer.toHexString(c);
+          sb.append("\\u00").append(hex.length() == 1 ? "0" : "").append(hex);
+        } else {
+          sb.append(c);
+        }
+      }
+      sb.append('"');
+    }
+
+    @Override
+    public String toString() {
+      return sb.toString();
+    }
+  }
+
+  /**
+   * Counts the nodes of an AST, and the nodes that were not in it the last time it was counted.
+   * Counted nodes are marked with {@link Node#COUNTED_BY_TRACKER}, so the nodes removed since the
+   * last count don't need to be kept around to tell which nodes are new.
+   */
+  private static final class AstCount {
+    int size = 0;
+    int added = 0;
+
+    AstCount(Node root) {
+      count(root);
+    }
+
+    private void count(Node n) {
+      size++;
+      if (!n.getBooleanProp(Node.COUNTED_BY_TRACKER)) {
+        added++;
+        n.putBooleanProp(Node.COUNTED_BY_TRACKER, true);
+      }
+      for (Node c = n.getFirstChild(); c != null; c = c.getNext()) {
+        count(c);
+      }
     }
   }
 
@@ -442,5 +749,23 @@ public final class PerformanceTracker {
     public int gzSize = 0;
     public int astDiff = 0;
     public int astSize = 0;
+    /** Nanoseconds since the tracker was created, at the start of the pass. */
+    public long startNanos = 0;
+    public long wallNanos = 0;
+    /** CPU time of the compiler thread, or -1 if the JVM can't measure it. */
+    public long cpuNanos = -1;
+    /** Bytes allocated by the compiler thread, or -1 if the JVM can't measure it. */
+    public long allocatedBytes = -1;
+    /** Peak usage of the heap during the pass, or -1 if the JVM can't measure it. */
+    public long peakHeapBytes = -1;
+    /**
+     * Number of nodes the pass created or cloned into the AST, only counted when the AST size is
+     * tracked.
+     */
+    public int nodesAdded = 0;
+    /**
+     * Number of nodes the pass detached from the AST, only counted when the AST size is tracked.
+     */
+    public int nodesRemoved = 0;
   }
 }
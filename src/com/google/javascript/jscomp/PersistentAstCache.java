@@ -0,0 +1,350 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import com.google.javascript.jscomp.JsAst.RecordingReporterProxy;
+import com.google.javascript.jscomp.JsAst.RhinoError;
+import com.google.javascript.jscomp.parsing.Config;
+import com.google.javascript.jscomp.parsing.ParserRunner;
+import com.google.javascript.jscomp.parsing.parser.FeatureSet;
+import com.google.javascript.jscomp.parsing.parser.trees.Comment;
+import com.google.javascript.rhino.ErrorReporter;
+import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.NodeTreeReader;
+import com.google.javascript.rhino.NodeTreeWriter;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+
+/**
+ * A cache of parse results on disk, shared between compiler invocations. An entry holds the AST,
+ * feature set and parse diagnostics of one source file, and is keyed by a digest of the file name,
+ * the file contents, the parser {@link Config} and the compiler version, so entries never need to
+ * be invalidated; they are only evicted, least recently used first, once the cache grows beyond its
+ * maximum size.
+ *
+ * <p>Each entry lives in its own file, which is written to a temporary file first and then renamed,
+ * so several compiler processes can share one cache directory. Entries are read through a memory
+ * mapping of the file. Any entry that cannot be read is deleted and the file is parsed again.
+ */
+public final class PersistentAstCache {
+  private static final Logger logger = Logger.getLogger(PersistentAstCache.class.getName());
+
+  /**
+   * Change this whenever the layout of {@link Entry} or the {@link NodeTreeWriter} format changes.
+   */
+  private static final int FORMAT_VERSION = 3;
+
+  private static final String ENTRY_SUFFIX = ".ast";
+
+  private final Path directory;
+  private final long maxSizeBytes;
+
+  // Guarded by this.
+  private long sizeBytes;
+
+  public PersistentAstCache(Path directory, long maxSizeBytes) throws IOException {
+    this.directory = directory;
+    this.maxSizeBytes = maxSizeBytes;
+    Files.createDirectories(directory);
+    for (Path entry : listEntries()) {
+      sizeBytes += Files.size(entry);
+    }
+  }
+
+  /** The cached result of parsing one source file. */
+  private static final class Entry implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    final Node root;
+    final FeatureSet features;
+    @Nullable final String sourceMapUrl;
+    final ImmutableList<RhinoError> errors;
+    final ImmutableList<RhinoError> warnings;
+
+    Entry(
+        Node root,
+        FeatureSet features,
+        @Nullable String sourceMapUrl,
+        ImmutableList<RhinoError> errors,
+        ImmutableList<RhinoError> warnings) {
+      this.root = root;
+      this.features = features;
+      this.sourceMapUrl = sourceMapUrl;
+      this.errors = errors;
+      this.warnings = warnings;
+    }
+  }
+
+  /**
+   * Parses the given file, or returns the result of an earlier parse of the same contents with the
+   * same config. The diagnostics of a cached parse are reported to {@code errorReporter} again.
+   * Comments are not cached, so the result never has any.
+   */
+  ParserRunner.ParseResult parse(
+      SourceFile file, String code, Config config, ErrorReporter errorReporter) {
+    Path path = pathFor(file, code, config);
+    Entry entry = read(path, file);
+    if (entry != null) {
+      for (RhinoError error : entry.errors) {
+        errorReporter.error(error.message, error.sourceName, error.line, error.lineOffset);
+      }
+      for (RhinoError warning : entry.warnings) {
+        errorReporter.warning(
+            warning.message, warning.sourceName, warning.line, warning.lineOffset);
+      }
+      return new ParserRunner.ParseResult(
+          entry.root, ImmutableList.<Comment>of(), entry.features, entry.sourceMapUrl);
+    }
+
+    RecordingReporterProxy recorder = new RecordingReporterProxy(errorReporter);
+    ParserRunner.ParseResult result = ParserRunner.parse(file, code, config, recorder);
+    if (result.ast != null) {
+      // The tree is written with its lazy JSDoc parsed, so the problems found by parsing it are
+      // cached along with the others.
+      NodeUtil.visitPreOrder(
+          result.ast,
+          new NodeUtil.Visitor() {
+            @Override
+            public void visit(Node n) {
+              n.getJSDocInfo();
+            }
+          });
+      write(
+          path,
+          file,
+          new Entry(
+              result.ast,
+              result.features,
+              result.sourceMapURL,
+              ImmutableList.copyOf(recorder.errors),
+              ImmutableList.copyOf(recorder.warnings)));
+    }
+    return result;
+  }
+
+  @Nullable
+  private Entry read(Path path, SourceFile file) {
+    if (!Files.exists(path)) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      Entry entry;
+      try (EntryInputStream in = new EntryInputStream(new ByteBufferInputStream(buffer), file)) {
+        in.treeReader.readTree();
+        entry = (Entry) in.readObject();
+      }
+      // Mark the entry as recently used.
+      Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+      return entry;
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      logger.log(Level.WARNING, "Dropping unreadable AST cache entry " + path, e);
+      delete(path);
+      return null;
+    }
+  }
+
+  /** Failures to write an entry are logged and otherwise ignored. */
+  private void write(Path path, SourceFile file, Entry entry) {
+    Path tempPath = null;
+    try {
+      tempPath = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+      try (EntryOutputStream out =
+          new EntryOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)), file)) {
+        out.treeWriter.writeTree(entry.root);
+        out.writeObject(entry);
+      }
+      long size = Files.size(tempPath);
+      Files.move(
+          tempPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      tempPath = null;
+      recordWrite(size);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Could not write AST cache entry for " + file.getName(), e);
+    } finally {
+      if (tempPath != null) {
+        delete(tempPath);
+      }
+    }
+  }
+
+  private Path pathFor(SourceFile file, String code, Config config) {
+    String key =
+        Hashing.sha256()
+            .newHasher()
+            .putInt(FORMAT_VERSION)
+            .putString(Compiler.getReleaseVersion(), UTF_8)
+            .putString(Compiler.getReleaseDate(), UTF_8)
+            .putString(config.fingerprint(), UTF_8)
+            .putString(file.getName(), UTF_8)
+            .putString(code, UTF_8)
+            .hash()
+            .toString();
+    return directory.resolve(key + ENTRY_SUFFIX);
+  }
+
+  /** Accounts for a new entry, evicting the least recently used ones if the cache is too big. */
+  private synchronized void recordWrite(long size) throws IOException {
+    sizeBytes += size;
+    if (sizeBytes <= maxSizeBytes) {
+      return;
+    }
+
+    // Evict down to three quarters of the maximum so that eviction doesn't run on every write.
+    long targetBytes = maxSizeBytes / 4 * 3;
+    List<Path> entries = listEntries();
+    final Map<Path, FileTime> lastUsed = new HashMap<>();
+    sizeBytes = 0;
+    for (Path entry : entries) {
+      lastUsed.put(entry, Files.getLastModifiedTime(entry));
+      sizeBytes += Files.size(entry);
+    }
+    Collections.sort(entries, new Comparator<Path>() {
+      @Override
+      public int compare(Path a, Path b) {
+        return lastUsed.get(a).compareTo(lastUsed.get(b));
+      }
+    });
+    for (int i = 0; i < entries.size() && sizeBytes > targetBytes; i++) {
+      Path entry = entries.get(i);
+      long entrySize = Files.size(entry);
+      if (delete(entry)) {
+        sizeBytes -= entrySize;
+      }
+    }
+  }
+
+  private List<Path> listEntries() throws IOException {
+    List<Path> entries = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + ENTRY_SUFFIX)) {
+      for (Path entry : stream) {
+        entries.add(entry);
+      }
+    }
+    return entries;
+  }
+
+  private static boolean delete(Path path) {
+    try {
+      return Files.deleteIfExists(path);
+    } catch (IOException e) {
+      logger.log(Level.FINE, "Could not delete " + path, e);
+      return false;
+    }
+  }
+
+  /**
+   * Stands in for the source file of a cached AST. Source files are not cached themselves since
+   * they hold the compiler's view of the input, which is supplied again on every run.
+   */
+  private static final class SourceFilePlaceholder implements Serializable {
+    private static final long serialVersionUID = 1L;
+    static final SourceFilePlaceholder INSTANCE = new SourceFilePlaceholder();
+
+    private Object readResolve() {
+      return INSTANCE;
+    }
+  }
+
+  /** Writes the AST in the compact format of {@link NodeTreeWriter}, ahead of the entry. */
+  private static final class EntryOutputStream extends ObjectOutputStream {
+    final NodeTreeWriter treeWriter = new NodeTreeWriter(this);
+    private final SourceFile sourceFile;
+
+    EntryOutputStream(OutputStream out, SourceFile sourceFile) throws IOException {
+      super(out);
+      this.sourceFile = sourceFile;
+      enableReplaceObject(true);
+    }
+
+    @Override
+    protected Object replaceObject(Object obj) {
+      return obj == sourceFile ? SourceFilePlaceholder.INSTANCE : treeWriter.replaceNode(obj);
+    }
+  }
+
+  private static final class EntryInputStream extends ObjectInputStream {
+    final NodeTreeReader treeReader = new NodeTreeReader(this);
+    private final SourceFile sourceFile;
+
+    EntryInputStream(InputStream in, SourceFile sourceFile) throws IOException {
+      super(in);
+      this.sourceFile = sourceFile;
+      enableResolveObject(true);
+    }
+
+    @Override
+    protected Object resolveObject(Object obj) throws IOException {
+      return obj == SourceFilePlaceholder.INSTANCE ? sourceFile : treeReader.resolveNode(obj);
+    }
+  }
+
+  /** Reads from a (memory mapped) buffer without copying it first. */
+  private static final class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? (buffer.get() & 0xff) : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
@@ -301,7 +301,11 @@ class PhaseOptimizer implements CompilerPass {
       // Delay the creation of the actual pass until *after* all previous passes
       // have been processed.
       // Some precondition checks rely on this, eg, in CoalesceVariableNames.
-      factory.create(compiler).process(externs, root);
+      if (compiler.getOptions().numParallelThreads > 1 && factory.isParallelizableByScript()) {
+        new ParallelCompilerPass(compiler, factory).process(externs, root);
+      } else {
+        factory.create(compiler).process(externs, root);
+      }
 
       compiler.afterPass(name);
 
@@ -16,67 +16,56 @@
 
 package com.google.javascript.jscomp;
 
-import com.google.common.util.concurrent.Futures;
-import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.ListeningExecutorService;
-import com.google.common.util.concurrent.MoreExecutors;
+import com.google.javascript.rhino.Node;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 /**
  * A helper class to prebuild ASTs from a list of {@link CompilerInput}. Inputs are parsed into ASTs
  * the first time we try to get them. Get them all now using multiple threads, so they'll be parsed
  * in parallel and already available during the rest of the compilation.
+ *
+ * <p>The ASTs are built on the compiler's {@link ParallelTasks}, so externs, modules, inputs and
+ * the passes that run in parallel share the same pool of threads.
  */
 class PrebuildAst {
+  /** Work on the AST of an input, done on the thread that built it. */
+  interface AstCallback {
+    void visit(CompilerInput input, Node root);
+  }
+
   private final AbstractCompiler compiler;
-  private final int numParallelThreads;
+  private final ParallelTasks parallelTasks;
 
-  PrebuildAst(AbstractCompiler compiler, int numParalleThreads) {
+  PrebuildAst(AbstractCompiler compiler, ParallelTasks parallelTasks) {
     this.compiler = compiler;
-    this.numParallelThreads = numParalleThreads;
+    this.parallelTasks = parallelTasks;
   }
 
   void prebuild(List<CompilerInput> inputList) {
-    ThreadFactory threadFactory = new ThreadFactory() {
-        @Override
-        public Thread newThread(Runnable r) {
-          Thread t =
-              new Thread(null, r, "jscompiler-PrebuildAst", CompilerExecutor.COMPILER_STACK_SIZE);
-          t.setDaemon(true);  // Do not prevent the JVM from exiting.
-          return t;
-        }
-    };
-    ThreadPoolExecutor poolExecutor = new ThreadPoolExecutor(
-        numParallelThreads,
-        numParallelThreads,
-        Integer.MAX_VALUE,
-        TimeUnit.SECONDS,
-        new LinkedBlockingQueue<Runnable>(),
-        threadFactory);
-    ListeningExecutorService executorService = MoreExecutors.listeningDecorator(poolExecutor);
-    List<ListenableFuture<?>> futureList = new ArrayList<>(inputList.size());
+    prebuild(inputList, null);
+  }
+
+  /**
+   * Builds the ASTs of the given inputs and waits until they are all built.
+   *
+   * @param callback if not null, called with every AST once it is built
+   */
+  void prebuild(List<CompilerInput> inputList, @Nullable final AstCallback callback) {
+    List<Runnable> tasks = new ArrayList<>(inputList.size());
     // TODO(moz): Support canceling all parsing on the first halting error
     for (final CompilerInput input : inputList) {
-      futureList.add(executorService.submit(new Runnable() {
+      tasks.add(new Runnable() {
         @Override
         public void run() {
-          input.getAstRoot(compiler);
+          Node root = input.getAstRoot(compiler);
+          if (callback != null && root != null) {
+            callback.visit(input, root);
+          }
         }
-      }));
-    }
-
-    poolExecutor.shutdown();
-    try {
-      Futures.allAsList(futureList).get();
-    } catch (InterruptedException | ExecutionException e) {
-      throw new RuntimeException(e);
+      });
     }
+    parallelTasks.runAll(tasks);
   }
-
 }
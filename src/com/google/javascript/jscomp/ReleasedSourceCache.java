@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The code of the source files whose code was released after parsing that was read again for error
+ * excerpts. Files with many errors are only read once, while the total length of the code kept is
+ * bounded: once it grows past the maximum, the code of the least recently used files is dropped.
+ */
+final class ReleasedSourceCache {
+  private final long maxSourceLength;
+  // In access order, so the first entry is the least recently used one.
+  private final LinkedHashMap<SourceFile, String> sources = new LinkedHashMap<>(16, 0.75f, true);
+  private long sourceLength = 0;
+
+  ReleasedSourceCache(long maxSourceLength) {
+    this.maxSourceLength = maxSourceLength;
+  }
+
+  /** Returns the code of the given file, or null if it can't be read. */
+  synchronized String getCode(SourceFile file) {
+    String code = sources.get(file);
+    if (code != null) {
+      return code;
+    }
+    try {
+      code = file.readReleasedCode();
+    } catch (IOException e) {
+      return null;
+    }
+    if (code == null) {
+      return null;
+    }
+    sources.put(file, code);
+    sourceLength += code.length();
+    // Always keep the file just read, even if it is larger than the maximum.
+    Iterator<Map.Entry<SourceFile, String>> it = sources.entrySet().iterator();
+    while (sourceLength > maxSourceLength && sources.size() > 1) {
+      sourceLength -= it.next().getValue().length();
+      it.remove();
+    }
+    return code;
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.javascript.jscomp.JsAst.RecordingReporterProxy;
+import com.google.javascript.jscomp.JsAst.RhinoError;
+import com.google.javascript.jscomp.parsing.Config;
+import com.google.javascript.jscomp.parsing.NullErrorReporter;
+import com.google.javascript.jscomp.parsing.ParserRunner;
+import com.google.javascript.jscomp.parsing.parser.FeatureSet;
+import com.google.javascript.jscomp.parsing.parser.trees.Comment;
+import com.google.javascript.rhino.ErrorReporter;
+import com.google.javascript.rhino.IR;
+import com.google.javascript.rhino.JSDocInfo;
+import com.google.javascript.rhino.LazyJSDocInfo;
+import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.SimpleSourceFile;
+import com.google.javascript.rhino.StaticSourceFile;
+import javax.annotation.Nullable;
+
+/**
+ * A cache of parse results in memory, shared by all the compilers of one JVM that are given the
+ * same instance. It is meant for build servers that compile many targets with mostly the same
+ * sources, such as the same library and externs, so each file is only parsed once.
+ *
+ * <p>Entries are keyed by a digest of the file name, whether the file is an extern, the file
+ * contents and the parser {@link Config}. The cache keeps its own copy of every AST, which is
+ * never changed and is not linked to any compiler's source file, and hands out a fresh copy of it
+ * on every hit. Once the total length of the cached sources grows past the maximum, the least
+ * recently used entries are evicted.
+ */
+public final class SharedAstCache {
+  private final Cache<HashCode, Entry> entries;
+
+  /**
+   * @param maxSourceLength the maximum total length, in characters, of the sources whose ASTs are
+   *     kept. The memory used by an AST grows with the length of its source.
+   */
+  public SharedAstCache(long maxSourceLength) {
+    this.entries =
+        CacheBuilder.newBuilder()
+            .maximumWeight(maxSourceLength)
+            .weigher(new Weigher<HashCode, Entry>() {
+              @Override
+              public int weigh(HashCode key, Entry entry) {
+                return entry.sourceLength;
+              }
+            })
+            .build();
+  }
+
+  /** The cached result of parsing one source file. */
+  private static final class Entry {
+    final Node root;
+    final FeatureSet features;
+    @Nullable final String sourceMapUrl;
+    final ImmutableList<RhinoError> errors;
+    final ImmutableList<RhinoError> warnings;
+    final int sourceLength;
+
+    Entry(
+        Node root,
+        FeatureSet features,
+        @Nullable String sourceMapUrl,
+        ImmutableList<RhinoError> errors,
+        ImmutableList<RhinoError> warnings,
+        int sourceLength) {
+      this.root = root;
+      this.features = features;
+      this.sourceMapUrl = sourceMapUrl;
+      this.errors = errors;
+      this.warnings = warnings;
+      this.sourceLength = sourceLength;
+    }
+  }
+
+  /**
+   * Parses the given file, or returns a copy of the AST of an earlier parse of the same contents
+   * with the same config. The diagnostics of a cached parse are reported to {@code errorReporter}
+   * again. Comments are not cached, so the result never has any.
+   *
+   * @param persistentCache if not null, files that are not in this cache are looked up there
+   *     before they are parsed
+   */
+  ParserRunner.ParseResult parse(
+      SourceFile file,
+      String code,
+      Config config,
+      ErrorReporter errorReporter,
+      @Nullable PersistentAstCache persistentCache) {
+    HashCode key = keyFor(file, code, config);
+    Entry entry = entries.getIfPresent(key);
+    if (entry != null) {
+      for (RhinoError error : entry.errors) {
+        errorReporter.error(error.message, error.sourceName, error.line, error.lineOffset);
+      }
+      for (RhinoError warning : entry.warnings) {
+        errorReporter.warning(
+            warning.message, warning.sourceName, warning.line, warning.lineOffset);
+      }
+      return new ParserRunner.ParseResult(
+          copyTree(entry.root, file, errorReporter),
+          ImmutableList.<Comment>of(),
+          entry.features,
+          entry.sourceMapUrl);
+    }
+
+    RecordingReporterProxy recorder = new RecordingReporterProxy(errorReporter);
+    ParserRunner.ParseResult result =
+        persistentCache != null
+            ? persistentCache.parse(file, code, config, recorder)
+            : ParserRunner.parse(file, code, config, recorder);
+    if (result.ast != null) {
+      // Two compilers may parse the same file at the same time; either entry will do.
+      entries.put(
+          key,
+          new Entry(
+              copyTree(
+                  result.ast,
+                  new SimpleSourceFile(file.getName(), false),
+                  NullErrorReporter.forOldRhino()),
+              result.features,
+              result.sourceMapURL,
+              ImmutableList.copyOf(recorder.errors),
+              ImmutableList.copyOf(recorder.warnings),
+              code.length()));
+    }
+    return result;
+  }
+
+  /** Removes all the entries. */
+  public void clear() {
+    entries.invalidateAll();
+  }
+
+  private static HashCode keyFor(SourceFile file, String code, Config config) {
+    return Hashing.sha256()
+        .newHasher()
+        .putString(config.fingerprint(), UTF_8)
+        .putString(file.getName(), UTF_8)
+        .putBoolean(file.isExtern())
+        .putString(code, UTF_8)
+        .hash();
+  }
+
+  /**
+   * Copies the given tree, including the type expressions of its JSDoc, so that no part of the
+   * copy is shared with the original, and points the copy at the given source file. Lazy JSDoc of
+   * the copy reports its problems to {@code errorReporter}.
+   */
+  private static Node copyTree(Node root, StaticSourceFile file, ErrorReporter errorReporter) {
+    Node copy = root.cloneTree();
+    // Nodes that only hold the source file share this node's property array.
+    Node template = IR.empty();
+    template.setStaticSourceFile(file);
+    relink(copy, template, errorReporter);
+    return copy;
+  }
+
+  private static void relink(Node n, Node template, ErrorReporter errorReporter) {
+    if (n.getStaticSourceFile() != null) {
+      n.setStaticSourceFileFrom(template);
+    }
+    LazyJSDocInfo lazyInfo = (LazyJSDocInfo) n.getProp(Node.LAZY_JSDOC_INFO);
+    if (lazyInfo != null) {
+      n.setLazyJSDocInfo(lazyInfo.copy(errorReporter));
+    }
+    // JSDoc without type expressions is never changed in place, so it is shared.
+    JSDocInfo info = (JSDocInfo) n.getProp(Node.JSDOC_INFO_PROP);
+    if (info != null && !info.getTypeNodes().isEmpty()) {
+      info = info.clone(true);
+      n.setJSDocInfo(info);
+      for (Node typeNode : info.getTypeNodes()) {
+        relink(typeNode, template, errorReporter);
+      }
+    }
+    for (Node child = n.getFirstChild(); child != null; child = child.getNext()) {
+      relink(child, template, errorReporter);
+    }
+  }
+}
@@ -88,6 +88,10 @@ public class SourceFile implements StaticSourceFile, Serializable {
 
   private transient String code = null;
 
+  // Set once the code is released after parsing. Code that can't be read again is kept compressed.
+  private transient boolean codeReleased = false;
+  private transient CompressedSource compressedCode = null;
+
   static final DiagnosticType DUPLICATE_ZIP_CONTENTS = DiagnosticType.warning(
       "JSC_DUPLICATE_ZIP_CONTENTS",
       "Two zip entries containing the same relative path.\n"
@@ -159,6 +163,9 @@ public class SourceFile implements StaticSourceFile, Serializable {
    * @throws IOException
    */
   public String getCode() throws IOException {
+    if (code == null && compressedCode != null) {
+      code = compressedCode.decompress();
+    }
     return code;
   }
 
@@ -186,9 +193,48 @@ public class SourceFile implements StaticSourceFile, Serializable {
     } else {
       code = sourceCode;
     }
+    codeReleased = false;
+    compressedCode = null;
     resetLineOffsets();
   }
 
+  /**
+   * Drops the code of this file from memory once it is parsed, but keeps its line offsets. Code
+   * that can't be read again is kept compressed. The code is read again, and kept, the next time
+   * {@link #getCode} is called.
+   */
+  synchronized void releaseCode() {
+    if (code == null) {
+      return;
+    }
+    if (compressedCode == null && !canReadCodeAgain()) {
+      compressedCode = CompressedSource.compress(code);
+      if (compressedCode == null) {
+        return;
+      }
+    }
+    findLineOffsets();
+    code = null;
+    codeReleased = true;
+  }
+
+  /** Whether the code was released by {@link #releaseCode} and not read again since. */
+  boolean hasReleasedCode() {
+    return codeReleased && code == null;
+  }
+
+  /** Reads the code of a file whose code was released, without keeping it in memory. */
+  synchronized String readReleasedCode() throws IOException {
+    String result = getCode();
+    releaseCode();
+    return result;
+  }
+
+  /** Whether the code can be read again after it is dropped from memory. */
+  boolean canReadCodeAgain() {
+    return false;
+  }
+
   public String getOriginalPath() {
     return originalPath != null ? originalPath : fileName;
   }
@@ -197,6 +243,15 @@ public class SourceFile implements StaticSourceFile, Serializable {
     this.originalPath = originalPath;
   }
 
+  /**
+   * Returns the local file that the code is read from, or null if the code is
+   * not read from a local file.
+   */
+  @GwtIncompatible("java.nio.file.Path")
+  public Path getLocalPath() {
+    return null;
+  }
+
   // For SourceFile types which cache source code that can be regenerated
   // easily, flush the cache.  We maintain the cache mostly to speed up
   // generating source when displaying error messages, so dumping the file
@@ -254,16 +309,6 @@ public class SourceFile implements StaticSourceFile, Serializable {
    *     or if there was an IO exception.
    */
   public String getLine(int lineNumber) {
-    findLineOffsets();
-    if (lineNumber > lineOffsets.length) {
-      return null;
-    }
-
-    if (lineNumber < 1) {
-      lineNumber = 1;
-    }
-
-    int pos = lineOffsets[lineNumber - 1];
     String js = "";
     try {
       // NOTE(nicksantos): Right now, this is optimized for few warnings.
@@ -273,7 +318,21 @@ public class SourceFile implements StaticSourceFile, Serializable {
     } catch (IOException e) {
       return null;
     }
+    return getLine(lineNumber, js);
+  }
+
+  /** Gets the source line for the indicated line number out of the given code of this file. */
+  String getLine(int lineNumber, String js) {
+    findLineOffsets();
+    if (lineNumber > lineOffsets.length) {
+      return null;
+    }
+
+    if (lineNumber < 1) {
+      lineNumber = 1;
+    }
 
+    int pos = lineOffsets[lineNumber - 1];
     if (js.indexOf('\n', pos) == -1) {
       // If next new line cannot be found, there are two cases
       // 1. pos already reaches the end of file, then null should be returned
@@ -304,6 +363,11 @@ public class SourceFile implements StaticSourceFile, Serializable {
     } catch (IOException e) {
       return null;
     }
+    return getRegion(lineNumber, js);
+  }
+
+  /** Gets a region around the indicated line number out of the given code of this file. */
+  Region getRegion(int lineNumber, String js) {
     int pos = 0;
     int startLine = Math.max(1,
         lineNumber - (SOURCE_EXCERPT_REGION_LENGTH + 1) / 2 + 1);
@@ -350,6 +414,21 @@ public class SourceFile implements StaticSourceFile, Serializable {
     final String absoluteZipPath = new File(zipName).getAbsolutePath();
     List<SourceFile> sourceFiles = new ArrayList<>();
 
+    // All the entries share one mapping of the archive, which is only read when their code is.
+    MappedZipFile archive = MappedZipFile.open(Paths.get(absoluteZipPath));
+    if (archive != null) {
+      for (MappedZipFile.Entry entry : archive.getEntries()) {
+        if (!entry.name.endsWith(".js")) { // Only accept js files
+          continue;
+        }
+        URL zipEntryUrl = new URL(JAR_URL_PREFIX + absoluteZipPath + BANG_SLASH + entry.name);
+        sourceFiles.add(
+            new InZip(
+                zipEntryUrl, zipName + BANG_SLASH + entry.name, inputCharset, archive, entry));
+      }
+      return sourceFiles;
+    }
+
     try (ZipFile zipFile = new ZipFile(absoluteZipPath)) {
       Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
 
@@ -585,6 +664,11 @@ public class SourceFile implements StaticSourceFile, Serializable {
       super.setCode(null);
     }
 
+    @Override
+    boolean canReadCodeAgain() {
+      return generator != null;
+    }
+
     @Override
     public void restoreFrom(SourceFile sourceFile) {
       super.restoreFrom(sourceFile);
@@ -642,6 +726,11 @@ public class SourceFile implements StaticSourceFile, Serializable {
       }
     }
 
+    @Override
+    public Path getLocalPath() {
+      return path;
+    }
+
     // Flush the cached code after the compile; we can read it off disk
     // if we need it again.
     @Override
@@ -649,6 +738,11 @@ public class SourceFile implements StaticSourceFile, Serializable {
       super.setCode(null);
     }
 
+    @Override
+    boolean canReadCodeAgain() {
+      return true;
+    }
+
     /**
      * Store the Charset specification as the string version of the name,
      * rather than the Charset itself.  This allows us to serialize the
@@ -757,6 +851,11 @@ public class SourceFile implements StaticSourceFile, Serializable {
       super.setCode(null);
     }
 
+    @Override
+    boolean canReadCodeAgain() {
+      return true;
+    }
+
     /**
      * Store the Charset specification as the string version of the name,
      * rather than the Charset itself.  This allows us to serialize the
@@ -785,6 +884,52 @@ public class SourceFile implements StaticSourceFile, Serializable {
     }
   }
 
+  /**
+   * A source file in a zip archive that is read from a shared mapping of the archive, rather than
+   * by opening the archive again through its URL. Once the archive changes on disk, or after the
+   * file is deserialized, the code is read from the URL like any other {@link AtUrl}.
+   */
+  @GwtIncompatible("java.nio.MappedByteBuffer")
+  static class InZip extends AtUrl {
+    private static final long serialVersionUID = 1L;
+    private transient MappedZipFile archive;
+    private transient MappedZipFile.Entry entry;
+
+    InZip(
+        URL url,
+        String originalPath,
+        Charset c,
+        MappedZipFile archive,
+        MappedZipFile.Entry entry) {
+      super(url, originalPath, c);
+      this.archive = archive;
+      this.entry = entry;
+    }
+
+    @Override
+    public synchronized String getCode() throws IOException {
+      if (hasSourceInMemory() || !isArchiveCurrent()) {
+        return super.getCode();
+      }
+      super.setCode(
+          archive.read(entry, getCharset()), Objects.equals(getCharset(), StandardCharsets.UTF_8));
+      // Byte Order Mark can be removed by setCode
+      return super.getCode();
+    }
+
+    @Override
+    public Reader getCodeReader() throws IOException {
+      if (hasSourceInMemory() || !isArchiveCurrent()) {
+        return super.getCodeReader();
+      }
+      return new StringReader(archive.read(entry, getCharset()));
+    }
+
+    private boolean isArchiveCurrent() {
+      return archive != null && !archive.isStale();
+    }
+  }
+
   public void restoreFrom(SourceFile sourceFile) {
     this.code = sourceFile.code;
   }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.collect.ImmutableSet;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a fixed set of files for changes, by watching the directories that contain them.
+ * Creating, modifying and deleting a watched file all count as a change to it.
+ */
+@GwtIncompatible("java.nio.file.WatchService")
+public final class SourceFileWatcher implements Closeable {
+  private final WatchService watchService;
+  private final Map<WatchKey, Path> directories = new HashMap<>();
+  private final Map<Path, String> namesByPath = new HashMap<>();
+
+  /** Starts watching the files with the given names, which are paths on the default file system. */
+  public SourceFileWatcher(Collection<String> fileNames) throws IOException {
+    this.watchService = FileSystems.getDefault().newWatchService();
+    Set<Path> registered = new HashSet<>();
+    for (String name : fileNames) {
+      Path path = Paths.get(name).toAbsolutePath().normalize();
+      namesByPath.put(path, name);
+      Path directory = path.getParent();
+      if (registered.add(directory)) {
+        directories.put(
+            directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), directory);
+      }
+    }
+  }
+
+  /**
+   * Blocks until at least one watched file changes, then keeps collecting changes until none has
+   * been seen for {@code quietPeriod}, so that a save that writes a file in several steps, or a
+   * checkout that touches many files, is reported once.
+   *
+   * @return the names of the changed files, as given to the constructor. If events were lost, all
+   *     watched files are returned.
+   */
+  public ImmutableSet<String> awaitChanges(long quietPeriod, TimeUnit unit)
+      throws InterruptedException {
+    Set<String> changed = new LinkedHashSet<>();
+    WatchKey key = watchService.take();
+    while (true) {
+      if (!collect(key, changed)) {
+        return ImmutableSet.copyOf(namesByPath.values());
+      }
+      key = watchService.poll(quietPeriod, unit);
+      if (key == null) {
+        if (!changed.isEmpty()) {
+          return ImmutableSet.copyOf(changed);
+        }
+        // Only unwatched files in the watched directories changed.
+        key = watchService.take();
+      }
+    }
+  }
+
+  /**
+   * Adds the watched files named by the events of {@code key} to {@code changed}, and resets the
+   * key. Returns false if events were lost.
+   */
+  private boolean collect(WatchKey key, Set<String> changed) {
+    Path directory = directories.get(key);
+    boolean complete = true;
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == OVERFLOW) {
+        complete = false;
+        continue;
+      }
+      String name = namesByPath.get(directory.resolve((Path) event.context()));
+      if (name != null) {
+        changed.add(name);
+      }
+    }
+    key.reset();
+    return complete;
+  }
+
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.deps;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.javascript.jscomp.Compiler;
+import com.google.javascript.jscomp.SourceFile;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+
+/**
+ * A cache of the dependency information of source files, kept in a file between runs of the
+ * {@link DepsGenerator}, so that only the sources that changed since the last run are scanned.
+ *
+ * <p>For each source, the cache keeps both its own dependency information and the dependencies
+ * declared by the goog.addDependency calls in it. Sources read from a local file are keyed by their
+ * name, modification time and size, so they are not even read when they did not change. Other
+ * sources are keyed by a digest of their contents. The module names of ES6 modules depend on the
+ * module roots of the {@link ModuleLoader}, so a cache should only be used by runs with the same
+ * module roots.
+ *
+ * <p>{@link #save} only keeps the entries that were used or added since the cache was loaded, so
+ * entries of deleted or changed files don't pile up.
+ */
+public final class DependencyInfoCache {
+  private static final Logger logger = Logger.getLogger(DependencyInfoCache.class.getName());
+
+  /** Change this whenever the layout of the cache file changes. */
+  private static final int FORMAT_VERSION = 2;
+
+  private final Path file;
+  private final Map<String, Entry> loaded;
+  private final Map<String, Entry> used = new ConcurrentHashMap<>();
+
+  /** What scanning one source found. */
+  static final class Entry implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    final SimpleDependencyInfo info;
+    // The dependencies declared by goog.addDependency calls in the source.
+    final ImmutableList<SimpleDependencyInfo> declaredDependencies;
+
+    Entry(SimpleDependencyInfo info, ImmutableList<SimpleDependencyInfo> declaredDependencies) {
+      this.info = info;
+      this.declaredDependencies = declaredDependencies;
+    }
+  }
+
+  /** Loads the cache from the given file, if it exists. */
+  public DependencyInfoCache(Path file) {
+    this.file = file;
+    this.loaded = load(file);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Entry> load(Path file) {
+    if (!Files.exists(file)) {
+      return new HashMap<>();
+    }
+    try (ObjectInputStream in =
+        new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      // Entries written by another version of the compiler may have been scanned differently.
+      if (in.readInt() != FORMAT_VERSION || !in.readUTF().equals(compilerVersion())) {
+        return new HashMap<>();
+      }
+      return (Map<String, Entry>) in.readObject();
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      logger.log(Level.WARNING, "Ignoring unreadable dependency cache " + file, e);
+      return new HashMap<>();
+    }
+  }
+
+  /**
+   * Returns the key of the given source, which changes whenever its dependency information may
+   * have changed.
+   */
+  String keyFor(SourceFile source, String closureRelativePath) throws IOException {
+    Hasher hasher =
+        Hashing.sha256()
+            .newHasher()
+            .putString(source.getName(), UTF_8)
+            .putString(closureRelativePath, UTF_8);
+    Path path = source.getLocalPath();
+    if (path != null) {
+      BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+      hasher.putLong(attributes.lastModifiedTime().toMillis()).putLong(attributes.size());
+    } else {
+      hasher.putString(source.getCode(), UTF_8);
+    }
+    return hasher.hash().toString();
+  }
+
+  /** Returns the cached scan of the source with the given key, or null if there is none. */
+  @Nullable
+  Entry get(String key) {
+    Entry entry = used.get(key);
+    if (entry == null) {
+      entry = loaded.get(key);
+      if (entry != null) {
+        used.put(key, entry);
+      }
+    }
+    return entry;
+  }
+
+  void put(String key, DependencyInfo info, List<DependencyInfo> declaredDependencies) {
+    ImmutableList.Builder<SimpleDependencyInfo> declared = ImmutableList.builder();
+    for (DependencyInfo dependency : declaredDependencies) {
+      declared.add(toSimple(dependency));
+    }
+    used.put(key, new Entry(toSimple(info), declared.build()));
+  }
+
+  private static SimpleDependencyInfo toSimple(DependencyInfo info) {
+    return info instanceof SimpleDependencyInfo
+        ? (SimpleDependencyInfo) info
+        : new SimpleDependencyInfo(
+            info.getPathRelativeToClosureBase(),
+            info.getName(),
+            info.getProvides(),
+            info.getRequires(),
+            info.getLoadFlags());
+  }
+
+  /**
+   * Writes the entries that were used or added since the cache was loaded to the cache file.
+   * Failures are logged and otherwise ignored, since the cache is only an optimization.
+   */
+  public void save() {
+    Path tempFile = null;
+    try {
+      Path directory = file.toAbsolutePath().getParent();
+      Files.createDirectories(directory);
+      tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+      try (ObjectOutputStream out =
+          new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(compilerVersion());
+        out.writeObject(new HashMap<>(used));
+      }
+      Files.move(
+          tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      tempFile = null;
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Could not write dependency cache " + file, e);
+    } finally {
+      if (tempFile != null) {
+        try {
+          Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+          logger.log(Level.FINE, "Could not delete " + tempFile, e);
+        }
+      }
+    }
+  }
+
+  private static String compilerVersion() {
+    return Compiler.getReleaseVersion() + " " + Compiler.getReleaseDate();
+  }
+}
@@ -16,12 +16,15 @@
 
 package com.google.javascript.jscomp.deps;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.throwIfUnchecked;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
+import com.google.javascript.jscomp.BasicErrorManager;
 import com.google.javascript.jscomp.CheckLevel;
 import com.google.javascript.jscomp.Compiler;
 import com.google.javascript.jscomp.CompilerOptions;
@@ -42,8 +45,15 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
 
 /**
  * Generates deps.js files by scanning JavaScript files for
@@ -61,6 +71,9 @@ public class DepsGenerator {
 
   private static final Logger logger = Logger.getLogger(DepsGenerator.class.getName());
 
+  // Parsing a deeply nested file needs a large stack.
+  private static final long SCANNER_STACK_SIZE = 1 << 25;
+
   // See the Flags in MakeJsDeps for descriptions of these.
   private final Collection<SourceFile> srcs;
   private final Collection<SourceFile> deps;
@@ -68,6 +81,8 @@ public class DepsGenerator {
   private final InclusionStrategy mergeStrategy;
   private final ModuleLoader loader;
   final ErrorManager errorManager;
+  private int numParallelThreads = Runtime.getRuntime().availableProcessors();
+  @Nullable private DependencyInfoCache cache;
 
   static final DiagnosticType SAME_FILE_WARNING = DiagnosticType.warning(
       "DEPS_SAME_FILE",
@@ -111,6 +126,30 @@ public class DepsGenerator {
     this.loader = loader;
   }
 
+  /**
+   * Sets the number of threads that scan the sources. Defaults to the number
+   * of processors.
+   *
+   * @return this for easy chaining.
+   */
+  public DepsGenerator setNumParallelThreads(int numParallelThreads) {
+    checkArgument(numParallelThreads > 0);
+    this.numParallelThreads = numParallelThreads;
+    return this;
+  }
+
+  /**
+   * Sets a cache of the dependency information of the sources, so that only
+   * the sources that changed since it was saved are scanned. The cache is
+   * saved once the sources that are written out are parsed.
+   *
+   * @return this for easy chaining.
+   */
+  public DepsGenerator setDependencyInfoCache(@Nullable DependencyInfoCache cache) {
+    this.cache = cache;
+    return this;
+  }
+
   /**
    * Performs the parsing inputs and writing of outputs.
    * @throws IOException Occurs upon an IO error.
@@ -120,17 +159,19 @@ public class DepsGenerator {
   public String computeDependencyCalls() throws IOException {
     // Build a map of closure-relative path -> DepInfo.
     Map<String, DependencyInfo> depsFiles = parseDepsFiles();
-    if (logger.isLoggable(Level.FINE)) {
-      logger.fine("preparsedFiles: " + depsFiles);
-    }
-    // Find all goog.provides & goog.requires in src files
-    Map<String, DependencyInfo> jsFiles = parseSources(depsFiles.keySet());
+    // Find all goog.provides & goog.requires in src files, and their
+    // goog.addDependency calls, which also go into depsFiles.
+    List<ScannedSource> sources = scanSources();
+    List<ScannedSource> includedSources = addScannedSources(sources, depsFiles);
 
     // Check if there were any parse errors.
     if (errorManager.getErrorCount() > 0) {
       return null;
     }
 
+    // Only the sources that are written out are parsed for their load flags.
+    Map<String, DependencyInfo> jsFiles = addLoadFlags(includedSources);
+
     cleanUpDuplicatedFiles(depsFiles, jsFiles);
 
     // Check for missing provides or other semantic inconsistencies.
@@ -263,6 +304,10 @@ public class DepsGenerator {
   }
 
   protected DepsFileParser createDepsFileParser() {
+    return createDepsFileParser(errorManager);
+  }
+
+  private static DepsFileParser createDepsFileParser(ErrorManager errorManager) {
     DepsFileParser depsParser = new DepsFileParser(errorManager);
     depsParser.setShortcutMode(true);
     return depsParser;
@@ -297,60 +342,283 @@ public class DepsGenerator {
       }
     }
 
+    return depsFiles;
+  }
+
+  /**
+   * Scans all source files for their dependency information and for
+   * goog.addDependency calls, or looks them up in the cache. The files are
+   * scanned in parallel.
+   */
+  private List<ScannedSource> scanSources() throws IOException {
+    List<Callable<ScannedSource>> tasks = new ArrayList<>();
+    for (final SourceFile file : srcs) {
+      final String closureRelativePath =
+          PathUtil.makeRelative(
+              closurePathAbs, PathUtil.makeAbsolute(file.getName()));
+      if (logger.isLoggable(Level.FINE)) {
+        logger.fine("Closure-relative path: " + closureRelativePath);
+      }
+      final boolean parseAddDependencies = !shouldSkipDepsFile(file);
+      tasks.add(new Callable<ScannedSource>() {
+        @Override
+        public ScannedSource call() throws IOException {
+          return scanSource(file, closureRelativePath, parseAddDependencies);
+        }
+      });
+    }
+    return runAll(tasks);
+  }
+
+  /**
+   * Adds the goog.addDependency calls of the scanned sources to depsFiles,
+   * and reports their diagnostics in order.
+   * @param depsFiles A map of closure-relative paths -> DependencyInfo of the
+   *     preparsed files. Sources in this map are skipped, unless all sources
+   *     are included.
+   * @return Returns the sources that are written out, in order.
+   */
+  private List<ScannedSource> addScannedSources(
+      List<ScannedSource> sources, Map<String, DependencyInfo> depsFiles) {
     // If a deps file also appears in srcs, our build tools will move it
     // into srcs.  So we need to scan all the src files for addDependency
     // calls as well.
-    for (SourceFile src : srcs) {
-      if (!shouldSkipDepsFile(src)) {
-        List<DependencyInfo> srcInfos =
-            depsParser.parseFileReader(src.getName(), src.getCodeReader());
-        for (DependencyInfo info : srcInfos) {
-          depsFiles.put(info.getPathRelativeToClosureBase(), info);
-        }
+    for (ScannedSource source : sources) {
+      if (source.depsDiagnostics != null) {
+        source.depsDiagnostics.reportTo(errorManager);
+      }
+      for (DependencyInfo info : source.declaredDependencies) {
+        depsFiles.put(info.getPathRelativeToClosureBase(), info);
       }
     }
+    if (logger.isLoggable(Level.FINE)) {
+      logger.fine("preparsedFiles: " + depsFiles);
+    }
 
-    return depsFiles;
+    List<ScannedSource> includedSources = new ArrayList<>();
+    for (ScannedSource source : sources) {
+      if (InclusionStrategy.WHEN_IN_SRCS == mergeStrategy
+          || !depsFiles.containsKey(source.closureRelativePath)) {
+        if (source.diagnostics != null) {
+          source.diagnostics.reportTo(errorManager);
+        }
+        includedSources.add(source);
+      }
+    }
+    return includedSources;
   }
 
   /**
-   * Parses all source files for dependency information.
-   * @param preparsedFiles A set of closure-relative paths.
-   *     Files in this set are not parsed if they are encountered in srcs.
+   * Parses the given sources for their load flags, unless their scan came
+   * from the cache, and caches the complete scans. The files are parsed in
+   * parallel, with one compiler per thread.
    * @return Returns a map of closure-relative paths -> DependencyInfo for the
-   *     newly parsed files.
-   * @throws IOException Occurs upon an IO error.
+   *     given sources.
    */
-  private Map<String, DependencyInfo> parseSources(
-      Set<String> preparsedFiles) throws IOException {
+  private Map<String, DependencyInfo> addLoadFlags(List<ScannedSource> sources)
+      throws IOException {
+    final ThreadLocal<Compiler> compilers =
+        new ThreadLocal<Compiler>() {
+          @Override
+          protected Compiler initialValue() {
+            Compiler compiler = new Compiler();
+            compiler.init(
+                ImmutableList.<SourceFile>of(),
+                ImmutableList.<SourceFile>of(),
+                new CompilerOptions());
+            return compiler;
+          }
+        };
+    List<Callable<DependencyInfo>> tasks = new ArrayList<>();
+    for (final ScannedSource source : sources) {
+      tasks.add(new Callable<DependencyInfo>() {
+        @Override
+        public DependencyInfo call() {
+          return source.hasLoadFlags ? source.info : parseLoadFlags(source, compilers.get());
+        }
+      });
+    }
+
     Map<String, DependencyInfo> parsedFiles = new LinkedHashMap<>();
-    JsFileParser jsParser = new JsFileParser(errorManager).setModuleLoader(loader);
-    Compiler compiler = new Compiler();
-    compiler.init(
-        ImmutableList.<SourceFile>of(), ImmutableList.<SourceFile>of(), new CompilerOptions());
+    List<DependencyInfo> infos = runAll(tasks);
+    for (int i = 0; i < sources.size(); i++) {
+      parsedFiles.put(sources.get(i).closureRelativePath, infos.get(i));
+    }
+    if (cache != null) {
+      cache.save();
+    }
+    return parsedFiles;
+  }
 
-    for (SourceFile file : srcs) {
-      String closureRelativePath =
-          PathUtil.makeRelative(
-              closurePathAbs, PathUtil.makeAbsolute(file.getName()));
-      if (logger.isLoggable(Level.FINE)) {
-        logger.fine("Closure-relative path: " + closureRelativePath);
+  /**
+   * Parses one source file for its load flags. This runs on the threads of
+   * {@link #runAll}.
+   */
+  private DependencyInfo parseLoadFlags(ScannedSource source, Compiler compiler) {
+    DependencyInfo depInfo =
+        new LazyParsedDependencyInfo(source.info, new JsAst(source.file), compiler);
+    depInfo = new SimpleDependencyInfo(
+        source.closureRelativePath, source.file.getName(),
+        depInfo.getProvides(), depInfo.getRequires(), depInfo.getLoadFlags());
+
+    // Kick the source out of memory.
+    source.file.clearCachedSource();
+    if (source.cacheKey != null) {
+      cache.put(source.cacheKey, depInfo, source.declaredDependencies);
+    }
+    return depInfo;
+  }
+
+  /**
+   * Scans one source file, or looks it up in the cache. The load flags that
+   * need a parse of the file are left for {@link #parseLoadFlags}. This runs
+   * on the threads of {@link #runAll}.
+   */
+  private ScannedSource scanSource(
+      SourceFile file, String closureRelativePath, boolean parseAddDependencies)
+      throws IOException {
+    String key = null;
+    if (cache != null) {
+      key = cache.keyFor(file, closureRelativePath);
+      DependencyInfoCache.Entry cached = cache.get(key);
+      if (cached != null) {
+        return new ScannedSource(
+            closureRelativePath,
+            file,
+            cached.info,
+            true,
+            ImmutableList.<DependencyInfo>copyOf(
+                parseAddDependencies
+                    ? cached.declaredDependencies
+                    : ImmutableList.<DependencyInfo>of()),
+            null,
+            null,
+            null);
       }
-      if (InclusionStrategy.WHEN_IN_SRCS == mergeStrategy ||
-          !preparsedFiles.contains(closureRelativePath)) {
-        DependencyInfo depInfo =
-            jsParser.parseFile(
-                file.getName(), closureRelativePath,
-                file.getCode());
-        depInfo = new LazyParsedDependencyInfo(depInfo, new JsAst(file), compiler);
-
-        // Kick the source out of memory.
-        file.clearCachedSource();
-        parsedFiles.put(closureRelativePath, depInfo);
+    }
+
+    String code = file.getCode();
+    DiagnosticCollector depsDiagnostics = new DiagnosticCollector();
+    List<DependencyInfo> declaredDependencies =
+        parseAddDependencies
+            ? createDepsFileParser(depsDiagnostics).parseFile(file.getName(), code)
+            : ImmutableList.<DependencyInfo>of();
+
+    DiagnosticCollector diagnostics = new DiagnosticCollector();
+    DependencyInfo depInfo =
+        new JsFileParser(diagnostics).setModuleLoader(loader).parseFile(
+            file.getName(), closureRelativePath, code);
+
+    // Kick the source out of memory.
+    file.clearCachedSource();
+    // The scan is cached once the load flags are known, so files that are
+    // not written out are not cached. Files with diagnostics are scanned
+    // again, so they are reported again. Files whose goog.addDependency calls
+    // were skipped are not cached either, since the cache always has them.
+    boolean cacheable = cache != null && parseAddDependencies
+        && depsDiagnostics.isEmpty() && diagnostics.isEmpty();
+    return new ScannedSource(
+        closureRelativePath,
+        file,
+        depInfo,
+        false,
+        declaredDependencies,
+        depsDiagnostics,
+        diagnostics,
+        cacheable ? key : null);
+  }
+
+  /**
+   * Runs the given tasks on {@link #numParallelThreads} threads and returns
+   * their results in the order of the tasks.
+   */
+  private <T> List<T> runAll(List<Callable<T>> tasks) throws IOException {
+    ExecutorService executor = Executors.newFixedThreadPool(
+        Math.max(1, Math.min(numParallelThreads, tasks.size())),
+        new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread t = new Thread(null, r, "jscompiler-DepsGenerator", SCANNER_STACK_SIZE);
+            t.setDaemon(true);  // Do not prevent the JVM from exiting.
+            return t;
+          }
+        });
+    try {
+      List<T> results = new ArrayList<>(tasks.size());
+      for (Future<T> future : executor.invokeAll(tasks)) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
       }
+      throwIfUnchecked(e.getCause());
+      throw new RuntimeException(e.getCause());
+    } finally {
+      executor.shutdownNow();
     }
+  }
 
-    return parsedFiles;
+  /** The dependency information of one source file. */
+  private static final class ScannedSource {
+    final String closureRelativePath;
+    final SourceFile file;
+    final DependencyInfo info;
+    // Whether info has the load flags that need a parse of the file.
+    final boolean hasLoadFlags;
+    // The dependencies declared by goog.addDependency calls in the file.
+    final List<DependencyInfo> declaredDependencies;
+    // Null if the information came from the cache.
+    @Nullable final DiagnosticCollector depsDiagnostics;
+    @Nullable final DiagnosticCollector diagnostics;
+    // The key under which to cache the scan once it has its load flags, or
+    // null if it should not be cached.
+    @Nullable final String cacheKey;
+
+    ScannedSource(
+        String closureRelativePath,
+        SourceFile file,
+        DependencyInfo info,
+        boolean hasLoadFlags,
+        List<DependencyInfo> declaredDependencies,
+        @Nullable DiagnosticCollector depsDiagnostics,
+        @Nullable DiagnosticCollector diagnostics,
+        @Nullable String cacheKey) {
+      this.closureRelativePath = closureRelativePath;
+      this.file = file;
+      this.info = info;
+      this.hasLoadFlags = hasLoadFlags;
+      this.declaredDependencies = declaredDependencies;
+      this.depsDiagnostics = depsDiagnostics;
+      this.diagnostics = diagnostics;
+      this.cacheKey = cacheKey;
+    }
+  }
+
+  /** Collects the diagnostics of scanning one file, without printing them. */
+  private static final class DiagnosticCollector extends BasicErrorManager {
+    @Override
+    public void println(CheckLevel level, JSError error) {}
+
+    @Override
+    protected void printSummary() {}
+
+    boolean isEmpty() {
+      return getErrorCount() == 0 && getWarningCount() == 0;
+    }
+
+    void reportTo(ErrorManager errorManager) {
+      for (JSError error : getErrors()) {
+        errorManager.report(CheckLevel.ERROR, error);
+      }
+      for (JSError warning : getWarnings()) {
+        errorManager.report(CheckLevel.WARNING, warning);
+      }
+    }
   }
 
   /**
@@ -0,0 +1,328 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.graph;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An undirected graph that stores its edges in an adjacency bit matrix, one
+ * {@link BitSet} row per node. Rows only grow up to the highest numbered
+ * neighbor of their node, so sparse graphs stay small while dense graphs,
+ * like the interference graphs built for graph coloring, need one bit per
+ * node pair instead of an object per edge.
+ *
+ * <p>Edges carry no value and two nodes are connected by at most one edge.
+ * Edge objects are only created when they are asked for, so their annotations
+ * are kept by the graph, in a map that is only created once an edge is
+ * annotated. The {@link SubGraph}s of this graph test independence with a
+ * word-parallel intersection of bit sets.
+ *
+ * <p>As in {@link LinkedUndirectedGraph}, an edge from a node to itself
+ * counts twice in the degree of the node, so both graphs give the same
+ * weights to {@link GraphColoring}.
+ *
+ * @param <N> Value type that the graph node stores.
+ */
+public final class BitMatrixUndirectedGraph<N> extends UndiGraph<N, Void> {
+  private final Map<N, BitMatrixGraphNode<N>> nodes = new LinkedHashMap<>();
+  private final List<BitMatrixGraphNode<N>> nodesByIndex = new ArrayList<>();
+  // The annotations of the edges, keyed by the indices of their nodes. Null
+  // until an edge is annotated.
+  private Map<Long, Annotation> edgeAnnotations;
+
+  public static <N> BitMatrixUndirectedGraph<N> create() {
+    return new BitMatrixUndirectedGraph<>();
+  }
+
+  private BitMatrixUndirectedGraph() {}
+
+  @Override
+  public SubGraph<N, Void> newSubGraph() {
+    return new BitMatrixSubGraph();
+  }
+
+  @Override
+  public void connect(N srcValue, Void edgeValue, N destValue) {
+    BitMatrixGraphNode<N> src = getBitMatrixNode(srcValue);
+    BitMatrixGraphNode<N> dest = getBitMatrixNode(destValue);
+    if (!src.neighbors.get(dest.index)) {
+      src.neighbors.set(dest.index);
+      dest.neighbors.set(src.index);
+      src.degree++;
+      dest.degree++;
+    }
+  }
+
+  @Override
+  public void disconnect(N srcValue, N destValue) {
+    BitMatrixGraphNode<N> src = getBitMatrixNode(srcValue);
+    BitMatrixGraphNode<N> dest = getBitMatrixNode(destValue);
+    if (src.neighbors.get(dest.index)) {
+      src.neighbors.clear(dest.index);
+      dest.neighbors.clear(src.index);
+      src.degree--;
+      dest.degree--;
+      if (edgeAnnotations != null) {
+        edgeAnnotations.remove(edgeKey(src, dest));
+      }
+    }
+  }
+
+  /** The key of the edge between the given nodes in {@link #edgeAnnotations}. */
+  private static long edgeKey(BitMatrixGraphNode<?> nodeA, BitMatrixGraphNode<?> nodeB) {
+    int low = Math.min(nodeA.index, nodeB.index);
+    int high = Math.max(nodeA.index, nodeB.index);
+    return ((long) low << 32) | high;
+  }
+
+  private BitMatrixGraphNode<N> getBitMatrixNode(N value) {
+    return getNodeOrFail(value);
+  }
+
+  @Override
+  UndiGraphNode<N, Void> createUndirectedGraphNode(N nodeValue) {
+    BitMatrixGraphNode<N> node = nodes.get(nodeValue);
+    if (node == null) {
+      node = new BitMatrixGraphNode<>(this, nodeValue, nodesByIndex.size());
+      nodes.put(nodeValue, node);
+      nodesByIndex.add(node);
+    }
+    return node;
+  }
+
+  @Override
+  public GraphNode<N, Void> createNode(N value) {
+    return createUndirectedGraphNode(value);
+  }
+
+  @Override
+  public UndiGraphNode<N, Void> getUndirectedGraphNode(N nodeValue) {
+    return nodes.get(nodeValue);
+  }
+
+  @Override
+  public GraphNode<N, Void> getNode(N value) {
+    return nodes.get(value);
+  }
+
+  @Override
+  Collection<UndiGraphNode<N, Void>> getUndirectedGraphNodes() {
+    return Collections.<UndiGraphNode<N, Void>>unmodifiableCollection(nodes.values());
+  }
+
+  @Override
+  public Collection<GraphNode<N, Void>> getNodes() {
+    return Collections.<GraphNode<N, Void>>unmodifiableCollection(nodes.values());
+  }
+
+  @Override
+  public List<GraphNode<N, Void>> getNeighborNodes(N value) {
+    BitMatrixGraphNode<N> node = getBitMatrixNode(value);
+    List<GraphNode<N, Void>> result = new ArrayList<>(node.degree);
+    for (int i = node.neighbors.nextSetBit(0); i >= 0; i = node.neighbors.nextSetBit(i + 1)) {
+      result.add(nodesByIndex.get(i));
+    }
+    return result;
+  }
+
+  @Override
+  public int getNodeDegree(N value) {
+    return getBitMatrixNode(value).degree;
+  }
+
+  @Override
+  public boolean isConnected(N n1, N n2) {
+    BitMatrixGraphNode<N> node1 = nodes.get(n1);
+    BitMatrixGraphNode<N> node2 = nodes.get(n2);
+    return node1 != null && node2 != null && node1.neighbors.get(node2.index);
+  }
+
+  @Override
+  public boolean isConnected(N n1, Void e, N n2) {
+    return isConnected(n1, n2);
+  }
+
+  @Override
+  List<UndiGraphEdge<N, Void>> getUndirectedGraphEdges(N n1, N n2) {
+    BitMatrixGraphNode<N> node1 = nodes.get(n1);
+    BitMatrixGraphNode<N> node2 = nodes.get(n2);
+    if (node1 == null || node2 == null) {
+      return new ArrayList<>(0);
+    }
+    List<UndiGraphEdge<N, Void>> edges = new ArrayList<>(1);
+    if (node1.neighbors.get(node2.index)) {
+      edges.add(new BitMatrixGraphEdge<>(node1, node2));
+    }
+    return edges;
+  }
+
+  @Override
+  public List<GraphEdge<N, Void>> getEdges(N n1, N n2) {
+    return Collections.<GraphEdge<N, Void>>unmodifiableList(getUndirectedGraphEdges(n1, n2));
+  }
+
+  @Override
+  public GraphEdge<N, Void> getFirstEdge(N n1, N n2) {
+    BitMatrixGraphNode<N> node1 = getBitMatrixNode(n1);
+    BitMatrixGraphNode<N> node2 = getBitMatrixNode(n2);
+    return node1.neighbors.get(node2.index) ? new BitMatrixGraphEdge<>(node1, node2) : null;
+  }
+
+  @Override
+  public List<GraphEdge<N, Void>> getEdges() {
+    List<GraphEdge<N, Void>> result = new ArrayList<>();
+    for (BitMatrixGraphNode<N> node : nodesByIndex) {
+      // Each edge is listed once, from its lower numbered node.
+      for (int i = node.neighbors.nextSetBit(node.index);
+          i >= 0;
+          i = node.neighbors.nextSetBit(i + 1)) {
+        result.add(new BitMatrixGraphEdge<>(node, nodesByIndex.get(i)));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * A {@link SubGraph} that keeps its nodes in a bit set, so that a node is
+   * independent of it if its row of the matrix doesn't intersect that set.
+   */
+  private final class BitMatrixSubGraph implements SubGraph<N, Void> {
+    private final BitSet members = new BitSet(nodesByIndex.size());
+
+    @Override
+    public boolean isIndependentOf(N value) {
+      return !getBitMatrixNode(value).neighbors.intersects(members);
+    }
+
+    @Override
+    public void addNode(N value) {
+      members.set(getBitMatrixNode(value).index);
+    }
+  }
+
+  /** A node of the graph, with its row of the adjacency matrix. */
+  static final class BitMatrixGraphNode<N> implements UndiGraphNode<N, Void> {
+    private final BitMatrixUndirectedGraph<N> graph;
+    private final N value;
+    private final int index;
+    private final BitSet neighbors = new BitSet();
+    private int degree;
+    private Annotation annotation;
+
+    BitMatrixGraphNode(BitMatrixUndirectedGraph<N> graph, N value, int index) {
+      this.graph = graph;
+      this.value = value;
+      this.index = index;
+    }
+
+    @Override
+    public N getValue() {
+      return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <A extends Annotation> A getAnnotation() {
+      return (A) annotation;
+    }
+
+    @Override
+    public void setAnnotation(Annotation data) {
+      annotation = data;
+    }
+
+    @Override
+    public List<UndiGraphEdge<N, Void>> getNeighborEdges() {
+      List<UndiGraphEdge<N, Void>> edges = new ArrayList<>(degree);
+      for (int i = neighbors.nextSetBit(0); i >= 0; i = neighbors.nextSetBit(i + 1)) {
+        edges.add(new BitMatrixGraphEdge<>(this, graph.nodesByIndex.get(i)));
+      }
+      return Collections.unmodifiableList(edges);
+    }
+
+    @Override
+    public Iterator<UndiGraphEdge<N, Void>> getNeighborEdgesIterator() {
+      return getNeighborEdges().iterator();
+    }
+
+    @Override
+    public String toString() {
+      return String.valueOf(value);
+    }
+  }
+
+  /** An edge of the graph, created on demand from the adjacency matrix. */
+  static final class BitMatrixGraphEdge<N> implements UndiGraphEdge<N, Void> {
+    private final BitMatrixGraphNode<N> nodeA;
+    private final BitMatrixGraphNode<N> nodeB;
+
+    BitMatrixGraphEdge(BitMatrixGraphNode<N> nodeA, BitMatrixGraphNode<N> nodeB) {
+      this.nodeA = nodeA;
+      this.nodeB = nodeB;
+    }
+
+    @Override
+    public Void getValue() {
+      return null;
+    }
+
+    @Override
+    public GraphNode<N, Void> getNodeA() {
+      return nodeA;
+    }
+
+    @Override
+    public GraphNode<N, Void> getNodeB() {
+      return nodeB;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <A extends Annotation> A getAnnotation() {
+      Map<Long, Annotation> annotations = nodeA.graph.edgeAnnotations;
+      return annotations == null ? null : (A) annotations.get(edgeKey(nodeA, nodeB));
+    }
+
+    @Override
+    public void setAnnotation(Annotation data) {
+      BitMatrixUndirectedGraph<N> graph = nodeA.graph;
+      if (data == null) {
+        if (graph.edgeAnnotations != null) {
+          graph.edgeAnnotations.remove(edgeKey(nodeA, nodeB));
+        }
+        return;
+      }
+      if (graph.edgeAnnotations == null) {
+        graph.edgeAnnotations = new HashMap<>();
+      }
+      graph.edgeAnnotations.put(edgeKey(nodeA, nodeB), data);
+    }
+
+    @Override
+    public String toString() {
+      return nodeA + " -- " + nodeB;
+    }
+  }
+}
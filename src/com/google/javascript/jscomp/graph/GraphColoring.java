@@ -21,7 +21,6 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -139,22 +138,26 @@ public abstract class GraphColoring<N, E> {
         }
       });
 
-      // Idea: From the highest to lowest degree, assign any uncolored node with
-      // a unique color if none of its neighbors has been assigned that color.
-      int count = 0;
-      do {
-        Color color = new Color(count);
-        SubGraph<N, E> subgraph = graph.newSubGraph();
-        for (Iterator<GraphNode<N, E>> i = worklist.iterator(); i.hasNext();) {
-          GraphNode<N, E> node = i.next();
-          if (subgraph.isIndependentOf(node.getValue())) {
-            subgraph.addNode(node.getValue());
-            node.setAnnotation(color);
-            i.remove();
-          }
+      // Idea: From the highest to lowest degree, assign each node the first
+      // color that none of its neighbors has been assigned yet. This gives the
+      // same coloring as filling one color after the other with all the nodes
+      // that fit into it, but looks at each node once.
+      List<SubGraph<N, E>> subgraphs = new ArrayList<>();
+      List<Color> colors = new ArrayList<>();
+      for (GraphNode<N, E> node : worklist) {
+        int color = 0;
+        while (color < subgraphs.size()
+            && !subgraphs.get(color).isIndependentOf(node.getValue())) {
+          color++;
         }
-        count++;
-      } while (!worklist.isEmpty());
+        if (color == subgraphs.size()) {
+          subgraphs.add(graph.newSubGraph());
+          colors.add(new Color(color));
+        }
+        subgraphs.get(color).addNode(node.getValue());
+        node.setAnnotation(colors.get(color));
+      }
+      int count = subgraphs.size();
       @SuppressWarnings("unchecked")
       N[] map = (N[]) new Object[count];
       colorToNodeMap = map;
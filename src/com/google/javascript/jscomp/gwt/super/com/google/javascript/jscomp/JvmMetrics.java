@@ -22,4 +22,19 @@ import java.io.PrintStream;
 class JvmMetrics {
   public static void maybeWriteJvmMetrics(PrintStream out, String options) {
   }
+
+  static long getCurrentThreadCpuTime() {
+    return -1;
+  }
+
+  static long getCurrentThreadAllocatedBytes() {
+    return -1;
+  }
+
+  static long getPeakHeapUsage() {
+    return -1;
+  }
+
+  static void resetPeakHeapUsage() {
+  }
 }
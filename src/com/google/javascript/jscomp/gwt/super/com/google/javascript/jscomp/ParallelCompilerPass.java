@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.javascript.rhino.Node;
+
+/** GWT compatible version of {@code ParallelCompilerPass}, which runs the pass serially. */
+class ParallelCompilerPass implements CompilerPass {
+  private final AbstractCompiler compiler;
+  private final PassFactory factory;
+
+  ParallelCompilerPass(AbstractCompiler compiler, PassFactory factory) {
+    this.compiler = compiler;
+    this.factory = factory;
+  }
+
+  @Override
+  public void process(Node externs, Node root) {
+    factory.create(compiler).process(externs, root);
+  }
+}
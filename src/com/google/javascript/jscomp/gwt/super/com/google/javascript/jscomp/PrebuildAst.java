@@ -16,14 +16,31 @@
 
 package com.google.javascript.jscomp;
 
+import com.google.javascript.rhino.Node;
 import java.util.List;
 
-/** Gwt-compatible no-op version for {@code PrebuildAst}. */
+/** Gwt-compatible version for {@code PrebuildAst}, which builds the ASTs one after another. */
 // TODO(moz): Implement this using GWT's emulation of ListenableFuture and friends
 class PrebuildAst {
+  /** Work on the AST of an input, done right after it is built. */
+  interface AstCallback {
+    void visit(CompilerInput input, Node root);
+  }
+
+  private final AbstractCompiler compiler;
 
-  PrebuildAst(AbstractCompiler compiler, int numParalleThreads) {
+  PrebuildAst(AbstractCompiler compiler, ParallelTasks parallelTasks) {
+    this.compiler = compiler;
   }
 
   void prebuild(List<CompilerInput> inputList) {}
+
+  void prebuild(List<CompilerInput> inputList, AstCallback callback) {
+    for (CompilerInput input : inputList) {
+      Node root = input.getAstRoot(compiler);
+      if (callback != null && root != null) {
+        callback.visit(input, root);
+      }
+    }
+  }
 }
@@ -16,8 +16,10 @@
 
 package com.google.javascript.jscomp.parsing;
 
+import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedSet;
 import com.google.javascript.jscomp.parsing.parser.FeatureSet;
 import java.util.Set;
 
@@ -89,10 +91,17 @@ public final class Config {
   public enum JsDocParsing {
     TYPES_ONLY,
     INCLUDE_DESCRIPTIONS_NO_WHITESPACE,
-    INCLUDE_DESCRIPTIONS_WITH_WHITESPACE;
+    INCLUDE_DESCRIPTIONS_WITH_WHITESPACE,
+    /**
+     * Like {@link #TYPES_ONLY}, but most comments are only parsed when their JSDoc is first
+     * asked for, and problems in them are only reported then. For builds that read few
+     * annotations.
+     */
+    LAZY_TYPES_ONLY;
 
     boolean shouldParseDescriptions() {
-      return this != TYPES_ONLY;
+      return this == INCLUDE_DESCRIPTIONS_NO_WHITESPACE
+          || this == INCLUDE_DESCRIPTIONS_WITH_WHITESPACE;
     }
   }
   final JsDocParsing parseJsDocDocumentation;
@@ -161,6 +170,21 @@ public final class Config {
     this.strictMode = strictMode;
   }
 
+  /**
+   * Returns a string that identifies the parser behavior selected by this config and that is
+   * stable across compiler invocations, so that it can be used as part of a cache key.
+   */
+  public String fingerprint() {
+    return Joiner.on('|').join(
+        languageMode,
+        strictMode,
+        parseJsDocDocumentation,
+        keepGoing,
+        parseInlineSourceMaps,
+        ImmutableSortedSet.copyOf(annotationNames.keySet()),
+        ImmutableSortedSet.copyOf(suppressionNames));
+  }
+
   /**
    * Create the annotation names from the user-specified
    * annotation whitelist.
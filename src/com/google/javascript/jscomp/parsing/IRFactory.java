@@ -695,7 +695,7 @@ class IRFactory {
       parsedComments.add(comment);
       if (!handlePossibleFileOverviewJsDoc(jsDocParser)) {
         return recordJsDoc(comment.location,
-            jsDocParser.retrieveAndResetParsedJSDocInfo());
+            jsDocParser.retrieveAndResetSharedJSDocInfo());
       }
     }
     return null;
@@ -765,16 +765,45 @@ class IRFactory {
   }
 
   Node transform(ParseTree tree) {
-    JSDocInfo info = handleJsDoc(tree);
+    JSDocInfo info = null;
+    LazyJsDoc lazyInfo = null;
+    if (shouldAttachJSDocHere(tree)) {
+      Comment comment = getJsDoc(tree);
+      if (comment != null && canParseJsDocLater(tree, comment)) {
+        parsedComments.add(comment);
+        lazyInfo = new LazyJsDoc(
+            comment.value,
+            lineno(comment.location.start),
+            charno(comment.location.start),
+            comment.location.start.offset,
+            config,
+            errorReporter);
+      } else {
+        info = handleJsDoc(comment);
+      }
+    }
     Node node = transformDispatcher.process(tree);
     if (info != null) {
       node = maybeInjectCastNode(tree, info, node);
       node.setJSDocInfo(info);
+    } else if (lazyInfo != null) {
+      node.setLazyJSDocInfo(lazyInfo);
     }
     setSourceInfo(node, tree);
     return node;
   }
 
+  /**
+   * Whether the JSDoc of the given tree can be parsed when it is first asked for. Comments that
+   * affect the whole file or the shape of the AST, such as casts, are always parsed right away.
+   */
+  private boolean canParseJsDocLater(ParseTree tree, Comment comment) {
+    return config.parseJsDocDocumentation == Config.JsDocParsing.LAZY_TYPES_ONLY
+        && config.languageMode != LanguageMode.TYPESCRIPT
+        && tree.type != ParseTreeType.PAREN_EXPRESSION
+        && LazyJsDoc.canParseLater(comment.value);
+  }
+
   private Node maybeInjectCastNode(ParseTree node, JSDocInfo info, Node irNode) {
     if (node.type == ParseTreeType.PAREN_EXPRESSION && info.hasType()) {
       irNode = newNode(Token.CAST, irNode);
@@ -2723,6 +2723,14 @@ public final class JsDocInfoParser {
     return jsdocBuilder.build();
   }
 
+  /**
+   * Like {@link #retrieveAndResetParsedJSDocInfo}, but JSDoc that only holds flags is shared with
+   * other comments that hold the same flags.
+   */
+  JSDocInfo retrieveAndResetSharedJSDocInfo() {
+    return jsdocBuilder.buildShared();
+  }
+
   /**
    * Gets the fileoverview JSDocInfo, if any.
    */
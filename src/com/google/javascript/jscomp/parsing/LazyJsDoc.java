@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.parsing;
+
+import com.google.javascript.rhino.ErrorReporter;
+import com.google.javascript.rhino.JSDocInfo;
+import com.google.javascript.rhino.LazyJSDocInfo;
+import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.StaticSourceFile;
+import com.google.javascript.rhino.Token;
+import java.util.regex.Pattern;
+
+/**
+ * A JSDoc comment kept as text by {@link IRFactory} in {@link Config.JsDocParsing#LAZY_TYPES_ONLY}
+ * mode, and parsed by {@link JsDocInfoParser} the first time it is asked for. Problems in the
+ * comment are reported to the reporter of the parse then.
+ */
+final class LazyJsDoc extends LazyJSDocInfo {
+  /**
+   * Annotations that change the state of the whole file, which must be seen while the file is
+   * parsed.
+   */
+  private static final Pattern FILE_LEVEL_ANNOTATION =
+      Pattern.compile("@(fileoverview|externs|nocompile|license|preserve|copyright)\\b");
+
+  private final String comment;
+  private final int lineno;
+  private final int charno;
+  private final int position;
+  private final Config config;
+  private final ErrorReporter errorReporter;
+
+  LazyJsDoc(
+      String comment,
+      int lineno,
+      int charno,
+      int position,
+      Config config,
+      ErrorReporter errorReporter) {
+    this.comment = comment;
+    this.lineno = lineno;
+    this.charno = charno;
+    this.position = position;
+    this.config = config;
+    this.errorReporter = errorReporter;
+  }
+
+  /** Whether the given comment can be left unparsed until its JSDoc is needed. */
+  static boolean canParseLater(String comment) {
+    return !FILE_LEVEL_ANNOTATION.matcher(comment).find();
+  }
+
+  @Override
+  protected JSDocInfo parse(StaticSourceFile sourceFile) {
+    // The type nodes take their source file from this node.
+    Node templateNode = new Node(Token.SCRIPT);
+    templateNode.setStaticSourceFile(sourceFile);
+
+    // The JsDocInfoParser expects the comment without the initial '/**'.
+    int numOpeningChars = 3;
+    JsDocInfoParser parser =
+        new JsDocInfoParser(
+            new JsDocTokenStream(
+                comment.substring(numOpeningChars), lineno, charno + numOpeningChars),
+            comment,
+            position,
+            templateNode,
+            config,
+            errorReporter);
+    parser.parse();
+    return parser.retrieveAndResetSharedJSDocInfo();
+  }
+
+  @Override
+  public LazyJSDocInfo copy(ErrorReporter errorReporter) {
+    return new LazyJsDoc(comment, lineno, charno, position, config, errorReporter);
+  }
+
+  @Override
+  public String toString() {
+    return comment;
+  }
+}
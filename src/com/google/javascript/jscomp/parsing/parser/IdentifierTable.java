@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.parsing.parser;
+
+/**
+ * The identifiers of one source file, looked up by their characters in the source, so that a name
+ * is only copied out of the source and interned the first time it is seen.
+ *
+ * <p>Not thread safe; a source file is scanned by one thread at a time.
+ */
+final class IdentifierTable {
+  private String[] names = new String[256];
+  private int[] hashes = new int[256];
+  private int size;
+
+  /** Returns the interned string of the characters in {@code [start, end)}. */
+  String get(char[] chars, int start, int end) {
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + chars[i];
+    }
+    int mask = names.length - 1;
+    for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+      String name = names[slot];
+      if (name == null) {
+        name = new String(chars, start, end - start).intern();
+        names[slot] = name;
+        hashes[slot] = hash;
+        if (++size * 2 > names.length) {
+          grow();
+        }
+        return name;
+      }
+      if (hashes[slot] == hash && matches(name, chars, start, end)) {
+        return name;
+      }
+    }
+  }
+
+  private static boolean matches(String name, char[] chars, int start, int end) {
+    if (name.length() != end - start) {
+      return false;
+    }
+    for (int i = start; i < end; i++) {
+      if (name.charAt(i - start) != chars[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void grow() {
+    String[] oldNames = names;
+    int[] oldHashes = hashes;
+    names = new String[oldNames.length * 2];
+    hashes = new int[oldNames.length * 2];
+    int mask = names.length - 1;
+    for (int i = 0; i < oldNames.length; i++) {
+      if (oldNames[i] != null) {
+        int slot = oldHashes[i] & mask;
+        while (names[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        names[slot] = oldNames[i];
+        hashes[slot] = oldHashes[i];
+      }
+    }
+  }
+}
@@ -34,25 +34,26 @@ public class LineNumberTable {
 
   public LineNumberTable(SourceFile sourceFile) {
     this.sourceFile = sourceFile;
-    this.lineStartOffsets = computeLineStartOffsets(sourceFile.contents);
+    this.lineStartOffsets = computeLineStartOffsets(sourceFile.chars);
   }
 
-  private static int[] computeLineStartOffsets(String source) {
-    // TODO(johnlenz): do this more efficiently.
-    ArrayList<Integer> lineStartOffsets = new ArrayList<>();
-    lineStartOffsets.add(0);
-    for (int index = 0; index < source.length(); index++) {
-      char ch = source.charAt(index);
+  private static int[] computeLineStartOffsets(char[] source) {
+    int[] lineStartOffsets = new int[64];
+    int lineCount = 1;
+    for (int index = 0; index < source.length; index++) {
+      char ch = source[index];
       if (isLineTerminator(ch)) {
-        if (index + 1 < source.length() && ch == '\r'
-            && source.charAt(index + 1) == '\n') {
+        if (index + 1 < source.length && ch == '\r' && source[index + 1] == '\n') {
           index++;
         }
-        lineStartOffsets.add(index + 1);
+        if (lineCount + 1 >= lineStartOffsets.length) {
+          lineStartOffsets = Arrays.copyOf(lineStartOffsets, lineStartOffsets.length * 2);
+        }
+        lineStartOffsets[lineCount++] = index + 1;
       }
     }
-    lineStartOffsets.add(Integer.MAX_VALUE);
-    return toIntArray(lineStartOffsets);
+    lineStartOffsets[lineCount++] = Integer.MAX_VALUE;
+    return Arrays.copyOf(lineStartOffsets, lineCount);
   }
 
   public static int[] toIntArray(ArrayList<Integer> integers) {
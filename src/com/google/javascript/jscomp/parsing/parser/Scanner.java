@@ -34,6 +34,7 @@ import java.util.LinkedList;
 public class Scanner {
   private final ErrorReporter errorReporter;
   private final SourceFile source;
+  private final char[] chars;
   private final LinkedList<Token> currentTokens = new LinkedList<>();
   private int index;
   private final CommentRecorder commentRecorder;
@@ -49,6 +50,7 @@ public class Scanner {
     this.errorReporter = errorReporter;
     this.commentRecorder = commentRecorder;
     this.source = file;
+    this.chars = file.chars;
     this.index = offset;
     this.typeParameterLevel = 0;
   }
@@ -243,7 +245,7 @@ public class Scanner {
   }
 
   private boolean isValidIndex(int index) {
-    return index >= 0 && index < source.contents.length();
+    return index >= 0 && index < chars.length;
   }
 
   // 7.2 White Space
@@ -385,9 +387,9 @@ public class Scanner {
       nextChar();
       Comment.Type type = Comment.Type.BLOCK;
       if (index - startOffset > 4) {
-        if (this.source.contents.charAt(startOffset + 2) == '*') {
+        if (chars[startOffset + 2] == '*') {
           type = Comment.Type.JSDOC;
-        } else if (this.source.contents.charAt(startOffset + 2) == '!') {
+        } else if (chars[startOffset + 2] == '!') {
           type = Comment.Type.IMPORTANT;
         }
       }
@@ -665,6 +667,22 @@ public class Scanner {
   }
 
   private Token scanIdentifierOrKeyword(int beginToken, char ch) {
+    // Most identifiers have no escapes and are looked up straight from the source.
+    if (ch != '\\') {
+      while (isIdentifierPart(peekChar())) {
+        index++;
+      }
+      if (peekChar() != '\\' && isIdentifierStart(ch)) {
+        String value = source.identifiers.get(chars, beginToken, index);
+        Keywords k = Keywords.get(value);
+        if (k != null) {
+          return new Token(k.type, getTokenRange(beginToken));
+        }
+        return new IdentifierToken(getTokenRange(beginToken), value);
+      }
+      index = beginToken + 1;
+    }
+
     StringBuilder valueBuilder = new StringBuilder();
     valueBuilder.append(ch);
 
@@ -1071,7 +1089,7 @@ public class Scanner {
     if (isAtEnd()) {
       return '\0';
     }
-    return source.contents.charAt(index++);
+    return chars[index++];
   }
 
   private boolean peek(char ch) {
@@ -1083,7 +1101,7 @@ public class Scanner {
   }
 
   private char peekChar(int offset) {
-    return !isValidIndex(index + offset) ? '\0' : source.contents.charAt(index + offset);
+    return !isValidIndex(index + offset) ? '\0' : chars[index + offset];
   }
 
   @FormatMethod
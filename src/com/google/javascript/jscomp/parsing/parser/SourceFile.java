@@ -26,9 +26,15 @@ public final class SourceFile {
   public final String contents;
   public final LineNumberTable lineNumberTable;
 
+  // The contents as an array, which the scanner reads character by character.
+  final char[] chars;
+  // Shared by the scanners of lookahead parsers over the same file.
+  final IdentifierTable identifiers = new IdentifierTable();
+
   public SourceFile(String name, String contents) {
     this.name = name;
     this.contents = contents;
+    this.chars = contents.toCharArray();
     this.lineNumberTable = new LineNumberTable(this);
   }
 }
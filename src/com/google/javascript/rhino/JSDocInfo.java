@@ -58,6 +58,7 @@ import java.util.List;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * <p>JSDoc information describing JavaScript code. JSDoc is represented as a
@@ -562,6 +563,31 @@ public class JSDocInfo implements Serializable {
     return other;
   }
 
+  /**
+   * Returns a shared instance equal to the given JSDoc if it only holds flags and a visibility,
+   * such as a lone {@code @const} or {@code @private}, and the given JSDoc otherwise. Such JSDoc
+   * is common and never changes once it is built, so every occurrence can use the same object.
+   */
+  static JSDocInfo intern(JSDocInfo jsdoc) {
+    if (jsdoc.info != null
+        || jsdoc.documentation != null
+        || jsdoc.type != null
+        || jsdoc.thisType != null
+        || jsdoc.includeDocumentation
+        || jsdoc.originalCommentPosition != 0) {
+      return jsdoc;
+    }
+    long key =
+        (jsdoc.bitset & 0xFFFFFFFFL)
+            | (long) (jsdoc.visibility == null ? 0 : jsdoc.visibility.ordinal() + 1) << 32
+            | (jsdoc.inlineType ? 1L << 40 : 0);
+    JSDocInfo shared = sharedFlagsOnlyInfos.putIfAbsent(key, jsdoc);
+    return shared == null ? jsdoc : shared;
+  }
+
+  private static final ConcurrentHashMap<Long, JSDocInfo> sharedFlagsOnlyInfos =
+      new ConcurrentHashMap<>();
+
   private static JSTypeExpression cloneType(JSTypeExpression expr, boolean cloneTypeNodes) {
     if (expr != null) {
       return cloneTypeNodes ? expr.copy() : expr;
@@ -160,6 +160,15 @@ public final class JSDocInfoBuilder {
     return build(false);
   }
 
+  /**
+   * Like {@link #build()}, but JSDoc that only holds flags and a visibility is replaced with a
+   * shared instance equal to it. For JSDoc parsed from source, which is never changed in place.
+   */
+  public JSDocInfo buildShared() {
+    JSDocInfo info = build(false);
+    return info == null ? null : JSDocInfo.intern(info);
+  }
+
   /**
    * Builds a {@link JSDocInfo} object based on the populated information and
    * returns it. Once this method is called, the builder can be reused to build
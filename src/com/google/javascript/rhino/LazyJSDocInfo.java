@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.rhino;
+
+import javax.annotation.Nullable;
+
+/**
+ * A JSDoc comment that has not been parsed yet, see {@link Node#setLazyJSDocInfo}. It is parsed
+ * the first time its {@link JSDocInfo} is asked for, and keeps the result, so a node and its clones
+ * share the parsed JSDoc as they would share eagerly parsed JSDoc. It may be read from several
+ * threads.
+ */
+public abstract class LazyJSDocInfo {
+  private volatile boolean parsed;
+  private JSDocInfo info;
+
+  /** Returns the JSDoc of the comment, parsing it the first time. */
+  @Nullable
+  final JSDocInfo get(@Nullable StaticSourceFile sourceFile) {
+    if (!parsed) {
+      synchronized (this) {
+        if (!parsed) {
+          info = parse(sourceFile);
+          // Threads that see the volatile write also see the JSDoc.
+          parsed = true;
+        }
+      }
+    }
+    return info;
+  }
+
+  /**
+   * Parses the comment, and reports the problems found in it.
+   *
+   * @param sourceFile the source file of the nodes of the type expressions
+   * @return the JSDoc of the comment, or null if it has none
+   */
+  @Nullable
+  protected abstract JSDocInfo parse(@Nullable StaticSourceFile sourceFile);
+
+  /**
+   * Returns an unparsed copy of the comment that reports its problems to {@code errorReporter},
+   * for a copy of a tree that must not share JSDoc with the original.
+   */
+  public abstract LazyJSDocInfo copy(ErrorReporter errorReporter);
+}
@@ -158,9 +158,12 @@ public class Node implements Serializable {
       IS_ES6_CLASS = 92,          // Indicates that a FUNCTION node is converted from an ES6 class
       TRANSPILED = 93,            // Indicates that a SCRIPT represents a transpiled file
       DELETED = 94,               // For passes that work only on deleted funs.
-      GOOG_MODULE_ALIAS = 95;     // Indicates that the node is an alias of goog.require'd module.
+      GOOG_MODULE_ALIAS = 95,     // Indicates that the node is an alias of goog.require'd module.
                                   // Aliases are desugared and inlined by compiler passes but we
                                   // need to preserve them for building index.
+      COUNTED_BY_TRACKER = 96,    // Set on the nodes that the performance tracker has counted,
+                                  // so it can tell new nodes apart. Not copied to clones.
+      LAZY_JSDOC_INFO = 97;       // A LazyJSDocInfo, for JSDoc that is parsed when first asked for.
 
   private static final String propToString(byte propType) {
       switch (propType) {
@@ -222,11 +225,38 @@ public class Node implements Serializable {
         case TRANSPILED:         return "transpiled";
         case DELETED:            return "DELETED";
         case GOOG_MODULE_ALIAS:  return "goog_module_alias";
+        case COUNTED_BY_TRACKER: return "counted_by_tracker";
+        case LAZY_JSDOC_INFO:    return "lazy_jsdoc_info";
         default:
           throw new IllegalStateException("unexpected prop id " + propType);
       }
   }
 
+  /**
+   * The properties that are nearly always 0 or 1, which are stored as bits of {@link #propBits}
+   * when they are. At most 64.
+   */
+  private static final byte[] BIT_PROPS = {
+      VAR_ARGS_NAME, INCRDECR_PROP, QUOTED_PROP, OPT_ARG_NAME, SYNTHETIC_BLOCK_PROP, ADDED_BLOCK,
+      IS_CONSTANT_NAME, IS_NAMESPACE, DIRECT_EVAL, FREE_CALL, SLASH_V, INFERRED_FUNCTION,
+      REFLECTED_OBJECT, STATIC_MEMBER, GENERATOR_FN, ARROW_FN, ASYNC_FN, YIELD_ALL, EXPORT_DEFAULT,
+      EXPORT_ALL_FROM, IS_CONSTANT_VAR, GENERATOR_MARKER, GENERATOR_SAFE, COMPUTED_PROP_METHOD,
+      COMPUTED_PROP_GETTER, COMPUTED_PROP_SETTER, COMPUTED_PROP_VARIABLE, ANALYZED_DURING_GTI,
+      CONSTANT_PROPERTY_DEF, OPT_ES6_TYPED, CONSTRUCT_SIGNATURE, NON_INDEXABLE, GOOG_MODULE,
+      GOOG_MODULE_REQUIRE, IS_MODULE_NAME, WAS_PREVIOUSLY_PROVIDED, IS_ES6_CLASS, TRANSPILED,
+      DELETED, GOOG_MODULE_ALIAS, COUNTED_BY_TRACKER};
+
+  /** The index of the bit of each property type in {@link #propBits}, or -1 if it has none. */
+  private static final byte[] PROP_BIT_INDEX = new byte[Byte.MAX_VALUE + 1];
+
+  static {
+    checkState(BIT_PROPS.length <= Long.SIZE);
+    Arrays.fill(PROP_BIT_INDEX, (byte) -1);
+    for (int i = 0; i < BIT_PROPS.length; i++) {
+      PROP_BIT_INDEX[BIT_PROPS[i]] = (byte) i;
+    }
+  }
+
   /**
    * Represents a node in the type declaration AST.
    */
@@ -263,7 +293,7 @@ public class Node implements Serializable {
     }
   }
 
-  private static final class NumberNode extends Node {
+  static final class NumberNode extends Node {
 
     private static final long serialVersionUID = 1L;
 
@@ -310,7 +340,7 @@ public class Node implements Serializable {
     }
   }
 
-  private static final class StringNode extends Node {
+  static final class StringNode extends Node {
 
     private static final long serialVersionUID = 1L;
 
@@ -387,80 +417,6 @@ public class Node implements Serializable {
     }
   }
 
-  private abstract static class PropListItem implements Serializable {
-    final @Nullable PropListItem next;
-    final byte propType;
-
-    PropListItem(byte propType, @Nullable PropListItem next) {
-      this.propType = propType;
-      this.next = next;
-    }
-
-    public abstract int getIntValue();
-    public abstract Object getObjectValue();
-    public abstract PropListItem chain(@Nullable PropListItem next);
-  }
-
-  // A base class for Object storing props
-  private static final class ObjectPropListItem extends PropListItem {
-    private final Object objectValue;
-
-    ObjectPropListItem(byte propType, Object objectValue, @Nullable PropListItem next) {
-      super(propType, next);
-      this.objectValue = objectValue;
-    }
-
-    @Override
-    public int getIntValue() {
-      throw new UnsupportedOperationException();
-    }
-
-    @Override
-    public Object getObjectValue() {
-      return objectValue;
-    }
-
-    @Override
-    public String toString() {
-      return String.valueOf(objectValue);
-    }
-
-    @Override
-    public PropListItem chain(@Nullable PropListItem next) {
-      return new ObjectPropListItem(propType, objectValue, next);
-    }
-  }
-
-  // A base class for int storing props
-  private static final class IntPropListItem extends PropListItem {
-    final int intValue;
-
-    IntPropListItem(byte propType, int intValue, @Nullable PropListItem next) {
-      super(propType, next);
-      this.intValue = intValue;
-    }
-
-    @Override
-    public int getIntValue() {
-      return intValue;
-    }
-
-    @Override
-    public Object getObjectValue() {
-      throw new UnsupportedOperationException();
-    }
-
-    @Override
-    public String toString() {
-      return String.valueOf(intValue);
-    }
-
-    @Override
-    public PropListItem chain(@Nullable PropListItem next) {
-      return new IntPropListItem(propType, intValue, next);
-    }
-  }
-
   public Node(Token nodeType) {
     token = nodeType;
     parent = null;
@@ -898,14 +854,12 @@ public class Node implements Serializable {
     replaceChild(target, newChild);
   }
 
+  /**
+   * Returns whether the property is set, i.e. has a non-null object value or non-zero int value.
+   */
   @VisibleForTesting
-  @Nullable
-  final PropListItem lookupProperty(byte propType) {
-    PropListItem x = propListHead;
-    while (x != null && propType != x.propType) {
-      x = x.next;
-    }
-    return x;
+  final boolean hasProp(byte propType) {
+    return (propBits & propBit(propType)) != 0 || PropArrays.get(props, propType) != null;
   }
 
   /**
@@ -916,50 +870,28 @@ public class Node implements Serializable {
    * @return this node.
    */
   public final Node clonePropsFrom(Node other) {
-    checkState(this.propListHead == null, "Node has existing properties.");
-    this.propListHead = other.propListHead;
+    checkState(!hasProps(), "Node has existing properties.");
+    this.propBits = other.propBits;
+    this.props = other.props;
     return this;
   }
 
   public final void removeProp(byte propType) {
-    PropListItem result = removeProp(propListHead, propType);
-    if (result != propListHead) {
-      propListHead = result;
+    propBits &= ~propBit(propType);
+    props = PropArrays.remove(props, propType);
+    if (propType == JSDOC_INFO_PROP) {
+      // Lazy JSDoc is part of the JSDoc of the node.
+      props = PropArrays.remove(props, LAZY_JSDOC_INFO);
     }
   }
 
   public final boolean hasProps() {
-    return propListHead != null;
-  }
-
-  /**
-   * @param item The item to inspect
-   * @param propType The property to look for
-   * @return The replacement list if the property was removed, or 'item' otherwise.
-   */
-  @Nullable
-  private final PropListItem removeProp(@Nullable PropListItem item, byte propType) {
-    if (item == null) {
-      return null;
-    } else if (item.propType == propType) {
-      return item.next;
-    } else {
-      PropListItem result = removeProp(item.next, propType);
-      if (result != item.next) {
-        return item.chain(result);
-      } else {
-        return item;
-      }
-    }
+    return propBits != 0 || props != null;
   }
 
   @Nullable
   public final Object getProp(byte propType) {
-    PropListItem item = lookupProperty(propType);
-    if (item == null) {
-      return null;
-    }
-    return item.getObjectValue();
+    return PropArrays.get(props, propType);
   }
 
   public final boolean getBooleanProp(byte propType) {
@@ -971,26 +903,30 @@ public class Node implements Serializable {
    * is not defined.
    */
   public final int getIntProp(byte propType) {
-    PropListItem item = lookupProperty(propType);
-    if (item == null) {
-      return 0;
+    if ((propBits & propBit(propType)) != 0) {
+      return 1;
     }
-    return item.getIntValue();
+    Object value = PropArrays.get(props, propType);
+    return value == null ? 0 : (Integer) value;
   }
 
   public final int getExistingIntProp(byte propType) {
-    PropListItem item = lookupProperty(propType);
-    if (item == null) {
+    if ((propBits & propBit(propType)) != 0) {
+      return 1;
+    }
+    Object value = PropArrays.get(props, propType);
+    if (value == null) {
       throw new IllegalStateException("missing prop: " + propType);
     }
-    return item.getIntValue();
+    return (Integer) value;
   }
 
   public final void putProp(byte propType, @Nullable Object value) {
-    removeProp(propType);
-    if (value != null) {
-      propListHead = createProp(propType, value, propListHead);
-    }
+    propBits &= ~propBit(propType);
+    props =
+        value == null
+            ? PropArrays.remove(props, propType)
+            : PropArrays.put(props, propType, value);
   }
 
   public final void putBooleanProp(byte propType, boolean value) {
@@ -998,12 +934,25 @@ public class Node implements Serializable {
   }
 
   public final void putIntProp(byte propType, int value) {
-    removeProp(propType);
-    if (value != 0) {
-      propListHead = createProp(propType, value, propListHead);
+    long bit = propBit(propType);
+    if (bit != 0 && (value == 0 || value == 1)) {
+      propBits = value == 1 ? propBits | bit : propBits & ~bit;
+      props = PropArrays.remove(props, propType);
+    } else {
+      propBits &= ~bit;
+      props =
+          value == 0
+              ? PropArrays.remove(props, propType)
+              : PropArrays.put(props, propType, Integer.valueOf(value));
     }
   }
 
+  /** Returns the bit of the property in {@link #propBits}, or 0 if it has none. */
+  private static long propBit(byte propType) {
+    int index = PROP_BIT_INDEX[propType];
+    return index < 0 ? 0 : 1L << index;
+  }
+
   /**
    * Sets the syntactical type specified on this node.
    * @param typeExpression
@@ -1021,14 +970,6 @@ public class Node implements Serializable {
     return (TypeDeclarationNode) getProp(DECLARED_TYPE_EXPR);
   }
 
-  final PropListItem createProp(byte propType, Object value, @Nullable PropListItem next) {
-    return new ObjectPropListItem(propType, value, next);
-  }
-
-  final PropListItem createProp(byte propType, int value, @Nullable PropListItem next) {
-    return new IntPropListItem(propType, value, next);
-  }
-
   /**
    * Returns the type of this node before casting. This annotation will only exist on the first
    * child of a CAST node after type checking.
@@ -1045,15 +986,13 @@ public class Node implements Serializable {
 
   // Gets all the property types, in sorted order.
   private byte[] getSortedPropTypes() {
-    int count = 0;
-    for (PropListItem x = propListHead; x != null; x = x.next) {
-      count++;
-    }
-
-    byte[] keys = new byte[count];
-    for (PropListItem x = propListHead; x != null; x = x.next) {
-      count--;
-      keys[count] = x.propType;
+    byte[] arrayTypes = props == null ? new byte[0] : PropArrays.types(props);
+    byte[] keys = Arrays.copyOf(arrayTypes, arrayTypes.length + Long.bitCount(propBits));
+    int count = arrayTypes.length;
+    for (byte propType : BIT_PROPS) {
+      if ((propBits & propBit(propType)) != 0) {
+        keys[count++] = propType;
+      }
     }
 
     Arrays.sort(keys);
@@ -1162,11 +1101,14 @@ public class Node implements Serializable {
       byte[] keys = getSortedPropTypes();
       for (int i = 0; i < keys.length; i++) {
         byte type = keys[i];
-        PropListItem x = lookupProperty(type);
+        if (type == COUNTED_BY_TRACKER) {
+          continue;
+        }
+        Object value = getProp(type);
         sb.append(" [");
         sb.append(propToString(type));
         sb.append(": ");
-        sb.append(x);
+        sb.append(value == null ? String.valueOf(getIntProp(type)) : value);
         sb.append(']');
       }
     }
@@ -1218,11 +1160,16 @@ public class Node implements Serializable {
   // We get the last child as first.previous. But last.next is null, not first.
 
   /**
-   * Linked list of properties. Since vast majority of nodes would have no more than 2 properties,
-   * linked list saves memory and provides fast lookup. If this does not holds, propListHead can be
-   * replaced by UintMap.
+   * The properties in {@link #BIT_PROPS} that are set to 1, one bit each. Since those are nearly
+   * always 0 or 1, setting them does not allocate.
    */
-  @Nullable private transient PropListItem propListHead;
+  private transient long propBits;
+
+  /**
+   * All other properties, see {@link PropArrays}. The array is immutable and shared between nodes,
+   * most commonly between all the nodes of a file that only have the source file property.
+   */
+  @Nullable private transient Object[] props;
 
   /**
    * COLUMN_BITS represents how many of the lower-order bits of
@@ -1267,24 +1214,19 @@ public class Node implements Serializable {
   // Source position management
 
   public final void setStaticSourceFileFrom(Node other) {
-    // Make sure source file prop nodes are not duplicated.
-    if (other.propListHead != null
-        && (this.propListHead == null
-            || (this.propListHead.propType == STATIC_SOURCE_FILE
-               && this.propListHead.next == null))) {
-      // Either the node has only STATIC_SOURCE_FILE as a property or has not properties.
-      PropListItem tail = other.propListHead;
-      while (tail.next != null) {
-        tail = tail.next;
-      }
-      if (tail.propType == STATIC_SOURCE_FILE) {
-        propListHead = tail;
-        return;
-      }
+    // Make sure source file prop arrays are not duplicated.
+    if (hasOnlyStaticSourceFileProp(other.props)
+        && (this.props == null || hasOnlyStaticSourceFileProp(this.props))) {
+      this.props = other.props;
+      return;
     }
     setStaticSourceFile(other.getStaticSourceFile());
   }
 
+  private static boolean hasOnlyStaticSourceFileProp(@Nullable Object[] props) {
+    return props != null && props.length == 2 && PropArrays.types(props)[0] == STATIC_SOURCE_FILE;
+  }
+
   public final void setStaticSourceFile(@Nullable StaticSourceFile file) {
     this.putProp(STATIC_SOURCE_FILE, file);
   }
@@ -1529,12 +1471,22 @@ public class Node implements Serializable {
   // Accessors
 
   @Nullable
-  final PropListItem getPropListHeadForTesting() {
-    return propListHead;
+  final Object[] getPropsForTesting() {
+    return props;
   }
 
-  final void setPropListHead(@Nullable PropListItem propListHead) {
-    this.propListHead = propListHead;
+  final long getPropBits() {
+    return propBits;
+  }
+
+  @Nullable
+  final Object[] getPropArray() {
+    return props;
+  }
+
+  final void setProps(long propBits, @Nullable Object[] props) {
+    this.propBits = propBits;
+    this.props = props;
   }
 
   @Nullable
@@ -2194,7 +2146,7 @@ public class Node implements Serializable {
     dst.setSourceEncodedPosition(this.sourcePosition);
     dst.setLength(this.getLength());
     dst.setTypeI(this.typei);
-    dst.setPropListHead(this.propListHead);
+    dst.setProps(this.propBits & ~propBit(COUNTED_BY_TRACKER), this.props);
 
     // TODO(johnlenz): Remove this once JSTypeExpression are immutable
     if (cloneTypeExprs) {
@@ -2384,7 +2336,14 @@ public class Node implements Serializable {
    */
   @Nullable
   public final JSDocInfo getJSDocInfo() {
-    return (JSDocInfo) getProp(JSDOC_INFO_PROP);
+    Object info = getProp(JSDOC_INFO_PROP);
+    if (info == null) {
+      LazyJSDocInfo lazyInfo = (LazyJSDocInfo) getProp(LAZY_JSDOC_INFO);
+      if (lazyInfo != null) {
+        return lazyInfo.get(getStaticSourceFile());
+      }
+    }
+    return (JSDocInfo) info;
   }
 
   /**
@@ -2392,9 +2351,29 @@ public class Node implements Serializable {
    */
   public final Node setJSDocInfo(JSDocInfo info) {
     putProp(JSDOC_INFO_PROP, info);
+    props = PropArrays.remove(props, LAZY_JSDOC_INFO);
+    return this;
+  }
+
+  /**
+   * Attaches a JSDoc comment to this node that is only parsed once {@link #getJSDocInfo} is
+   * called. The comment keeps the parsed JSDoc itself, so parsing it does not write the
+   * properties of the node and is safe while other threads read the tree.
+   */
+  public final Node setLazyJSDocInfo(LazyJSDocInfo info) {
+    putProp(JSDOC_INFO_PROP, null);
+    putProp(LAZY_JSDOC_INFO, info);
     return this;
   }
 
+  /** Replaces lazy JSDoc with the JSDoc parsed from it, for writers of trees. */
+  final void resolveLazyJSDocInfo() {
+    LazyJSDocInfo lazyInfo = (LazyJSDocInfo) getProp(LAZY_JSDOC_INFO);
+    if (lazyInfo != null) {
+      setJSDocInfo(lazyInfo.get(getStaticSourceFile()));
+    }
+  }
+
   /** This node was last changed at {@code time} */
   public final void setChangeTime(int time) {
     putIntProp(CHANGE_TIME, time);
@@ -3254,7 +3233,11 @@ public class Node implements Serializable {
     // Null marks the end of the children.
     out.writeObject(null);
     out.writeObject(typei);
-    out.writeObject(propListHead);
+    writeEncodedInt(out, (int) propBits);
+    writeEncodedInt(out, (int) (propBits >>> 32));
+    // Lazy JSDoc is not serializable.
+    resolveLazyJSDocInfo();
+    out.writeObject(props);
   }
 
   @GwtIncompatible("ObjectInputStream")
@@ -3290,7 +3273,8 @@ public class Node implements Serializable {
       first.previous = lastChild;
     }
     typei = (TypeI) in.readObject();
-    propListHead = (PropListItem) in.readObject();
+    propBits = (readEncodedInt(in) & 0xffffffffL) | ((long) readEncodedInt(in) << 32);
+    props = (Object[]) in.readObject();
   }
 
   /**
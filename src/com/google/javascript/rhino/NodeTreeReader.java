@@ -0,0 +1,252 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.javascript.rhino;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.javascript.rhino.NodeTreeWriter.NodeReference;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a {@link Node} tree written by {@link NodeTreeWriter}.
+ *
+ * <p>Objects elsewhere in the stream that point into the tree must be read through an {@link
+ * ObjectInputStream} whose {@code resolveObject} calls {@link #resolveNode}, after the tree itself
+ * was read.
+ */
+@GwtIncompatible("ObjectInputStream")
+public final class NodeTreeReader {
+  private final ObjectInputStream in;
+  private final List<Node> nodes = new ArrayList<>();
+  // The object pool id of the type, the property bits and the id of the property array of each
+  // node.
+  private int[] nodeTypes = new int[64];
+  private long[] nodePropBits = new long[64];
+  private int[] nodePropArrays = new int[64];
+  private final List<String> strings = new ArrayList<>();
+  private final List<PropArrayDefinition> propArrays = new ArrayList<>();
+  // Nodes with the same property types share the array of types, as they do in memory.
+  private final Map<ByteBuffer, byte[]> propTypes = new HashMap<>();
+
+  public NodeTreeReader(ObjectInputStream in) {
+    this.in = in;
+  }
+
+  /** A property array, which is created only once the object pool was read. */
+  private static final class PropArrayDefinition {
+    final byte[] types;
+    final int[] kinds;
+    // The value of each property, or its object pool id for object values.
+    final Object[] values;
+
+    PropArrayDefinition(byte[] types, int[] kinds, Object[] values) {
+      this.types = types;
+      this.kinds = kinds;
+      this.values = values;
+    }
+  }
+
+  /** Reads the tree. Can only be called once per stream. */
+  public Node readTree() throws IOException, ClassNotFoundException {
+    if (in.readInt() != NodeTreeWriter.MAGIC
+        || in.readInt() != NodeTreeWriter.FORMAT_VERSION) {
+      throw new InvalidObjectException(
+          "Not a node tree of format version " + NodeTreeWriter.FORMAT_VERSION);
+    }
+
+    // The nodes whose children are still being read, and how many children each still needs.
+    Node[] parents = new Node[64];
+    int[] remaining = new int[64];
+    Node root = readNode();
+    int depth = 0;
+    parents[0] = root;
+    remaining[0] = readVarint();
+    while (depth >= 0) {
+      if (remaining[depth] == 0) {
+        depth--;
+        continue;
+      }
+      remaining[depth]--;
+      Node child = readNode();
+      parents[depth].addChildToBack(child);
+      int childCount = readVarint();
+      if (childCount > 0) {
+        depth++;
+        if (depth == parents.length) {
+          parents = Arrays.copyOf(parents, depth * 2);
+          remaining = Arrays.copyOf(remaining, depth * 2);
+        }
+        parents[depth] = child;
+        remaining[depth] = childCount;
+      }
+    }
+
+    Object[] objects = new Object[readVarint()];
+    for (int i = 0; i < objects.length; i++) {
+      objects[i] = in.readObject();
+    }
+
+    Object[][] props = new Object[propArrays.size()][];
+    for (int i = 0; i < props.length; i++) {
+      PropArrayDefinition definition = propArrays.get(i);
+      for (int j = 0; j < definition.types.length; j++) {
+        if (definition.kinds[j] == NodeTreeWriter.OBJECT_VALUE) {
+          definition.values[j] = objects[(Integer) definition.values[j] - 1];
+        }
+      }
+      props[i] = PropArrays.create(definition.types, definition.values);
+    }
+
+    for (int i = 0; i < nodes.size(); i++) {
+      Node n = nodes.get(i);
+      if (nodeTypes[i] != 0) {
+        n.setTypeI((TypeI) objects[nodeTypes[i] - 1]);
+      }
+      n.setProps(nodePropBits[i], nodePropArrays[i] < 0 ? null : props[nodePropArrays[i]]);
+    }
+    return root;
+  }
+
+  /**
+   * Returns the node of the tree that {@code object} refers to if it is a reference written by
+   * {@link NodeTreeWriter#replaceNode}, and {@code object} itself otherwise.
+   */
+  public Object resolveNode(Object object) throws InvalidObjectException {
+    if (object instanceof NodeReference) {
+      int id = ((NodeReference) object).id;
+      if (id >= nodes.size()) {
+        throw new InvalidObjectException("Reference to unknown node " + id);
+      }
+      return nodes.get(id);
+    }
+    return object;
+  }
+
+  private Node readNode() throws IOException {
+    int tag = readVarint();
+    int kind = tag & ((1 << NodeTreeWriter.KIND_BITS) - 1);
+    Token token = Token.values()[tag >>> NodeTreeWriter.KIND_BITS];
+    int sourcePosition = readVarint() - 1;
+    int length = readVarint();
+
+    Node n;
+    switch (kind) {
+      case NodeTreeWriter.STRING_NODE:
+        n = Node.newString(token, readString());
+        break;
+      case NodeTreeWriter.NUMBER_NODE:
+        n = Node.newNumber(in.readDouble());
+        n.setToken(token);
+        break;
+      case NodeTreeWriter.TYPE_DECLARATION_NODE:
+        n = new Node.TypeDeclarationNode(token, readString());
+        break;
+      default:
+        n = new Node(token);
+        break;
+    }
+    n.setSourceEncodedPosition(sourcePosition);
+    n.setLength(length);
+
+    int id = nodes.size();
+    if (id == nodeTypes.length) {
+      nodeTypes = Arrays.copyOf(nodeTypes, id * 2);
+      nodePropBits = Arrays.copyOf(nodePropBits, id * 2);
+      nodePropArrays = Arrays.copyOf(nodePropArrays, id * 2);
+    }
+    nodes.add(n);
+    nodeTypes[id] = readVarint();
+    nodePropBits[id] = (readVarint() & 0xffffffffL) | ((long) readVarint() << 32);
+    nodePropArrays[id] = readPropArray();
+    return n;
+  }
+
+  /** Reads a property array, and returns its id or -1 if there is none. */
+  private int readPropArray() throws IOException {
+    int ref = readVarint();
+    if (ref == NodeTreeWriter.NULL_REF) {
+      return -1;
+    } else if (ref != NodeTreeWriter.NEW_REF) {
+      return ref - NodeTreeWriter.FIRST_ID_REF;
+    }
+
+    int size = readVarint();
+    byte[] types = new byte[size];
+    int[] kinds = new int[size];
+    Object[] values = new Object[size];
+    for (int i = 0; i < size; i++) {
+      int tag = readVarint();
+      types[i] = (byte) (tag >>> NodeTreeWriter.KIND_BITS);
+      kinds[i] = tag & ((1 << NodeTreeWriter.KIND_BITS) - 1);
+      switch (kinds[i]) {
+        case NodeTreeWriter.INT_VALUE:
+        case NodeTreeWriter.OBJECT_VALUE:
+          values[i] = readVarint();
+          break;
+        case NodeTreeWriter.STRING_VALUE:
+          values[i] = readString();
+          break;
+        default:
+          throw new InvalidObjectException("Unknown property kind " + kinds[i]);
+      }
+    }
+    byte[] sharedTypes = propTypes.get(ByteBuffer.wrap(types));
+    if (sharedTypes == null) {
+      propTypes.put(ByteBuffer.wrap(types), types);
+      sharedTypes = types;
+    }
+    propArrays.add(new PropArrayDefinition(sharedTypes, kinds, values));
+    return propArrays.size() - 1;
+  }
+
+  private String readString() throws IOException {
+    int ref = readVarint();
+    if (ref == NodeTreeWriter.NULL_REF) {
+      return null;
+    } else if (ref != NodeTreeWriter.NEW_REF) {
+      return strings.get(ref - NodeTreeWriter.FIRST_ID_REF);
+    }
+
+    char[] chars = new char[readVarint()];
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = (char) readVarint();
+    }
+    // Interned like the strings of string nodes.
+    String s = new String(chars).intern();
+    strings.add(s);
+    return s;
+  }
+
+  private int readVarint() throws IOException {
+    int value = 0;
+    int shift = 0;
+    byte current;
+    while ((current = in.readByte()) < 0) {
+      value |= (current & 0x7f) << shift;
+      shift += 7;
+    }
+    return value | current << shift;
+  }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.javascript.rhino;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.annotations.GwtIncompatible;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a {@link Node} tree to an {@link ObjectOutputStream} in a compact binary format that is
+ * read back by {@link NodeTreeReader}.
+ *
+ * <p>Nodes are written in pre-order as a token/kind tag, varint encoded source position and length,
+ * the string or number payload, the bits of the boolean properties, and a child count. Strings go
+ * through a string table and are only written once. Property arrays are shared between nodes just
+ * like in memory, so every array is written once and referred to by id afterwards. Types, JSDoc
+ * and all other property values are collected in an object pool that is written with regular Java
+ * serialization after the whole tree, so each of them is written once and nodes refer to them by
+ * id.
+ *
+ * <p>Objects elsewhere in the stream that point into the tree must be written through an {@link
+ * ObjectOutputStream} whose {@code replaceObject} calls {@link #replaceNode}, so the nodes are
+ * replaced with references to their position in the tree instead of being written again.
+ */
+@GwtIncompatible("ObjectOutputStream")
+public final class NodeTreeWriter {
+  static final int MAGIC = 0x4A534E54;
+  /** Change this whenever the format changes. */
+  static final int FORMAT_VERSION = 2;
+
+  static final int KIND_BITS = 2;
+  static final int PLAIN_NODE = 0;
+  static final int STRING_NODE = 1;
+  static final int NUMBER_NODE = 2;
+  static final int TYPE_DECLARATION_NODE = 3;
+
+  static final int INT_VALUE = 0;
+  static final int STRING_VALUE = 1;
+  static final int OBJECT_VALUE = 2;
+
+  // Prefixes of references to property arrays and strings, followed by the id of an earlier one.
+  static final int NULL_REF = 0;
+  static final int NEW_REF = 1;
+  static final int FIRST_ID_REF = 2;
+
+  private final ObjectOutputStream out;
+  private final Map<Node, Integer> nodeIds = new IdentityHashMap<>();
+  private final Map<String, Integer> stringIds = new HashMap<>();
+  private final Map<Object[], Integer> propArrayIds = new IdentityHashMap<>();
+  private final Map<Object, Integer> objectIds = new IdentityHashMap<>();
+  private final List<Object> objects = new ArrayList<>();
+
+  public NodeTreeWriter(ObjectOutputStream out) {
+    this.out = out;
+  }
+
+  /** Writes the tree rooted at {@code root}. Can only be called once per stream. */
+  public void writeTree(Node root) throws IOException {
+    checkState(nodeIds.isEmpty(), "A tree was already written");
+    out.writeInt(MAGIC);
+    out.writeInt(FORMAT_VERSION);
+
+    Deque<Node> stack = new ArrayDeque<>();
+    stack.push(root);
+    while (!stack.isEmpty()) {
+      Node n = stack.pop();
+      writeNode(n);
+      for (Node child = n.getLastChild(); child != null; child = child.getPrevious()) {
+        stack.push(child);
+      }
+    }
+
+    writeVarint(objects.size());
+    for (Object object : objects) {
+      out.writeObject(object);
+    }
+  }
+
+  /**
+   * Returns a reference to {@code object} if it is a node of the tree written by {@link
+   * #writeTree}, and {@code object} itself otherwise.
+   */
+  public Object replaceNode(Object object) {
+    if (object instanceof Node) {
+      Integer id = nodeIds.get(object);
+      if (id != null) {
+        return new NodeReference(id);
+      }
+    }
+    return object;
+  }
+
+  private void writeNode(Node n) throws IOException {
+    nodeIds.put(n, nodeIds.size());
+
+    int kind;
+    if (n instanceof Node.TypeDeclarationNode) {
+      kind = TYPE_DECLARATION_NODE;
+    } else if (n instanceof Node.StringNode) {
+      kind = STRING_NODE;
+    } else if (n instanceof Node.NumberNode) {
+      kind = NUMBER_NODE;
+    } else {
+      kind = PLAIN_NODE;
+    }
+    writeVarint(n.getToken().ordinal() << KIND_BITS | kind);
+    // Shifted by one so that the common "no position" value of -1 takes a single byte.
+    writeVarint(n.getSourcePosition() + 1);
+    writeVarint(n.getLength());
+
+    switch (kind) {
+      case STRING_NODE:
+        writeString(n.getString());
+        break;
+      case NUMBER_NODE:
+        out.writeDouble(n.getDouble());
+        break;
+      case TYPE_DECLARATION_NODE:
+        writeString(n.getString());
+        break;
+      default:
+        break;
+    }
+
+    writeVarint(objectId(n.getTypeI()));
+    // Lazy JSDoc is not serializable.
+    n.resolveLazyJSDocInfo();
+    long propBits = n.getPropBits();
+    writeVarint((int) propBits);
+    writeVarint((int) (propBits >>> 32));
+    writePropArray(n.getPropArray());
+    writeVarint(n.getChildCount());
+  }
+
+  private void writePropArray(Object[] props) throws IOException {
+    if (props == null) {
+      writeVarint(NULL_REF);
+      return;
+    }
+    Integer id = propArrayIds.get(props);
+    if (id != null) {
+      writeVarint(FIRST_ID_REF + id);
+      return;
+    }
+
+    writeVarint(NEW_REF);
+    byte[] types = PropArrays.types(props);
+    writeVarint(types.length);
+    for (int i = 0; i < types.length; i++) {
+      Object value = props[i + 1];
+      if (value instanceof Integer) {
+        writeVarint(types[i] << KIND_BITS | INT_VALUE);
+        writeVarint((Integer) value);
+      } else if (value instanceof String) {
+        writeVarint(types[i] << KIND_BITS | STRING_VALUE);
+        writeString((String) value);
+      } else {
+        writeVarint(types[i] << KIND_BITS | OBJECT_VALUE);
+        writeVarint(objectId(value));
+      }
+    }
+    propArrayIds.put(props, propArrayIds.size());
+  }
+
+  /** Writes a possibly null string, or a reference to an earlier copy of it. */
+  private void writeString(String s) throws IOException {
+    if (s == null) {
+      writeVarint(NULL_REF);
+      return;
+    }
+    Integer id = stringIds.get(s);
+    if (id != null) {
+      writeVarint(FIRST_ID_REF + id);
+      return;
+    }
+
+    writeVarint(NEW_REF);
+    // Write chars rather than UTF-8, which cannot represent unpaired surrogates.
+    writeVarint(s.length());
+    for (int i = 0; i < s.length(); i++) {
+      writeVarint(s.charAt(i));
+    }
+    stringIds.put(s, stringIds.size());
+  }
+
+  /** Returns the 1-based id of {@code object} in the object pool, or 0 for null. */
+  private int objectId(Object object) {
+    if (object == null) {
+      return 0;
+    }
+    Integer id = objectIds.get(object);
+    if (id == null) {
+      objects.add(object);
+      id = objects.size();
+      objectIds.put(object, id);
+    }
+    return id;
+  }
+
+  /** Writes {@code value} 7 bits at a time, least significant first, like {@link Node}. */
+  private void writeVarint(int value) throws IOException {
+    while (value > 0x7f || value < 0) {
+      out.writeByte((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+  /** Stands in for a node of the tree elsewhere in the stream. */
+  static final class NodeReference implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    final int id;
+
+    NodeReference(int id) {
+      this.id = id;
+    }
+  }
+}
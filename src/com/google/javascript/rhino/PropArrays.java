@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.javascript.rhino;
+
+import javax.annotation.Nullable;
+
+/**
+ * Operations on the property arrays of {@link Node}. A property array holds the sorted property
+ * types of a node in a {@code byte[]} at index 0, followed by the value of each property in the
+ * same order. Int values are boxed.
+ *
+ * <p>Property arrays are never modified once created, so nodes can share them; updates return a
+ * new array. An update that only changes a value keeps sharing the array of types.
+ */
+final class PropArrays {
+  private static final byte[][] SINGLE_TYPES = new byte[Byte.MAX_VALUE + 1][];
+
+  static {
+    for (int i = 0; i < SINGLE_TYPES.length; i++) {
+      SINGLE_TYPES[i] = new byte[] {(byte) i};
+    }
+  }
+
+  private PropArrays() {}
+
+  /** Returns a property array of the given sorted types and their values. */
+  static Object[] create(byte[] types, Object[] values) {
+    Object[] props = new Object[types.length + 1];
+    props[0] = types.length == 1 ? SINGLE_TYPES[types[0]] : types;
+    System.arraycopy(values, 0, props, 1, values.length);
+    return props;
+  }
+
+  static byte[] types(Object[] props) {
+    return (byte[]) props[0];
+  }
+
+  @Nullable
+  static Object get(@Nullable Object[] props, byte propType) {
+    if (props == null) {
+      return null;
+    }
+    int i = indexOf(types(props), propType);
+    return i < 0 ? null : props[i + 1];
+  }
+
+  static Object[] put(@Nullable Object[] props, byte propType, Object value) {
+    if (props == null) {
+      return new Object[] {SINGLE_TYPES[propType], value};
+    }
+    byte[] types = types(props);
+    int i = indexOf(types, propType);
+    if (i >= 0) {
+      if (props[i + 1] == value) {
+        return props;
+      }
+      Object[] result = props.clone();
+      result[i + 1] = value;
+      return result;
+    }
+
+    int insertAt = -i - 1;
+    byte[] newTypes = new byte[types.length + 1];
+    System.arraycopy(types, 0, newTypes, 0, insertAt);
+    newTypes[insertAt] = propType;
+    System.arraycopy(types, insertAt, newTypes, insertAt + 1, types.length - insertAt);
+    Object[] result = new Object[props.length + 1];
+    result[0] = newTypes;
+    System.arraycopy(props, 1, result, 1, insertAt);
+    result[insertAt + 1] = value;
+    System.arraycopy(props, insertAt + 1, result, insertAt + 2, types.length - insertAt);
+    return result;
+  }
+
+  /** Returns {@code props} without the given property, or null if no properties remain. */
+  @Nullable
+  static Object[] remove(@Nullable Object[] props, byte propType) {
+    if (props == null) {
+      return null;
+    }
+    byte[] types = types(props);
+    int i = indexOf(types, propType);
+    if (i < 0) {
+      return props;
+    } else if (types.length == 1) {
+      return null;
+    }
+
+    byte[] newTypes;
+    if (types.length == 2) {
+      newTypes = SINGLE_TYPES[types[1 - i]];
+    } else {
+      newTypes = new byte[types.length - 1];
+      System.arraycopy(types, 0, newTypes, 0, i);
+      System.arraycopy(types, i + 1, newTypes, i, types.length - i - 1);
+    }
+    Object[] result = new Object[props.length - 1];
+    result[0] = newTypes;
+    System.arraycopy(props, 1, result, 1, i);
+    System.arraycopy(props, i + 2, result, i + 1, types.length - i - 1);
+    return result;
+  }
+
+  /**
+   * Returns the index of {@code propType} in {@code types}, or {@code -(insertion point) - 1} if it
+   * is not there. A linear search since nodes rarely have more than a few properties.
+   */
+  private static int indexOf(byte[] types, byte propType) {
+    for (int i = 0; i < types.length; i++) {
+      if (types[i] >= propType) {
+        return types[i] == propType ? i : -i - 1;
+      }
+    }
+    return -types.length - 1;
+  }
+}
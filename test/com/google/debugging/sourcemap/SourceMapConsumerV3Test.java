@@ -18,6 +18,7 @@ package com.google.debugging.sourcemap;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import com.google.debugging.sourcemap.proto.Mapping.OriginalMapping;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 
@@ -115,4 +116,59 @@ public final class SourceMapConsumerV3Test extends TestCase {
     assertThat(((JsonElement) exts.get("x_org_int")).getAsInt()).isEqualTo(2);
     assertThat(((JsonArray) exts.get("x_org_array")).size()).isEqualTo(0);
   }
+
+  public void testMappingForLine() throws Exception {
+    // The entries of the last line are relative to those of the first one.
+    String sourceMap =  "{\n" +
+                        "\"version\":3,\n" +
+                        "\"file\":\"testcode\",\n" +
+                        "\"lineCount\":3,\n" +
+                        "\"mappings\":\"AAAA,IAACA;;EACA,G\",\n" +
+                        "\"sources\":[\"a.js\"],\n" +
+                        "\"names\":[\"foo\"]\n" +
+                        "}\n";
+
+    SourceMapConsumerV3 consumer = new SourceMapConsumerV3();
+    consumer.parse(sourceMap);
+
+    assertMapping(consumer.getMappingForLine(1, 1), 1, 1, "");
+    assertMapping(consumer.getMappingForLine(1, 10), 1, 2, "foo");
+    // Lookups before the first entry of a line use the last entry before it.
+    assertMapping(consumer.getMappingForLine(2, 1), 1, 2, "foo");
+    assertMapping(consumer.getMappingForLine(3, 1), 1, 2, "foo");
+    assertMapping(consumer.getMappingForLine(3, 3), 2, 2, "");
+    assertThat(consumer.getMappingForLine(3, 6)).isNull();
+    assertThat(consumer.getMappingForLine(4, 1)).isNull();
+  }
+
+  public void testReverseMapping() throws Exception {
+    String sourceMap =  "{\n" +
+                        "\"version\":3,\n" +
+                        "\"file\":\"testcode\",\n" +
+                        "\"lineCount\":3,\n" +
+                        "\"mappings\":\"AAAA,IAACA;;EACA,G\",\n" +
+                        "\"sources\":[\"a.js\"],\n" +
+                        "\"names\":[\"foo\"]\n" +
+                        "}\n";
+
+    SourceMapConsumerV3 consumer = new SourceMapConsumerV3();
+    consumer.parse(sourceMap);
+
+    assertThat(consumer.getReverseMapping("a.js", 0, 1)).containsExactly(
+        OriginalMapping.newBuilder().setLineNumber(0).setColumnPosition(0).build(),
+        OriginalMapping.newBuilder().setLineNumber(0).setColumnPosition(4).build())
+        .inOrder();
+    assertThat(consumer.getReverseMapping("a.js", 1, 1)).containsExactly(
+        OriginalMapping.newBuilder().setLineNumber(2).setColumnPosition(2).build());
+    assertThat(consumer.getReverseMapping("a.js", 5, 1)).isEmpty();
+    assertThat(consumer.getReverseMapping("b.js", 0, 1)).isEmpty();
+  }
+
+  private static void assertMapping(
+      OriginalMapping mapping, int line, int column, String identifier) {
+    assertThat(mapping.getOriginalFile()).isEqualTo("a.js");
+    assertThat(mapping.getLineNumber()).isEqualTo(line);
+    assertThat(mapping.getColumnPosition()).isEqualTo(column);
+    assertThat(mapping.getIdentifier()).isEqualTo(identifier);
+  }
 }
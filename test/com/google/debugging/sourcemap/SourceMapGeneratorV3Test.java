@@ -522,6 +522,83 @@ public final class SourceMapGeneratorV3Test extends SourceMapTestCase {
     check(inputs, output.toString(), mapContents.toString());
   }
 
+  public void testSourceMapSplicing() throws Exception {
+    final String INPUT1 = "file1";
+    final String INPUT2 = "file2";
+    LinkedHashMap<String, String> inputs = new LinkedHashMap<>();
+    inputs.put(INPUT1, "var __FOO__ = 1;");
+    inputs.put(INPUT2, "var __BAR__ = 2;");
+    RunResult result1 = compile(inputs.get(INPUT1), INPUT1);
+    RunResult result2 = compile(inputs.get(INPUT2), INPUT2);
+
+    StringBuilder output = new StringBuilder();
+    FilePosition offset = appendAndCount(output, result1.generatedSource);
+    output.append(result2.generatedSource);
+
+    List<SourceMapSection> sections = ImmutableList.of(
+        SourceMapSection.forMap(result1.sourceMapFileContent, 0, 0),
+        SourceMapSection.forMap(
+            result2.sourceMapFileContent, offset.getLine(), offset.getColumn()));
+
+    SourceMapGeneratorV3 generator = new SourceMapGeneratorV3();
+    StringBuilder mapContents = new StringBuilder();
+    generator.appendMergedSectionsTo(mapContents, "out.js", sections, null);
+
+    check(inputs, output.toString(), mapContents.toString());
+  }
+
+  public void testSourceMapSplicingRewritesRelativeValues() throws Exception {
+    String map1 = "{\n"
+        + "\"version\":3,\n"
+        + "\"mappings\":\"AAAA,IAACA\",\n"
+        + "\"sources\":[\"a.js\"],\n"
+        + "\"names\":[\"foo\"]\n"
+        + "}\n";
+    String map2 = "{\n"
+        + "\"version\":3,\n"
+        + "\"mappings\":\"AAAA;EAACA\",\n"
+        + "\"sources\":[\"b.js\"],\n"
+        + "\"names\":[\"bar\"]\n"
+        + "}\n";
+
+    SourceMapGeneratorV3 generator = new SourceMapGeneratorV3();
+    StringBuilder out = new StringBuilder();
+    generator.appendMergedSectionsTo(out, "out.js", ImmutableList.of(
+        SourceMapSection.forMap(map1, 0, 0),
+        SourceMapSection.forMap(map2, 0, 10)), null);
+
+    // Only the first entry of the second section and the entry with a
+    // renumbered name are encoded again.
+    assertThat(out.toString())
+        .isEqualTo("{\n"
+            + "\"version\":3,\n"
+            + "\"file\":\"out.js\",\n"
+            + "\"lineCount\":2,\n"
+            + "\"mappings\":\"AAAA,IAACA,MCAD;EAACC\",\n"
+            + "\"sources\":[\"a.js\",\"b.js\"],\n"
+            + "\"names\":[\"foo\",\"bar\"]\n"
+            + "}\n");
+  }
+
+  public void testSourceMapSplicingOverlappingSections() throws Exception {
+    String map = "{\n"
+        + "\"version\":3,\n"
+        + "\"mappings\":\"AAAA,UAAC\",\n"
+        + "\"sources\":[\"a.js\"],\n"
+        + "\"names\":[]\n"
+        + "}\n";
+
+    SourceMapGeneratorV3 generator = new SourceMapGeneratorV3();
+    try {
+      generator.appendMergedSectionsTo(new StringBuilder(), "out.js", ImmutableList.of(
+          SourceMapSection.forMap(map, 0, 0),
+          SourceMapSection.forMap(map, 0, 5)), null);
+      fail("Expected SourceMapParseException");
+    } catch (SourceMapParseException e) {
+      assertThat(e.getMessage()).contains("overlaps the previous section");
+    }
+  }
+
   public void testSourceMapExtensions() throws Exception {
     //generating the json
     SourceMapGeneratorV3 mapper = new SourceMapGeneratorV3();
@@ -16,6 +16,8 @@
 
 package com.google.javascript.jscomp;
 
+import static com.google.common.truth.Truth.assertThat;
+
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
@@ -783,6 +785,49 @@ public final class CodePrinterTest extends CodePrinterTestBase {
         })));
   }
 
+  public void testWriteToMatchesBuild() throws Exception {
+    // Long enough for the printers to write out several chunks, with lines cut at preferred
+    // positions and a final cut that is undone by preferLineBreakAtEndOfFile.
+    StringBuilder js = new StringBuilder();
+    for (int i = 0; i < 2000; i++) {
+      js.append("function f").append(i).append("(a, b) { return a instanceof b ? a + ")
+          .append(i).append(" : 'str'; }\n");
+    }
+    js.append("\"123456789012345678901234567890\";\"1234567890\"");
+    Node root = parse(js.toString());
+
+    for (final boolean prettyPrint : new boolean[] {false, true}) {
+      CompilerOptions options = newCompilerOptions(new CompilerOptionBuilder() {
+        @Override
+        void setOptions(CompilerOptions options) {
+          options.setPrettyPrint(prettyPrint);
+          options.setLineLengthThreshold(30);
+          options.setPreferLineBreakAtEndOfFile(true);
+        }
+      });
+
+      SourceMap builtMap = SourceMap.Format.V3.getInstance();
+      String built = new CodePrinter.Builder(root)
+          .setCompilerOptions(options)
+          .setSourceMap(builtMap)
+          .build();
+      SourceMap writtenMap = SourceMap.Format.V3.getInstance();
+      StringBuilder written = new StringBuilder();
+      new CodePrinter.Builder(root)
+          .setCompilerOptions(options)
+          .setSourceMap(writtenMap)
+          .writeTo(written);
+
+      assertThat(built.length()).isGreaterThan(100000);
+      assertEquals(built, written.toString());
+      StringBuilder builtMapOut = new StringBuilder();
+      builtMap.appendTo(builtMapOut, "out.js");
+      StringBuilder writtenMapOut = new StringBuilder();
+      writtenMap.appendTo(writtenMapOut, "out.js");
+      assertEquals(builtMapOut.toString(), writtenMapOut.toString());
+    }
+  }
+
   public void testPrettyPrinter() {
     // Ensure that the pretty printer inserts line breaks at appropriate
     // places.
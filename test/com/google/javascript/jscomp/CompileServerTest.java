@@ -0,0 +1,248 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.javascript.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+
+/** Tests for {@link CompileServer}. */
+public final class CompileServerTest extends TestCase {
+  private static final Joiner LINE_JOINER = Joiner.on('\n');
+
+  private static final Supplier<Compiler> COMPILER_FACTORY =
+      new Supplier<Compiler>() {
+        @Override
+        public Compiler get() {
+          return new Compiler();
+        }
+      };
+
+  private static final ImmutableList<SourceFile> EXTERNS =
+      ImmutableList.of(SourceFile.fromCode("externs", "var extVar = 3;"));
+
+  private static final String BASE =
+      LINE_JOINER.join(
+          "/** @const */ var goog = goog || {};",
+          "goog.require = function(x) {};",
+          "goog.provide = function(x) {};");
+
+  private static final String A =
+      LINE_JOINER.join(
+          "goog.provide('a');",
+          "/** @return {number} */",
+          "a.f = function() { return 1; };");
+
+  private static final String B =
+      LINE_JOINER.join(
+          "goog.provide('b');",
+          "goog.require('a');",
+          "/** @type {number} */",
+          "b.x = a.f();");
+
+  private static final String C =
+      LINE_JOINER.join(
+          "goog.provide('c');",
+          "/** @type {string} */",
+          "c.y = 'y';");
+
+  private Path directory;
+  private String base;
+  private String a;
+  private String b;
+  private String c;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    directory = Files.createTempDirectory("compile_server");
+    base = write("base.js", BASE);
+    a = write("a.js", A);
+    b = write("b.js", B);
+    c = write("c.js", C);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(directory);
+    super.tearDown();
+  }
+
+  public void testFirstBuildIsFull() {
+    CompileServer server = newServer();
+    CompileServer.Build build = server.update(ImmutableList.of(a));
+    assertThat(build.getNumber()).isEqualTo(1);
+    assertThat(build.isFull()).isTrue();
+    assertThat(build.getCheckedFiles()).containsExactly(base, a, b, c).inOrder();
+    assertThat(build.getErrors()).isEmpty();
+    assertThat(build.getWarnings()).isEmpty();
+  }
+
+  public void testChangedFileAndDependentsAreRechecked() throws IOException {
+    CompileServer server = newServer();
+    server.fullBuild();
+
+    write("a.js", A.replace("1", "'one'"));
+    CompileServer.Build build = server.update(ImmutableList.of(a));
+    assertThat(build.getNumber()).isEqualTo(2);
+    assertThat(build.isFull()).isFalse();
+    assertThat(build.getCheckedFiles()).containsExactly(a, b).inOrder();
+    assertThat(build.getWarnings()).hasSize(1);
+    assertThat(build.getWarnings().get(0).sourceName).isEqualTo(a);
+    assertThat(build.getWarnings().get(0).getType())
+        .isEqualTo(TypeValidator.TYPE_MISMATCH_WARNING);
+
+    write("a.js", A);
+    build = server.update(ImmutableList.of(a));
+    assertThat(build.isFull()).isFalse();
+    assertThat(build.getWarnings()).isEmpty();
+  }
+
+  public void testDiagnosticsOfUncheckedFilesAreKept() throws IOException {
+    write("c.js", C.replace("'y'", "0"));
+    CompileServer server = newServer();
+    assertThat(server.fullBuild().getWarnings()).hasSize(1);
+
+    write("a.js", A + "\n// A comment.");
+    CompileServer.Build build = server.update(ImmutableList.of(a));
+    assertThat(build.getCheckedFiles()).containsExactly(a, b).inOrder();
+    assertThat(build.getWarnings()).hasSize(1);
+    assertThat(build.getWarnings().get(0).sourceName).isEqualTo(c);
+  }
+
+  public void testChangedRequiresCauseFullBuild() throws IOException {
+    CompileServer server = newServer();
+    server.fullBuild();
+
+    write("c.js", "goog.require('a');\n" + C);
+    CompileServer.Build build = server.update(ImmutableList.of(c));
+    assertThat(build.isFull()).isTrue();
+  }
+
+  public void testDeletedFileCausesFullBuild() throws IOException {
+    CompileServer server = newServer();
+    server.fullBuild();
+
+    Files.delete(directory.resolve("c.js"));
+    CompileServer.Build build = server.update(ImmutableList.of(c));
+    assertThat(build.isFull()).isTrue();
+    assertThat(build.getCheckedFiles()).containsExactly(base, a, b).inOrder();
+
+    // Once deleted, further changes to it are ignored until it comes back.
+    build = server.update(ImmutableList.of(c));
+    assertThat(build.isFull()).isFalse();
+    assertThat(build.getCheckedFiles()).isEmpty();
+
+    write("c.js", C);
+    build = server.update(ImmutableList.of(c));
+    assertThat(build.isFull()).isTrue();
+    assertThat(build.getCheckedFiles()).containsExactly(base, a, b, c).inOrder();
+  }
+
+  public void testUnknownFilesAreIgnored() {
+    CompileServer server = newServer();
+    server.fullBuild();
+    CompileServer.Build build = server.update(ImmutableList.of("unknown.js"));
+    assertThat(build.isFull()).isFalse();
+    assertThat(build.getCheckedFiles()).isEmpty();
+  }
+
+  public void testServe() throws Exception {
+    CompileServer server = newServer();
+    write("a.js", A.replace("1", "'one'"));
+    StringReader commands =
+        new StringReader(
+            LINE_JOINER.join(
+                "{\"command\": \"update\", \"files\": [" + quote(a) + "]}",
+                "{\"command\": \"frobnicate\"}",
+                "{\"command\": \"stop\"}"));
+    StringWriter out = new StringWriter();
+    server.serve(commands, out, null);
+
+    // Errors in commands are written as soon as they are read, so may come before any build.
+    List<String> builds = new ArrayList<>();
+    List<String> errors = new ArrayList<>();
+    for (String line : out.toString().split("\n")) {
+      (line.startsWith("{\"build\":") ? builds : errors).add(line);
+    }
+    assertThat(errors).containsExactly("{\"error\":\"Unknown command: frobnicate\"}");
+    assertThat(builds).hasSize(2);
+    assertThat(builds.get(0)).startsWith("{\"build\":1,\"full\":true,");
+    assertThat(builds.get(0)).contains("\"type\":\"JSC_TYPE_MISMATCH\"");
+    assertThat(builds.get(1))
+        .startsWith("{\"build\":2,\"full\":false,\"checked_files\":[" + quote(a) + ",");
+  }
+
+  public void testMalformedCommandsAreReported() throws Exception {
+    CompileServer server = newServer();
+    StringReader commands =
+        new StringReader(
+            LINE_JOINER.join(
+                "{\"command\": {}}",
+                "{\"command\": null}",
+                "{\"command\": \"update\", \"files\": [[]]}",
+                "{\"command\": \"stop\"}"));
+    StringWriter out = new StringWriter();
+    server.serve(commands, out, null);
+
+    List<String> errors = new ArrayList<>();
+    for (String line : out.toString().split("\n")) {
+      if (line.startsWith("{\"error\":")) {
+        errors.add(line);
+      }
+    }
+    assertThat(errors).hasSize(3);
+  }
+
+  private CompileServer newServer() {
+    CompilerOptions options = new CompilerOptions();
+    options.declaredGlobalExternsOnWindow = false;
+    options.setClosurePass(true);
+    options.setCheckTypes(true);
+    List<SourceFile> inputs = new ArrayList<>();
+    for (String name : ImmutableList.of(base, a, b, c)) {
+      inputs.add(SourceFile.fromFile(name, UTF_8));
+    }
+    return new CompileServer(COMPILER_FACTORY, EXTERNS, inputs, options);
+  }
+
+  private String write(String name, String code) throws IOException {
+    Path file = directory.resolve(name);
+    Files.write(file, code.getBytes(UTF_8));
+    return file.toString();
+  }
+
+  private static String quote(String s) {
+    return "\"" + s.replace("\\", "\\\\") + "\"";
+  }
+}
@@ -435,6 +435,35 @@ public final class CompilerTest extends TestCase {
     assertFalse(compiler.getInput(new InputId("in2")).isExtern());
   }
 
+  public void testParallelParsingKeepsInputOrderAndAnnotatesInputs() {
+    CompilerOptions options = new CompilerOptions();
+    options.setNumParallelThreads(4);
+    options.sourceMapOutputPath = "out.js.map";
+    List<SourceFile> inputs = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      inputs.add(SourceFile.fromCode("in" + i, "var a" + i + " = {b: " + i + "}.b;"));
+    }
+    Compiler compiler = new Compiler();
+    compiler.init(EMPTY_EXTERNS, inputs, options);
+    compiler.parseInputs();
+    assertFalse(compiler.hasErrors());
+
+    Node script = compiler.getJsRoot().getFirstChild();
+    for (int i = 0; i < inputs.size(); i++) {
+      assertEquals("in" + i, script.getSourceFileName());
+      Node name = script.getFirstFirstChild();
+      assertEquals("a" + i, name.getOriginalName());
+      assertEquals("b", name.getFirstChild().getOriginalName());
+      script = script.getNext();
+    }
+    assertNull(script);
+
+    // The same threads parse the inputs of the next compilation.
+    compiler.init(EMPTY_EXTERNS, inputs.subList(0, 2), options);
+    compiler.parseInputs();
+    assertThat(compiler.getJsRoot().getChildCount()).isEqualTo(2);
+  }
+
   public void testRebuildInputsFromModule() {
     List<JSModule> modules = ImmutableList.of(
         new JSModule("m1"), new JSModule("m2"));
@@ -471,6 +500,25 @@ public final class CompilerTest extends TestCase {
     assertEquals(null, compiler.getSourceLine("bar", 1));
   }
 
+  public void testWarningExcerptAfterReleasingSources() throws Exception {
+    CompilerOptions options = new CompilerOptions();
+    options.setReleaseSourcesAfterParse(true);
+    options.setCheckSuspiciousCode(true);
+    SourceFile input = SourceFile.fromCode("input.js", "var x = 1;\nx;\n");
+    Compiler compiler = new Compiler();
+    compiler.compile(ImmutableList.<SourceFile>of(), ImmutableList.of(input), options);
+    assertTrue(input.hasReleasedCode());
+
+    JSError[] warnings = compiler.getWarnings();
+    assertThat(warnings).hasLength(1);
+    String warning = new LightweightMessageFormatter(compiler).formatWarning(warnings[0]);
+    assertThat(warning).contains("\nx;\n");
+    assertEquals("var x = 1;", compiler.getSourceLine("input.js", 1));
+    assertEquals("var x = 1;\nx;", compiler.getSourceRegion("input.js", 2).getSourceExcerpt());
+    // The excerpts come from the compiler's cache, not from the file.
+    assertTrue(input.hasReleasedCode());
+  }
+
   public void testFileoverviewTwice() throws Exception {
     List<SourceFile> input = ImmutableList.of(
         SourceFile.fromCode("foo",
@@ -865,6 +913,22 @@ public final class CompilerTest extends TestCase {
     assertEquals(js, cb.toString());
   }
 
+  public void testToSourceAppendable() throws Exception {
+    Compiler compiler = new Compiler();
+    CompilerOptions options = new CompilerOptions();
+    options.setPrintInputDelimiter(true);
+    compiler.compile(
+        ImmutableList.<SourceFile>of(),
+        ImmutableList.of(
+            SourceFile.fromCode("a.js", "/** @license A */ var a = 1"),
+            SourceFile.fromCode("b.js", "var b = a + 1;")),
+        options);
+    StringBuilder out = new StringBuilder();
+    compiler.toSource(out);
+    assertEquals(compiler.toSource(), out.toString());
+    assertThat(out.toString()).contains("var a=1;\n// Input 1\n");
+  }
+
   public void testWarningsFiltering() {
     // Warnings and errors are left alone when no filtering is used
     assertTrue(hasOutput(
@@ -23,6 +23,7 @@ import com.google.common.collect.Ordering;
 import com.google.javascript.jscomp.ControlFlowGraph.Branch;
 import com.google.javascript.jscomp.graph.DiGraph.DiGraphEdge;
 import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
+import com.google.javascript.rhino.IR;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
 import java.util.ArrayList;
@@ -1416,6 +1417,44 @@ public final class ControlFlowAnalysisTest extends TestCase {
             Token.SCRIPT, Token.BLOCK, Token.VAR, Token.DO, Token.EXPR_RESULT));
   }
 
+  public void testSuccAndPredNodesFollowEdges() {
+    ControlFlowGraph<Node> cfg =
+        createCfg(
+            "function f(a) {"
+                + "  try { while (a) { if (a--) { continue; } else { break; } } }"
+                + "  catch (e) { return e; } finally { a = 0; }"
+                + "  switch (a) { case 1: a++; default: a--; }"
+                + "}");
+    for (DiGraphNode<Node, Branch> node : cfg.getDirectedGraphNodes()) {
+      List<DiGraphNode<Node, Branch>> succ = new ArrayList<>();
+      for (DiGraphEdge<Node, Branch> edge : node.getOutEdges()) {
+        succ.add(edge.getDestination());
+      }
+      List<DiGraphNode<Node, Branch>> pred = new ArrayList<>();
+      for (DiGraphEdge<Node, Branch> edge : node.getInEdges()) {
+        pred.add(edge.getSource());
+      }
+      assertThat(cfg.getDirectedSuccNodes(node)).containsExactlyElementsIn(succ).inOrder();
+      assertThat(cfg.getDirectedPredNodes(node)).containsExactlyElementsIn(pred).inOrder();
+    }
+
+    // Changing the edges of the graph doesn't leave stale neighbors behind.
+    DiGraphNode<Node, Branch> entry = cfg.getEntry();
+    cfg.connect(entry.getValue(), Branch.UNCOND, null);
+    assertThat(cfg.getDirectedSuccNodes(entry)).contains(cfg.getImplicitReturn());
+    assertThat(cfg.getDirectedPredNodes(cfg.getImplicitReturn())).contains(entry);
+  }
+
+  public void testSuccAndPredNodesWithNodeCreatedAfterBuild() {
+    ControlFlowGraph<Node> cfg = createCfg("var a = 1; a++;");
+    DiGraphNode<Node, Branch> added = cfg.createDirectedGraphNode(IR.empty());
+    DiGraphNode<Node, Branch> entry = cfg.getEntry();
+    assertThat(cfg.getDirectedSuccNodes(entry)).hasSize(1);
+    assertThat(cfg.getDirectedPredNodes(entry)).isEmpty();
+    assertThat(cfg.getDirectedSuccNodes(added)).isEmpty();
+    assertThat(cfg.getDirectedPredNodes(added)).isEmpty();
+  }
+
   public void testBreakInFinally1() {
     String src =
         "f = function() {\n" +
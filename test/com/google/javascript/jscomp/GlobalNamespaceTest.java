@@ -18,8 +18,12 @@ package com.google.javascript.jscomp;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import com.google.common.collect.ImmutableSet;
+import com.google.javascript.jscomp.GlobalNamespace.AstChange;
 import com.google.javascript.jscomp.GlobalNamespace.Name;
 import com.google.javascript.jscomp.GlobalNamespace.Ref;
+import com.google.javascript.rhino.IR;
+import com.google.javascript.rhino.Node;
 
 import junit.framework.TestCase;
 
@@ -68,6 +72,59 @@ public final class GlobalNamespaceTest extends TestCase {
     assertEquals(0, n.globalSets);
   }
 
+  public void testScanNewNodesKeepsKnownRefs() {
+    Compiler compiler = new Compiler();
+    Node script = compiler.parseTestCode("var a = {b: 1}; var c = x;");
+    GlobalNamespace namespace = new GlobalNamespace(compiler, script);
+    assertThat(namespace.getSlot("a.b").getRefs()).hasSize(1);
+    assertThat(namespace.getSlot("c").getRefs()).hasSize(1);
+
+    // var c = a.b;
+    Node x = script.getLastChild().getFirstChild().getFirstChild();
+    Node getProp = IR.getprop(IR.name("a"), IR.string("b"));
+    x.replaceWith(getProp);
+    Scope scope = new Es6SyntacticScopeCreator(compiler).createScope(script, null);
+    namespace.scanNewNodes(ImmutableSet.of(new AstChange(null, scope, getProp)));
+
+    Name ab = namespace.getSlot("a.b");
+    assertThat(ab.getRefs()).hasSize(2);
+    assertEquals(1, ab.globalSets);
+    assertEquals(1, ab.aliasingGets);
+    // The declaration of c was visited again, but is only recorded once.
+    Name c = namespace.getSlot("c");
+    assertThat(c.getRefs()).hasSize(1);
+    assertEquals(1, c.globalSets);
+  }
+
+  public void testHasRef() {
+    Name a = new Name("a", null, false);
+    Node n = IR.name("a");
+    assertFalse(a.hasRef(n, Ref.Type.DIRECT_GET));
+
+    Ref first = Ref.createRefForTesting(Ref.Type.DIRECT_GET);
+    first.node = n;
+    a.addRef(first);
+    assertTrue(a.hasRef(n, Ref.Type.DIRECT_GET));
+    assertFalse(a.hasRef(n, Ref.Type.CALL_GET));
+    assertFalse(a.hasRef(IR.name("a"), Ref.Type.DIRECT_GET));
+
+    Ref second = Ref.createRefForTesting(Ref.Type.DIRECT_GET);
+    second.node = n;
+    a.addRef(second);
+    a.removeRef(first);
+    assertTrue(a.hasRef(n, Ref.Type.DIRECT_GET));
+    a.removeRef(second);
+    assertFalse(a.hasRef(n, Ref.Type.DIRECT_GET));
+  }
+
+  public void testFullName() {
+    Name a = new Name("a", null, false);
+    Name b = a.addProperty("b", false, true);
+    Name c = b.addProperty("c", false, true);
+    assertEquals("a.b.c", c.getFullName());
+    assertEquals("c", c.getBaseName());
+  }
+
   private Ref createNodelessRef(Ref.Type type) {
     return Ref.createRefForTesting(type);
   }
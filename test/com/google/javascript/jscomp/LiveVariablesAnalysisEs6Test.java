@@ -21,7 +21,8 @@ import static com.google.common.truth.Truth.assertThat;
 
 import com.google.javascript.jscomp.AbstractCompiler.LifeCycleStage;
 import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
-import com.google.javascript.jscomp.DataFlowAnalysis.FlowState;
+import com.google.javascript.jscomp.ControlFlowGraph.Branch;
+import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
 import com.google.javascript.rhino.InputId;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
@@ -239,6 +240,14 @@ public final class LiveVariablesAnalysisEs6Test extends TestCase {
 
   }
 
+  public void testEscapedParametersAreNeverLive() {
+    // The parameters escape wherever arguments is read, so they are not
+    // tracked before that read either.
+    assertNotLiveBeforeX("X:param1(); if (param2) { arguments[0] }", "param1");
+    assertNotLiveBeforeX("var a; X:a = param1; while (a) { a = arguments }", "param1");
+    assertNotLiveBeforeX("if (param2) { arguments[0] } X:param1()", "param1");
+  }
+
   public void testTryCatchFinally() {
     assertLiveAfterX("var a; try {X:a=1} finally {a}", "a");
     assertLiveAfterX("var a; try {a()} catch(e) {X:a=1} finally {a}", "a");
@@ -358,54 +367,81 @@ public final class LiveVariablesAnalysisEs6Test extends TestCase {
     assertNotEscaped("var a = 1, {b: b} = f(), c = g()", "c");
   }
 
+  public void testLargeFunctionTakesFewerStepsThanLatticeAnalysis() {
+    String src = "var a, b, c, i;" + generateLoops(300) + "f(a, b, c);";
+    LiveVariablesAnalysisEs6 bitVectorLiveness = computeLiveness(src);
+    LiveVariablesAnalysis latticeLiveness = computeLatticeLiveness(src);
+    assertThat(bitVectorLiveness.getNumSteps()).isLessThan(latticeLiveness.getNumSteps());
+  }
+
+  /**
+   * Returns {@code numLoops} loops that only read and write {@code a}, {@code b}, {@code c} and
+   * {@code i}, like the large functions of generated code.
+   */
+  private static String generateLoops(int numLoops) {
+    StringBuilder sb = new StringBuilder();
+    for (int n = 0; n < numLoops; n++) {
+      switch (n % 3) {
+        case 0:
+          sb.append("while (f(a)) { b = a + c; if (f(b)) { c = b; continue; } a = c; }");
+          break;
+        case 1:
+          sb.append("for (i = 0; i < b; i++) { a = f(i) ? a : c; }");
+          break;
+        default:
+          sb.append("do { c = f(a, b); } while (c);");
+      }
+    }
+    return sb.toString();
+  }
+
   private void assertLiveBeforeX(String src, String var) {
-    FlowState<LiveVariablesAnalysisEs6.LiveVariableLattice> state = getFlowStateAtX(src);
-    assertNotNull(src + " should contain a label 'X:'", state);
+    DiGraphNode<Node, Branch> cfgNode = getCfgNodeAtX(src);
+    assertNotNull(src + " should contain a label 'X:'", cfgNode);
     assertTrue(
         "Variable" + var + " should be live before X",
-        state.getIn().isLive(liveness.getVarIndex(var)));
+        liveness.isLiveIn(cfgNode, liveness.getVarIndex(var)));
   }
 
   private void assertLiveAfterX(String src, String var) {
-    FlowState<LiveVariablesAnalysisEs6.LiveVariableLattice> state = getFlowStateAtX(src);
-    assertNotNull("Label X should be in the input program.", state);
+    DiGraphNode<Node, Branch> cfgNode = getCfgNodeAtX(src);
+    assertNotNull("Label X should be in the input program.", cfgNode);
     assertTrue(
         "Variable" + var + " should be live after X",
-        state.getOut().isLive(liveness.getVarIndex(var)));
+        liveness.isLiveOut(cfgNode, liveness.getVarIndex(var)));
   }
 
   private void assertNotLiveAfterX(String src, String var) {
-    FlowState<LiveVariablesAnalysisEs6.LiveVariableLattice> state = getFlowStateAtX(src);
-    assertNotNull("Label X should be in the input program.", state);
+    DiGraphNode<Node, Branch> cfgNode = getCfgNodeAtX(src);
+    assertNotNull("Label X should be in the input program.", cfgNode);
     assertFalse(
         "Variable" + var + " should not be live after X",
-        state.getOut().isLive(liveness.getVarIndex(var)));
+        liveness.isLiveOut(cfgNode, liveness.getVarIndex(var)));
   }
 
   private void assertNotLiveBeforeX(String src, String var) {
-    FlowState<LiveVariablesAnalysisEs6.LiveVariableLattice> state = getFlowStateAtX(src);
-    assertNotNull("Label X should be in the input program.", state);
+    DiGraphNode<Node, Branch> cfgNode = getCfgNodeAtX(src);
+    assertNotNull("Label X should be in the input program.", cfgNode);
     assertFalse(
         "Variable" + var + " should not be live before X",
-        state.getIn().isLive(liveness.getVarIndex(var)));
+        liveness.isLiveIn(cfgNode, liveness.getVarIndex(var)));
   }
 
-  private FlowState<LiveVariablesAnalysisEs6.LiveVariableLattice> getFlowStateAtX(String src) {
+  private DiGraphNode<Node, Branch> getCfgNodeAtX(String src) {
     liveness = computeLiveness(src);
-    return getFlowStateAtX(liveness.getCfg().getEntry().getValue(), liveness.getCfg());
+    return getCfgNodeAtX(liveness.getCfg().getEntry().getValue(), liveness.getCfg());
   }
 
-  private FlowState<LiveVariablesAnalysisEs6.LiveVariableLattice> getFlowStateAtX(
-      Node node, ControlFlowGraph<Node> cfg) {
+  private DiGraphNode<Node, Branch> getCfgNodeAtX(Node node, ControlFlowGraph<Node> cfg) {
     if (node.isLabel()) {
       if (node.getFirstChild().getString().equals("X")) {
-        return cfg.getNode(node.getLastChild()).getAnnotation();
+        return cfg.getDirectedGraphNode(node.getLastChild());
       }
     }
     for (Node c = node.getFirstChild(); c != null; c = c.getNext()) {
-      FlowState<LiveVariablesAnalysisEs6.LiveVariableLattice> state = getFlowStateAtX(c, cfg);
-      if (state != null) {
-        return state;
+      DiGraphNode<Node, Branch> cfgNode = getCfgNodeAtX(c, cfg);
+      if (cfgNode != null) {
+        return cfgNode;
       }
     }
     return null;
@@ -426,6 +462,24 @@ public final class LiveVariablesAnalysisEs6Test extends TestCase {
     }
   }
 
+  /** Computes the liveness of the same function with the lattice based framework. */
+  private static LiveVariablesAnalysis computeLatticeLiveness(String src) {
+    Compiler compiler = new Compiler();
+    compiler.initOptions(new CompilerOptions());
+    src = "function _FUNCTION(param1, param2){" + src + "}";
+    Node n = compiler.parseTestCode(src).removeFirstChild();
+    Node script = new Node(Token.SCRIPT, n);
+    script.setInputId(new InputId("test"));
+    ScopeCreator scopeCreator = SyntacticScopeCreator.makeUntyped(compiler);
+    Scope scope = scopeCreator.createScope(n, Scope.createGlobalScope(script));
+    ControlFlowAnalysis cfa = new ControlFlowAnalysis(compiler, false, true);
+    cfa.process(null, n);
+    LiveVariablesAnalysis analysis =
+        new LiveVariablesAnalysis(cfa.getCfg(), scope, compiler, scopeCreator);
+    analysis.analyze();
+    return analysis;
+  }
+
   private static LiveVariablesAnalysisEs6 computeLiveness(String src) {
     // Set up compiler
     Compiler compiler = new Compiler();
@@ -18,6 +18,7 @@ package com.google.javascript.jscomp;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import com.google.common.collect.Iterables;
 import com.google.javascript.jscomp.AbstractCompiler.LifeCycleStage;
 import com.google.javascript.jscomp.NodeTraversal.AbstractPostOrderCallback;
 import com.google.javascript.rhino.Node;
@@ -119,6 +120,34 @@ public final class MaybeReachingVariableUseTest extends TestCase {
         + "U: var z = x;");
   }
 
+  public void testLargeFunction() {
+    assertMatch("var a, b, c, i; D: var x = f();" + generateLoops(300) + "U: f(x);");
+    // Each node is visited once, and the nodes of a loop once more.
+    int numNodes = Iterables.size(useDef.getCfg().getDirectedGraphNodes());
+    assertThat(useDef.getNumSteps()).isLessThan(2 * numNodes);
+  }
+
+  /**
+   * Returns {@code numLoops} loops that only read and write {@code a}, {@code b}, {@code c} and
+   * {@code i}, like the large functions of generated code.
+   */
+  private static String generateLoops(int numLoops) {
+    StringBuilder sb = new StringBuilder();
+    for (int n = 0; n < numLoops; n++) {
+      switch (n % 3) {
+        case 0:
+          sb.append("while (f(a)) { b = a + c; if (f(b)) { c = b; continue; } a = c; }");
+          break;
+        case 1:
+          sb.append("for (i = 0; i < b; i++) { a = f(i) ? a : c; }");
+          break;
+        default:
+          sb.append("do { c = f(a, b); } while (c);");
+      }
+    }
+    return sb.toString();
+  }
+
   /**
    * The def of x at D: may be used by the read of x at U:.
    */
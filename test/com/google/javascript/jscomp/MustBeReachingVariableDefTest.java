@@ -16,7 +16,10 @@
 
 package com.google.javascript.jscomp;
 
+import static com.google.common.truth.Truth.assertThat;
+
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 import com.google.javascript.jscomp.AbstractCompiler.LifeCycleStage;
 import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
 import com.google.javascript.jscomp.NodeTraversal.AbstractPostOrderCallback;
@@ -155,6 +158,34 @@ public final class MustBeReachingVariableDefTest extends TestCase {
     assertNotMatch("param1=1; var x; D:x=param1; var y=arguments; U:x");
   }
 
+  public void testLargeFunction() {
+    assertMatch("var a, b, c, i; D: var x = f();" + generateLoops(300) + "U: f(x);");
+    // Each node is visited once, and the nodes of a loop once more.
+    int numNodes = Iterables.size(defUse.getCfg().getDirectedGraphNodes());
+    assertThat(defUse.getNumSteps()).isLessThan(2 * numNodes);
+  }
+
+  /**
+   * Returns {@code numLoops} loops that only read and write {@code a}, {@code b}, {@code c} and
+   * {@code i}, like the large functions of generated code.
+   */
+  private static String generateLoops(int numLoops) {
+    StringBuilder sb = new StringBuilder();
+    for (int n = 0; n < numLoops; n++) {
+      switch (n % 3) {
+        case 0:
+          sb.append("while (f(a)) { b = a + c; if (f(b)) { c = b; continue; } a = c; }");
+          break;
+        case 1:
+          sb.append("for (i = 0; i < b; i++) { a = f(i) ? a : c; }");
+          break;
+        default:
+          sb.append("do { c = f(a, b); } while (c);");
+      }
+    }
+    return sb.toString();
+  }
+
   /**
    * The use of x at U: is the definition of x at D:.
    */
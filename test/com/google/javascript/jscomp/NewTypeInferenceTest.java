@@ -1068,6 +1068,34 @@ public final class NewTypeInferenceTest extends NewTypeInferenceTestBase {
         NewTypeInference.NOT_CALLABLE);
   }
 
+  public void testParallelAnalysisOfScopes() {
+    compilerOptions.setNumParallelThreads(4);
+
+    typeCheck(LINE_JOINER.join(
+        "function f() { return 'str'; }",
+        "function g() { f() - 5; }",
+        "function h(x) { x - 5; }",
+        "h(5 < 6);"),
+        NewTypeInference.INVALID_INFERRED_RETURN_TYPE,
+        NewTypeInference.INVALID_ARGUMENT_TYPE);
+
+    // The summaries of inner functions are used by their enclosing functions.
+    typeCheck(LINE_JOINER.join(
+        "function f() {",
+        "  function g() { return 1; }",
+        "  function h() { return 'str'; }",
+        "  var /** string */ s = g();",
+        "  var /** number */ n = h();",
+        "}",
+        "function k() {",
+        "  function m(x) { return x - 1; }",
+        "  m('str');",
+        "}"),
+        NewTypeInference.MISTYPED_ASSIGN_RHS,
+        NewTypeInference.MISTYPED_ASSIGN_RHS,
+        NewTypeInference.INVALID_ARGUMENT_TYPE);
+  }
+
   public void testDeferredChecks() {
     typeCheck(LINE_JOINER.join(
         "function f() { return 'str'; }",
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.javascript.jscomp.PassFactory.HotSwapPassFactory;
+import com.google.javascript.rhino.Node;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import junit.framework.TestCase;
+
+/** Tests for {@link ParallelCompilerPass}. */
+public final class ParallelCompilerPassTest extends TestCase {
+  private static final int NUM_INPUTS = 20;
+
+  private static final DiagnosticType VISITED =
+      DiagnosticType.warning("JSC_TEST_VISITED", "visited");
+
+  private Compiler compiler;
+
+  @Override
+  public void setUp() {
+    CompilerOptions options = new CompilerOptions();
+    List<SourceFile> inputs = new ArrayList<>();
+    for (int i = 0; i < NUM_INPUTS; i++) {
+      inputs.add(SourceFile.fromCode("input" + i + ".js", "var x" + i + " = " + i + ";"));
+    }
+    compiler = new Compiler();
+    compiler.init(ImmutableList.<SourceFile>of(), inputs, options);
+    compiler.parse();
+  }
+
+  public void testRunsOnEveryScript() {
+    final Set<String> visited = Collections.synchronizedSet(new HashSet<String>());
+    runParallel(4, new HotSwapCompilerPass() {
+      @Override
+      public void process(Node externs, Node root) {
+        fail("Only the hot-swap version should run");
+      }
+
+      @Override
+      public void hotSwapScript(Node scriptRoot, Node originalRoot) {
+        assertTrue(visited.add(scriptRoot.getSourceFileName()));
+        compiler.report(JSError.make(scriptRoot, VISITED));
+      }
+    });
+
+    assertThat(visited).hasSize(NUM_INPUTS);
+    assertThat(compiler.getWarnings()).hasLength(NUM_INPUTS);
+  }
+
+  public void testRunsWholePassWithOneThread() {
+    final List<Node> roots = new ArrayList<>();
+    runParallel(1, new HotSwapCompilerPass() {
+      @Override
+      public void process(Node externs, Node root) {
+        roots.add(root);
+      }
+
+      @Override
+      public void hotSwapScript(Node scriptRoot, Node originalRoot) {
+        fail("The whole pass should run");
+      }
+    });
+
+    assertThat(roots).containsExactly(compiler.getJsRoot());
+  }
+
+  public void testReportsChangesFromAllThreads() {
+    runParallel(4, new HotSwapCompilerPass() {
+      @Override
+      public void process(Node externs, Node root) {}
+
+      @Override
+      public void hotSwapScript(Node scriptRoot, Node originalRoot) {
+        compiler.reportChangeToChangeScope(scriptRoot);
+      }
+    });
+
+    Set<Integer> changeTimes = new HashSet<>();
+    for (Node script : compiler.getJsRoot().children()) {
+      assertThat(script.getChangeTime()).isGreaterThan(0);
+      changeTimes.add(script.getChangeTime());
+    }
+    assertThat(changeTimes).hasSize(NUM_INPUTS);
+  }
+
+  public void testTraversalsKeepTheirOwnChangeScope() {
+    runParallel(4, new HotSwapCompilerPass() {
+      @Override
+      public void process(Node externs, Node root) {}
+
+      @Override
+      public void hotSwapScript(Node scriptRoot, Node originalRoot) {
+        NodeTraversal.traverseEs6(
+            compiler,
+            scriptRoot,
+            new NodeTraversal.AbstractPostOrderCallback() {
+              @Override
+              @SuppressWarnings("deprecation")
+              public void visit(NodeTraversal t, Node n, Node parent) {
+                if (n.isName()) {
+                  // Reports a change to the change scope of the current traversal.
+                  compiler.reportCodeChange();
+                }
+              }
+            });
+      }
+    });
+
+    for (Node script : compiler.getJsRoot().children()) {
+      assertThat(script.getChangeTime()).isGreaterThan(0);
+    }
+  }
+
+  public void testThreadsAreReused() {
+    final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+    HotSwapCompilerPass pass = new HotSwapCompilerPass() {
+      @Override
+      public void process(Node externs, Node root) {}
+
+      @Override
+      public void hotSwapScript(Node scriptRoot, Node originalRoot) {
+        threads.add(Thread.currentThread());
+      }
+    };
+    runParallel(4, pass);
+    runParallel(4, pass);
+    assertThat(threads.size()).isAtMost(4);
+    assertThat(threads).doesNotContain(Thread.currentThread());
+  }
+
+  public void testExceptionIsRethrown() {
+    try {
+      runParallel(4, new HotSwapCompilerPass() {
+        @Override
+        public void process(Node externs, Node root) {}
+
+        @Override
+        public void hotSwapScript(Node scriptRoot, Node originalRoot) {
+          if (scriptRoot.getSourceFileName().equals("input7.js")) {
+            throw new IllegalStateException("input7");
+          }
+        }
+      });
+      fail("Expected IllegalStateException");
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessageThat().isEqualTo("input7");
+    }
+  }
+
+  private void runParallel(int numThreads, final HotSwapCompilerPass pass) {
+    PassFactory factory = new HotSwapPassFactory("test", true) {
+      @Override
+      protected HotSwapCompilerPass create(AbstractCompiler compiler) {
+        return pass;
+      }
+
+      @Override
+      protected boolean isParallelizableByScript() {
+        return true;
+      }
+    };
+    compiler.getOptions().numParallelThreads = numThreads;
+    new ParallelCompilerPass(compiler, factory)
+        .process(compiler.getExternsRoot(), compiler.getJsRoot());
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+
+/** Tests for {@link ParallelModulePrinter}. */
+public final class ParallelModulePrinterTest extends TestCase {
+
+  public void testModulesAreHandedOverInOrderWithTheirOwnSourceMap() throws IOException {
+    List<JSModule> modules = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      JSModule module = new JSModule("m" + i);
+      module.add(SourceFile.fromCode("in" + i + "a.js", "var a" + i + " = " + i + ";"));
+      module.add(SourceFile.fromCode("in" + i + "b.js", "alert(a" + i + ");"));
+      if (i > 0) {
+        module.addDependency(modules.get(0));
+      }
+      modules.add(module);
+    }
+    CompilerOptions options = new CompilerOptions();
+    options.sourceMapOutputPath = "out.js.map";
+    Compiler compiler = new Compiler();
+    compiler.compileModules(ImmutableList.<SourceFile>of(), modules, options);
+
+    final List<String> names = new ArrayList<>();
+    final List<String> code = new ArrayList<>();
+    final List<String> sourceMaps = new ArrayList<>();
+    new ParallelModulePrinter(compiler, 4).print(
+        modules,
+        new ParallelModulePrinter.ModuleConsumer() {
+          @Override
+          public void accept(JSModule module, String moduleCode, SourceMap sourceMap)
+              throws IOException {
+            names.add(module.getName());
+            code.add(moduleCode);
+            StringBuilder map = new StringBuilder();
+            sourceMap.appendTo(map, module.getName() + ".js");
+            sourceMaps.add(map.toString());
+          }
+        });
+
+    assertThat(names).hasSize(modules.size());
+    for (int i = 0; i < modules.size(); i++) {
+      JSModule module = modules.get(i);
+      assertThat(names.get(i)).isEqualTo(module.getName());
+      compiler.getSourceMap().reset();
+      assertThat(code.get(i)).isEqualTo(compiler.toSource(module));
+      StringBuilder map = new StringBuilder();
+      compiler.getSourceMap().appendTo(map, module.getName() + ".js");
+      assertThat(sourceMaps.get(i)).isEqualTo(map.toString());
+    }
+  }
+}
@@ -16,6 +16,8 @@
 
 package com.google.javascript.jscomp;
 
+import com.google.common.base.Supplier;
+
 /**
  * Tests for the interaction between multiple peephole passes.
  */
@@ -23,25 +25,37 @@ public class PeepholeIntegrationTest extends CompilerTestCase {
 
   private boolean late;
   private int numRepetitions;
+  private int numParallelThreads;
 
   @Override
   protected void setUp() throws Exception {
     super.setUp();
     this.late = false;
     this.numRepetitions = 2;
+    this.numParallelThreads = 1;
   }
 
   @Override
   protected CompilerPass getProcessor(final Compiler compiler) {
+    // The threads come from the compiler's pool.
+    compiler.getOptions().numParallelThreads = numParallelThreads;
     PeepholeOptimizationsPass peepholePass =
         new PeepholeOptimizationsPass(
             compiler,
             getName(),
-            new PeepholeMinimizeConditions(late, false /* useTypes */),
-            new PeepholeSubstituteAlternateSyntax(late),
-            new PeepholeRemoveDeadCode(),
-            new PeepholeFoldConstants(late, false),
-            new PeepholeReplaceKnownMethods(late, false));
+            numParallelThreads,
+            new Supplier<AbstractPeepholeOptimization[]>() {
+              @Override
+              public AbstractPeepholeOptimization[] get() {
+                return new AbstractPeepholeOptimization[] {
+                  new PeepholeMinimizeConditions(late, false /* useTypes */),
+                  new PeepholeSubstituteAlternateSyntax(late),
+                  new PeepholeRemoveDeadCode(),
+                  new PeepholeFoldConstants(late, false),
+                  new PeepholeReplaceKnownMethods(late, false)
+                };
+              }
+            });
 
     return peepholePass;
   }
@@ -379,4 +393,22 @@ public class PeepholeIntegrationTest extends CompilerTestCase {
     test("x = parseInt(`123`)", "x = 123");
     test("x = parseFloat(`1.23`)", "x = 1.23");
   }
+
+  public void testParallelOptimization() {
+    String[] input = {
+      "function f() { if (true) { return 1; } else { return 2; } }",
+      "function g() { return function() { if (!!x) { return 1 + 2; } }; }",
+      "x = 1 + 2; function h() { switch (x) { default: { break } } }",
+      "var y = [1, 2].join(''); if (false) { var z = function() { return 1 + 1; } }",
+    };
+    String[] expected = {
+      "function f() { return 1; }",
+      "function g() { return function() { if (x) return 3; }; }",
+      "x = 3; function h() {}",
+      "var z; var y = '12';",
+    };
+    test(input, expected);
+    numParallelThreads = 4;
+    test(input, expected);
+  }
 }
@@ -21,7 +21,9 @@ import static com.google.common.truth.Truth.assertThat;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
 import com.google.javascript.jscomp.CompilerOptions.TracerMode;
+import com.google.javascript.jscomp.CompilerOptions.TracerOutputFormat;
 import com.google.javascript.jscomp.PerformanceTracker.Stats;
+import com.google.javascript.rhino.IR;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
 import java.io.ByteArrayOutputStream;
@@ -144,4 +146,75 @@ public final class PerformanceTrackerTest extends TestCase {
     String outputString = output.toString();
     assertThat(outputString).matches(p);
   }
+
+  public void testNodesAddedAndRemoved() {
+    Node script = IR.script(IR.exprResult(IR.number(1)));
+    Node jsRoot = new Node(Token.BLOCK, script);
+    PerformanceTracker tracker =
+        new PerformanceTracker(emptyExternRoot, jsRoot, TracerMode.AST_SIZE, null);
+    CodeChangeHandler handler = tracker.getCodeChangeHandler();
+
+    tracker.recordPassStart(PassNames.PARSE_INPUTS, true);
+    tracker.recordPassStop(PassNames.PARSE_INPUTS, 0);
+
+    // Replace the number with a string, and add a statement.
+    tracker.recordPassStart("replace", true);
+    script.getFirstFirstChild().replaceWith(IR.string("a"));
+    script.addChildToBack(IR.exprResult(IR.name("b")));
+    handler.reportChange();
+    tracker.recordPassStop("replace", 0);
+
+    tracker.recordPassStart("remove", true);
+    script.removeFirstChild();
+    handler.reportChange();
+    tracker.recordPassStop("remove", 0);
+
+    // Clones are new nodes.
+    tracker.recordPassStart("clone", true);
+    script.addChildToBack(script.getFirstChild().cloneTree());
+    handler.reportChange();
+    tracker.recordPassStop("clone", 0);
+
+    Stats replace = tracker.getStats().get("replace");
+    assertThat(replace.nodesAdded).isEqualTo(3);
+    assertThat(replace.nodesRemoved).isEqualTo(1);
+    assertThat(replace.astDiff).isEqualTo(-2);
+    Stats remove = tracker.getStats().get("remove");
+    assertThat(remove.nodesAdded).isEqualTo(0);
+    assertThat(remove.nodesRemoved).isEqualTo(2);
+    Stats clone = tracker.getStats().get("clone");
+    assertThat(clone.nodesAdded).isEqualTo(2);
+    assertThat(clone.nodesRemoved).isEqualTo(0);
+  }
+
+  public void testJsonOutputFormat() {
+    String report = outputReport(TracerOutputFormat.JSON);
+    assertThat(report).startsWith("{\"startTimeMs\":");
+    assertThat(report).contains("\"inputs\":{\"jsLines\":0,");
+    assertThat(report).containsMatch(
+        "\"summary\":\\[\\{\"pass\":\"pass \\\\\"1\\\\\"\",\"runtimeMs\":5,\"wallNanos\":[0-9]+,");
+    assertThat(report).contains("\"log\":[{\"pass\":\"pass \\\"1\\\"\",\"runtimeMs\":5,");
+    assertThat(report).endsWith("}]}\n");
+  }
+
+  public void testChromeTraceOutputFormat() {
+    String report = outputReport(TracerOutputFormat.CHROME_TRACE);
+    assertThat(report).containsMatch(
+        "^\\{\"traceEvents\":\\[\\{\"name\":\"pass \\\\\"1\\\\\"\",\"cat\":\"pass\",\"ph\":\"X\","
+            + "\"ts\":[0-9]+,\"dur\":[0-9]+,\"pid\":1,\"tid\":1,\"args\":\\{\"cpuNanos\":-?[0-9]+,");
+    assertThat(report).endsWith("],\"displayTimeUnit\":\"ms\"}\n");
+  }
+
+  private String outputReport(TracerOutputFormat format) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (PrintStream outstream = new PrintStream(output)) {
+      PerformanceTracker tracker =
+          new PerformanceTracker(
+              emptyExternRoot, emptyJsRoot, TracerMode.TIMING_ONLY, outstream, format);
+      tracker.recordPassStart("pass \"1\"", true);
+      tracker.recordPassStop("pass \"1\"", 5);
+      tracker.outputTracerReport();
+    }
+    return output.toString();
+  }
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.javascript.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.javascript.jscomp.parsing.Config;
+import com.google.javascript.jscomp.parsing.ParserRunner;
+import com.google.javascript.rhino.ErrorReporter;
+import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.testing.TestErrorReporter;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+
+/** Tests for {@link PersistentAstCache}. */
+public final class PersistentAstCacheTest extends TestCase {
+  private Path directory;
+  private Config config;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    directory = Files.createTempDirectory("ast_cache");
+    config =
+        ParserRunner.createConfig(
+            Config.LanguageMode.ECMASCRIPT8, null, Config.StrictMode.SLOPPY);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    for (Path entry : listDirectory()) {
+      Files.delete(entry);
+    }
+    Files.delete(directory);
+    super.tearDown();
+  }
+
+  public void testCachedParseIsEquivalent() throws IOException {
+    String code = "function f(x) { return x + 1; }";
+    PersistentAstCache cache = new PersistentAstCache(directory, 1 << 20);
+    Node first = parse(cache, "a.js", code).ast;
+    assertThat(listDirectory()).hasSize(1);
+
+    // A fresh cache over the same directory reads the entry written above.
+    cache = new PersistentAstCache(directory, 1 << 20);
+    SourceFile file = SourceFile.fromCode("a.js", code);
+    Node second =
+        cache.parse(file, code, config, TestErrorReporter.forNoExpectedReports()).ast;
+    assertThat(listDirectory()).hasSize(1);
+    assertThat(second).isNotSameAs(first);
+    assertNull(first.checkTreeEquals(second));
+    assertThat(second.getStaticSourceFile()).isSameAs(file);
+    assertThat(second.getFirstChild().getStaticSourceFile()).isSameAs(file);
+  }
+
+  public void testDiagnosticsAreReplayed() throws IOException {
+    // A string continuation produces a parse warning.
+    String code = "var x = 'a\\\nb';";
+    PersistentAstCache cache = new PersistentAstCache(directory, 1 << 20);
+
+    RecordingReporter reporter = new RecordingReporter();
+    cache.parse(SourceFile.fromCode("a.js", code), code, config, reporter);
+    List<String> warnings = reporter.warnings;
+    assertThat(warnings).hasSize(1);
+
+    reporter = new RecordingReporter();
+    cache.parse(SourceFile.fromCode("a.js", code), code, config, reporter);
+    assertThat(reporter.warnings).isEqualTo(warnings);
+    assertThat(reporter.errors).isEmpty();
+  }
+
+  public void testDifferentContentsGetDifferentEntries() throws IOException {
+    PersistentAstCache cache = new PersistentAstCache(directory, 1 << 20);
+    parse(cache, "a.js", "var a;");
+    parse(cache, "a.js", "var b;");
+    parse(cache, "b.js", "var b;");
+    assertThat(listDirectory()).hasSize(3);
+  }
+
+  public void testUnreadableEntryIsReplaced() throws IOException {
+    String code = "var a = 1;";
+    PersistentAstCache cache = new PersistentAstCache(directory, 1 << 20);
+    parse(cache, "a.js", code);
+    Path entry = listDirectory().get(0);
+    Files.write(entry, "not an AST".getBytes(UTF_8));
+
+    Node ast = parse(cache, "a.js", code).ast;
+    assertNull(ast.checkTreeEquals(parse(cache, "a.js", code).ast));
+    assertThat(listDirectory()).containsExactly(entry);
+    assertThat(Files.size(entry)).isGreaterThan((long) "not an AST".length());
+  }
+
+  public void testEvictsWhenFull() throws IOException {
+    PersistentAstCache cache = new PersistentAstCache(directory, 1 << 20);
+    parse(cache, "a.js", "var a = 1;");
+    long entrySize = Files.size(listDirectory().get(0));
+
+    // Room for two entries.
+    cache = new PersistentAstCache(directory, 2 * entrySize + entrySize / 2);
+    parse(cache, "b.js", "var b = 1;");
+    parse(cache, "c.js", "var c = 1;");
+    assertThat(listDirectory().size()).isAtMost(2);
+  }
+
+  private ParserRunner.ParseResult parse(PersistentAstCache cache, String name, String code) {
+    return cache.parse(
+        SourceFile.fromCode(name, code), code, config, TestErrorReporter.forNoExpectedReports());
+  }
+
+  private List<Path> listDirectory() throws IOException {
+    List<Path> entries = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+      for (Path entry : stream) {
+        entries.add(entry);
+      }
+    }
+    return entries;
+  }
+
+  private static final class RecordingReporter implements ErrorReporter {
+    final List<String> errors = new ArrayList<>();
+    final List<String> warnings = new ArrayList<>();
+
+    @Override
+    public void error(String message, String sourceName, int line, int lineOffset) {
+      errors.add(sourceName + ":" + line + ":" + lineOffset + ": " + message);
+    }
+
+    @Override
+    public void warning(String message, String sourceName, int line, int lineOffset) {
+      warnings.add(sourceName + ":" + line + ":" + lineOffset + ": " + message);
+    }
+  }
+}
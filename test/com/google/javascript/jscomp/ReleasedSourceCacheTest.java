@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import junit.framework.TestCase;
+
+/** Unit tests for {@link ReleasedSourceCache}. */
+public final class ReleasedSourceCacheTest extends TestCase {
+
+  /** A generator that counts how many times its code is read. */
+  private static final class CountingGenerator implements SourceFile.Generator {
+    private final String code;
+    int reads = 0;
+
+    CountingGenerator(String code) {
+      this.code = code;
+    }
+
+    @Override
+    public String getCode() {
+      reads++;
+      return code;
+    }
+  }
+
+  public void testReadsEachFileOnce() {
+    CountingGenerator generator = new CountingGenerator("var a;");
+    SourceFile file = SourceFile.fromGenerator("a.js", generator);
+    ReleasedSourceCache cache = new ReleasedSourceCache(100);
+
+    assertEquals("var a;", cache.getCode(file));
+    assertEquals("var a;", cache.getCode(file));
+    assertEquals(1, generator.reads);
+    // The file itself doesn't keep the code.
+    assertTrue(file.hasReleasedCode());
+  }
+
+  public void testEvictsLeastRecentlyUsedFiles() {
+    CountingGenerator a = new CountingGenerator("var a = 1;");
+    CountingGenerator b = new CountingGenerator("var b = 1;");
+    CountingGenerator c = new CountingGenerator("var c = 1;");
+    SourceFile fileA = SourceFile.fromGenerator("a.js", a);
+    SourceFile fileB = SourceFile.fromGenerator("b.js", b);
+    SourceFile fileC = SourceFile.fromGenerator("c.js", c);
+    // Room for two of the files.
+    ReleasedSourceCache cache = new ReleasedSourceCache(25);
+
+    cache.getCode(fileA);
+    cache.getCode(fileB);
+    cache.getCode(fileA);
+    // Going over the maximum drops b, the least recently used file.
+    cache.getCode(fileC);
+    cache.getCode(fileA);
+    cache.getCode(fileC);
+    assertEquals(1, a.reads);
+    assertEquals(1, b.reads);
+    assertEquals(1, c.reads);
+
+    // Reading b again drops a.
+    assertEquals("var b = 1;", cache.getCode(fileB));
+    assertEquals(2, b.reads);
+    cache.getCode(fileC);
+    assertEquals(1, c.reads);
+    cache.getCode(fileA);
+    assertEquals(2, a.reads);
+  }
+
+  public void testKeepsFileLargerThanMaximum() {
+    CountingGenerator small = new CountingGenerator("var a;");
+    CountingGenerator large = new CountingGenerator("var aVeryLongName = 1;");
+    SourceFile smallFile = SourceFile.fromGenerator("small.js", small);
+    SourceFile largeFile = SourceFile.fromGenerator("large.js", large);
+    ReleasedSourceCache cache = new ReleasedSourceCache(10);
+
+    cache.getCode(smallFile);
+    assertEquals("var aVeryLongName = 1;", cache.getCode(largeFile));
+    assertEquals("var aVeryLongName = 1;", cache.getCode(largeFile));
+    assertEquals(1, large.reads);
+    // The small file was dropped to make room.
+    cache.getCode(smallFile);
+    assertEquals(2, small.reads);
+  }
+}
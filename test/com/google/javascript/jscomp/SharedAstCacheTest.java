@@ -0,0 +1,141 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.javascript.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.javascript.jscomp.parsing.Config;
+import com.google.javascript.jscomp.parsing.ParserRunner;
+import com.google.javascript.rhino.ErrorReporter;
+import com.google.javascript.rhino.IR;
+import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.testing.TestErrorReporter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+
+/** Tests for {@link SharedAstCache}. */
+public final class SharedAstCacheTest extends TestCase {
+  private Config config;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    config =
+        ParserRunner.createConfig(
+            Config.LanguageMode.ECMASCRIPT8, null, Config.StrictMode.SLOPPY);
+  }
+
+  public void testCachedParseIsAnIndependentCopy() {
+    String code = "/** @param {number} x */ function f(x) { return x + 1; }";
+    SharedAstCache cache = new SharedAstCache(1 << 20);
+    Node first = parse(cache, SourceFile.fromCode("a.js", code)).ast;
+
+    SourceFile file = SourceFile.fromCode("a.js", code);
+    Node second = parse(cache, file).ast;
+    assertThat(second).isNotSameAs(first);
+    assertNull(first.checkTreeEquals(second));
+    assertThat(second.getStaticSourceFile()).isSameAs(file);
+    Node function = second.getFirstChild();
+    assertThat(function.getStaticSourceFile()).isSameAs(file);
+    assertThat(function.getJSDocInfo()).isNotSameAs(first.getFirstChild().getJSDocInfo());
+    for (Node typeNode : function.getJSDocInfo().getTypeNodes()) {
+      assertThat(typeNode.getStaticSourceFile()).isSameAs(file);
+    }
+
+    // Changing a copy does not change the next one.
+    second.addChildToBack(IR.exprResult(IR.number(1)));
+    Node third = parse(cache, SourceFile.fromCode("a.js", code)).ast;
+    assertNull(first.checkTreeEquals(third));
+  }
+
+  public void testDiagnosticsAreReplayed() {
+    // A string continuation produces a parse warning.
+    String code = "var x = 'a\\\nb';";
+    SharedAstCache cache = new SharedAstCache(1 << 20);
+
+    RecordingReporter reporter = new RecordingReporter();
+    cache.parse(SourceFile.fromCode("a.js", code), code, config, reporter, null);
+    List<String> warnings = reporter.warnings;
+    assertThat(warnings).hasSize(1);
+
+    reporter = new RecordingReporter();
+    cache.parse(SourceFile.fromCode("a.js", code), code, config, reporter, null);
+    assertThat(reporter.warnings).isEqualTo(warnings);
+    assertThat(reporter.errors).isEmpty();
+  }
+
+  public void testDifferentConfigsGetDifferentEntries() {
+    String code = "var a = () => 1;";
+    SharedAstCache cache = new SharedAstCache(1 << 20);
+    parse(cache, SourceFile.fromCode("a.js", code));
+
+    // The ES3 parser has to see the code to report the arrow function.
+    Config es3 =
+        ParserRunner.createConfig(
+            Config.LanguageMode.ECMASCRIPT3, null, Config.StrictMode.SLOPPY);
+    RecordingReporter reporter = new RecordingReporter();
+    cache.parse(SourceFile.fromCode("a.js", code), code, es3, reporter, null);
+    assertThat(reporter.errors).isNotEmpty();
+  }
+
+  public void testCompilersShareParses() {
+    SharedAstCache cache = new SharedAstCache(1 << 20);
+    List<SourceFile> externs =
+        ImmutableList.of(SourceFile.fromCode("externs.js", "/** @const */ var console;"));
+    CompilerOptions options = new CompilerOptions();
+    options.setLanguageIn(CompilerOptions.LanguageMode.ECMASCRIPT_2015);
+
+    Compiler first = new Compiler();
+    first.setSharedAstCache(cache);
+    first.compile(
+        externs, ImmutableList.of(SourceFile.fromCode("in.js", "console.log(1);")), options);
+
+    Compiler second = new Compiler();
+    second.setSharedAstCache(cache);
+    SourceFile input = SourceFile.fromCode("in.js", "console.log(1);");
+    second.compile(externs, ImmutableList.of(input), options);
+    assertThat(second.getErrors()).isEmpty();
+    assertEquals(first.toSource(), second.toSource());
+    assertThat(second.getJsRoot().getFirstChild().getStaticSourceFile()).isSameAs(input);
+  }
+
+  private ParserRunner.ParseResult parse(SharedAstCache cache, SourceFile file) {
+    try {
+      return cache.parse(
+          file, file.getCode(), config, TestErrorReporter.forNoExpectedReports(), null);
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private static final class RecordingReporter implements ErrorReporter {
+    final List<String> errors = new ArrayList<>();
+    final List<String> warnings = new ArrayList<>();
+
+    @Override
+    public void error(String message, String sourceName, int line, int lineOffset) {
+      errors.add(sourceName + ":" + line + ":" + lineOffset + ": " + message);
+    }
+
+    @Override
+    public void warning(String message, String sourceName, int line, int lineOffset) {
+      warnings.add(sourceName + ":" + line + ":" + lineOffset + ": " + message);
+    }
+  }
+}
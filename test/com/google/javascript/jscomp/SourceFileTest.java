@@ -17,13 +17,17 @@
 package com.google.javascript.jscomp;
 
 import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
+import com.google.common.collect.ImmutableList;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 import junit.framework.TestCase;
@@ -135,6 +139,76 @@ public final class SourceFileTest extends TestCase {
     assertEquals(expectedContent, sourceFileFromFileCharset.getCode());
   }
 
+  public void testFromZipFileReadsMappedEntries() throws IOException {
+    String storedContent = "\uFEFF// stored \u00e9";
+    String deflatedContent = "// deflated deflated deflated deflated";
+    Path jsZipFile = Files.createTempFile("test", ".js.zip");
+    try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(jsZipFile.toFile()))) {
+      byte[] stored = storedContent.getBytes(StandardCharsets.UTF_8);
+      CRC32 crc = new CRC32();
+      crc.update(stored);
+      ZipEntry storedEntry = new ZipEntry("a/stored.js");
+      storedEntry.setMethod(ZipEntry.STORED);
+      storedEntry.setSize(stored.length);
+      storedEntry.setCrc(crc.getValue());
+      zos.putNextEntry(storedEntry);
+      zos.write(stored);
+      zos.closeEntry();
+      zos.putNextEntry(new ZipEntry("b/deflated.js"));
+      zos.write(deflatedContent.getBytes(StandardCharsets.UTF_8));
+      zos.closeEntry();
+      zos.putNextEntry(new ZipEntry("c/README"));
+      zos.closeEntry();
+    }
+
+    List<SourceFile> sourceFiles = SourceFile.fromZipFile(jsZipFile.toString(), UTF_8);
+    assertThat(sourceFiles).hasSize(2);
+    SourceFile storedFile = sourceFiles.get(0);
+    SourceFile deflatedFile = sourceFiles.get(1);
+    assertEquals(jsZipFile + "!/a/stored.js", storedFile.getName());
+    assertEquals(jsZipFile + "!/b/deflated.js", deflatedFile.getName());
+    // The Byte Order Mark is removed, like for entries read through their URL.
+    assertEquals("// stored \u00e9", storedFile.getCode());
+    assertEquals(deflatedContent, deflatedFile.getCode());
+
+    deflatedFile.clearCachedSource();
+    assertEquals(deflatedContent, deflatedFile.getCode());
+
+    // Entries are read again from the archive once it changes.
+    createZipWithContent(jsZipFile, "// new content");
+    SourceFile rewritten = SourceFile.fromZipFile(jsZipFile.toString(), UTF_8).get(0);
+    createZipWithContent(jsZipFile, "// newer content");
+    assertEquals("// newer content", rewritten.getCode());
+  }
+
+  public void testReleaseCode() throws IOException {
+    String code = "var a;\nvar b;\nvar c;";
+    SourceFile preloaded = SourceFile.fromCode("preloaded.js", code);
+    Path onDiskPath = Files.createTempFile("test", ".js");
+    Files.write(onDiskPath, code.getBytes(UTF_8));
+    SourceFile onDisk = SourceFile.fromFile(onDiskPath.toString());
+    onDisk.getCode();
+
+    for (SourceFile file : ImmutableList.of(preloaded, onDisk)) {
+      file.releaseCode();
+      assertTrue(file.hasReleasedCode());
+      assertNull(file.getCodeNoCache());
+      // Line offsets are kept, so positions don't read the code again.
+      assertEquals(7, file.getLineOffset(2));
+      assertNull(file.getCodeNoCache());
+
+      assertEquals(code, file.readReleasedCode());
+      assertTrue(file.hasReleasedCode());
+      assertEquals("var b;", file.getLine(2, code));
+      assertEquals("var a;\nvar b;\nvar c;", file.getRegion(2, code).getSourceExcerpt());
+
+      // Getting the code keeps it in memory again.
+      assertEquals(code, file.getCode());
+      assertFalse(file.hasReleasedCode());
+      assertEquals(code, file.getCodeNoCache());
+    }
+  }
+
   private static void createZipWithContent(Path zipFile, String content) throws IOException {
     ZipOutputStream zos;
     if (zipFile.toFile().exists()) {
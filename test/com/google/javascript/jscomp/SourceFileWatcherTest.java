@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.javascript.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+/** Tests for {@link SourceFileWatcher}. */
+public final class SourceFileWatcherTest extends TestCase {
+  private Path directory;
+  private ExecutorService executor;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    directory = Files.createTempDirectory("watcher");
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    executor.shutdownNow();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(directory);
+    super.tearDown();
+  }
+
+  public void testReportsWatchedFilesOnly() throws Exception {
+    Path watched = write("watched.js");
+    Path deleted = write("deleted.js");
+    try (final SourceFileWatcher watcher =
+        new SourceFileWatcher(ImmutableList.of(watched.toString(), deleted.toString()))) {
+      Future<ImmutableSet<String>> changes =
+          executor.submit(
+              new Callable<ImmutableSet<String>>() {
+                @Override
+                public ImmutableSet<String> call() throws InterruptedException {
+                  return watcher.awaitChanges(200, TimeUnit.MILLISECONDS);
+                }
+              });
+      write("unwatched.js");
+      write("watched.js");
+      Files.delete(deleted);
+      assertThat(changes.get(30, TimeUnit.SECONDS))
+          .containsExactly(watched.toString(), deleted.toString());
+    }
+  }
+
+  private Path write(String name) throws Exception {
+    Path file = directory.resolve(name);
+    Files.write(file, ("var " + name.replace(".js", "") + ";").getBytes(UTF_8));
+    return file;
+  }
+}
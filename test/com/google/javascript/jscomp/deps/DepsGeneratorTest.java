@@ -19,12 +19,16 @@ package com.google.javascript.jscomp.deps;
 
 import static com.google.common.truth.Truth.assertThat;
 import static com.google.common.truth.Truth.assertWithMessage;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import com.google.javascript.jscomp.ErrorManager;
 import com.google.javascript.jscomp.PrintStreamErrorManager;
 import com.google.javascript.jscomp.SourceFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.List;
 import junit.framework.TestCase;
@@ -441,6 +445,136 @@ public final class DepsGeneratorTest extends TestCase {
         "No dependencies found in file");
   }
 
+  public void testParallelScanKeepsOrder() throws Exception {
+    List<SourceFile> srcs = new ArrayList<>();
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      srcs.add(
+          SourceFile.fromCode(
+              "/base/javascript/closure/f" + i + ".js",
+              "goog.provide('f" + i + "');" + (i > 0 ? "goog.require('f" + (i - 1) + "');" : "")));
+      expected.add(
+          "goog.addDependency('f" + i + ".js', ['f" + i + "'], ["
+              + (i > 0 ? "'f" + (i - 1) + "'" : "") + "]);");
+    }
+    expected.add("");
+
+    String output = newGenerator(srcs).setNumParallelThreads(4).computeDependencyCalls();
+
+    assertNoWarnings();
+    assertEquals(LINE_JOINER.join(expected), output);
+  }
+
+  public void testOnlyWrittenSourcesAreParsed() throws Exception {
+    final int[] reads = new int[2];
+    SourceFile skipped =
+        SourceFile.fromGenerator(
+            "/base/javascript/closure/a.js",
+            new SourceFile.Generator() {
+              @Override
+              public String getCode() {
+                reads[0]++;
+                return "goog.provide('a');";
+              }
+            });
+    SourceFile written =
+        SourceFile.fromGenerator(
+            "/base/javascript/closure/b.js",
+            new SourceFile.Generator() {
+              @Override
+              public String getCode() {
+                reads[1]++;
+                return "goog.provide('b'); goog.require('a');";
+              }
+            });
+    SourceFile deps =
+        SourceFile.fromCode(
+            "/base/javascript/closure/deps.js", "goog.addDependency('a.js', ['a'], []);");
+
+    String output = newGenerator(ImmutableList.of(deps, skipped, written)).computeDependencyCalls();
+
+    assertNoWarnings();
+    assertContains("goog.addDependency('a.js', ['a'], []);", output);
+    assertContains("goog.addDependency('b.js', ['b'], ['a']);", output);
+    // A source that is already in a deps file is scanned, but not parsed for its load flags.
+    assertEquals(1, reads[0]);
+    assertEquals(2, reads[1]);
+  }
+
+  public void testDependencyInfoCache() throws Exception {
+    Path directory = Files.createTempDirectory("deps");
+    Path cacheFile = directory.resolve("deps.cache");
+    Path js = directory.resolve("a.js");
+    Files.write(js, "goog.provide('a');\n".getBytes(UTF_8));
+    FileTime modified = Files.getLastModifiedTime(js);
+
+    DependencyInfoCache cache = new DependencyInfoCache(cacheFile);
+    String output =
+        newGenerator(ImmutableList.of(SourceFile.fromPath(js, UTF_8)))
+            .setDependencyInfoCache(cache)
+            .computeDependencyCalls();
+    assertContains("['a']", output);
+    assertThat(Files.exists(cacheFile)).isTrue();
+
+    // A file with the same name, size and modification time is not scanned again.
+    Files.write(js, "goog.provide('b');\n".getBytes(UTF_8));
+    Files.setLastModifiedTime(js, modified);
+    cache = new DependencyInfoCache(cacheFile);
+    output =
+        newGenerator(ImmutableList.of(SourceFile.fromPath(js, UTF_8)))
+            .setDependencyInfoCache(cache)
+            .computeDependencyCalls();
+    assertContains("['a']", output);
+
+    Files.setLastModifiedTime(js, FileTime.fromMillis(modified.toMillis() + 2000));
+    cache = new DependencyInfoCache(cacheFile);
+    output =
+        newGenerator(ImmutableList.of(SourceFile.fromPath(js, UTF_8)))
+            .setDependencyInfoCache(cache)
+            .computeDependencyCalls();
+    assertContains("['b']", output);
+    assertNoWarnings();
+  }
+
+  public void testDependencyInfoCacheKeepsAddDependencyCalls() throws Exception {
+    Path directory = Files.createTempDirectory("deps");
+    Path cacheFile = directory.resolve("deps.cache");
+    Path deps = directory.resolve("deps.js");
+    Files.write(deps, "goog.addDependency('../x.js', ['x'], []);\n".getBytes(UTF_8));
+    FileTime modified = Files.getLastModifiedTime(deps);
+
+    String output =
+        newGenerator(ImmutableList.of(SourceFile.fromPath(deps, UTF_8)))
+            .setDependencyInfoCache(new DependencyInfoCache(cacheFile))
+            .computeDependencyCalls();
+    assertContains("goog.addDependency('../x.js', ['x'], []);", output);
+
+    // An unchanged file is not read again, for its goog.addDependency calls either.
+    Files.write(deps, "goog.addDependency('../y.js', ['y'], []);\n".getBytes(UTF_8));
+    Files.setLastModifiedTime(deps, modified);
+    output =
+        newGenerator(ImmutableList.of(SourceFile.fromPath(deps, UTF_8)))
+            .setDependencyInfoCache(new DependencyInfoCache(cacheFile))
+            .computeDependencyCalls();
+    assertContains("goog.addDependency('../x.js', ['x'], []);", output);
+    assertNoWarnings();
+  }
+
+  private DepsGenerator newGenerator(List<SourceFile> srcs) {
+    return new DepsGenerator(
+        ImmutableList.<SourceFile>of(),
+        srcs,
+        DepsGenerator.InclusionStrategy.ALWAYS,
+        PathUtil.makeAbsolute("/base/javascript/closure"),
+        errorManager,
+        new ModuleLoader(
+            null,
+            ImmutableList.of("/base/"),
+            ImmutableList.<DependencyInfo>of(),
+            ModuleLoader.PathResolver.ABSOLUTE,
+            ModuleLoader.ResolutionMode.BROWSER));
+  }
+
   private void assertErrorWarningCount(int errorCount, int warningCount) {
     if (errorManager.getErrorCount() != errorCount) {
       fail(String.format("Expected %d errors but got\n%s",
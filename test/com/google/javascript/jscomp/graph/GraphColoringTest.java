@@ -183,6 +183,34 @@ public final class GraphColoringTest extends TestCase {
     assertThat("A".equals(coloring.getPartitionSuperNode("C"))).isFalse();
   }
 
+  public void testBitMatrixGraphColorsLikeLinkedGraph() {
+    final int count = 60;
+    Graph<String, Void> linked = LinkedUndirectedGraph.create();
+    Graph<String, Void> bitMatrix = BitMatrixUndirectedGraph.create();
+    for (int i = 0; i < count; i++) {
+      linked.createNode("Node " + i);
+      bitMatrix.createNode("Node " + i);
+    }
+    for (int i = 0; i < count; i++) {
+      for (int j = i + 1; j < count; j++) {
+        if ((i * 7 + j * 13) % 5 == 0) {
+          linked.connect("Node " + i, null, "Node " + j);
+          bitMatrix.connect("Node " + i, null, "Node " + j);
+        }
+      }
+    }
+    GraphColoring<String, Void> linkedColoring =
+        new GreedyGraphColoring<>(linked, Ordering.<String>natural());
+    GraphColoring<String, Void> bitMatrixColoring =
+        new GreedyGraphColoring<>(bitMatrix, Ordering.<String>natural());
+    assertThat(bitMatrixColoring.color()).isEqualTo(linkedColoring.color());
+    validateColoring(bitMatrix);
+    for (int i = 0; i < count; i++) {
+      assertThat(bitMatrixColoring.getPartitionSuperNode("Node " + i))
+          .isEqualTo(linkedColoring.getPartitionSuperNode("Node " + i));
+    }
+  }
+
   /**
    * Validate that each node has been colored and connected nodes have different
    * coloring.
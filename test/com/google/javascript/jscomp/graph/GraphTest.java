@@ -107,6 +107,60 @@ public final class GraphTest extends TestCase {
     assertThat(graph.isConnected("b", "a")).isFalse();
   }
 
+  public void testBitMatrixUndirected() {
+    UndiGraph<String, Void> graph = BitMatrixUndirectedGraph.create();
+    graph.createNode("a");
+    graph.createNode("b");
+    graph.createNode("c");
+    graph.connect("a", null, "b");
+    graph.connect("c", null, "c");
+    assertThat(graph.hasNode("a")).isTrue();
+    assertThat(graph.hasNode("d")).isFalse();
+    assertThat(graph.isConnected("a", "b")).isTrue();
+    assertThat(graph.isConnected("b", "a")).isTrue();
+    assertThat(graph.isConnected("a", "c")).isFalse();
+    assertThat(graph.isConnected("a", "a")).isFalse();
+    assertThat(graph.isConnected("c", "c")).isTrue();
+    assertThat(graph.getEdges()).hasSize(2);
+    assertThat(graph.getNodeDegree("a")).isEqualTo(1);
+    // A loop counts twice, as in LinkedUndirectedGraph.
+    assertThat(graph.getNodeDegree("c")).isEqualTo(2);
+
+    // Connecting twice doesn't add an edge.
+    graph.connectIfNotFound("b", null, "a");
+    graph.connect("b", null, "a");
+    assertThat(graph.getNodeDegree("a")).isEqualTo(1);
+    assertThat(graph.getNeighborNodes("b")).containsExactly(graph.getNode("a"));
+
+    SubGraph<String, Void> subGraph = graph.newSubGraph();
+    subGraph.addNode("a");
+    assertThat(subGraph.isIndependentOf("b")).isFalse();
+    assertThat(subGraph.isIndependentOf("c")).isTrue();
+
+    // Edges are created on demand, but keep their annotations.
+    Annotation annotation = new Annotation() {};
+    graph.getFirstEdge("a", "b").setAnnotation(annotation);
+    assertThat(graph.getFirstEdge("b", "a").getAnnotation()).isSameAs(annotation);
+    assertThat(graph.getFirstEdge("c", "c").getAnnotation()).isNull();
+    graph.pushEdgeAnnotations();
+    assertThat(graph.getFirstEdge("a", "b").getAnnotation()).isNull();
+    graph.popEdgeAnnotations();
+    assertThat(graph.getFirstEdge("a", "b").getAnnotation()).isSameAs(annotation);
+
+    assertThat(graph.getEdges("a", "d")).isEmpty();
+    assertThat(graph.getEdges("a", "b")).hasSize(1);
+
+    // Removal.
+    graph.disconnect("a", "b");
+    assertThat(graph.isConnected("a", "b")).isFalse();
+    assertThat(graph.isConnected("b", "a")).isFalse();
+    assertThat(graph.getNodeDegree("a")).isEqualTo(0);
+    graph.connect("a", null, "b");
+    assertThat(graph.getFirstEdge("a", "b").getAnnotation()).isNull();
+    graph.disconnect("a", "b");
+    assertThat(subGraph.isIndependentOf("b")).isTrue();
+  }
+
   public void testDirectedSelfLoop() {
     DiGraph<String, String> graph =
         LinkedDirectedGraph.create();
@@ -74,6 +74,7 @@ public final class ParserTest extends BaseJSTypeTestCase {
   private Config.LanguageMode mode;
   private Config.StrictMode strictMode;
   private boolean isIdeMode = false;
+  private boolean isLazyJsDoc = false;
   private FeatureSet expectedFeatures;
 
   @Override
@@ -82,6 +83,7 @@ public final class ParserTest extends BaseJSTypeTestCase {
     mode = LanguageMode.ECMASCRIPT3;
     strictMode = SLOPPY;
     isIdeMode = false;
+    isLazyJsDoc = false;
     expectedFeatures = FeatureSet.BARE_MINIMUM;
   }
 
@@ -573,6 +575,67 @@ public final class ParserTest extends BaseJSTypeTestCase {
     assertThat(constNameNode.getJSDocInfo()).isNull();
   }
 
+  public void testLazyJSDoc() {
+    isLazyJsDoc = true;
+    Node script = parse("/** @fileoverview Lazy. */ /** @type {number} */ var a;");
+    assertThat(script.getJSDocInfo()).isNotNull();
+    assertThat(script.getJSDocInfo().hasFileOverview()).isTrue();
+
+    Node varNode = script.getFirstChild();
+    assertThat(varNode.getProp(Node.JSDOC_INFO_PROP)).isNull();
+    assertThat(varNode.getProp(Node.LAZY_JSDOC_INFO)).isNotNull();
+    JSDocInfo info = varNode.getJSDocInfo();
+    assertThat(info).isNotNull();
+    assertTypeEquals(NUMBER_TYPE, info.getType());
+    assertThat(varNode.getJSDocInfo()).isSameAs(info);
+    assertThat(info.getType().getRoot().getSourceFileName()).isEqualTo("input");
+  }
+
+  public void testLazyJSDocCastIsParsedEagerly() {
+    isLazyJsDoc = true;
+    Node cast = parse("var a = /** @type {number} */ (b);").getFirstFirstChild().getFirstChild();
+    assertNode(cast).hasType(Token.CAST);
+    assertTypeEquals(NUMBER_TYPE, cast.getJSDocInfo().getType());
+  }
+
+  public void testLazyJSDocReportsProblemsWhenParsed() {
+    isLazyJsDoc = true;
+    TestErrorReporter testErrorReporter = TestErrorReporter.forNoExpectedReports();
+    Node varNode =
+        ParserRunner.parse(
+                new SimpleSourceFile("input", false),
+                "/** @type {string|} */ var a;",
+                createConfig(),
+                testErrorReporter)
+            .ast
+            .getFirstChild();
+    testErrorReporter.setWarnings(
+        new String[] {
+          "Bad type annotation. type not recognized due to syntax error." + BAD_TYPE_WIKI_LINK
+        });
+    assertThat(varNode.getJSDocInfo()).isNull();
+    testErrorReporter.assertHasEncounteredAllWarnings();
+    // The comment is only parsed once.
+    assertThat(varNode.getJSDocInfo()).isNull();
+  }
+
+  public void testFlagsOnlyJSDocIsShared() {
+    Node script =
+        parse(
+            "/** @const @private */ var a; /** @private @const */ var b;"
+                + "/** @const */ var c; /** @type {number} */ var d; /** @type {number} */ var e;");
+    Node a = script.getFirstChild();
+    Node b = a.getNext();
+    Node c = b.getNext();
+    Node d = c.getNext();
+    Node e = d.getNext();
+    assertThat(b.getJSDocInfo()).isSameAs(a.getJSDocInfo());
+    assertThat(c.getJSDocInfo()).isNotSameAs(a.getJSDocInfo());
+    assertThat(c.getJSDocInfo().isConstant()).isTrue();
+    assertThat(c.getJSDocInfo().getVisibility()).isNotEqualTo(JSDocInfo.Visibility.PRIVATE);
+    assertThat(e.getJSDocInfo()).isNotSameAs(d.getJSDocInfo());
+  }
+
   public void testJSDocAttachment2() {
     Node varNode = parse("/** @type {number} */var a,b;").getFirstChild();
 
@@ -3808,6 +3871,14 @@ public final class ParserTest extends BaseJSTypeTestCase {
           null,
           true,
           strictMode);
+    } else if (isLazyJsDoc) {
+      return ParserRunner.createConfig(
+          mode,
+          Config.JsDocParsing.LAZY_TYPES_ONLY,
+          Config.RunMode.STOP_AFTER_ERROR,
+          null,
+          true,
+          strictMode);
     } else {
       return ParserRunner.createConfig(mode, null, strictMode);
     }
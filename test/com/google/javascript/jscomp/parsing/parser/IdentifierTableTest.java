@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.javascript.jscomp.parsing.parser;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link IdentifierTable} and {@link LineNumberTable}.
+ */
+public final class IdentifierTableTest extends TestCase {
+  public void testLooksUpRanges() {
+    char[] chars = "foo bar foo fo".toCharArray();
+    IdentifierTable table = new IdentifierTable();
+    String foo = table.get(chars, 0, 3);
+    assertThat(foo).isEqualTo("foo");
+    assertThat(table.get(chars, 8, 11)).isSameAs(foo);
+    assertThat(table.get(chars, 4, 7)).isEqualTo("bar");
+    assertThat(table.get(chars, 12, 14)).isEqualTo("fo");
+    assertThat(foo).isSameAs("foo".intern());
+  }
+
+  public void testGrows() {
+    IdentifierTable table = new IdentifierTable();
+    for (int i = 0; i < 1000; i++) {
+      char[] chars = ("name" + i).toCharArray();
+      assertThat(table.get(chars, 0, chars.length)).isEqualTo("name" + i);
+    }
+    for (int i = 0; i < 1000; i++) {
+      char[] chars = ("name" + i).toCharArray();
+      assertThat(table.get(chars, 0, chars.length)).isSameAs(("name" + i).intern());
+    }
+  }
+
+  public void testLineNumbers() {
+    SourceFile file = new SourceFile("a.js", "a\nb\r\nc\rd e");
+    LineNumberTable lines = file.lineNumberTable;
+    assertThat(lines.getLine(0)).isEqualTo(0);
+    assertThat(lines.getLine(2)).isEqualTo(1);
+    assertThat(lines.getLine(5)).isEqualTo(2);
+    assertThat(lines.getLine(7)).isEqualTo(3);
+    assertThat(lines.getLine(9)).isEqualTo(3);
+    assertThat(lines.offsetOfLine(3)).isEqualTo(7);
+  }
+}
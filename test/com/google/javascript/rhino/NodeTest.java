@@ -380,7 +380,7 @@ public class NodeTest extends TestCase {
     n.putIntProp(Node.SIDE_EFFECT_FLAGS, 5);
     Node m = new Node(Token.TRUE);
     m.clonePropsFrom(n);
-    assertEquals(m.getPropListHeadForTesting(), n.getPropListHeadForTesting());
+    assertEquals(m.getPropsForTesting(), n.getPropsForTesting());
     assertEquals(5, n.getIntProp(Node.SIDE_EFFECT_FLAGS));
     assertEquals(5, m.getIntProp(Node.SIDE_EFFECT_FLAGS));
   }
@@ -395,7 +395,7 @@ public class NodeTest extends TestCase {
     assertEquals(6, n.getIntProp(Node.SIDE_EFFECT_FLAGS));
     assertEquals(5, m.getIntProp(Node.SIDE_EFFECT_FLAGS));
     assertFalse(
-        m.getPropListHeadForTesting() == n.getPropListHeadForTesting());
+        m.getPropsForTesting() == n.getPropsForTesting());
 
     m.putIntProp(Node.SIDE_EFFECT_FLAGS, 7);
     assertEquals(6, n.getIntProp(Node.SIDE_EFFECT_FLAGS));
@@ -419,20 +419,69 @@ public class NodeTest extends TestCase {
 
     n.putBooleanProp(Node.IS_CONSTANT_NAME, false);
 
-    assertNull(n.lookupProperty(Node.IS_CONSTANT_NAME));
+    assertFalse(n.hasProp(Node.IS_CONSTANT_NAME));
     assertFalse(n.getBooleanProp(Node.IS_CONSTANT_NAME));
 
     n.putBooleanProp(Node.IS_CONSTANT_NAME, true);
 
-    assertNotNull(n.lookupProperty(Node.IS_CONSTANT_NAME));
+    assertTrue(n.hasProp(Node.IS_CONSTANT_NAME));
     assertTrue(n.getBooleanProp(Node.IS_CONSTANT_NAME));
 
     n.putBooleanProp(Node.IS_CONSTANT_NAME, false);
 
-    assertNull(n.lookupProperty(Node.IS_CONSTANT_NAME));
+    assertFalse(n.hasProp(Node.IS_CONSTANT_NAME));
     assertFalse(n.getBooleanProp(Node.IS_CONSTANT_NAME));
   }
 
+  public void testBooleanPropWithOtherIntValue() {
+    Node n = getVarRef("a");
+
+    n.putIntProp(Node.IS_CONSTANT_NAME, 2);
+    assertEquals(2, n.getIntProp(Node.IS_CONSTANT_NAME));
+
+    n.putBooleanProp(Node.IS_CONSTANT_NAME, true);
+    assertEquals(1, n.getIntProp(Node.IS_CONSTANT_NAME));
+
+    n.putIntProp(Node.IS_CONSTANT_NAME, 3);
+    assertEquals(3, n.getIntProp(Node.IS_CONSTANT_NAME));
+
+    n.removeProp(Node.IS_CONSTANT_NAME);
+    assertFalse(n.hasProp(Node.IS_CONSTANT_NAME));
+    assertEquals(0, n.getIntProp(Node.IS_CONSTANT_NAME));
+  }
+
+  public void testManyProps() {
+    Node n = getVarRef("a");
+    n.putProp(Node.ORIGINALNAME_PROP, "b");
+    n.putIntProp(Node.SIDE_EFFECT_FLAGS, 7);
+    n.putBooleanProp(Node.FREE_CALL, true);
+    n.putProp(Node.DIRECTIVES, "c");
+    n.putIntProp(Node.CHANGE_TIME, 1000);
+    n.putBooleanProp(Node.QUOTED_PROP, true);
+
+    assertEquals("b", n.getProp(Node.ORIGINALNAME_PROP));
+    assertEquals(7, n.getIntProp(Node.SIDE_EFFECT_FLAGS));
+    assertTrue(n.getBooleanProp(Node.FREE_CALL));
+    assertEquals("c", n.getProp(Node.DIRECTIVES));
+    assertEquals(1000, n.getIntProp(Node.CHANGE_TIME));
+    assertTrue(n.getBooleanProp(Node.QUOTED_PROP));
+
+    n.removeProp(Node.SIDE_EFFECT_FLAGS);
+    n.putBooleanProp(Node.FREE_CALL, false);
+    n.putProp(Node.ORIGINALNAME_PROP, null);
+    assertEquals(0, n.getIntProp(Node.SIDE_EFFECT_FLAGS));
+    assertFalse(n.getBooleanProp(Node.FREE_CALL));
+    assertNull(n.getProp(Node.ORIGINALNAME_PROP));
+    assertEquals("c", n.getProp(Node.DIRECTIVES));
+    assertEquals(1000, n.getIntProp(Node.CHANGE_TIME));
+    assertTrue(n.getBooleanProp(Node.QUOTED_PROP));
+
+    n.removeProp(Node.DIRECTIVES);
+    n.removeProp(Node.CHANGE_TIME);
+    n.removeProp(Node.QUOTED_PROP);
+    assertFalse(n.hasProps());
+  }
+
   // Verify that annotations on cloned nodes are properly handled.
   public void testCloneAnnontations2() {
     Node n = getVarRef("a");
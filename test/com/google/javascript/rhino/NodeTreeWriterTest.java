@@ -0,0 +1,195 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.javascript.rhino;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+
+/** Tests for {@link NodeTreeWriter} and {@link NodeTreeReader}. */
+public final class NodeTreeWriterTest extends TestCase {
+  private Node root;
+  private Node name;
+  private Node number;
+  private List<Object> roundTripped;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    Node script = IR.script();
+    script.setStaticSourceFile(new TestSourceFile());
+    name = IR.name("x");
+    number = IR.number(-0.0);
+    Node var = IR.var(name, number);
+    script.addChildToBack(var);
+    root = IR.root(script);
+    for (Node n : new Node[] {name, number, var}) {
+      n.setStaticSourceFileFrom(script);
+    }
+  }
+
+  public void testRoundTrip() throws Exception {
+    name.setLineno(3);
+    name.setCharno(4);
+    name.setLength(1);
+    name.putProp(Node.ORIGINALNAME_PROP, "y");
+    name.putIntProp(Node.SIDE_EFFECT_FLAGS, -5);
+    name.putBooleanProp(Node.IS_CONSTANT_NAME, true);
+    JSDocInfoBuilder builder = new JSDocInfoBuilder(false);
+    builder.recordDeprecated();
+    name.getParent().setJSDocInfo(builder.build());
+
+    Node copy = roundTrip(root);
+    assertNull(root.checkTreeEquals(copy));
+    Node nameCopy = copy.getFirstFirstChild().getFirstChild();
+    assertThat(nameCopy.getString()).isEqualTo("x");
+    assertThat(nameCopy.getLineno()).isEqualTo(3);
+    assertThat(nameCopy.getCharno()).isEqualTo(4);
+    assertThat(nameCopy.getLength()).isEqualTo(1);
+    assertThat(nameCopy.getProp(Node.ORIGINALNAME_PROP)).isEqualTo("y");
+    assertThat(nameCopy.getIntProp(Node.SIDE_EFFECT_FLAGS)).isEqualTo(-5);
+    assertThat(nameCopy.getBooleanProp(Node.IS_CONSTANT_NAME)).isTrue();
+    assertThat(nameCopy.getParent().getJSDocInfo().isDeprecated()).isTrue();
+    assertEquals(Double.NEGATIVE_INFINITY, 1 / nameCopy.getFirstChild().getDouble(), 0.0);
+  }
+
+  public void testPropertyListsStayShared() throws Exception {
+    name.putIntProp(Node.SIDE_EFFECT_FLAGS, 1);
+    Node copy = roundTrip(root);
+    Node scriptCopy = copy.getFirstChild();
+    Node nameCopy = scriptCopy.getFirstFirstChild();
+    assertThat(nameCopy.getStaticSourceFile()).isSameAs(scriptCopy.getStaticSourceFile());
+    assertThat(nameCopy.getPropArray()).isNotSameAs(scriptCopy.getPropArray());
+    assertThat(nameCopy.getFirstChild().getPropArray()).isSameAs(scriptCopy.getPropArray());
+  }
+
+  public void testReferencesIntoTreeAreResolved() throws Exception {
+    List<Object> others = new ArrayList<>();
+    others.add(number);
+    others.add(IR.string("detached"));
+    Node copy = roundTrip(root, others);
+    assertThat(roundTripped.get(0)).isSameAs(copy.getFirstFirstChild().getFirstFirstChild());
+    assertThat(((Node) roundTripped.get(1)).getString()).isEqualTo("detached");
+  }
+
+  public void testDeepTree() throws Exception {
+    Node block = root.getFirstChild();
+    for (int i = 0; i < 100000; i++) {
+      Node child = IR.block();
+      block.addChildToBack(child);
+      block = child;
+    }
+    Node copy = roundTrip(root);
+    int depth = 0;
+    for (Node n = copy; n.hasChildren(); n = n.getLastChild()) {
+      depth++;
+    }
+    assertThat(depth).isEqualTo(100001);
+  }
+
+  public void testUnpairedSurrogate() throws Exception {
+    root.getFirstChild().addChildToBack(IR.exprResult(IR.string("a\uD800b")));
+    Node copy = roundTrip(root);
+    assertThat(copy.getFirstChild().getLastChild().getFirstChild().getString())
+        .isEqualTo("a\uD800b");
+  }
+
+  private Node roundTrip(Node tree) throws Exception {
+    return roundTrip(tree, new ArrayList<>());
+  }
+
+  @SuppressWarnings("unchecked")
+  private Node roundTrip(Node tree, List<Object> others) throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (TreeOutputStream out = new TreeOutputStream(bytes)) {
+      out.writer.writeTree(tree);
+      out.writeObject(others);
+    }
+    try (TreeInputStream in =
+        new TreeInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      Node copy = in.reader.readTree();
+      roundTripped = (List<Object>) in.readObject();
+      return copy;
+    }
+  }
+
+  private static final class TreeOutputStream extends ObjectOutputStream {
+    final NodeTreeWriter writer = new NodeTreeWriter(this);
+
+    TreeOutputStream(OutputStream out) throws IOException {
+      super(out);
+      enableReplaceObject(true);
+    }
+
+    @Override
+    protected Object replaceObject(Object obj) {
+      return writer.replaceNode(obj);
+    }
+  }
+
+  private static final class TreeInputStream extends ObjectInputStream {
+    final NodeTreeReader reader = new NodeTreeReader(this);
+
+    TreeInputStream(InputStream in) throws IOException {
+      super(in);
+      enableResolveObject(true);
+    }
+
+    @Override
+    protected Object resolveObject(Object obj) throws IOException {
+      return reader.resolveNode(obj);
+    }
+  }
+
+  private static final class TestSourceFile implements StaticSourceFile, Serializable {
+    @Override
+    public String getName() {
+      return "test.js";
+    }
+
+    @Override
+    public boolean isExtern() {
+      return false;
+    }
+
+    @Override
+    public int getLineOffset(int lineNumber) {
+      return 0;
+    }
+
+    @Override
+    public int getLineOfOffset(int offset) {
+      return 0;
+    }
+
+    @Override
+    public int getColumnOfOffset(int offset) {
+      return 0;
+    }
+  }
+}